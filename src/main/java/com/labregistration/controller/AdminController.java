@@ -1,22 +1,28 @@
 package com.labregistration.controller;
 
+import com.labregistration.dto.AuditLogDTO;
 import com.labregistration.dto.UpdateLabManagerRequest;
 import com.labregistration.dto.UserDTO;
 import com.labregistration.dto.request.CreateLabManagerRequest;
 import com.labregistration.dto.response.ApiResponse;
+import com.labregistration.dto.response.CursorPage;
 import com.labregistration.model.RegistrationStatus;
 import com.labregistration.model.SessionStatus;
 import com.labregistration.repository.CourseRepository;
+import com.labregistration.service.AcademicHierarchyCache;
+import com.labregistration.service.AuditLogService;
 import com.labregistration.service.LabSessionService;
 import com.labregistration.service.RegistrationService;
 import com.labregistration.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +37,8 @@ public class AdminController {
     private final LabSessionService labSessionService;
     private final RegistrationService registrationService;
     private final CourseRepository courseRepository;
+    private final AuditLogService auditLogService;
+    private final AcademicHierarchyCache hierarchyCache;
 
     // Lab Manager Management
     @GetMapping("/lab-managers")
@@ -67,6 +75,22 @@ public class AdminController {
         return ResponseEntity.ok(ApiResponse.success("Lab Manager activated", null));
     }
 
+    // Audit Log
+    @GetMapping("/audit-logs")
+    public ResponseEntity<ApiResponse<CursorPage<AuditLogDTO>>> getAuditLogs(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(ApiResponse.success(auditLogService.getAuditLogsPage(start, end, cursor, limit)));
+    }
+
+    // Cache statistics for the public academic hierarchy
+    @GetMapping("/cache/academic-hierarchy")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> getHierarchyCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(hierarchyCache.stats()));
+    }
+
     // Dashboard Statistics
     @GetMapping("/dashboard/stats")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getDashboardStats() {
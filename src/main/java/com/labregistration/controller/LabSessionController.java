@@ -1,18 +1,27 @@
 package com.labregistration.controller;
 
+import com.labregistration.dto.BulkEnrollmentResultDTO;
 import com.labregistration.dto.LabSessionDTO;
+import com.labregistration.dto.TimetableImportResultDTO;
+import com.labregistration.dto.request.BulkEnrollRequest;
 import com.labregistration.dto.request.CreateLabSessionRequest;
 import com.labregistration.dto.response.ApiResponse;
+import com.labregistration.dto.response.CursorPage;
 import com.labregistration.model.SessionStatus;
 import com.labregistration.model.User;
+import com.labregistration.service.BulkEnrollmentService;
 import com.labregistration.service.LabSessionService;
+import com.labregistration.service.PreferenceAllocationService;
+import com.labregistration.service.TimetableImportService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 
@@ -22,31 +31,56 @@ import java.util.List;
 public class LabSessionController {
 
     private final LabSessionService labSessionService;
+    private final TimetableImportService timetableImportService;
+    private final PreferenceAllocationService preferenceAllocationService;
+    private final BulkEnrollmentService bulkEnrollmentService;
+
+    // List endpoints accept ?summary=true to leave out each session's time slots
 
     @GetMapping
-    public ResponseEntity<ApiResponse<List<LabSessionDTO>>> getAllLabSessions() {
-        return ResponseEntity.ok(ApiResponse.success(labSessionService.getAllLabSessions()));
+    public ResponseEntity<ApiResponse<List<LabSessionDTO>>> getAllLabSessions(
+            @RequestParam(defaultValue = "false") boolean summary) {
+        return ResponseEntity.ok(ApiResponse.success(labSessionService.getAllLabSessions(summary)));
     }
 
     @GetMapping("/available")
-    public ResponseEntity<ApiResponse<List<LabSessionDTO>>> getAvailableLabSessions() {
-        return ResponseEntity.ok(ApiResponse.success(labSessionService.getAvailableLabSessions()));
+    public ResponseEntity<ApiResponse<List<LabSessionDTO>>> getAvailableLabSessions(
+            @RequestParam(defaultValue = "false") boolean summary) {
+        return ResponseEntity.ok(ApiResponse.success(labSessionService.getAvailableLabSessions(summary)));
     }
 
     @GetMapping("/available-for-me")
     @PreAuthorize("hasRole('STUDENT')")
-    public ResponseEntity<ApiResponse<List<LabSessionDTO>>> getAvailableSessionsForStudent(Authentication auth) {
+    public ResponseEntity<ApiResponse<List<LabSessionDTO>>> getAvailableSessionsForStudent(
+            Authentication auth,
+            @RequestParam(defaultValue = "false") boolean summary) {
         User user = (User) auth.getPrincipal();
         Long programId = user.getProgram() != null ? user.getProgram().getId() : null;
         if (programId == null) {
-            return ResponseEntity.ok(ApiResponse.success(labSessionService.getAvailableLabSessions()));
+            return ResponseEntity.ok(ApiResponse.success(labSessionService.getAvailableLabSessions(summary)));
         }
-        return ResponseEntity.ok(ApiResponse.success(labSessionService.getAvailableSessionsForProgram(programId)));
+        return ResponseEntity.ok(ApiResponse.success(labSessionService.getAvailableSessionsForProgram(programId, summary)));
     }
 
     @GetMapping("/status/{status}")
-    public ResponseEntity<ApiResponse<List<LabSessionDTO>>> getLabSessionsByStatus(@PathVariable SessionStatus status) {
-        return ResponseEntity.ok(ApiResponse.success(labSessionService.getLabSessionsByStatus(status)));
+    public ResponseEntity<ApiResponse<List<LabSessionDTO>>> getLabSessionsByStatus(
+            @PathVariable SessionStatus status,
+            @RequestParam(defaultValue = "false") boolean summary) {
+        return ResponseEntity.ok(ApiResponse.success(labSessionService.getLabSessionsByStatus(status, summary)));
+    }
+
+    /**
+     * Keyset-paginated session list, newest first. Pass the returned nextCursor as cursor
+     * to fetch the following page.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<ApiResponse<CursorPage<LabSessionDTO>>> getLabSessionsPage(
+            @RequestParam(required = false) SessionStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean summary) {
+        return ResponseEntity.ok(ApiResponse.success(
+                labSessionService.getLabSessionsPage(status, cursor, limit, summary)));
     }
 
     @GetMapping("/{id}")
@@ -64,6 +98,35 @@ public class LabSessionController {
                 .body(ApiResponse.success("Lab session created successfully", session));
     }
 
+    /**
+     * Create a semester's sessions from a CSV/XLSX timetable. Nothing is saved if any row is
+     * invalid (400); ?dryRun=true only validates. Sessions are saved in batches, so if saving
+     * fails part way the earlier batches stay saved: the response is then 200 with
+     * partial=true, the saved session ids and the rows that were not imported.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'LAB_MANAGER')")
+    public ResponseEntity<ApiResponse<TimetableImportResultDTO>> importTimetable(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(defaultValue = "false") boolean dryRun,
+            Authentication authentication) {
+        TimetableImportResultDTO result = timetableImportService.importTimetable(file, authentication.getName(), dryRun);
+        if (result.isPartial()) {
+            return ResponseEntity.ok(ApiResponse.success(String.format(
+                    "Timetable partially imported: %d of %d session(s) saved",
+                    result.getCreatedSessions(), result.getValidRows()), result));
+        }
+        if (!result.getErrors().isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Timetable has " + result.getErrors().size() + " error(s)", result));
+        }
+        if (dryRun) {
+            return ResponseEntity.ok(ApiResponse.success("Timetable is valid", result));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success("Timetable imported successfully", result));
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'LAB_MANAGER')")
     public ResponseEntity<ApiResponse<LabSessionDTO>> updateLabSession(
@@ -82,6 +145,27 @@ public class LabSessionController {
                 labSessionService.updateStatus(id, status)));
     }
 
+    /**
+     * Enroll every student of a program (optionally one level) into the session, spread
+     * evenly over its upcoming slots.
+     */
+    @PostMapping("/{id}/enroll")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'LAB_MANAGER')")
+    public ResponseEntity<ApiResponse<BulkEnrollmentResultDTO>> enrollCohort(
+            @PathVariable Long id,
+            @Valid @RequestBody BulkEnrollRequest request) {
+        BulkEnrollmentResultDTO result = bulkEnrollmentService.enroll(id, request);
+        return ResponseEntity.ok(ApiResponse.success(result.getEnrolled() + " student(s) enrolled", result));
+    }
+
+    // Allocate a preference-mode session now instead of waiting for its deadline
+    @PostMapping("/{id}/allocate")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'LAB_MANAGER')")
+    public ResponseEntity<ApiResponse<PreferenceAllocationService.AllocationResult>> allocateByPreference(
+            @PathVariable Long id) {
+        return ResponseEntity.ok(ApiResponse.success("Slots allocated", preferenceAllocationService.allocate(id)));
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'LAB_MANAGER')")
     public ResponseEntity<ApiResponse<Void>> deleteLabSession(@PathVariable Long id) {
@@ -1,11 +1,17 @@
 package com.labregistration.controller;
 
+import com.labregistration.dto.AnnouncementResultDTO;
+import com.labregistration.dto.request.AnnouncementRequest;
 import com.labregistration.dto.response.ApiResponse;
+import com.labregistration.dto.response.CursorPage;
 import com.labregistration.model.Notification;
 import com.labregistration.model.User;
+import com.labregistration.service.NotificationFanOutService;
 import com.labregistration.service.NotificationService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,6 +24,7 @@ import java.util.Map;
 public class NotificationController {
 
     private final NotificationService notificationService;
+    private final NotificationFanOutService notificationFanOutService;
 
     @GetMapping
     public ResponseEntity<ApiResponse<List<Notification>>> getMyNotifications(Authentication auth) {
@@ -25,6 +32,16 @@ public class NotificationController {
         return ResponseEntity.ok(ApiResponse.success(notificationService.getUserNotifications(user.getId())));
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<ApiResponse<CursorPage<Notification>>> getMyNotificationsPage(
+            Authentication auth,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        User user = (User) auth.getPrincipal();
+        return ResponseEntity.ok(ApiResponse.success(
+                notificationService.getUserNotificationsPage(user.getId(), cursor, limit)));
+    }
+
     @GetMapping("/unread")
     public ResponseEntity<ApiResponse<List<Notification>>> getUnreadNotifications(Authentication auth) {
         User user = (User) auth.getPrincipal();
@@ -50,4 +67,14 @@ public class NotificationController {
         notificationService.markAllAsRead(user.getId());
         return ResponseEntity.ok(ApiResponse.success("All notifications marked as read", null));
     }
+
+    /**
+     * Message every active registrant of a session, time slot or course.
+     */
+    @PostMapping("/announcements")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'LAB_MANAGER')")
+    public ResponseEntity<ApiResponse<AnnouncementResultDTO>> announce(@Valid @RequestBody AnnouncementRequest request) {
+        AnnouncementResultDTO result = notificationFanOutService.announce(request);
+        return ResponseEntity.ok(ApiResponse.success("Announcement sent to " + result.getRecipients() + " registrant(s)", result));
+    }
 }
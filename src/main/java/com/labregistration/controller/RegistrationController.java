@@ -1,11 +1,19 @@
 package com.labregistration.controller;
 
 import com.labregistration.dto.GroupMemberDto;
+import com.labregistration.dto.QueueStatusDTO;
 import com.labregistration.dto.RegistrationDTO;
+import com.labregistration.dto.SlotSwapRequestDTO;
 import com.labregistration.dto.request.CreateRegistrationRequest;
+import com.labregistration.dto.request.SlotPreferencesRequest;
 import com.labregistration.dto.response.ApiResponse;
+import com.labregistration.dto.response.CursorPage;
 import com.labregistration.model.RegistrationStatus;
+import com.labregistration.model.SwapRequestStatus;
+import com.labregistration.service.IdempotencyService;
+import com.labregistration.service.RegistrationAdmissionControl;
 import com.labregistration.service.RegistrationService;
+import com.labregistration.service.SlotExchangeService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -22,15 +30,37 @@ import java.util.List;
 public class RegistrationController {
 
     private final RegistrationService registrationService;
+    private final IdempotencyService idempotencyService;
+    private final RegistrationAdmissionControl admissionControl;
+    private final SlotExchangeService slotExchangeService;
 
+    // Clients may send an Idempotency-Key header; a retry with the same key gets the
+    // original response back instead of registering or cancelling again
     @PostMapping
     @PreAuthorize("hasRole('STUDENT')")
     public ResponseEntity<ApiResponse<RegistrationDTO>> createRegistration(
             @Valid @RequestBody CreateRegistrationRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication authentication) {
-        RegistrationDTO registration = registrationService.createRegistration(request, authentication.getName());
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(ApiResponse.success("Registration successful", registration));
+        // Throws 429 with a queue position when the session is saturated; checked before the
+        // key is claimed so shed requests never reach the database
+        try (RegistrationAdmissionControl.Permit permit =
+                     admissionControl.enter(request.getLabSessionId(), authentication.getName())) {
+            return idempotencyService.execute(idempotencyKey, authentication.getName(),
+                    "POST /api/registrations", request, RegistrationDTO.class, () -> {
+                        RegistrationDTO registration = registrationService.createRegistration(request, authentication.getName());
+                        return ResponseEntity.status(HttpStatus.CREATED)
+                                .body(ApiResponse.success("Registration successful", registration));
+                    });
+        }
+    }
+
+    // Poll while queued for a busy session; submit the registration again once ADMITTED
+    @GetMapping("/queue/{sessionId}")
+    @PreAuthorize("hasRole('STUDENT')")
+    public ResponseEntity<ApiResponse<QueueStatusDTO>> getQueueStatus(
+            @PathVariable Long sessionId, Authentication authentication) {
+        return ResponseEntity.ok(ApiResponse.success(admissionControl.status(sessionId, authentication.getName())));
     }
 
     @GetMapping("/my")
@@ -58,6 +88,16 @@ public class RegistrationController {
         return ResponseEntity.ok(ApiResponse.success(registrationService.getRegistrationsBySessionId(sessionId)));
     }
 
+    @GetMapping("/session/{sessionId}/page")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'LAB_MANAGER')")
+    public ResponseEntity<ApiResponse<CursorPage<RegistrationDTO>>> getRegistrationsPageBySession(
+            @PathVariable Long sessionId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(ApiResponse.success(
+                registrationService.getRegistrationsPageBySessionId(sessionId, cursor, limit)));
+    }
+
     @GetMapping("/session/{sessionId}/slot/{slotNumber}")
     @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'LAB_MANAGER')")
     public ResponseEntity<ApiResponse<List<RegistrationDTO>>> getRegistrationsBySlot(
@@ -69,19 +109,94 @@ public class RegistrationController {
     @PatchMapping("/{id}/cancel")
     @PreAuthorize("hasRole('STUDENT')")
     public ResponseEntity<ApiResponse<RegistrationDTO>> cancelRegistration(
+            @PathVariable Long id,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            Authentication authentication) {
+        return idempotencyService.execute(idempotencyKey, authentication.getName(),
+                "PATCH /api/registrations/{id}/cancel", id, RegistrationDTO.class,
+                () -> ResponseEntity.ok(ApiResponse.success("Registration cancelled",
+                        registrationService.cancelRegistration(id, authentication.getName()))));
+    }
+
+    // Ranked time slot choices, for sessions that allocate by preference after the deadline
+    @GetMapping("/{id}/preferences")
+    @PreAuthorize("hasRole('STUDENT')")
+    public ResponseEntity<ApiResponse<List<Long>>> getPreferences(
             @PathVariable Long id, Authentication authentication) {
-        return ResponseEntity.ok(ApiResponse.success("Registration cancelled", 
-                registrationService.cancelRegistration(id, authentication.getName())));
+        return ResponseEntity.ok(ApiResponse.success(registrationService.getPreferences(id, authentication.getName())));
+    }
+
+    @PutMapping("/{id}/preferences")
+    @PreAuthorize("hasRole('STUDENT')")
+    public ResponseEntity<ApiResponse<RegistrationDTO>> updatePreferences(
+            @PathVariable Long id,
+            @Valid @RequestBody SlotPreferencesRequest request,
+            Authentication authentication) {
+        return ResponseEntity.ok(ApiResponse.success("Slot preferences updated",
+                registrationService.updatePreferences(id, request.getTimeSlotIds(), authentication.getName())));
     }
 
     @PatchMapping("/{id}/change-slot")
     @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'LAB_MANAGER')")
     public ResponseEntity<ApiResponse<RegistrationDTO>> changeSlot(
             @PathVariable Long id, 
-            @RequestParam Integer newSlotNumber,
-            Authentication authentication) {
+            @RequestParam Integer newSlotNumber) {
         return ResponseEntity.ok(ApiResponse.success("Time slot changed", 
-                registrationService.changeSlot(id, newSlotNumber, authentication.getName())));
+                registrationService.changeSlot(id, newSlotNumber)));
+    }
+
+    @PatchMapping("/{id}/move")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'LAB_MANAGER')")
+    public ResponseEntity<ApiResponse<RegistrationDTO>> moveToSlot(
+            @PathVariable Long id,
+            @RequestParam Long timeSlotId) {
+        return ResponseEntity.ok(ApiResponse.success("Time slot changed", slotExchangeService.move(id, timeSlotId)));
+    }
+
+    // Exchange the slots of two registrations; works between full slots
+    @PostMapping("/swap")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'LAB_MANAGER')")
+    public ResponseEntity<ApiResponse<List<RegistrationDTO>>> swapSlots(
+            @RequestParam Long registrationId,
+            @RequestParam Long otherRegistrationId) {
+        return ResponseEntity.ok(ApiResponse.success("Time slots swapped",
+                slotExchangeService.swap(registrationId, otherRegistrationId)));
+    }
+
+    // Offer to trade this registration's slot; completes at once if someone offered the opposite trade
+    @PostMapping("/{id}/swap-requests")
+    @PreAuthorize("hasRole('STUDENT')")
+    public ResponseEntity<ApiResponse<SlotSwapRequestDTO>> requestSwap(
+            @PathVariable Long id,
+            @RequestParam Long timeSlotId,
+            Authentication authentication) {
+        SlotSwapRequestDTO request = slotExchangeService.requestSwap(id, timeSlotId, authentication.getName());
+        return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(
+                request.getStatus() == SwapRequestStatus.COMPLETED ? "Time slots swapped" : "Swap request posted",
+                request));
+    }
+
+    @GetMapping("/swap-requests/session/{sessionId}")
+    public ResponseEntity<ApiResponse<List<SlotSwapRequestDTO>>> getOpenSwapRequests(@PathVariable Long sessionId) {
+        return ResponseEntity.ok(ApiResponse.success(slotExchangeService.getOpenSwapRequests(sessionId)));
+    }
+
+    @PostMapping("/swap-requests/{requestId}/accept")
+    @PreAuthorize("hasRole('STUDENT')")
+    public ResponseEntity<ApiResponse<SlotSwapRequestDTO>> acceptSwapRequest(
+            @PathVariable Long requestId,
+            @RequestParam Long registrationId,
+            Authentication authentication) {
+        return ResponseEntity.ok(ApiResponse.success("Time slots swapped",
+                slotExchangeService.acceptSwapRequest(requestId, registrationId, authentication.getName())));
+    }
+
+    @DeleteMapping("/swap-requests/{requestId}")
+    @PreAuthorize("hasRole('STUDENT')")
+    public ResponseEntity<ApiResponse<Void>> cancelSwapRequest(
+            @PathVariable Long requestId, Authentication authentication) {
+        slotExchangeService.cancelSwapRequest(requestId, authentication.getName());
+        return ResponseEntity.ok(ApiResponse.success("Swap request cancelled", null));
     }
 
     @PatchMapping("/{id}/status")
@@ -1,15 +1,32 @@
 package com.labregistration.controller;
+import com.labregistration.dto.response.ApiResponse;
+import com.labregistration.dto.ReportJobDTO;
+import com.labregistration.dto.request.CreateReportJobRequest;
+import com.labregistration.service.ReportJobService;
 import com.labregistration.service.ReportService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
+/**
+ * Report downloads. Every report is written straight to the response stream
+ * (CSV/TXT line by line, Excel via SXSSF, PDF page by page) instead of being
+ * built in memory first. All-registrations exports read their data a chunk of
+ * sessions at a time; other reports hold the roster of the sessions they cover.
+ * Large exports can instead be queued as background jobs under {@code /jobs}
+ * and downloaded once ready.
+ */
 @RestController
 @RequestMapping("/api/reports")
 @RequiredArgsConstructor
@@ -17,51 +34,41 @@ import java.time.format.DateTimeFormatter;
 @PreAuthorize("hasAnyRole('LAB_MANAGER', 'SUPER_ADMIN')")
 public class ReportController {
 
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    private static final MediaType EXCEL = MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
     private final ReportService reportService;
+    private final ReportJobService reportJobService;
 
     /**
      * Download session report in specified format (txt, csv, excel, pdf)
      * The pdf format routes to the professional iText table-based PDF.
      */
     @GetMapping("/session/{sessionId}")
-    public ResponseEntity<byte[]> downloadSessionReport(
+    public ResponseEntity<StreamingResponseBody> downloadSessionReport(
             @PathVariable Long sessionId,
-            @RequestParam(defaultValue = "txt") String format) throws Exception {
+            @RequestParam(defaultValue = "txt") String format) {
 
-        byte[] report;
-        String filename;
-        MediaType mediaType;
+        reportService.requireSession(sessionId);
         String dateStr = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        String baseName = "session_report_" + sessionId + "_" + dateStr;
 
         switch (format.toLowerCase()) {
             case "csv":
-                report = reportService.generateSessionReportCsv(sessionId);
-                filename = "session_report_" + sessionId + "_" + dateStr + ".csv";
-                mediaType = MediaType.parseMediaType("text/csv");
-                break;
+                return stream(baseName + ".csv", TEXT_CSV,
+                        out -> reportService.writeSessionReportCsv(sessionId, out));
             case "excel":
             case "xlsx":
-                report = reportService.generateSessionReportExcel(sessionId);
-                filename = "session_report_" + sessionId + "_" + dateStr + ".xlsx";
-                mediaType = MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-                break;
+                return stream(baseName + ".xlsx", EXCEL,
+                        out -> reportService.writeSessionReportExcel(sessionId, out));
             case "pdf":
-                report = reportService.generateSessionReportPdf(sessionId);
-                filename = "session_report_" + sessionId + "_" + dateStr + ".pdf";
-                mediaType = MediaType.APPLICATION_PDF;
-                break;
+                return stream(baseName + ".pdf", MediaType.APPLICATION_PDF,
+                        out -> reportService.writeSessionReportPdf(sessionId, out));
             case "txt":
             default:
-                report = reportService.generateSessionReportTxt(sessionId);
-                filename = "session_report_" + sessionId + "_" + dateStr + ".txt";
-                mediaType = MediaType.TEXT_PLAIN;
-                break;
+                return stream(baseName + ".txt", MediaType.TEXT_PLAIN,
+                        out -> reportService.writeSessionReportTxt(sessionId, out));
         }
-
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .contentType(mediaType)
-                .body(report);
     }
 
     /**
@@ -69,160 +76,142 @@ public class ReportController {
      * GET /api/reports/session/{sessionId}/pdf
      */
     @GetMapping("/session/{sessionId}/pdf")
-    public ResponseEntity<byte[]> downloadSessionReportPdf(@PathVariable Long sessionId) {
-        byte[] report = reportService.generateSessionReportPdf(sessionId);
+    public ResponseEntity<StreamingResponseBody> downloadSessionReportPdf(@PathVariable Long sessionId) {
+        reportService.requireSession(sessionId);
         String filename = "session_report_" + sessionId + "_"
                 + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + ".pdf";
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .contentType(MediaType.APPLICATION_PDF)
-                .body(report);
+        return stream(filename, MediaType.APPLICATION_PDF,
+                out -> reportService.writeSessionReportPdf(sessionId, out));
     }
 
     /**
      * Download all registrations in specified format (csv, excel, pdf)
      */
     @GetMapping("/all")
-    public ResponseEntity<byte[]> downloadAllRegistrationsReport(
-            @RequestParam(defaultValue = "csv") String format) throws Exception {
+    public ResponseEntity<StreamingResponseBody> downloadAllRegistrationsReport(
+            @RequestParam(defaultValue = "csv") String format) {
 
-        byte[] report;
-        String filename;
-        MediaType mediaType;
-        String dateStr = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        String baseName = "all_registrations_" + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
 
         switch (format.toLowerCase()) {
             case "excel":
             case "xlsx":
-                report = reportService.generateAllRegistrationsExcel();
-                filename = "all_registrations_" + dateStr + ".xlsx";
-                mediaType = MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-                break;
+                return stream(baseName + ".xlsx", EXCEL, reportService::writeAllRegistrationsExcel);
             case "pdf":
-                report = reportService.generateAllRegistrationsPdf();
-                filename = "all_registrations_" + dateStr + ".pdf";
-                mediaType = MediaType.APPLICATION_PDF;
-                break;
+                return stream(baseName + ".pdf", MediaType.APPLICATION_PDF, reportService::writeAllRegistrationsPdf);
             case "csv":
             default:
-                report = reportService.generateAllRegistrationsCsv();
-                filename = "all_registrations_" + dateStr + ".csv";
-                mediaType = MediaType.parseMediaType("text/csv");
-                break;
+                return stream(baseName + ".csv", TEXT_CSV, reportService::writeAllRegistrationsCsv);
         }
-
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .contentType(mediaType)
-                .body(report);
     }
 
     /**
      * Download course report in specified format
      */
     @GetMapping("/course/{courseId}")
-    public ResponseEntity<byte[]> downloadCourseReport(
+    public ResponseEntity<StreamingResponseBody> downloadCourseReport(
             @PathVariable Long courseId,
             @RequestParam(defaultValue = "txt") String format) {
 
-        byte[] report;
-        String filename;
-        MediaType mediaType;
-        String dateStr = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        reportService.requireCourse(courseId);
+        String baseName = "course_report_" + courseId + "_"
+                + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
 
         switch (format.toLowerCase()) {
             case "pdf":
-                report = reportService.generateCourseReportPdf(courseId);
-                filename = "course_report_" + courseId + "_" + dateStr + ".pdf";
-                mediaType = MediaType.APPLICATION_PDF;
-                break;
+                return stream(baseName + ".pdf", MediaType.APPLICATION_PDF,
+                        out -> reportService.writeCourseReportPdf(courseId, out));
             case "txt":
             default:
-                report = reportService.generateCourseReport(courseId);
-                filename = "course_report_" + courseId + "_" + dateStr + ".txt";
-                mediaType = MediaType.TEXT_PLAIN;
-                break;
+                return stream(baseName + ".txt", MediaType.TEXT_PLAIN,
+                        out -> reportService.writeCourseReportTxt(courseId, out));
         }
-
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .contentType(mediaType)
-                .body(report);
     }
 
     /**
      * Download date range report
      */
     @GetMapping("/date-range")
-    public ResponseEntity<byte[]> downloadDateRangeReport(
+    public ResponseEntity<StreamingResponseBody> downloadDateRangeReport(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(defaultValue = "csv") String format) {
 
-        byte[] report;
-        String filename;
-        MediaType mediaType;
-        String dateRangeStr = startDate.format(DateTimeFormatter.ofPattern("yyyyMMdd")) + "_to_" +
+        String baseName = "registrations_" + startDate.format(DateTimeFormatter.ofPattern("yyyyMMdd")) + "_to_" +
                 endDate.format(DateTimeFormatter.ofPattern("yyyyMMdd"));
 
         switch (format.toLowerCase()) {
             case "pdf":
-                report = reportService.generateDateRangeReportPdf(startDate, endDate);
-                filename = "registrations_" + dateRangeStr + ".pdf";
-                mediaType = MediaType.APPLICATION_PDF;
-                break;
+                return stream(baseName + ".pdf", MediaType.APPLICATION_PDF,
+                        out -> reportService.writeDateRangeReportPdf(startDate, endDate, out));
             case "excel":
             case "xlsx":
-                report = reportService.generateDateRangeReportExcel(startDate, endDate);
-                filename = "registrations_" + dateRangeStr + ".xlsx";
-                mediaType = MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-                break;
+                return stream(baseName + ".xlsx", EXCEL,
+                        out -> reportService.writeDateRangeReportExcel(startDate, endDate, out));
             case "csv":
             default:
-                report = reportService.generateDateRangeReport(startDate, endDate);
-                filename = "registrations_" + dateRangeStr + ".csv";
-                mediaType = MediaType.parseMediaType("text/csv");
-                break;
+                return stream(baseName + ".csv", TEXT_CSV,
+                        out -> reportService.writeDateRangeReportCsv(startDate, endDate, out));
         }
-
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .contentType(mediaType)
-                .body(report);
     }
 
     /**
      * Download department summary report
      */
     @GetMapping("/department/{departmentName}")
-    public ResponseEntity<byte[]> downloadDepartmentReport(
+    public ResponseEntity<StreamingResponseBody> downloadDepartmentReport(
             @PathVariable String departmentName,
             @RequestParam(defaultValue = "excel") String format) {
 
-        byte[] report;
-        String filename;
-        MediaType mediaType;
-        String dateStr = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        String baseName = "department_report_" + departmentName + "_"
+                + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
 
         switch (format.toLowerCase()) {
             case "pdf":
-                report = reportService.generateDepartmentReportPdf(departmentName);
-                filename = "department_report_" + departmentName + "_" + dateStr + ".pdf";
-                mediaType = MediaType.APPLICATION_PDF;
-                break;
+                return stream(baseName + ".pdf", MediaType.APPLICATION_PDF,
+                        out -> reportService.writeDepartmentReportPdf(departmentName, out));
             case "excel":
             case "xlsx":
             default:
-                report = reportService.generateDepartmentReportExcel(departmentName);
-                filename = "department_report_" + departmentName + "_" + dateStr + ".xlsx";
-                mediaType = MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-                break;
+                return stream(baseName + ".xlsx", EXCEL,
+                        out -> reportService.writeDepartmentReportExcel(departmentName, out));
         }
+    }
+
+    /**
+     * Queue a report for background generation. Poll the returned job until it is
+     * COMPLETED, then fetch it from its downloadUrl (409 until then). Answers 503 with
+     * Retry-After when the render queue is full.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<ApiResponse<ReportJobDTO>> createReportJob(
+            @Valid @RequestBody CreateReportJobRequest request,
+            Authentication auth) {
+        ReportJobDTO job = reportJobService.submit(request, auth.getName());
+        return ResponseEntity.accepted().body(ApiResponse.success("Report job queued", job));
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ApiResponse<ReportJobDTO>> getReportJob(@PathVariable String jobId,
+                                                                  Authentication auth) {
+        return ResponseEntity.ok(ApiResponse.success(reportJobService.getJob(jobId, auth.getName())));
+    }
+
+    @GetMapping("/jobs/{jobId}/download")
+    public ResponseEntity<Resource> downloadReportJob(@PathVariable String jobId, Authentication auth) {
+        ReportJobService.ReportArtifact artifact = reportJobService.getArtifact(jobId, auth.getName());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + artifact.filename() + "\"")
+                .contentType(MediaType.parseMediaType(artifact.mediaType()))
+                .body(new FileSystemResource(artifact.path()));
+    }
 
+    private ResponseEntity<StreamingResponseBody> stream(String filename, MediaType mediaType,
+                                                         StreamingResponseBody body) {
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
                 .contentType(mediaType)
-                .body(report);
+                .body(body);
     }
-}
\ No newline at end of file
+}
@@ -104,12 +104,15 @@ package com.labregistration.controller;
 
 import com.labregistration.dto.TimeSlotDTO;
 import com.labregistration.dto.response.ApiResponse;
+import com.labregistration.service.SlotAvailabilityStream;
 import com.labregistration.service.TimeSlotService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -121,6 +124,7 @@ import java.util.Map;
 public class TimeSlotController {
 
     private final TimeSlotService timeSlotService;
+    private final SlotAvailabilityStream slotAvailabilityStream;
 
     // ─── Student / Public Endpoints ──────────────────────────────────────────────
 
@@ -136,6 +140,14 @@ public class TimeSlotController {
         return ResponseEntity.ok(ApiResponse.success("Available slots", timeSlotService.getAvailableSlots(sessionId)));
     }
 
+    // GET /api/sessions/{sessionId}/time-slots/stream
+    // Server-Sent Events: a "snapshot" of every slot, then "capacity" events with the
+    // absolute state of changed slots; both carry an increasing sequence number
+    @GetMapping(value = "/sessions/{sessionId}/time-slots/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAvailability(@PathVariable Long sessionId) {
+        return slotAvailabilityStream.subscribe(sessionId);
+    }
+
     // GET /api/sessions/{sessionId}/time-slots/upcoming
     @GetMapping("/sessions/{sessionId}/time-slots/upcoming")
     public ResponseEntity<ApiResponse<List<TimeSlotDTO>>> getUpcomingSlots(@PathVariable Long sessionId) {
@@ -3,6 +3,7 @@ package com.labregistration.controller;
 import com.labregistration.dto.UserDTO;
 import com.labregistration.dto.request.CreateLabManagerRequest;
 import com.labregistration.dto.response.ApiResponse;
+import com.labregistration.dto.response.CursorPage;
 import com.labregistration.model.User;
 import com.labregistration.service.UserService;
 import jakarta.validation.Valid;
@@ -40,6 +41,14 @@ public class UserController {
         return ResponseEntity.ok(ApiResponse.success(userService.getAllStudents()));
     }
 
+    @GetMapping("/students/page")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'LAB_MANAGER')")
+    public ResponseEntity<ApiResponse<CursorPage<UserDTO>>> getStudentsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(ApiResponse.success(userService.getStudentsPage(cursor, limit)));
+    }
+
     @GetMapping("/students/search")
     @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'LAB_MANAGER')")
     public ResponseEntity<ApiResponse<List<UserDTO>>> searchStudents(@RequestParam String q) {
@@ -0,0 +1,19 @@
+package com.labregistration.dto;
+
+import com.labregistration.model.AnnouncementTarget;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnnouncementResultDTO {
+    private AnnouncementTarget target;
+    private Long targetId;
+    private int recipients;
+    private int emailsQueued;
+    private long elapsedMillis;
+}
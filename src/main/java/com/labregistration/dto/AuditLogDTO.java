@@ -0,0 +1,24 @@
+package com.labregistration.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditLogDTO {
+    private Long id;
+    private Long userId;
+    private String action;
+    private String entityType;
+    private Long entityId;
+    private String details;
+    private String ipAddress;
+    private String userAgent;
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,22 @@
+package com.labregistration.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkEnrollmentResultDTO {
+    private Long labSessionId;
+    private int cohortSize;
+    private int alreadyRegistered;
+    private int enrolled;     // new or reactivated registrations
+    private int skippedForClashes; // every slot with a free seat clashes with their timetable
+    private int confirmed;    // of which got a slot
+    private int waitlisted;
+    private int pending;      // waiting for a preference allocation
+    private int slotsUsed;
+}
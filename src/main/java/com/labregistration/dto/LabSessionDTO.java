@@ -1,5 +1,6 @@
 package com.labregistration.dto;
 
+import com.labregistration.model.AllocationMode;
 import com.labregistration.model.SessionStatus;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -61,6 +62,8 @@ public class LabSessionDTO {
     
     // Additional info
     private LocalDateTime registrationDeadline;
+    private AllocationMode allocationMode;
+    private LocalDateTime allocatedAt;
     private String instructions;
     
     // Time slots (grouped by date)
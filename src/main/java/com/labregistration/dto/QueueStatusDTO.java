@@ -0,0 +1,21 @@
+package com.labregistration.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueueStatusDTO {
+    private Long labSessionId;
+    private String status; // WAITING, ADMITTED, NOT_QUEUED
+    private Integer position; // 1-based place in the virtual queue while WAITING
+    private Integer queueLength;
+    private Integer retryAfterSeconds;
+    private LocalDateTime admittedUntil; // submit the registration before this time when ADMITTED
+}
@@ -0,0 +1,28 @@
+package com.labregistration.dto;
+
+import com.labregistration.dto.request.CreateReportJobRequest.ReportType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportJobDTO {
+    private String id;
+    private ReportType type;
+    private String format;
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED
+    private String filename;
+    private Long sizeBytes;
+    private String error;
+    private String downloadUrl;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private LocalDateTime expiresAt;
+}
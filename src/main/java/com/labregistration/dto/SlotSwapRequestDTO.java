@@ -0,0 +1,39 @@
+package com.labregistration.dto;
+
+import com.labregistration.model.SwapRequestStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotSwapRequestDTO {
+    private Long id;
+    private Long registrationId;
+    private Long labSessionId;
+    private String studentName;
+    private SwapRequestStatus status;
+
+    // Slot offered
+    private Long fromTimeSlotId;
+    private LocalDate fromDate;
+    private LocalTime fromStartTime;
+    private LocalTime fromEndTime;
+
+    // Slot wanted
+    private Long toTimeSlotId;
+    private LocalDate toDate;
+    private LocalTime toStartTime;
+    private LocalTime toEndTime;
+
+    private Long matchedRegistrationId;
+    private LocalDateTime createdAt;
+    private LocalDateTime resolvedAt;
+}
@@ -0,0 +1,31 @@
+package com.labregistration.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimetableImportResultDTO {
+    private int totalRows;
+    private int validRows;
+    private int createdSessions;
+    private int createdSlots;
+    private boolean dryRun;
+    private boolean partial; // some batches were saved before a later one failed
+    private List<Long> sessionIds;
+    private List<RowError> errors;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private int row; // 1-based row number in the file, header included
+        private String message;
+    }
+}
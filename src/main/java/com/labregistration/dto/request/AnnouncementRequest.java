@@ -0,0 +1,34 @@
+package com.labregistration.dto.request;
+
+import com.labregistration.model.AnnouncementTarget;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnnouncementRequest {
+    @NotNull(message = "Target is required")
+    private AnnouncementTarget target;
+
+    @NotNull(message = "Target ID is required")
+    private Long targetId;
+
+    @NotBlank(message = "Title is required")
+    @Size(max = 255, message = "Title must be at most 255 characters")
+    private String title;
+
+    @NotBlank(message = "Message is required")
+    @Size(max = 1000, message = "Message must be at most 1000 characters")
+    private String message;
+
+    // INFO, WARNING, SUCCESS or ERROR (default INFO)
+    private String type;
+
+    // Also email every recipient (default false)
+    private Boolean sendEmail;
+}
@@ -0,0 +1,21 @@
+package com.labregistration.dto.request;
+
+import com.labregistration.model.Level;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkEnrollRequest {
+    @NotNull(message = "Program ID is required")
+    private Long programId;
+
+    // Optional: only students of this level
+    private Level level;
+
+    // Send each enrolled student a notification (default true)
+    private Boolean notifyStudents;
+}
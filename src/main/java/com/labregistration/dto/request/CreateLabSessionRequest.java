@@ -1,5 +1,6 @@
 package com.labregistration.dto.request;
 
+import com.labregistration.model.AllocationMode;
 import com.labregistration.model.SessionStatus;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
@@ -59,6 +60,9 @@ public class CreateLabSessionRequest {
     // Optional registration deadline
     private LocalDateTime registrationDeadline;
 
+    // FIRST_COME (default) or PREFERENCE; PREFERENCE requires a registration deadline
+    private AllocationMode allocationMode;
+
     // Instructions for students
     private String instructions;
 
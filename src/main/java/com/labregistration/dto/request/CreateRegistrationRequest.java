@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -16,6 +18,9 @@ public class CreateRegistrationRequest {
     // If not provided, system will auto-assign
     private Long timeSlotId;
 
+    // For sessions allocated by preference: time slot ids, best first (optional)
+    private List<Long> preferredTimeSlotIds;
+
     // Optional notes from student
     private String notes;
 }
@@ -0,0 +1,41 @@
+package com.labregistration.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateReportJobRequest {
+
+    public enum ReportType {
+        SESSION,
+        ALL_REGISTRATIONS,
+        COURSE,
+        DATE_RANGE,
+        DEPARTMENT
+    }
+
+    @NotNull(message = "Report type is required")
+    private ReportType type;
+
+    // txt, csv, excel/xlsx or pdf; defaults to the same format as the matching download endpoint
+    private String format;
+
+    // Required for SESSION
+    private Long sessionId;
+
+    // Required for COURSE
+    private Long courseId;
+
+    // Required for DEPARTMENT
+    private String departmentName;
+
+    // Required for DATE_RANGE
+    private LocalDate startDate;
+    private LocalDate endDate;
+}
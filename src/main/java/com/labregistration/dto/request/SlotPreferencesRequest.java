@@ -0,0 +1,17 @@
+package com.labregistration.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotPreferencesRequest {
+    // Time slot ids, best first; empty means any slot
+    @NotNull(message = "Time slot preferences are required")
+    private List<Long> timeSlotIds;
+}
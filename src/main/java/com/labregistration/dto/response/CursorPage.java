@@ -0,0 +1,102 @@
+package com.labregistration.dto.response;
+
+import com.labregistration.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One page of a keyset-paginated list.
+ *
+ * Pages are ordered by (createdAt, id) and the cursor is the sort key of the last item
+ * returned, so the next page is a seek on the index rather than an OFFSET scan and costs
+ * the same however deep the client has scrolled. Pass {@code nextCursor} back as
+ * {@code cursor} to continue; it is null on the last page.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+    private int limit;
+
+    /**
+     * Build a page from a query that was asked for {@code limit + 1} rows; the extra row
+     * only tells us whether another page exists.
+     */
+    public static <E, T> CursorPage<T> of(List<E> rows,
+                                          int limit,
+                                          Function<E, LocalDateTime> sortKey,
+                                          Function<E, Long> id,
+                                          Function<E, T> mapper) {
+        boolean hasMore = rows.size() > limit;
+        List<E> page = hasMore ? rows.subList(0, limit) : rows;
+        String next = null;
+        if (hasMore) {
+            E last = page.get(page.size() - 1);
+            next = new Cursor(sortKey.apply(last), id.apply(last)).encode();
+        }
+        return CursorPage.<T>builder()
+                .items(page.stream().map(mapper).collect(Collectors.toList()))
+                .nextCursor(next)
+                .hasMore(hasMore)
+                .limit(limit)
+                .build();
+    }
+
+    public static int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    /**
+     * Position after which the next page starts. An absent cursor means "first page" and
+     * decodes to a cursor with null fields, which the keyset queries treat as no bound.
+     */
+    public record Cursor(LocalDateTime createdAt, Long id) {
+
+        private static final Cursor FIRST = new Cursor(null, null);
+
+        public static Cursor decode(String token) {
+            if (token == null || token.isBlank()) {
+                return FIRST;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int sep = raw.lastIndexOf('|');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+            } catch (RuntimeException e) {
+                throw new BadRequestException("Invalid page cursor");
+            }
+        }
+
+        /**
+         * Token for this position. Keyset pages need a sort key on every row, so a row without
+         * one is a bug rather than something the client could page past.
+         */
+        public String encode() {
+            if (createdAt == null || id == null) {
+                throw new IllegalStateException("Cannot build a page cursor without createdAt and id");
+            }
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.labregistration.exception;
+
+import com.labregistration.dto.QueueStatusDTO;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The registration was not let through admission control; the caller holds a place in the
+ * session's virtual queue and should poll it, then submit again once admitted.
+ */
+@Getter
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class AdmissionQueuedException extends RuntimeException {
+
+    private final QueueStatusDTO queueStatus;
+
+    public AdmissionQueuedException(QueueStatusDTO queueStatus) {
+        super("Registration for this session is busy; you are in the queue");
+        this.queueStatus = queueStatus;
+    }
+}
@@ -12,6 +12,7 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Component
@@ -24,6 +25,34 @@ public class LabSessionMapper {
 
     public LabSessionDTO toDTO(LabSession session, int currentRegistrations) {
         if (session == null) return null;
+        return baseBuilder(session, currentRegistrations)
+                .allowedPrograms(session.getAllowedPrograms().stream()
+                        .map(programMapper::toDTO)
+                        .collect(Collectors.toList()))
+                .timeSlots(timeSlotRepository.findByLabSessionIdOrderByDateAndSlot(session.getId())
+                        .stream().map(this::toTimeSlotDTO).toList())
+                .build();
+    }
+
+    /**
+     * List-view mapping that does no lookups of its own: registration count, slots and
+     * program student counts are loaded in bulk by the caller. Pass {@code slots = null}
+     * for the summary view, which leaves {@code timeSlots} out.
+     */
+    public LabSessionDTO toListDTO(LabSession session,
+                                   int currentRegistrations,
+                                   List<TimeSlot> slots,
+                                   Map<Long, Integer> programStudentCounts) {
+        if (session == null) return null;
+        return baseBuilder(session, currentRegistrations)
+                .allowedPrograms(session.getAllowedPrograms().stream()
+                        .map(p -> programMapper.toDTO(p, programStudentCounts.getOrDefault(p.getId(), 0)))
+                        .collect(Collectors.toList()))
+                .timeSlots(slots != null ? slots.stream().map(this::toTimeSlotDTO).toList() : null)
+                .build();
+    }
+
+    private LabSessionDTO.LabSessionDTOBuilder baseBuilder(LabSession session, int currentRegistrations) {
         return LabSessionDTO.builder()
                 .id(session.getId())
                 .name(session.getName())
@@ -47,16 +76,12 @@ public class LabSessionMapper {
                 .departmentName(session.getCourse() != null ? session.getCourse().getDepartmentName() : null)
                 .createdById(session.getCreatedBy() != null ? session.getCreatedBy().getId() : null)
                 .createdByName(session.getCreatedBy() != null ? session.getCreatedBy().getFullName() : null)
-                .allowedPrograms(session.getAllowedPrograms().stream()
-                        .map(programMapper::toDTO)
-                        .collect(Collectors.toList()))
                 .openToAllPrograms(session.getOpenToAllPrograms())
                 .registrationDeadline(session.getRegistrationDeadline())
+                .allocationMode(session.getAllocationMode())
+                .allocatedAt(session.getAllocatedAt())
                 .instructions(session.getInstructions())
-                .timeSlots(timeSlotRepository.findByLabSessionIdOrderByDateAndSlot(session.getId())
-                        .stream().map(this::toTimeSlotDTO).toList())
-                .createdAt(session.getCreatedAt())
-                .build();
+                .createdAt(session.getCreatedAt());
     }
 //    public LabSessionDTO toDTO(LabSession session,int currentRegistrations) {
 //        if (session == null) return null;
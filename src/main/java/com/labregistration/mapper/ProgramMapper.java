@@ -14,6 +14,15 @@ public class ProgramMapper {
 
     public ProgramDTO toDTO(Program program) {
         if (program == null) return null;
+        return toDTO(program, userRepository.findByProgramId(program.getId()).size());
+    }
+
+    /**
+     * Same as {@link #toDTO(Program)} with the student count supplied by the caller,
+     * for list views that count students for all programs in one query.
+     */
+    public ProgramDTO toDTO(Program program, int studentCount) {
+        if (program == null) return null;
 
         return ProgramDTO.builder()
                 .id(program.getId())
@@ -26,7 +35,7 @@ public class ProgramMapper {
                 .durationYears(program.getDurationYears())
                 .degreeType(program.getDegreeType())
                 .active(program.getActive())
-                .studentCount((int) userRepository.findByProgramId(program.getId()).size())
+                .studentCount(studentCount)
                 .createdAt(program.getCreatedAt())
                 .build();
     }
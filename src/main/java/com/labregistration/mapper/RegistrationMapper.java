@@ -96,11 +96,14 @@ import com.labregistration.dto.RegistrationDTO;
 import com.labregistration.dto.WeeklyNoteDTO;
 import com.labregistration.model.LabSession;
 import com.labregistration.model.Registration;
+import com.labregistration.service.WaitlistService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
@@ -114,11 +117,32 @@ public class RegistrationMapper {
     @Lazy
     private final LabGroupMapper labGroupMapper;
 
+    private final WaitlistService waitlistService;
+
     /**
      * Full detailed mapping
      */
     public RegistrationDTO toDTO(Registration registration) {
         if (registration == null) return null;
+        return toDTO(registration, waitlistService.placeInQueue(registration));
+    }
+
+    /**
+     * Full detailed mapping of a list, working out every place in the queue with one query
+     */
+    public List<RegistrationDTO> toDTOs(List<Registration> registrations) {
+        Map<Long, Integer> places = waitlistService.placesInQueue(registrations);
+        return registrations.stream()
+                .map(registration -> toDTO(registration, places.get(registration.getId())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Full detailed mapping with the place in the queue already worked out, e.g. by
+     * {@link WaitlistService#placesInQueue} for a whole list
+     */
+    public RegistrationDTO toDTO(Registration registration, Integer placeInQueue) {
+        if (registration == null) return null;
 
         LabSession session = registration.getLabSession();
 
@@ -169,7 +193,8 @@ public class RegistrationMapper {
                 // STATUS & WORKFLOW
                 // ========================
                 .status(registration.getStatus())
-                .waitlistPosition(registration.getWaitlistPosition())
+                // Stored positions are queue tickets; expose the live place in the queue
+                .waitlistPosition(placeInQueue)
                 .registeredAt(registration.getRegisteredAt())
                 .confirmedAt(registration.getConfirmedAt())
                 .cancelledAt(registration.getCancelledAt())
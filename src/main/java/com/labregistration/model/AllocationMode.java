@@ -0,0 +1,8 @@
+package com.labregistration.model;
+
+public enum AllocationMode {
+    // Seats are handed out as students register
+    FIRST_COME,
+    // Students rank slots until the registration deadline, then everyone is allocated at once
+    PREFERENCE
+}
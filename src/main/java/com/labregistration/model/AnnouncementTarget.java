@@ -0,0 +1,7 @@
+package com.labregistration.model;
+
+public enum AnnouncementTarget {
+    SESSION,     // Everyone actively registered for a lab session
+    TIME_SLOT,   // Everyone holding a time slot
+    COURSE       // Everyone actively registered for any session of a course
+}
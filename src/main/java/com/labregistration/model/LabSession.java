@@ -12,7 +12,10 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "lab_sessions")
+@Table(name = "lab_sessions", indexes = {
+    @Index(name = "idx_session_status_created", columnList = "status, created_at, id"),
+    @Index(name = "idx_session_created", columnList = "created_at, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -94,6 +97,16 @@ public class LabSession {
     // Registration deadline
     private LocalDateTime registrationDeadline;
 
+    // How seats are handed out; PREFERENCE sessions are allocated once the deadline passes
+    @Enumerated(EnumType.STRING)
+    @Column(name = "allocation_mode", length = 20)
+    @Builder.Default
+    private AllocationMode allocationMode = AllocationMode.FIRST_COME;
+
+    // When the preference allocation ran (null until it has)
+    @Column(name = "allocated_at")
+    private LocalDateTime allocatedAt;
+
     // Notes for students
     @Column(length = 2000)
     private String instructions;
@@ -131,6 +144,10 @@ public class LabSession {
         return status == SessionStatus.OPEN;
     }
 
+    public boolean allocatesByPreference() {
+        return allocationMode == AllocationMode.PREFERENCE;
+    }
+
     // Check if a student's program can register
     public boolean isOpenToProgram(Program studentProgram) {
         if (Boolean.TRUE.equals(openToAllPrograms)) {
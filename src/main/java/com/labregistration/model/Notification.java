@@ -8,7 +8,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "notifications", indexes = {
     @Index(name = "idx_notification_user", columnList = "user_id"),
-    @Index(name = "idx_notification_read", columnList = "isRead")
+    @Index(name = "idx_notification_read", columnList = "isRead"),
+    @Index(name = "idx_notification_user_created", columnList = "user_id, created_at, id")
 })
 @Getter
 @Setter
@@ -0,0 +1,7 @@
+package com.labregistration.model;
+
+public enum OutboxStatus {
+    PENDING,    // In-app notification or email still to be delivered
+    DELIVERED,
+    FAILED      // Email retries exhausted
+}
@@ -11,7 +11,9 @@ import java.time.LocalDateTime;
     indexes = {
         @Index(name = "idx_reg_student", columnList = "student_id"),
         @Index(name = "idx_reg_session", columnList = "lab_session_id"),
-        @Index(name = "idx_reg_status", columnList = "status")
+        @Index(name = "idx_reg_status", columnList = "status"),
+        @Index(name = "idx_reg_session_created", columnList = "lab_session_id, created_at, id"),
+        @Index(name = "idx_reg_waitlist", columnList = "lab_session_id, status, waitlistPosition")
     }
 )
 @Getter
@@ -58,7 +60,8 @@ public class Registration {
     private LocalDateTime cancelledAt;
     private LocalDateTime completedAt;
 
-    // If waitlisted, position in waitlist
+    // If waitlisted, queue ticket: increases with each new entry and is never renumbered,
+    // so gaps are normal. The place in the queue is the number of tickets ahead plus one.
     private Integer waitlistPosition;
 
     // Notes from student
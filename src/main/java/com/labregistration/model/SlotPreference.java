@@ -0,0 +1,37 @@
+package com.labregistration.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * A time slot a student would like, with its rank (1 = first choice), for sessions that
+ * allocate by preference.
+ */
+@Entity
+@Table(name = "slot_preferences",
+    uniqueConstraints = @UniqueConstraint(name = "uk_pref_registration_slot", columnNames = {"registration_id", "time_slot_id"}),
+    indexes = @Index(name = "idx_pref_registration", columnList = "registration_id, preference_rank")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SlotPreference {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "registration_id", nullable = false)
+    private Registration registration;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "time_slot_id", nullable = false)
+    private TimeSlot timeSlot;
+
+    // "rank" is a reserved word in MySQL 8
+    @Column(name = "preference_rank", nullable = false)
+    private Integer rank;
+}
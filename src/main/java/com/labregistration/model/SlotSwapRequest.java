@@ -0,0 +1,65 @@
+package com.labregistration.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A student's offer to trade their time slot for another one of the same session. It is
+ * completed when a student holding the wanted slot accepts it or posts the mirror request.
+ */
+@Entity
+@Table(name = "slot_swap_requests", indexes = {
+    @Index(name = "idx_swap_match", columnList = "lab_session_id, status, from_time_slot_id, to_time_slot_id, created_at"),
+    @Index(name = "idx_swap_registration", columnList = "registration_id, status")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SlotSwapRequest {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "registration_id", nullable = false)
+    private Registration registration;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "lab_session_id", nullable = false)
+    private LabSession labSession;
+
+    // The slot the student holds when posting, and the one they want instead
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "from_time_slot_id", nullable = false)
+    private TimeSlot fromTimeSlot;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "to_time_slot_id", nullable = false)
+    private TimeSlot toTimeSlot;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private SwapRequestStatus status = SwapRequestStatus.OPEN;
+
+    // The registration it was swapped with, once completed
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "matched_registration_id")
+    private Registration matchedRegistration;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "resolved_at")
+    private LocalDateTime resolvedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
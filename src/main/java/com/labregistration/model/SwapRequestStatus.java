@@ -0,0 +1,7 @@
+package com.labregistration.model;
+
+public enum SwapRequestStatus {
+    OPEN,
+    COMPLETED,
+    CANCELLED
+}
@@ -13,7 +13,8 @@ import java.util.List;
 @Entity
 @Table(name = "users", indexes = {
     @Index(name = "idx_user_email", columnList = "email"),
-    @Index(name = "idx_user_student_id", columnList = "studentId")
+    @Index(name = "idx_user_student_id", columnList = "studentId"),
+    @Index(name = "idx_user_role_created", columnList = "role, created_at, id")
 })
 @Getter
 @Setter
@@ -0,0 +1,60 @@
+package com.labregistration.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Set-based attendance writes that JPA cannot batch: attendances use IDENTITY keys, so
+ * Hibernate sends one INSERT per row. These statements go through JDBC batching instead
+ * (collapsed into multi-row statements by rewriteBatchedStatements on the MySQL driver).
+ */
+@Repository
+@RequiredArgsConstructor
+public class AttendanceBatchRepository {
+
+    private static final int BATCH_SIZE = 200;
+
+    // Insert or overwrite the row for (registration, date). The check-in time is only
+    // replaced when the student is marked present, as the per-row path did.
+    private static final String UPSERT_SQL =
+            "INSERT INTO attendances (registration_id, session_date, present, check_in_time, notes, marked_by, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE present = VALUES(present), notes = VALUES(notes), marked_by = VALUES(marked_by), " +
+            "check_in_time = IF(VALUES(present), VALUES(check_in_time), check_in_time)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record Row(Long registrationId, boolean present, String notes) {}
+
+    public void upsert(LocalDate sessionDate, List<Row> rows, Long markedById) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp ts = Timestamp.valueOf(now);
+        Date date = Date.valueOf(sessionDate);
+
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, BATCH_SIZE, (ps, row) -> {
+            ps.setLong(1, row.registrationId());
+            ps.setDate(2, date);
+            ps.setBoolean(3, row.present());
+            if (row.present()) {
+                ps.setTimestamp(4, ts);
+            } else {
+                ps.setNull(4, Types.TIMESTAMP);
+            }
+            ps.setString(5, row.notes());
+            if (markedById != null) {
+                ps.setLong(6, markedById);
+            } else {
+                ps.setNull(6, Types.BIGINT);
+            }
+            ps.setTimestamp(7, ts);
+        });
+    }
+}
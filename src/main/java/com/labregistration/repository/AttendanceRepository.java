@@ -2,11 +2,13 @@ package com.labregistration.repository;
 
 import com.labregistration.model.Attendance;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,4 +37,21 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
     // Find all attendance records for a session
     @Query("SELECT a FROM Attendance a WHERE a.registration.labSession.id = :sessionId ORDER BY a.sessionDate, a.registration.student.lastName")
     List<Attendance> findBySessionId(@Param("sessionId") Long sessionId);
+
+    // BULK MARKING
+
+    // Rows written by a bulk mark, with everything toDTO reads
+    @Query("SELECT a FROM Attendance a JOIN FETCH a.registration r JOIN FETCH r.student LEFT JOIN FETCH a.markedBy " +
+           "WHERE r.id IN :registrationIds AND a.sessionDate = :date")
+    List<Attendance> findWithStudentByRegistrationIdsAndDate(@Param("registrationIds") Collection<Long> registrationIds,
+                                                             @Param("date") LocalDate date);
+
+    // Recompute attended/total sessions for many registrations in one statement
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE registrations r SET " +
+            "r.attended_sessions = (SELECT COUNT(*) FROM attendances a WHERE a.registration_id = r.id AND a.present = TRUE), " +
+            "r.total_sessions = GREATEST(COALESCE(r.total_sessions, 0), " +
+            "(SELECT COUNT(*) FROM attendances a WHERE a.registration_id = r.id)) " +
+            "WHERE r.id IN (:registrationIds)", nativeQuery = true)
+    int refreshAttendanceCounts(@Param("registrationIds") Collection<Long> registrationIds);
 }
@@ -30,4 +30,15 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
     List<AuditLog> findByTimestampBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
     
     Page<AuditLog> findAllByOrderByTimestampDesc(Pageable pageable);
+
+    // Keyset page over a time window, newest first; pass null afterTimestamp for the first page
+    @Query("SELECT a FROM AuditLog a WHERE a.timestamp BETWEEN :start AND :end " +
+           "AND (:afterTimestamp IS NULL OR a.timestamp < :afterTimestamp " +
+           "OR (a.timestamp = :afterTimestamp AND a.id < :afterId)) " +
+           "ORDER BY a.timestamp DESC, a.id DESC")
+    List<AuditLog> findPageByTimestampBetween(@Param("start") LocalDateTime start,
+                                              @Param("end") LocalDateTime end,
+                                              @Param("afterTimestamp") LocalDateTime afterTimestamp,
+                                              @Param("afterId") Long afterId,
+                                              Pageable pageable);
 }
@@ -23,6 +23,13 @@ public interface DepartmentRepository extends JpaRepository<Department, Long> {
     
     @Query("SELECT d FROM Department d WHERE d.faculty.id = :facultyId AND d.active = true")
     List<Department> findActiveByFacultyId(@Param("facultyId") Long facultyId);
+
+    @Query("SELECT d FROM Department d LEFT JOIN FETCH d.faculty WHERE d.active = true ORDER BY d.id")
+    List<Department> findActiveWithFaculty();
+
+    // Departments per faculty, active or not: [facultyId, count]
+    @Query("SELECT d.faculty.id, COUNT(d) FROM Department d WHERE d.faculty IS NOT NULL GROUP BY d.faculty.id")
+    List<Object[]> countGroupedByFaculty();
     
     boolean existsByCode(String code);
     
@@ -0,0 +1,55 @@
+package com.labregistration.repository;
+
+import com.labregistration.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByScopeAndIdempotencyKey(String scope, String idempotencyKey);
+
+    // Claim a key; returns 0 without failing when the key is already taken
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO idempotency_keys (scope, idempotency_key, fingerprint, status, created_at, expires_at) " +
+            "VALUES (:scope, :key, :fingerprint, 'PENDING', :now, :expiresAt)", nativeQuery = true)
+    int claim(@Param("scope") String scope,
+              @Param("key") String key,
+              @Param("fingerprint") String fingerprint,
+              @Param("now") LocalDateTime now,
+              @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = 'COMPLETED', r.statusCode = :statusCode, r.responseBody = :body, " +
+           "r.expiresAt = :expiresAt WHERE r.scope = :scope AND r.idempotencyKey = :key AND r.status = 'PENDING'")
+    int complete(@Param("scope") String scope,
+                 @Param("key") String key,
+                 @Param("statusCode") int statusCode,
+                 @Param("body") String body,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Give a key back after the request failed, so the client can retry it
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.scope = :scope AND r.idempotencyKey = :key AND r.status = 'PENDING'")
+    int release(@Param("scope") String scope, @Param("key") String key);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.scope = :scope AND r.idempotencyKey = :key AND r.expiresAt < :now")
+    int deleteIfExpired(@Param("scope") String scope, @Param("key") String key, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -3,20 +3,44 @@ package com.labregistration.repository;
 import com.labregistration.model.LabSession;
 import com.labregistration.model.Level;
 import com.labregistration.model.SessionStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface LabSessionRepository extends JpaRepository<LabSession, Long> {
     
-    List<LabSession> findByStatus(SessionStatus status);
+    // Listing queries fetch the course, its department and the creator with the sessions;
+    // LabSessionService.toListDTOs then loads the allowed programs of the page in one query
+
+    @Query("SELECT ls FROM LabSession ls LEFT JOIN FETCH ls.course c LEFT JOIN FETCH c.department " +
+           "LEFT JOIN FETCH ls.createdBy WHERE ls.status = :status")
+    List<LabSession> findByStatus(@Param("status") SessionStatus status);
+
+    @Query("SELECT ls FROM LabSession ls LEFT JOIN FETCH ls.course c LEFT JOIN FETCH c.department " +
+           "LEFT JOIN FETCH ls.createdBy")
+    List<LabSession> findAllForListing();
+
+    // Keyset page, newest first; pass null afterCreatedAt for the first page
+    @Query("SELECT ls FROM LabSession ls LEFT JOIN FETCH ls.course c LEFT JOIN FETCH c.department " +
+           "LEFT JOIN FETCH ls.createdBy WHERE (:status IS NULL OR ls.status = :status) " +
+           "AND (:afterCreatedAt IS NULL OR ls.createdAt < :afterCreatedAt " +
+           "OR (ls.createdAt = :afterCreatedAt AND ls.id < :afterId)) " +
+           "ORDER BY ls.createdAt DESC, ls.id DESC")
+    List<LabSession> findPage(@Param("status") SessionStatus status,
+                              @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                              @Param("afterId") Long afterId,
+                              Pageable pageable);
     
     @Query("SELECT ls FROM LabSession ls WHERE ls.course.id = :courseId")
     List<LabSession> findByCourseId(@Param("courseId") Long courseId);
@@ -24,14 +48,17 @@ public interface LabSessionRepository extends JpaRepository<LabSession, Long> {
     @Query("SELECT ls FROM LabSession ls WHERE ls.createdBy.id = :userId")
     List<LabSession> findByCreatedById(@Param("userId") Long userId);
     
-    @Query("SELECT ls FROM LabSession ls WHERE ls.status = 'OPEN' AND ls.endDate >= :today")
+    @Query("SELECT ls FROM LabSession ls LEFT JOIN FETCH ls.course c LEFT JOIN FETCH c.department " +
+           "LEFT JOIN FETCH ls.createdBy WHERE ls.status = 'OPEN' AND ls.endDate >= :today")
     List<LabSession> findAvailableSessions(@Param("today") LocalDate today);
     
-    @Query("SELECT ls FROM LabSession ls WHERE ls.status = 'OPEN' AND ls.course.id = :courseId AND ls.endDate >= :today")
+    @Query("SELECT ls FROM LabSession ls LEFT JOIN FETCH ls.course c LEFT JOIN FETCH c.department " +
+           "LEFT JOIN FETCH ls.createdBy WHERE ls.status = 'OPEN' AND c.id = :courseId AND ls.endDate >= :today")
     List<LabSession> findAvailableSessionsByCourse(@Param("courseId") Long courseId, @Param("today") LocalDate today);
     
     // Find sessions that a specific program can register for
     @Query("SELECT DISTINCT ls FROM LabSession ls " +
+           "LEFT JOIN FETCH ls.course c LEFT JOIN FETCH c.department LEFT JOIN FETCH ls.createdBy " +
            "LEFT JOIN ls.allowedPrograms p " +
            "WHERE ls.status = 'OPEN' AND ls.endDate >= :today " +
            "AND (ls.openToAllPrograms = true OR p.id = :programId)")
@@ -47,18 +74,35 @@ public interface LabSessionRepository extends JpaRepository<LabSession, Long> {
     @Query("SELECT ls FROM LabSession ls WHERE ls.status = 'OPEN' AND ls.endDate < :today")
     List<LabSession> findSessionsToClose(@Param("today") LocalDate today);
 
+    // Lifecycle: OPEN sessions whose registration deadline has passed
+    @Query("SELECT ls.id FROM LabSession ls WHERE ls.status = 'OPEN' AND ls.registrationDeadline < :now ORDER BY ls.id")
+    List<Long> findOpenIdsPastDeadline(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Lifecycle: OPEN or CLOSED sessions that have ended
+    @Query("SELECT ls.id FROM LabSession ls WHERE ls.status IN ('OPEN', 'CLOSED') AND ls.endDate < :today ORDER BY ls.id")
+    List<Long> findIdsToComplete(@Param("today") LocalDate today, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE LabSession ls SET ls.status = :to, ls.updatedAt = :now WHERE ls.id IN :ids AND ls.status IN :from")
+    int transitionStatus(@Param("ids") Collection<Long> ids,
+                         @Param("from") Collection<SessionStatus> from,
+                         @Param("to") SessionStatus to,
+                         @Param("now") LocalDateTime now);
+
 
 
 
 
     // Add these to your LabSessionRepository interface
 
-    @Query("SELECT s FROM LabSession s WHERE s.startDate <= :endDate AND s.endDate >= :startDate")
+    @Query("SELECT s FROM LabSession s LEFT JOIN FETCH s.course c LEFT JOIN FETCH c.department " +
+           "LEFT JOIN FETCH s.createdBy WHERE s.startDate <= :endDate AND s.endDate >= :startDate")
     List<LabSession> findSessionsBetweenDates(@Param("startDate") LocalDate startDate,
                                               @Param("endDate") LocalDate endDate);
 
     @Query("""
     SELECT s FROM LabSession s 
+    LEFT JOIN FETCH s.course c LEFT JOIN FETCH c.department LEFT JOIN FETCH s.createdBy
     WHERE s.status = 'OPEN' 
       AND EXISTS (
           SELECT t FROM TimeSlot t 
@@ -80,5 +124,44 @@ public interface LabSessionRepository extends JpaRepository<LabSession, Long> {
     List<LabSession> findByLabRoomAndDate(@Param("labRoom") String labRoom,
                                           @Param("date") LocalDate date);
 
+    // Recurring room bookings for RoomOccupancyIndex:
+    // id, name, labRoom, startDate, endDate, startTime, endTime, sessionDays
+    @Query("SELECT s.id, s.name, s.labRoom, s.startDate, s.endDate, s.startTime, s.endTime, s.sessionDays " +
+           "FROM LabSession s WHERE s.status <> com.labregistration.model.SessionStatus.CANCELLED")
+    List<Object[]> findRoomBookings();
+
+
+    // Initializes the allowed programs of sessions already loaded by a listing query (a
+    // collection cannot be fetched in a query that is paged)
+    @Query("SELECT DISTINCT s FROM LabSession s " +
+           "LEFT JOIN FETCH s.allowedPrograms p LEFT JOIN FETCH p.department pd LEFT JOIN FETCH pd.faculty " +
+           "WHERE s.id IN :ids")
+    List<LabSession> fetchAllowedProgramsByIds(@Param("ids") Collection<Long> ids);
+
+
+//    REPORT STUFF
+
+    @Query("SELECT s FROM LabSession s JOIN FETCH s.course c LEFT JOIN FETCH c.department WHERE s.id = :sessionId")
+    Optional<LabSession> findWithCourseById(@Param("sessionId") Long sessionId);
+
+    // Keyset page of all sessions, for exports that go through them a chunk at a time
+    @Query("SELECT s FROM LabSession s JOIN FETCH s.course c LEFT JOIN FETCH c.department " +
+           "WHERE s.id > :afterId ORDER BY s.id")
+    List<LabSession> findWithCourseAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT s FROM LabSession s JOIN FETCH s.course c LEFT JOIN FETCH c.department " +
+           "WHERE c.id IN :courseIds ORDER BY s.id")
+    List<LabSession> findWithCourseByCourseIds(@Param("courseIds") Collection<Long> courseIds);
+
+    // Preference-mode sessions whose deadline has passed and that have not been allocated yet
+    @Query("SELECT s.id FROM LabSession s WHERE s.allocationMode = 'PREFERENCE' AND s.allocatedAt IS NULL " +
+           "AND s.registrationDeadline <= :now AND s.status IN ('OPEN', 'CLOSED') ORDER BY s.registrationDeadline")
+    List<Long> findIdsDueForAllocation(@Param("now") LocalDateTime now);
+
+    // Claim a session's allocation run; returns 0 when it already ran (here or on another instance)
+    @Modifying
+    @Query("UPDATE LabSession s SET s.allocatedAt = :now WHERE s.id = :sessionId AND s.allocatedAt IS NULL")
+    int markAllocated(@Param("sessionId") Long sessionId, @Param("now") LocalDateTime now);
+
 
 }
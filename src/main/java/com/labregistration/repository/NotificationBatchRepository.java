@@ -0,0 +1,42 @@
+package com.labregistration.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bulk insert for notifications sent to many users at once. Notifications use IDENTITY
+ * keys, so these go through JDBC batches rather than one JPA persist per row.
+ */
+@Repository
+@RequiredArgsConstructor
+public class NotificationBatchRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO notifications (user_id, title, message, type, is_read, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record Row(Long userId, String title, String message, String type) {}
+
+    public void insertAll(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, BATCH_SIZE, (ps, row) -> {
+            ps.setLong(1, row.userId());
+            ps.setString(2, row.title());
+            ps.setString(3, row.message());
+            ps.setString(4, row.type());
+            ps.setBoolean(5, false);
+            ps.setTimestamp(6, now);
+        });
+    }
+}
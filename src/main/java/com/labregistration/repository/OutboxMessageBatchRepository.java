@@ -0,0 +1,48 @@
+package com.labregistration.repository;
+
+import com.labregistration.model.OutboxStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bulk insert of outbox emails whose in-app notifications were already written (they are
+ * inserted as notified), for announcements to many users at once.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OutboxMessageBatchRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO notification_outbox (user_id, recipient_email, title, message, type, status, notified_at, " +
+            "email_attempts, next_attempt_at, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record Row(Long userId, String recipientEmail, String title, String message, String type) {}
+
+    public void insertEmails(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, BATCH_SIZE, (ps, row) -> {
+            ps.setLong(1, row.userId());
+            ps.setString(2, row.recipientEmail());
+            ps.setString(3, row.title());
+            ps.setString(4, row.message());
+            ps.setString(5, row.type());
+            ps.setString(6, OutboxStatus.PENDING.name());
+            ps.setTimestamp(7, now);
+            ps.setInt(8, 0);
+            ps.setTimestamp(9, now);
+            ps.setTimestamp(10, now);
+        });
+    }
+}
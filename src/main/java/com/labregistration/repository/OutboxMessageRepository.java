@@ -0,0 +1,73 @@
+package com.labregistration.repository;
+
+import com.labregistration.model.OutboxMessage;
+import com.labregistration.model.OutboxStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    // Oldest messages without an in-app notification yet, skipping rows another dispatcher holds
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT m FROM OutboxMessage m WHERE m.status = 'PENDING' AND m.notifiedAt IS NULL ORDER BY m.id")
+    List<OutboxMessage> lockUnnotified(Pageable pageable);
+
+    // Emails due for a (re)try, skipping rows another dispatcher holds
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT m FROM OutboxMessage m WHERE m.status = 'PENDING' AND m.notifiedAt IS NOT NULL " +
+           "AND m.recipientEmail IS NOT NULL AND m.nextAttemptAt <= :now ORDER BY m.nextAttemptAt, m.id")
+    List<OutboxMessage> lockDueEmails(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.notifiedAt = :now WHERE m.id IN :ids")
+    int markNotified(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Count the attempt and hide the rows from other dispatchers until :until
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.emailAttempts = m.emailAttempts + 1, m.nextAttemptAt = :until " +
+           "WHERE m.id IN :ids")
+    int claimEmails(@Param("ids") Collection<Long> ids, @Param("until") LocalDateTime until);
+
+    // Hand back claimed emails that were never attempted, without counting the attempt
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.emailAttempts = m.emailAttempts - 1, m.nextAttemptAt = :now " +
+           "WHERE m.id IN :ids")
+    int releaseClaims(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = 'DELIVERED', m.deliveredAt = :now, m.lastError = NULL " +
+           "WHERE m.id IN :ids")
+    int markDelivered(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = :status, m.nextAttemptAt = :nextAttemptAt, m.lastError = :error " +
+           "WHERE m.id = :id")
+    int recordEmailFailure(@Param("id") Long id,
+                           @Param("status") OutboxStatus status,
+                           @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                           @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OutboxMessage m WHERE m.status = 'DELIVERED' AND m.deliveredAt < :cutoff")
+    int deleteDeliveredBefore(@Param("cutoff") LocalDateTime cutoff);
+}
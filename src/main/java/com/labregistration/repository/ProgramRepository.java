@@ -24,6 +24,14 @@ public interface ProgramRepository extends JpaRepository<Program, Long> {
     @Query("SELECT p FROM Program p WHERE p.department.id = :departmentId AND p.active = true")
     List<Program> findActiveByDepartmentId(@Param("departmentId") Long departmentId);
     
+    @Query("SELECT p FROM Program p LEFT JOIN FETCH p.department d LEFT JOIN FETCH d.faculty " +
+           "WHERE p.active = true ORDER BY p.id")
+    List<Program> findActiveWithDepartment();
+
+    // Programs per department, active or not: [departmentId, count]
+    @Query("SELECT p.department.id, COUNT(p) FROM Program p GROUP BY p.department.id")
+    List<Object[]> countGroupedByDepartment();
+
     @Query("SELECT p FROM Program p WHERE p.department.faculty.id = :facultyId")
     List<Program> findByFacultyId(@Param("facultyId") Long facultyId);
     
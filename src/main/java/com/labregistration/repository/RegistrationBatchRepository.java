@@ -0,0 +1,66 @@
+package com.labregistration.repository;
+
+import com.labregistration.model.RegistrationStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bulk insert for registrations created together, e.g. a whole cohort enrolled by a lab
+ * manager. Registrations use IDENTITY keys, so these go through JDBC batches rather than
+ * one JPA persist per row.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RegistrationBatchRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO registrations (student_id, lab_session_id, time_slot_id, active, status, waitlist_position, " +
+            "registered_at, confirmed_at, attended_sessions, total_sessions, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // timeSlotId is null unless CONFIRMED, waitlistPosition unless WAITLISTED
+    public record Row(Long studentId, Long timeSlotId, RegistrationStatus status, Integer waitlistPosition) {}
+
+    public void insertAll(Long sessionId, List<Row> rows, int totalSessions) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, BATCH_SIZE, (ps, row) -> {
+            ps.setLong(1, row.studentId());
+            ps.setLong(2, sessionId);
+            if (row.timeSlotId() != null) {
+                ps.setLong(3, row.timeSlotId());
+            } else {
+                ps.setNull(3, Types.BIGINT);
+            }
+            ps.setBoolean(4, true);
+            ps.setString(5, row.status().name());
+            if (row.waitlistPosition() != null) {
+                ps.setInt(6, row.waitlistPosition());
+            } else {
+                ps.setNull(6, Types.INTEGER);
+            }
+            ps.setTimestamp(7, now);
+            if (row.status() == RegistrationStatus.CONFIRMED) {
+                ps.setTimestamp(8, now);
+            } else {
+                ps.setNull(8, Types.TIMESTAMP);
+            }
+            ps.setInt(9, 0);
+            ps.setInt(10, totalSessions);
+            ps.setTimestamp(11, now);
+            ps.setTimestamp(12, now);
+        });
+    }
+}
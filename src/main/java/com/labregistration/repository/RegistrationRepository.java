@@ -3,11 +3,19 @@ package com.labregistration.repository;
 import com.labregistration.model.LabSession;
 import com.labregistration.model.Registration;
 import com.labregistration.model.RegistrationStatus;
+import com.labregistration.model.TimeSlot;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -18,9 +26,28 @@ public interface RegistrationRepository extends JpaRepository<Registration, Long
     @Query("SELECT r FROM Registration r WHERE r.student.id = :studentId ORDER BY r.createdAt DESC")
     List<Registration> findByStudentId(@Param("studentId") Long studentId);
     
+    // With session, course and slot, for the student's own registration list
+    @Query("SELECT r FROM Registration r JOIN FETCH r.labSession s JOIN FETCH s.course LEFT JOIN FETCH r.timeSlot " +
+           "WHERE r.student.id = :studentId ORDER BY r.createdAt DESC")
+    List<Registration> findWithSessionByStudentId(@Param("studentId") Long studentId);
+
+    @Query("SELECT r FROM Registration r JOIN FETCH r.labSession s JOIN FETCH s.course LEFT JOIN FETCH r.timeSlot " +
+           "WHERE r.student.id = :studentId AND r.status IN ('PENDING', 'CONFIRMED', 'WAITLISTED') ORDER BY r.createdAt DESC")
+    List<Registration> findActiveWithSessionByStudentId(@Param("studentId") Long studentId);
+
     @Query("SELECT r FROM Registration r WHERE r.labSession.id = :sessionId ORDER BY r.createdAt")
     List<Registration> findByLabSessionId(@Param("sessionId") Long sessionId);
     
+    // Keyset page in registration order; pass null afterCreatedAt for the first page
+    @Query("SELECT r FROM Registration r WHERE r.labSession.id = :sessionId " +
+           "AND (:afterCreatedAt IS NULL OR r.createdAt > :afterCreatedAt " +
+           "OR (r.createdAt = :afterCreatedAt AND r.id > :afterId)) " +
+           "ORDER BY r.createdAt, r.id")
+    List<Registration> findPageByLabSessionId(@Param("sessionId") Long sessionId,
+                                              @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                              @Param("afterId") Long afterId,
+                                              Pageable pageable);
+    
     @Query("SELECT r FROM Registration r WHERE r.timeSlot.id = :slotId")
     List<Registration> findByTimeSlotId(@Param("slotId") Long slotId);
     
@@ -43,8 +70,130 @@ public interface RegistrationRepository extends JpaRepository<Registration, Long
     @Query("SELECT COUNT(r) FROM Registration r WHERE r.labSession.id = :sessionId AND r.status = 'CONFIRMED'")
     int countConfirmedBySessionId(@Param("sessionId") Long sessionId);
     
+    // (registration id, lab session id) pairs, for validating bulk requests without loading entities
+    @Query("SELECT r.id, r.labSession.id FROM Registration r WHERE r.id IN :ids")
+    List<Object[]> findSessionIdsByIds(@Param("ids") Collection<Long> ids);
+
+    // Slots a student currently holds, for StudentTimetableIndex:
+    // registration id, session id, session name, slot date, start time, end time
+    @Query("SELECT r.id, s.id, s.name, t.sessionDate, t.startTime, t.endTime FROM Registration r " +
+           "JOIN r.labSession s JOIN r.timeSlot t " +
+           "WHERE r.student.id = :studentId AND r.status IN ('PENDING', 'CONFIRMED')")
+    List<Object[]> findOccupiedSlotsByStudentId(@Param("studentId") Long studentId);
+
+    // Same for many students at once, with the student id first
+    @Query("SELECT r.student.id, r.id, s.id, s.name, t.sessionDate, t.startTime, t.endTime FROM Registration r " +
+           "JOIN r.labSession s JOIN r.timeSlot t " +
+           "WHERE r.student.id IN :studentIds AND r.status IN ('PENDING', 'CONFIRMED')")
+    List<Object[]> findOccupiedSlotsByStudentIds(@Param("studentIds") Collection<Long> studentIds);
+
+    // WAITLIST ENGINE
+    // waitlistPosition is an increasing ticket per session: new entries go after the current
+    // maximum and promotion removes rows from the head, so no row is ever renumbered.
+
+    @Query("SELECT COALESCE(MAX(r.waitlistPosition), 0) FROM Registration r " +
+           "WHERE r.labSession.id = :sessionId AND r.status = 'WAITLISTED'")
+    int findMaxWaitlistPosition(@Param("sessionId") Long sessionId);
+
+    // 1-based place in the queue for a given ticket
+    @Query("SELECT COUNT(r) FROM Registration r WHERE r.labSession.id = :sessionId AND r.status = 'WAITLISTED' " +
+           "AND (r.waitlistPosition < :position OR (r.waitlistPosition = :position AND r.id < :id))")
+    int countWaitlistedAhead(@Param("sessionId") Long sessionId,
+                             @Param("position") Integer position,
+                             @Param("id") Long id);
+
+    // Same as countWaitlistedAhead for several waitlisted registrations at once: (id, count)
+    @Query("SELECT r.id, COUNT(o) FROM Registration r, Registration o " +
+           "WHERE r.id IN :ids AND o.labSession = r.labSession AND o.status = 'WAITLISTED' " +
+           "AND (o.waitlistPosition < r.waitlistPosition OR (o.waitlistPosition = r.waitlistPosition AND o.id < r.id)) " +
+           "GROUP BY r.id")
+    List<Object[]> countWaitlistedAheadByIds(@Param("ids") Collection<Long> ids);
+
+    // Head of the queue, row-locked. Rows already locked by a concurrent promotion are
+    // skipped (lock timeout -2 = SKIP LOCKED), so two cancellations never promote the same student.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT r FROM Registration r WHERE r.labSession.id = :sessionId AND r.status = 'WAITLISTED' " +
+           "ORDER BY r.waitlistPosition, r.id")
+    List<Registration> lockWaitlistHead(@Param("sessionId") Long sessionId, Pageable pageable);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Registration r SET r.status = :status, r.timeSlot = :slot, r.waitlistPosition = NULL, " +
+           "r.confirmedAt = :now, r.updatedAt = :now " +
+           "WHERE r.id IN :ids AND r.status = 'WAITLISTED'")
+    int promoteToSlot(@Param("ids") Collection<Long> ids,
+                      @Param("slot") TimeSlot slot,
+                      @Param("status") RegistrationStatus status,
+                      @Param("now") LocalDateTime now);
+
+    // Allocate a batch of pending registrations (preference mode) to one slot
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Registration r SET r.status = 'CONFIRMED', r.timeSlot = :slot, " +
+           "r.confirmedAt = :now, r.updatedAt = :now " +
+           "WHERE r.id IN :ids AND r.status = 'PENDING'")
+    int allocatePendingToSlot(@Param("ids") Collection<Long> ids,
+                              @Param("slot") TimeSlot slot,
+                              @Param("now") LocalDateTime now);
+
+    // Move pending registrations that could not be allocated to the waitlist, all on one ticket
+    // (ties are ordered by id, i.e. by registration order)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Registration r SET r.status = 'WAITLISTED', r.waitlistPosition = :position, r.updatedAt = :now " +
+           "WHERE r.id IN :ids AND r.status = 'PENDING'")
+    int waitlistPending(@Param("ids") Collection<Long> ids,
+                        @Param("position") int position,
+                        @Param("now") LocalDateTime now);
+
+    @Query("SELECT r FROM Registration r JOIN FETCH r.student WHERE r.labSession.id = :sessionId " +
+           "AND r.status = 'PENDING' ORDER BY r.registeredAt, r.id")
+    List<Registration> findPendingWithStudentBySessionId(@Param("sessionId") Long sessionId);
+
+    // Preference-mode sessions already allocated that still hold PENDING registrations,
+    // i.e. ones made while the allocation run was committing
+    @Query("SELECT DISTINCT r.labSession.id FROM Registration r WHERE r.status = 'PENDING' " +
+           "AND r.labSession.allocationMode = 'PREFERENCE' AND r.labSession.allocatedAt IS NOT NULL " +
+           "AND r.labSession.status IN ('OPEN', 'CLOSED')")
+    List<Long> findAllocatedSessionIdsWithPending();
+
+    // (registration id, student id, status) of every registration of the session, cancelled ones included
+    @Query("SELECT r.id, r.student.id, r.status FROM Registration r WHERE r.labSession.id = :sessionId")
+    List<Object[]> findStudentStatusesBySessionId(@Param("sessionId") Long sessionId);
+
+    // Bring back cancelled registrations in bulk; slot, confirmedAt and position may be null
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Registration r SET r.status = :status, r.timeSlot = :slot, r.waitlistPosition = :position, " +
+           "r.active = true, r.registeredAt = :now, r.confirmedAt = :confirmedAt, r.cancelledAt = NULL, " +
+           "r.updatedAt = :now WHERE r.id IN :ids AND r.status = 'CANCELLED'")
+    int reactivateCancelled(@Param("ids") Collection<Long> ids,
+                            @Param("status") RegistrationStatus status,
+                            @Param("slot") TimeSlot slot,
+                            @Param("position") Integer position,
+                            @Param("confirmedAt") LocalDateTime confirmedAt,
+                            @Param("now") LocalDateTime now);
+
+    // Move a confirmed registration, only if it still holds the slot it was read with
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Registration r SET r.timeSlot = :to, r.updatedAt = :now " +
+           "WHERE r.id = :id AND r.timeSlot.id = :fromSlotId AND r.status = 'CONFIRMED'")
+    int moveToSlot(@Param("id") Long id,
+                   @Param("fromSlotId") Long fromSlotId,
+                   @Param("to") TimeSlot to,
+                   @Param("now") LocalDateTime now);
+
+    // Lifecycle: finish the seated registrations of ended sessions
+    @Modifying
+    @Query("UPDATE Registration r SET r.status = 'COMPLETED', r.completedAt = :now, r.updatedAt = :now " +
+           "WHERE r.labSession.id IN :sessionIds AND r.status = 'CONFIRMED'")
+    int completeConfirmedBySessionIds(@Param("sessionIds") Collection<Long> sessionIds, @Param("now") LocalDateTime now);
+
+    // Lifecycle: registrations of ended sessions that never got a seat
+    @Modifying
+    @Query("UPDATE Registration r SET r.status = 'CANCELLED', r.cancelledAt = :now, r.updatedAt = :now " +
+           "WHERE r.labSession.id IN :sessionIds AND r.status IN ('PENDING', 'WAITLISTED')")
+    int cancelUnseatedBySessionIds(@Param("sessionIds") Collection<Long> sessionIds, @Param("now") LocalDateTime now);
+
     // Find waitlisted registrations ordered by position
-    @Query("SELECT r FROM Registration r WHERE r.labSession.id = :sessionId AND r.status = 'WAITLISTED' ORDER BY r.waitlistPosition")
+    @Query("SELECT r FROM Registration r WHERE r.labSession.id = :sessionId AND r.status = 'WAITLISTED' ORDER BY r.waitlistPosition, r.id")
     List<Registration> findWaitlistedBySessionId(@Param("sessionId") Long sessionId);
     
     // Check if student already has an active registration for a session
@@ -64,6 +213,19 @@ public interface RegistrationRepository extends JpaRepository<Registration, Long
     @Query("SELECT r FROM Registration r WHERE r.labSession.course.id = :courseId ORDER BY r.createdAt DESC")
     List<Registration> findByCourseId(@Param("courseId") Long courseId);
 
+    // Announcement recipients: (student id, email) of everyone actively registered
+    @Query("SELECT DISTINCT s.id, s.email FROM Registration r JOIN r.student s WHERE r.labSession.id = :sessionId " +
+           "AND r.status IN ('PENDING', 'CONFIRMED', 'WAITLISTED')")
+    List<Object[]> findActiveRecipientsBySessionId(@Param("sessionId") Long sessionId);
+
+    @Query("SELECT DISTINCT s.id, s.email FROM Registration r JOIN r.student s WHERE r.timeSlot.id = :slotId " +
+           "AND r.status IN ('PENDING', 'CONFIRMED', 'WAITLISTED')")
+    List<Object[]> findActiveRecipientsByTimeSlotId(@Param("slotId") Long slotId);
+
+    @Query("SELECT DISTINCT s.id, s.email FROM Registration r JOIN r.student s WHERE r.labSession.course.id = :courseId " +
+           "AND r.status IN ('PENDING', 'CONFIRMED', 'WAITLISTED')")
+    List<Object[]> findActiveRecipientsByCourseId(@Param("courseId") Long courseId);
+
 //    List<Registration> findActiveByGroupId(Long groupId);
 
     List<Registration> findByLabSessionIdAndActiveTrue(Long labSessionId);
@@ -90,6 +252,10 @@ public interface RegistrationRepository extends JpaRepository<Registration, Long
 
     int countByLabSession(LabSession session);
 
+    // Same count as countByLabSession, for many sessions at once: [sessionId, count]
+    @Query("SELECT r.labSession.id, COUNT(r) FROM Registration r WHERE r.labSession.id IN :sessionIds GROUP BY r.labSession.id")
+    List<Object[]> countByLabSessionIds(@Param("sessionIds") Collection<Long> sessionIds);
+
 
     int countByLabSessionIdAndActiveTrue(Long labSessionId);
 
@@ -122,4 +288,13 @@ public interface RegistrationRepository extends JpaRepository<Registration, Long
 
     List<Registration> findByLabSessionIdAndStatusOrderByWaitlistPositionAsc(
             Long labSessionId, RegistrationStatus status);
+
+    // Student, program and department are fetched in the same query; User maps both eagerly
+    @Query("SELECT r FROM Registration r JOIN FETCH r.student s LEFT JOIN FETCH s.program LEFT JOIN FETCH s.department " +
+           "WHERE r.timeSlot.id IN :slotIds ORDER BY r.id")
+    List<Registration> findWithStudentByTimeSlotIds(@Param("slotIds") Collection<Long> slotIds);
+
+    @Query("SELECT r FROM Registration r JOIN FETCH r.student s LEFT JOIN FETCH s.program LEFT JOIN FETCH s.department " +
+           "WHERE r.labSession.id IN :sessionIds AND r.status = 'WAITLISTED' ORDER BY r.waitlistPosition, r.id")
+    List<Registration> findWaitlistedWithStudentBySessionIds(@Param("sessionIds") Collection<Long> sessionIds);
 }
@@ -0,0 +1,27 @@
+package com.labregistration.repository;
+
+import com.labregistration.model.SlotPreference;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SlotPreferenceRepository extends JpaRepository<SlotPreference, Long> {
+
+    @Query("SELECT p.timeSlot.id FROM SlotPreference p WHERE p.registration.id = :registrationId ORDER BY p.rank")
+    List<Long> findTimeSlotIdsByRegistrationId(@Param("registrationId") Long registrationId);
+
+    // (registration id, time slot id) of every pending registration of the session, best rank first
+    @Query("SELECT p.registration.id, p.timeSlot.id FROM SlotPreference p " +
+           "WHERE p.registration.labSession.id = :sessionId AND p.registration.status = 'PENDING' " +
+           "ORDER BY p.registration.id, p.rank")
+    List<Object[]> findPendingRanksBySessionId(@Param("sessionId") Long sessionId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM SlotPreference p WHERE p.registration.id = :registrationId")
+    int deleteByRegistrationId(@Param("registrationId") Long registrationId);
+}
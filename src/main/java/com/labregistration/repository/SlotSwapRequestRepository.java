@@ -0,0 +1,55 @@
+package com.labregistration.repository;
+
+import com.labregistration.model.SlotSwapRequest;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SlotSwapRequestRepository extends JpaRepository<SlotSwapRequest, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SlotSwapRequest s WHERE s.id = :id")
+    Optional<SlotSwapRequest> findByIdForUpdate(@Param("id") Long id);
+
+    // Oldest open request going the opposite way, row-locked; requests locked by a concurrent
+    // match are skipped (lock timeout -2 = SKIP LOCKED)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT s FROM SlotSwapRequest s JOIN FETCH s.registration r WHERE s.labSession.id = :sessionId " +
+           "AND s.status = 'OPEN' AND s.fromTimeSlot.id = :fromSlotId AND s.toTimeSlot.id = :toSlotId " +
+           "AND r.status = 'CONFIRMED' AND r.timeSlot.id = :fromSlotId ORDER BY s.createdAt, s.id")
+    List<SlotSwapRequest> lockOpenMatches(@Param("sessionId") Long sessionId,
+                                          @Param("fromSlotId") Long fromSlotId,
+                                          @Param("toSlotId") Long toSlotId,
+                                          Pageable pageable);
+
+    @Query("SELECT s FROM SlotSwapRequest s JOIN FETCH s.registration r JOIN FETCH r.student " +
+           "JOIN FETCH s.fromTimeSlot JOIN FETCH s.toTimeSlot " +
+           "WHERE s.labSession.id = :sessionId AND s.status = 'OPEN' ORDER BY s.createdAt, s.id")
+    List<SlotSwapRequest> findOpenBySessionId(@Param("sessionId") Long sessionId);
+
+    // Requests are tied to the slot held when posting, so they lapse once the registration moves or ends
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE SlotSwapRequest s SET s.status = 'CANCELLED', s.resolvedAt = :now " +
+           "WHERE s.registration.id IN :registrationIds AND s.status = 'OPEN'")
+    int cancelOpenByRegistrationIds(@Param("registrationIds") Collection<Long> registrationIds,
+                                    @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE SlotSwapRequest s SET s.status = 'CANCELLED', s.resolvedAt = :now " +
+           "WHERE s.labSession.id IN :sessionIds AND s.status = 'OPEN'")
+    int cancelOpenBySessionIds(@Param("sessionIds") Collection<Long> sessionIds, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,49 @@
+package com.labregistration.repository;
+
+import com.labregistration.model.TimeSlot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.util.List;
+
+/**
+ * Bulk insert for generated time slots. TimeSlot uses IDENTITY keys, so saving through JPA
+ * costs one round trip per slot; a session's timetable is written here as JDBC batches
+ * instead (multi-row INSERTs with rewriteBatchedStatements on the MySQL driver).
+ */
+@Repository
+@RequiredArgsConstructor
+public class TimeSlotBatchRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO time_slots (lab_session_id, session_date, start_time, end_time, group_number, " +
+            "max_students, current_count, active) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insert new slots, possibly for several sessions; each slot's session must already have
+     * an id. The entities are not attached to the persistence context and do not get ids
+     * back; read them through TimeSlotRepository afterwards.
+     */
+    public void insertAll(List<TimeSlot> slots) {
+        if (slots.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, slots, BATCH_SIZE, (ps, slot) -> {
+            ps.setLong(1, slot.getLabSession().getId());
+            ps.setDate(2, Date.valueOf(slot.getSessionDate()));
+            ps.setTime(3, Time.valueOf(slot.getStartTime()));
+            ps.setTime(4, Time.valueOf(slot.getEndTime()));
+            ps.setInt(5, slot.getGroupNumber());
+            ps.setInt(6, slot.getMaxStudents());
+            ps.setInt(7, slot.getCurrentCount() != null ? slot.getCurrentCount() : 0);
+            ps.setBoolean(8, slot.getActive() == null || slot.getActive());
+        });
+    }
+}
@@ -2,13 +2,16 @@ package com.labregistration.repository;
 
 import com.labregistration.model.LabSession;
 import com.labregistration.model.TimeSlot;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -66,6 +69,20 @@ public interface TimeSlotRepository extends JpaRepository<TimeSlot, Long> {
     @Modifying
     @Query("UPDATE TimeSlot ts SET ts.currentCount = ts.currentCount - 1 WHERE ts.id = :slotId AND ts.currentCount > 0")
     int decrementCount(@Param("slotId") Long slotId);
+
+    // Take several seats at once; nothing changes unless all of them fit
+    @Modifying
+    @Query("UPDATE TimeSlot ts SET ts.currentCount = ts.currentCount + :seats WHERE ts.id = :slotId AND ts.currentCount + :seats <= ts.maxStudents")
+    int addToCount(@Param("slotId") Long slotId, @Param("seats") int seats);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ts FROM TimeSlot ts WHERE ts.labSession.id = :sessionId AND ts.active = true AND ts.sessionDate >= :today ORDER BY ts.sessionDate, ts.groupNumber")
+    List<TimeSlot> lockUpcomingActiveSlots(@Param("sessionId") Long sessionId, @Param("today") LocalDate today);
+
+    // Including inactive slots, for rescheduling
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ts FROM TimeSlot ts WHERE ts.labSession.id = :sessionId AND ts.sessionDate >= :today ORDER BY ts.sessionDate, ts.groupNumber")
+    List<TimeSlot> lockUpcomingSlots(@Param("sessionId") Long sessionId, @Param("today") LocalDate today);
     
     @Query("SELECT COALESCE(MAX(ts.groupNumber), 0) FROM TimeSlot ts WHERE ts.labSession.id = :sessionId")
     int findMaxSlotNumberBySessionId(@Param("sessionId") Long sessionId);
@@ -81,5 +98,13 @@ public interface TimeSlotRepository extends JpaRepository<TimeSlot, Long> {
 
     List<TimeSlot> findBySessionDateBetweenOrderBySessionDateAsc(LocalDate startDate, LocalDate endDate);
 
+    @Query("SELECT ts FROM TimeSlot ts WHERE ts.labSession.id IN :sessionIds ORDER BY ts.sessionDate, ts.groupNumber")
+    List<TimeSlot> findBySessionIdsOrderByDateAndSlot(@Param("sessionIds") Collection<Long> sessionIds);
+
+    @Query("SELECT ts FROM TimeSlot ts JOIN FETCH ts.labSession s JOIN FETCH s.course c LEFT JOIN FETCH c.department " +
+           "WHERE ts.sessionDate BETWEEN :startDate AND :endDate ORDER BY ts.sessionDate")
+    List<TimeSlot> findWithSessionBySessionDateBetween(@Param("startDate") LocalDate startDate,
+                                                       @Param("endDate") LocalDate endDate);
+
 
 }
@@ -1,12 +1,16 @@
 package com.labregistration.repository;
 
+import com.labregistration.model.Level;
 import com.labregistration.model.Role;
 import com.labregistration.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,9 +29,28 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     List<User> findByRoleAndEnabled(Role role, Boolean enabled);
     
+    // Keyset page, newest first; pass null afterCreatedAt for the first page
+    @Query("SELECT u FROM User u WHERE u.role = :role " +
+           "AND (:afterCreatedAt IS NULL OR u.createdAt < :afterCreatedAt " +
+           "OR (u.createdAt = :afterCreatedAt AND u.id < :afterId)) " +
+           "ORDER BY u.createdAt DESC, u.id DESC")
+    List<User> findPageByRole(@Param("role") Role role,
+                              @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                              @Param("afterId") Long afterId,
+                              Pageable pageable);
+    
     @Query("SELECT u FROM User u WHERE u.program.id = :programId")
     List<User> findByProgramId(@Param("programId") Long programId);
     
+    // Enabled students of a program, optionally of one level only
+    @Query("SELECT u.id FROM User u WHERE u.role = 'STUDENT' AND u.enabled = true AND u.program.id = :programId " +
+           "AND (:level IS NULL OR u.level = :level) ORDER BY u.id")
+    List<Long> findStudentIdsByCohort(@Param("programId") Long programId, @Param("level") Level level);
+
+    // Students per program for many programs at once: [programId, count]
+    @Query("SELECT u.program.id, COUNT(u) FROM User u WHERE u.program.id IN :programIds GROUP BY u.program.id")
+    List<Object[]> countByProgramIds(@Param("programIds") Collection<Long> programIds);
+    
     @Query("SELECT u FROM User u WHERE u.program.department.id = :departmentId")
     List<User> findByDepartmentId(@Param("departmentId") Long departmentId);
     
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +20,9 @@ public interface WeeklyNoteRepository extends JpaRepository<WeeklyNote, Long> {
     @Query("SELECT wn FROM WeeklyNote wn WHERE wn.labSession.id = :labSessionId AND wn.isPublished = true ORDER BY wn.weekNumber")
     List<WeeklyNote> findPublishedByLabSessionId(@Param("labSessionId") Long labSessionId);
 
+    @Query("SELECT wn FROM WeeklyNote wn WHERE wn.labSession.id IN :labSessionIds AND wn.isPublished = true")
+    List<WeeklyNote> findPublishedByLabSessionIds(@Param("labSessionIds") Collection<Long> labSessionIds);
+
     @Query("SELECT COUNT(wn) FROM WeeklyNote wn WHERE wn.labSession.id = :labSessionId AND wn.isPublished = true")
     int countPublishedByLabSessionId(@Param("labSessionId") Long labSessionId);
 
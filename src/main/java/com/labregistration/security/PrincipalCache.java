@@ -0,0 +1,67 @@
+package com.labregistration.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Short-lived cache of authenticated principals keyed by JWT subject (the user's email),
+ * so {@link JwtAuthenticationFilter} does not load the user from the database on every
+ * request. Entries expire after {@code app.security.principal-cache-ttl-seconds} and are
+ * evicted explicitly when an account is changed or deactivated.
+ */
+@Component
+@Slf4j
+public class PrincipalCache {
+
+    private final long ttlMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public PrincipalCache(@Value("${app.security.principal-cache-ttl-seconds:60}") long ttlSeconds) {
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(username);
+        if (entry != null && entry.expiresAt > now) {
+            return entry.principal;
+        }
+        UserDetails principal = loader.apply(username);
+        entries.put(username, new Entry(principal, now + ttlMillis));
+        return principal;
+    }
+
+    /**
+     * Forget a user once the current transaction commits, so the next request reloads it.
+     */
+    public void evict(String username) {
+        if (username == null) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entries.remove(username);
+                }
+            });
+        } else {
+            entries.remove(username);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.principal-cache-cleanup-ms:300000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.expiresAt <= now);
+    }
+
+    private record Entry(UserDetails principal, long expiresAt) {}
+}
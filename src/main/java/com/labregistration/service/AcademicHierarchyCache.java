@@ -0,0 +1,235 @@
+package com.labregistration.service;
+
+import com.labregistration.dto.DepartmentDTO;
+import com.labregistration.dto.FacultyDTO;
+import com.labregistration.dto.ProgramDTO;
+import com.labregistration.model.Department;
+import com.labregistration.model.Faculty;
+import com.labregistration.model.Program;
+import com.labregistration.repository.DepartmentRepository;
+import com.labregistration.repository.FacultyRepository;
+import com.labregistration.repository.ProgramRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache of the active faculties, departments and programs served on the
+ * public registration pages.
+ *
+ * The whole hierarchy is loaded as one snapshot (one query per level plus two
+ * grouped counts) and kept until a write in FacultyService, DepartmentService or
+ * ProgramService calls {@link #invalidate()}. Each cached list carries an ETag derived
+ * from its content, so clients can revalidate with If-None-Match and get a 304.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AcademicHierarchyCache {
+
+    private final FacultyRepository facultyRepository;
+    private final DepartmentRepository departmentRepository;
+    private final ProgramRepository programRepository;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // Bumped on every invalidation so a rebuild that raced with a write is not kept
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    public Cached<FacultyDTO> faculties() {
+        return current().faculties;
+    }
+
+    public Cached<DepartmentDTO> departments() {
+        return current().departments;
+    }
+
+    public Cached<DepartmentDTO> departmentsByFaculty(Long facultyId) {
+        return current().departmentsByFaculty.getOrDefault(facultyId, Cached.EMPTY_DEPARTMENTS);
+    }
+
+    public Cached<ProgramDTO> programs() {
+        return current().programs;
+    }
+
+    public Cached<ProgramDTO> programsByDepartment(Long departmentId) {
+        return current().programsByDepartment.getOrDefault(departmentId, Cached.EMPTY_PROGRAMS);
+    }
+
+    /**
+     * Drop the snapshot once the current transaction commits, so the next read reloads it.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict();
+                }
+            });
+        } else {
+            evict();
+        }
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    // -------------------------------------------------------------------------
+    // INTERNALS
+    // -------------------------------------------------------------------------
+
+    private void evict() {
+        generation.incrementAndGet();
+        snapshot = null;
+        invalidations.incrementAndGet();
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s != null) {
+            hits.incrementAndGet();
+            return s;
+        }
+        synchronized (this) {
+            s = snapshot;
+            if (s != null) {
+                hits.incrementAndGet();
+                return s;
+            }
+            misses.incrementAndGet();
+            long gen = generation.get();
+            s = load();
+            if (generation.get() == gen) {
+                snapshot = s;
+            }
+            return s;
+        }
+    }
+
+    private Snapshot load() {
+        Map<Long, Integer> departmentCounts = toCountMap(departmentRepository.countGroupedByFaculty());
+        Map<Long, Integer> programCounts = toCountMap(programRepository.countGroupedByDepartment());
+
+        List<FacultyDTO> faculties = facultyRepository.findByActiveTrue().stream()
+                .map(f -> toFacultyDTO(f, departmentCounts.getOrDefault(f.getId(), 0)))
+                .collect(Collectors.toList());
+        List<DepartmentDTO> departments = departmentRepository.findActiveWithFaculty().stream()
+                .map(d -> toDepartmentDTO(d, programCounts.getOrDefault(d.getId(), 0)))
+                .collect(Collectors.toList());
+        List<ProgramDTO> programs = programRepository.findActiveWithDepartment().stream()
+                .map(this::toProgramDTO)
+                .collect(Collectors.toList());
+
+        log.debug("Loaded academic hierarchy: {} faculties, {} departments, {} programs",
+                faculties.size(), departments.size(), programs.size());
+
+        return new Snapshot(
+                Cached.of(faculties),
+                Cached.of(departments),
+                groupBy(departments, DepartmentDTO::getFacultyId),
+                Cached.of(programs),
+                groupBy(programs, ProgramDTO::getDepartmentId));
+    }
+
+    private static <T> Map<Long, Cached<T>> groupBy(List<T> items, Function<T, Long> key) {
+        Map<Long, List<T>> grouped = new HashMap<>();
+        for (T item : items) {
+            Long k = key.apply(item);
+            if (k != null) {
+                grouped.computeIfAbsent(k, x -> new ArrayList<>()).add(item);
+            }
+        }
+        Map<Long, Cached<T>> result = new HashMap<>();
+        grouped.forEach((k, v) -> result.put(k, Cached.of(v)));
+        return result;
+    }
+
+    private static Map<Long, Integer> toCountMap(List<Object[]> rows) {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        return counts;
+    }
+
+    private FacultyDTO toFacultyDTO(Faculty faculty, int departmentCount) {
+        return FacultyDTO.builder()
+                .id(faculty.getId())
+                .code(faculty.getCode())
+                .name(faculty.getName())
+                .description(faculty.getDescription())
+                .dean(faculty.getDean())
+                .active(faculty.getActive())
+                .departmentCount(departmentCount)
+                .createdAt(faculty.getCreatedAt())
+                .build();
+    }
+
+    private DepartmentDTO toDepartmentDTO(Department dept, int programCount) {
+        return DepartmentDTO.builder()
+                .id(dept.getId())
+                .code(dept.getCode())
+                .name(dept.getName())
+                .description(dept.getDescription())
+                .facultyId(dept.getFaculty() != null ? dept.getFaculty().getId() : null)
+                .facultyName(dept.getFacultyName())
+                .headOfDepartment(dept.getHeadOfDepartment())
+                .active(dept.getActive())
+                .programCount(programCount)
+                .createdAt(dept.getCreatedAt())
+                .build();
+    }
+
+    private ProgramDTO toProgramDTO(Program program) {
+        return ProgramDTO.builder()
+                .id(program.getId())
+                .code(program.getCode())
+                .name(program.getName())
+                .description(program.getDescription())
+                .departmentId(program.getDepartment() != null ? program.getDepartment().getId() : null)
+                .departmentName(program.getDepartmentName())
+                .facultyName(program.getFacultyName())
+                .durationYears(program.getDurationYears())
+                .degreeType(program.getDegreeType())
+                .active(program.getActive())
+                .createdAt(program.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * An immutable cached list and the strong ETag for it. The tag is computed from the
+     * DTO contents, so every instance serving the same data hands out the same tag.
+     */
+    public record Cached<T>(List<T> data, String etag) {
+
+        static final Cached<DepartmentDTO> EMPTY_DEPARTMENTS = of(List.of());
+        static final Cached<ProgramDTO> EMPTY_PROGRAMS = of(List.of());
+
+        static <T> Cached<T> of(List<T> data) {
+            List<T> copy = List.copyOf(data);
+            return new Cached<>(copy, "\"" + Integer.toHexString(copy.hashCode()) + "-" + copy.size() + "\"");
+        }
+    }
+
+    private record Snapshot(Cached<FacultyDTO> faculties,
+                            Cached<DepartmentDTO> departments,
+                            Map<Long, Cached<DepartmentDTO>> departmentsByFaculty,
+                            Cached<ProgramDTO> programs,
+                            Map<Long, Cached<ProgramDTO>> programsByDepartment) {}
+}
@@ -5,8 +5,8 @@ import com.labregistration.dto.request.MarkAttendanceRequest;
 import com.labregistration.exception.BadRequestException;
 import com.labregistration.exception.ResourceNotFoundException;
 import com.labregistration.model.Attendance;
-import com.labregistration.model.Registration;
 import com.labregistration.model.User;
+import com.labregistration.repository.AttendanceBatchRepository;
 import com.labregistration.repository.AttendanceRepository;
 import com.labregistration.repository.RegistrationRepository;
 import lombok.RequiredArgsConstructor;
@@ -15,9 +15,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,50 +24,55 @@ import java.util.stream.Collectors;
 public class AttendanceService {
 
     private final AttendanceRepository attendanceRepository;
+    private final AttendanceBatchRepository attendanceBatchRepository;
     private final RegistrationRepository registrationRepository;
     private final UserService userService;
 
+    /**
+     * Mark a roster in a fixed number of statements: one lookup to validate the
+     * registrations, one batched upsert, one UPDATE recomputing the attendance counters and
+     * one read of the written rows.
+     */
     @Transactional
     public List<AttendanceDTO> markAttendance(MarkAttendanceRequest request, String markerEmail) {
         User marker = userService.getUserEntityByEmail(markerEmail);
-        List<AttendanceDTO> results = new ArrayList<>();
 
+        // Last record wins if a registration appears twice
+        Map<Long, MarkAttendanceRequest.AttendanceRecord> records = new LinkedHashMap<>();
         for (MarkAttendanceRequest.AttendanceRecord record : request.getAttendances()) {
-            Registration registration = registrationRepository.findById(record.getRegistrationId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Registration", "id", record.getRegistrationId()));
+            records.put(record.getRegistrationId(), record);
+        }
 
+        Map<Long, Long> sessionByRegistration = new HashMap<>();
+        for (Object[] row : registrationRepository.findSessionIdsByIds(records.keySet())) {
+            sessionByRegistration.put((Long) row[0], (Long) row[1]);
+        }
+        for (Long registrationId : records.keySet()) {
+            Long sessionId = sessionByRegistration.get(registrationId);
+            if (sessionId == null) {
+                throw new ResourceNotFoundException("Registration", "id", registrationId);
+            }
             // Verify this registration belongs to the specified session
-            if (!registration.getLabSession().getId().equals(request.getLabSessionId())) {
-                throw new BadRequestException("Registration " + record.getRegistrationId() + 
+            if (!sessionId.equals(request.getLabSessionId())) {
+                throw new BadRequestException("Registration " + registrationId +
                         " does not belong to session " + request.getLabSessionId());
             }
+        }
 
-            // Check if attendance already exists for this date
-            Attendance attendance = attendanceRepository
-                    .findByRegistrationIdAndDate(record.getRegistrationId(), request.getSessionDate())
-                    .orElse(null);
-
-            if (attendance == null) {
-                attendance = Attendance.builder()
-                        .registration(registration)
-                        .sessionDate(request.getSessionDate())
-                        .build();
-            }
-
-            attendance.setPresent(record.getPresent());
-            attendance.setNotes(record.getNotes());
-            attendance.setMarkedBy(marker);
-            
-            if (record.getPresent()) {
-                attendance.setCheckInTime(LocalDateTime.now());
-            }
-
-            attendance = attendanceRepository.save(attendance);
+        List<AttendanceBatchRepository.Row> rows = records.values().stream()
+                .map(r -> new AttendanceBatchRepository.Row(r.getRegistrationId(), r.getPresent(), r.getNotes()))
+                .collect(Collectors.toList());
+        attendanceBatchRepository.upsert(request.getSessionDate(), rows, marker.getId());
 
-            // Update registration attendance count
-            updateAttendanceCount(registration);
+        // Update registration attendance counts
+        attendanceRepository.refreshAttendanceCounts(records.keySet());
 
-            results.add(toDTO(attendance));
+        Map<Long, Attendance> written = attendanceRepository
+                .findWithStudentByRegistrationIdsAndDate(records.keySet(), request.getSessionDate()).stream()
+                .collect(Collectors.toMap(a -> a.getRegistration().getId(), a -> a));
+        List<AttendanceDTO> results = new ArrayList<>(records.size());
+        for (Long registrationId : records.keySet()) {
+            results.add(toDTO(written.get(registrationId)));
         }
 
         log.info("Marked attendance for {} students on {} for session {}", 
@@ -77,15 +80,6 @@ public class AttendanceService {
         return results;
     }
 
-    private void updateAttendanceCount(Registration registration) {
-        int presentCount = attendanceRepository.countPresentByRegistrationId(registration.getId());
-        int totalCount = attendanceRepository.countTotalByRegistrationId(registration.getId());
-        
-        registration.setAttendedSessions(presentCount);
-        registration.setTotalSessions(Math.max(registration.getTotalSessions(), totalCount));
-        registrationRepository.save(registration);
-    }
-
     public List<AttendanceDTO> getAttendanceByRegistration(Long registrationId) {
         return attendanceRepository.findByRegistrationId(registrationId).stream()
                 .map(this::toDTO)
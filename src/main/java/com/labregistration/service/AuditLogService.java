@@ -0,0 +1,49 @@
+package com.labregistration.service;
+
+import com.labregistration.dto.AuditLogDTO;
+import com.labregistration.dto.response.CursorPage;
+import com.labregistration.dto.response.CursorPage.Cursor;
+import com.labregistration.exception.BadRequestException;
+import com.labregistration.model.AuditLog;
+import com.labregistration.repository.AuditLogRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class AuditLogService {
+
+    private final AuditLogRepository auditLogRepository;
+
+    /**
+     * Keyset page of audit entries in a time window, newest first.
+     */
+    public CursorPage<AuditLogDTO> getAuditLogsPage(LocalDateTime start, LocalDateTime end, String cursor, Integer limit) {
+        if (end.isBefore(start)) {
+            throw new BadRequestException("End must be on or after start");
+        }
+        Cursor after = Cursor.decode(cursor);
+        int size = CursorPage.clampLimit(limit);
+        List<AuditLog> rows = auditLogRepository.findPageByTimestampBetween(start, end,
+                after.createdAt(), after.id(), PageRequest.of(0, size + 1));
+        return CursorPage.of(rows, size, AuditLog::getTimestamp, AuditLog::getId, this::toDTO);
+    }
+
+    private AuditLogDTO toDTO(AuditLog log) {
+        return AuditLogDTO.builder()
+                .id(log.getId())
+                .userId(log.getUser() != null ? log.getUser().getId() : null)
+                .action(log.getAction())
+                .entityType(log.getEntityType())
+                .entityId(log.getEntityId())
+                .details(log.getDetails())
+                .ipAddress(log.getIpAddress())
+                .userAgent(log.getUserAgent())
+                .timestamp(log.getTimestamp())
+                .build();
+    }
+}
@@ -0,0 +1,244 @@
+package com.labregistration.service;
+
+import com.labregistration.dto.BulkEnrollmentResultDTO;
+import com.labregistration.dto.request.BulkEnrollRequest;
+import com.labregistration.exception.BadRequestException;
+import com.labregistration.exception.ResourceNotFoundException;
+import com.labregistration.model.*;
+import com.labregistration.repository.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Enrolls a whole program (optionally one level of it) into a session in one transaction.
+ *
+ * The cohort and the session's existing registrations are read with one query each, and
+ * students are spread over the upcoming slots in memory, always filling the emptiest slot
+ * (relative to its size) next. New registrations, notifications and per-slot seat counts
+ * are then written as JDBC batches; students who had cancelled are brought back with one
+ * UPDATE per slot. Slots that clash with a student's timetable are skipped for that student,
+ * and a student for whom every slot with a free seat clashes is not enrolled. Whoever does
+ * not fit goes to the waitlist.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkEnrollmentService {
+
+    private static final int FULL = -1;
+    private static final int CLASHES = -2;
+
+    private final LabSessionRepository labSessionRepository;
+    private final ProgramRepository programRepository;
+    private final UserRepository userRepository;
+    private final RegistrationRepository registrationRepository;
+    private final RegistrationBatchRepository registrationBatchRepository;
+    private final TimeSlotRepository timeSlotRepository;
+    private final NotificationBatchRepository notificationBatchRepository;
+    private final SeatAllocator seatAllocator;
+    private final WaitlistService waitlistService;
+    private final StudentTimetableIndex studentTimetableIndex;
+
+    @Transactional
+    public BulkEnrollmentResultDTO enroll(Long sessionId, BulkEnrollRequest request) {
+        LabSession session = labSessionRepository.findById(sessionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Lab Session", "id", sessionId));
+        if (session.getStatus() == SessionStatus.CANCELLED || session.getStatus() == SessionStatus.COMPLETED) {
+            throw new BadRequestException("Cannot enroll students into a " +
+                    session.getStatus().name().toLowerCase() + " session");
+        }
+        Program program = programRepository.findById(request.getProgramId())
+                .orElseThrow(() -> new ResourceNotFoundException("Program", "id", request.getProgramId()));
+        if (!session.isOpenToProgram(program)) {
+            throw new BadRequestException("This lab session is not available for " + program.getName());
+        }
+
+        List<Long> cohort = userRepository.findStudentIdsByCohort(program.getId(), request.getLevel());
+
+        // Students already registered are left alone; those who cancelled are re-enrolled
+        Map<Long, Object[]> existing = new HashMap<>();
+        for (Object[] row : registrationRepository.findStudentStatusesBySessionId(sessionId)) {
+            existing.put((Long) row[1], row);
+        }
+        List<Long> students = new ArrayList<>();
+        Map<Long, Long> cancelledRegistrationIds = new HashMap<>();
+        for (Long studentId : cohort) {
+            Object[] row = existing.get(studentId);
+            if (row == null) {
+                students.add(studentId);
+            } else if (row[2] == RegistrationStatus.CANCELLED) {
+                students.add(studentId);
+                cancelledRegistrationIds.put(studentId, (Long) row[0]);
+            }
+        }
+
+        BulkEnrollmentResultDTO.BulkEnrollmentResultDTOBuilder result = BulkEnrollmentResultDTO.builder()
+                .labSessionId(sessionId)
+                .cohortSize(cohort.size())
+                .alreadyRegistered(cohort.size() - students.size())
+                .enrolled(students.size());
+        if (students.isEmpty()) {
+            return result.build();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int totalSessions = session.getDurationWeeks() * session.getSessionDaysSet().size();
+        boolean notify = !Boolean.FALSE.equals(request.getNotifyStudents());
+        List<NotificationBatchRepository.Row> notifications = new ArrayList<>();
+        List<RegistrationBatchRepository.Row> inserts = new ArrayList<>();
+
+        if (PreferenceAllocationService.awaitsAllocation(session)) {
+            // Everyone waits for the allocation run, with no ranked choices (any slot)
+            List<Long> reactivated = new ArrayList<>();
+            for (Long studentId : students) {
+                Long registrationId = cancelledRegistrationIds.get(studentId);
+                if (registrationId != null) {
+                    reactivated.add(registrationId);
+                } else {
+                    inserts.add(new RegistrationBatchRepository.Row(studentId, null, RegistrationStatus.PENDING, null));
+                }
+                notifications.add(new NotificationBatchRepository.Row(studentId, "Lab Registration",
+                        String.format("You have been enrolled in %s. Slots are allocated after the registration " +
+                                "deadline (%s).", session.getName(), session.getRegistrationDeadline()), "INFO"));
+            }
+            if (!reactivated.isEmpty()) {
+                registrationRepository.reactivateCancelled(reactivated, RegistrationStatus.PENDING, null, null, null, now);
+            }
+            registrationBatchRepository.insertAll(sessionId, inserts, totalSessions);
+            finish(students, notify ? notifications : List.of());
+            log.info("Enrolled {} student(s) of {} into session {} pending allocation",
+                    students.size(), program.getName(), sessionId);
+            return result.pending(students.size()).build();
+        }
+
+        // Locked so concurrent registrations cannot take the seats handed out here
+        List<TimeSlot> slots = timeSlotRepository.lockUpcomingActiveSlots(sessionId, LocalDate.now());
+        Map<Long, StudentTimetableIndex.Timetable> timetables = studentTimetableIndex.forStudents(students);
+        int[] assignment = balance(slots, students, timetables);
+
+        Map<Integer, List<Long>> reactivatedBySlot = new TreeMap<>();
+        int[] seatsTaken = new int[slots.size()];
+        List<Long> waitlistedReactivations = new ArrayList<>();
+        int ticket = waitlistService.nextPosition(sessionId);
+        int waitlisted = 0;
+        int clashing = 0;
+
+        for (int i = 0; i < students.size(); i++) {
+            Long studentId = students.get(i);
+            Long registrationId = cancelledRegistrationIds.get(studentId);
+            int j = assignment[i];
+            if (j == CLASHES) {
+                clashing++;
+                continue;
+            }
+            if (j == FULL) {
+                waitlisted++;
+                if (registrationId != null) {
+                    waitlistedReactivations.add(registrationId);
+                } else {
+                    inserts.add(new RegistrationBatchRepository.Row(studentId, null, RegistrationStatus.WAITLISTED, ticket));
+                }
+                notifications.add(new NotificationBatchRepository.Row(studentId, "Lab Registration",
+                        String.format("You have been enrolled in %s and placed on the waitlist.", session.getName()),
+                        "INFO"));
+                continue;
+            }
+            TimeSlot slot = slots.get(j);
+            seatsTaken[j]++;
+            if (registrationId != null) {
+                reactivatedBySlot.computeIfAbsent(j, k -> new ArrayList<>()).add(registrationId);
+            } else {
+                inserts.add(new RegistrationBatchRepository.Row(studentId, slot.getId(), RegistrationStatus.CONFIRMED, null));
+            }
+            notifications.add(new NotificationBatchRepository.Row(studentId, "Lab Registration",
+                    String.format("You have been enrolled in %s: %s, %s - %s.", session.getName(),
+                            slot.getSessionDate(), slot.getStartTime(), slot.getEndTime()),
+                    "SUCCESS"));
+        }
+
+        int slotsUsed = 0;
+        for (int j = 0; j < slots.size(); j++) {
+            if (seatsTaken[j] == 0) continue;
+            slotsUsed++;
+            if (timeSlotRepository.addToCount(slots.get(j).getId(), seatsTaken[j]) != 1) {
+                throw new IllegalStateException("Slot " + slots.get(j).getId() + " has fewer free seats than assigned");
+            }
+        }
+        reactivatedBySlot.forEach((j, ids) ->
+                registrationRepository.reactivateCancelled(ids, RegistrationStatus.CONFIRMED, slots.get(j), null, now, now));
+        if (!waitlistedReactivations.isEmpty()) {
+            registrationRepository.reactivateCancelled(waitlistedReactivations, RegistrationStatus.WAITLISTED,
+                    null, ticket, null, now);
+        }
+        registrationBatchRepository.insertAll(sessionId, inserts, totalSessions);
+        seatAllocator.invalidate(sessionId);
+        finish(students, notify ? notifications : List.of());
+
+        log.info("Enrolled {} student(s) of {} into session {} ({} waitlisted, {} slot(s), {} skipped for clashes)",
+                students.size() - clashing, program.getName(), sessionId, waitlisted, slotsUsed, clashing);
+        return result
+                .enrolled(students.size() - clashing)
+                .skippedForClashes(clashing)
+                .confirmed(students.size() - clashing - waitlisted)
+                .waitlisted(waitlisted)
+                .slotsUsed(slotsUsed)
+                .build();
+    }
+
+    private void finish(List<Long> students, List<NotificationBatchRepository.Row> notifications) {
+        notificationBatchRepository.insertAll(notifications);
+        studentTimetableIndex.evictAll(students);
+    }
+
+    /**
+     * Slot index per student, always picking the slot that is least full relative to its size
+     * (earliest first on ties) among those that do not clash with the student's timetable.
+     * {@link #FULL} once every slot is full, {@link #CLASHES} when every slot with a free seat
+     * clashes.
+     */
+    private static int[] balance(List<TimeSlot> slots, List<Long> students,
+                                 Map<Long, StudentTimetableIndex.Timetable> timetables) {
+        int[] used = new int[slots.size()];
+        int[] size = new int[slots.size()];
+        for (int j = 0; j < slots.size(); j++) {
+            used[j] = slots.get(j).getCurrentCount();
+            size[j] = slots.get(j).getMaxStudents();
+        }
+        PriorityQueue<Integer> emptiest = new PriorityQueue<>((a, b) -> {
+            int byLoad = Long.compare((long) used[a] * size[b], (long) used[b] * size[a]);
+            return byLoad != 0 ? byLoad : Integer.compare(a, b);
+        });
+        for (int j = 0; j < slots.size(); j++) {
+            if (used[j] < size[j]) emptiest.add(j);
+        }
+
+        int[] assignment = new int[students.size()];
+        List<Integer> skipped = new ArrayList<>();
+        for (int i = 0; i < students.size(); i++) {
+            StudentTimetableIndex.Timetable timetable = timetables.get(students.get(i));
+            Integer j;
+            while ((j = emptiest.poll()) != null) {
+                TimeSlot slot = slots.get(j);
+                if (timetable.clash(slot.getSessionDate(), slot.getStartTime(), slot.getEndTime()).isEmpty()) break;
+                skipped.add(j);
+            }
+            emptiest.addAll(skipped);
+            if (j == null) {
+                assignment[i] = skipped.isEmpty() ? FULL : CLASHES;
+                skipped.clear();
+                continue;
+            }
+            skipped.clear();
+            assignment[i] = j;
+            used[j]++;
+            if (used[j] < size[j]) emptiest.add(j);
+        }
+        return assignment;
+    }
+}
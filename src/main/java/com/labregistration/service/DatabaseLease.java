@@ -0,0 +1,48 @@
+package com.labregistration.service;
+
+import com.labregistration.repository.SchedulerLeaseRepository;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Named leases in the scheduler_leases table, for scheduled jobs that must run on one
+ * instance only. Each statement commits on its own, so a lease is visible to the other
+ * instances immediately. A holder that dies simply lets its lease expire.
+ */
+@Component
+public class DatabaseLease {
+
+    private final SchedulerLeaseRepository schedulerLeaseRepository;
+    private final String owner;
+
+    public DatabaseLease(SchedulerLeaseRepository schedulerLeaseRepository) {
+        this.schedulerLeaseRepository = schedulerLeaseRepository;
+        this.owner = hostName() + ":" + UUID.randomUUID();
+    }
+
+    /**
+     * Take the lease for {@code ttl}, or extend it if this instance already holds it.
+     */
+    public boolean tryAcquire(String name, Duration ttl) {
+        LocalDateTime now = LocalDateTime.now();
+        schedulerLeaseRepository.createIfMissing(name, now.minusSeconds(1));
+        return schedulerLeaseRepository.acquire(name, owner, now, now.plus(ttl)) == 1;
+    }
+
+    public void release(String name) {
+        schedulerLeaseRepository.release(name, owner, LocalDateTime.now());
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown-host";
+        }
+    }
+}
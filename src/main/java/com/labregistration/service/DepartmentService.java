@@ -156,6 +156,7 @@ public class DepartmentService {
 
     private final DepartmentRepository departmentRepository;
     private final FacultyRepository    facultyRepository;      // ← added
+    private final AcademicHierarchyCache hierarchyCache;
 
     public List<DepartmentDTO> getAllDepartments() {
         return departmentRepository.findAll().stream()
@@ -204,6 +205,7 @@ public class DepartmentService {
                 .build();
 
         dept = departmentRepository.save(dept);
+        hierarchyCache.invalidate();
         log.info("Department created: {}", dept.getCode());
         return toDTO(dept);
     }
@@ -224,6 +226,7 @@ public class DepartmentService {
         dept.setHeadOfDepartment(request.getHeadOfDepartment());
 
         dept = departmentRepository.save(dept);
+        hierarchyCache.invalidate();
         log.info("Department updated: {}", dept.getCode());
         return toDTO(dept);
     }
@@ -234,6 +237,7 @@ public class DepartmentService {
                 .orElseThrow(() -> new ResourceNotFoundException("Department", "id", id));
         dept.setActive(false);
         departmentRepository.save(dept);
+        hierarchyCache.invalidate();
     }
 
     @Transactional
@@ -242,6 +246,7 @@ public class DepartmentService {
                 .orElseThrow(() -> new ResourceNotFoundException("Department", "id", id));
         dept.setActive(false);
         departmentRepository.save(dept);
+        hierarchyCache.invalidate();
         log.info("Deactivated department: {}", dept.getName());
     }
 
@@ -251,6 +256,7 @@ public class DepartmentService {
                 .orElseThrow(() -> new ResourceNotFoundException("Department", "id", id));
         dept.setActive(true);
         departmentRepository.save(dept);
+        hierarchyCache.invalidate();
         log.info("Activated department: {}", dept.getName());
     }
 
@@ -18,6 +18,7 @@ import java.util.stream.Collectors;
 public class FacultyService {
 
     private final FacultyRepository facultyRepository;
+    private final AcademicHierarchyCache hierarchyCache;
 
     public List<FacultyDTO> getAll() {
         return facultyRepository.findAll()
@@ -63,6 +64,7 @@ public class FacultyService {
                 .build();
 
         faculty = facultyRepository.save(faculty);
+        hierarchyCache.invalidate();
         log.info("Created faculty: {} ({})", faculty.getName(), faculty.getCode());
         return toDto(faculty);
     }
@@ -92,6 +94,7 @@ public class FacultyService {
         }
 
         faculty = facultyRepository.save(faculty);
+        hierarchyCache.invalidate();
         log.info("Updated faculty: {} ({})", faculty.getName(), faculty.getCode());
         return toDto(faculty);
     }
@@ -103,6 +106,7 @@ public class FacultyService {
         Faculty faculty = findOrThrow(id);
         faculty.setActive(active);
         faculty = facultyRepository.save(faculty);
+        hierarchyCache.invalidate();
         log.info("Faculty {} ({}): active={}", faculty.getName(), faculty.getCode(), active);
         return toDto(faculty);
     }
@@ -113,6 +117,7 @@ public class FacultyService {
     public void delete(Long id) {
         Faculty faculty = findOrThrow(id);
         facultyRepository.delete(faculty);
+        hierarchyCache.invalidate();
         log.info("Deleted faculty: {} ({})", faculty.getName(), faculty.getCode());
     }
 
@@ -0,0 +1,218 @@
+package com.labregistration.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.labregistration.dto.response.ApiResponse;
+import com.labregistration.exception.BadRequestException;
+import com.labregistration.exception.ConflictException;
+import com.labregistration.model.IdempotencyRecord;
+import com.labregistration.repository.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Replays the original response for requests retried with the same Idempotency-Key header.
+ *
+ * Completed responses are kept in a bounded in-memory LRU for fast replays on this instance
+ * and in the idempotency_keys table so replays survive restarts and reach other instances.
+ * A key is claimed with INSERT IGNORE before the request runs, so two concurrent retries
+ * cannot both get through; the loser gets 409 until the first one finishes. A claim is only
+ * held for {@code app.idempotency.pending-lease-seconds} until the response is recorded, so
+ * the key of a request that died mid-way can be taken over by a retry. Failed requests
+ * release their key and are not cached, so the client can retry them.
+ *
+ * Requests are fingerprinted as JSON with properties and map keys sorted, so the same
+ * request hashes the same on every instance and after restarts.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper fingerprintMapper;
+    private final long ttlMinutes;
+    private final long pendingLeaseSeconds;
+    private final Map<String, Stored> recent;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${app.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                              @Value("${app.idempotency.pending-lease-seconds:60}") long pendingLeaseSeconds,
+                              @Value("${app.idempotency.max-cached:10000}") int maxCached) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.fingerprintMapper = objectMapper.copy();
+        this.fingerprintMapper.setConfig(fingerprintMapper.getSerializationConfig()
+                .with(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+                .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS));
+        this.ttlMinutes = ttlMinutes;
+        this.pendingLeaseSeconds = pendingLeaseSeconds;
+        this.recent = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Stored> eldest) {
+                return size() > maxCached;
+            }
+        };
+    }
+
+    /**
+     * Run {@code action} once per (caller, key). Without a key the action simply runs.
+     *
+     * @param operation method and path template, e.g. "POST /api/registrations"
+     * @param payload   what else identifies the request: its body or path variables
+     * @param dataType  type of the ApiResponse payload, used to read a stored response back
+     */
+    public <D> ResponseEntity<ApiResponse<D>> execute(String key, String caller, String operation, Object payload,
+                                                      Class<D> dataType,
+                                                      Supplier<ResponseEntity<ApiResponse<D>>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String fingerprint = fingerprint(new Fingerprinted(operation, payload));
+        String cacheKey = caller + "\n" + key;
+        JavaType type = objectMapper.getTypeFactory().constructParametricType(ApiResponse.class, dataType);
+
+        Stored stored = cached(cacheKey);
+        if (stored == null) {
+            stored = claimOrLoad(caller, key, fingerprint);
+        }
+        if (stored != null) {
+            if (!stored.fingerprint.equals(fingerprint)) {
+                throw new BadRequestException(HEADER + " was already used for a different request");
+            }
+            log.debug("Replaying response for {} key {}", caller, key);
+            return ResponseEntity.status(stored.statusCode).body(read(stored.body, type));
+        }
+
+        ResponseEntity<ApiResponse<D>> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            idempotencyRecordRepository.release(caller, key);
+            throw e;
+        }
+
+        String body = write(response.getBody());
+        idempotencyRecordRepository.complete(caller, key, response.getStatusCode().value(), body,
+                LocalDateTime.now().plusMinutes(ttlMinutes));
+        remember(cacheKey, new Stored(fingerprint, response.getStatusCode().value(), body,
+                LocalDateTime.now().plusMinutes(ttlMinutes)));
+        return response;
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-ms:600000}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (recent) {
+            recent.values().removeIf(s -> s.expiresAt.isBefore(now));
+        }
+        int deleted = idempotencyRecordRepository.deleteExpired(now);
+        if (deleted > 0) {
+            log.debug("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // INTERNALS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Claim the key for this request (returns null), or return the stored response of the
+     * request that claimed it first.
+     */
+    private Stored claimOrLoad(String caller, String key, String fingerprint) {
+        LocalDateTime now = LocalDateTime.now();
+        // Only a lease until the response is recorded, which extends it to the full TTL
+        LocalDateTime expiresAt = now.plusSeconds(pendingLeaseSeconds);
+        if (idempotencyRecordRepository.claim(caller, key, fingerprint, now, expiresAt) == 1) {
+            return null;
+        }
+        // Taken: an expired key or lapsed claim may be reused, anything else is replayed or still running
+        if (idempotencyRecordRepository.deleteIfExpired(caller, key, now) == 1
+                && idempotencyRecordRepository.claim(caller, key, fingerprint, now, expiresAt) == 1) {
+            return null;
+        }
+        IdempotencyRecord record = idempotencyRecordRepository.findByScopeAndIdempotencyKey(caller, key)
+                .orElseThrow(() -> new ConflictException("A request with this " + HEADER + " is still being processed"));
+        if (!record.getFingerprint().equals(fingerprint)) {
+            throw new BadRequestException(HEADER + " was already used for a different request");
+        }
+        if (!IdempotencyRecord.COMPLETED.equals(record.getStatus())) {
+            throw new ConflictException("A request with this " + HEADER + " is still being processed");
+        }
+        Stored stored = new Stored(record.getFingerprint(), record.getStatusCode(), record.getResponseBody(),
+                record.getExpiresAt());
+        remember(caller + "\n" + key, stored);
+        return stored;
+    }
+
+    private Stored cached(String cacheKey) {
+        synchronized (recent) {
+            Stored stored = recent.get(cacheKey);
+            if (stored != null && stored.expiresAt.isBefore(LocalDateTime.now())) {
+                recent.remove(cacheKey);
+                return null;
+            }
+            return stored;
+        }
+    }
+
+    private void remember(String cacheKey, Stored stored) {
+        synchronized (recent) {
+            recent.put(cacheKey, stored);
+        }
+    }
+
+    private String fingerprint(Fingerprinted request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(fingerprintMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+
+    private String write(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not store response", e);
+        }
+    }
+
+    private <T> T read(String body, JavaType type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stored response", e);
+        }
+    }
+
+    private record Fingerprinted(String operation, Object payload) {}
+
+    private record Stored(String fingerprint, int statusCode, String body, LocalDateTime expiresAt) {}
+}
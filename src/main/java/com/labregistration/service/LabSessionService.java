@@ -397,6 +397,8 @@ package com.labregistration.service;
 
 import com.labregistration.dto.LabSessionDTO;
 import com.labregistration.dto.request.CreateLabSessionRequest;
+import com.labregistration.dto.response.CursorPage;
+import com.labregistration.dto.response.CursorPage.Cursor;
 import com.labregistration.exception.BadRequestException;
 import com.labregistration.exception.ResourceNotFoundException;
 import com.labregistration.mapper.LabSessionMapper;
@@ -404,14 +406,19 @@ import com.labregistration.model.*;
 import com.labregistration.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -422,12 +429,17 @@ public class LabSessionService {
 
     private final LabSessionRepository labSessionRepository;
     private final TimeSlotRepository timeSlotRepository;
+    private final TimeSlotBatchRepository timeSlotBatchRepository;
+    private final RoomOccupancyIndex roomOccupancyIndex;
+    private final SeatAllocator seatAllocator;
+    private final RegistrationAdmissionControl admissionControl;
     private final CourseRepository courseRepository;
     private final ProgramRepository programRepository;
     private final UserRepository userRepository;
     private final LabSessionMapper labSessionMapper;
     private final LabGroupRepository labGroupRepository;
     private final RegistrationRepository registrationRepository;
+    private final NotificationFanOutService notificationFanOutService;
 
     // -------------------------------------------------------------------------
     // CREATE
@@ -453,17 +465,11 @@ public class LabSessionService {
         User creator = userRepository.findByEmail(creatorEmail)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "email", creatorEmail));
 
-        // Check for scheduling conflicts on each session day
+        // Check for scheduling conflicts across the whole recurring pattern
         if (request.getSessionDays() != null) {
-            Set<DayOfWeek> sessionDays = parseDaysOfWeek(request.getSessionDays());
-            LocalDate current = request.getStartDate();
-            while (!current.isAfter(request.getEndDate())) {
-                if (sessionDays.contains(current.getDayOfWeek())) {
-                    checkRoomConflicts(request.getLabRoom(), current,
-                            request.getStartTime(), request.getEndTime(), null);
-                }
-                current = current.plusDays(1);
-            }
+            checkRoomConflicts(request.getLabRoom(), parseDaysOfWeek(request.getSessionDays()),
+                    request.getStartDate(), request.getEndDate(),
+                    request.getStartTime(), request.getEndTime(), null);
         }
 
         // Build allowed programs
@@ -477,6 +483,57 @@ public class LabSessionService {
         }
 
         // Build and save session
+        LabSession session = newSession(request, course, creator, allowedPrograms);
+        session = labSessionRepository.save(session);
+
+        // Create time slots across the date range
+        createTimeSlots(session);
+        roomOccupancyIndex.put(session);
+
+        log.info("Lab session created: {} by {} (Duration: {} to {})",
+                session.getName(), creatorEmail, session.getStartDate(), session.getEndDate());
+
+        int currentRegistrations = registrationRepository.countByLabSessionIdAndActiveTrue(session.getId());
+        List<TimeSlot> slots = timeSlotRepository.findByLabSession(session);
+        return labSessionMapper.toDTOWithSlots(session, currentRegistrations, slots);
+    }
+
+    /**
+     * Persist a batch of already validated sessions and all their slots in one transaction:
+     * the sessions through JPA, the slots as one JDBC batch. Used by the timetable import,
+     * which resolves courses and programs up front.
+     */
+    @Transactional
+    public BatchResult createLabSessionsBatch(List<CreateLabSessionRequest> requests,
+                                              Map<Long, Course> courses,
+                                              Map<Long, Program> programs,
+                                              User creator) {
+        List<LabSession> sessions = new ArrayList<>(requests.size());
+        for (CreateLabSessionRequest request : requests) {
+            Set<Program> allowedPrograms = new HashSet<>();
+            if (request.getAllowedProgramIds() != null) {
+                request.getAllowedProgramIds().forEach(id -> allowedPrograms.add(programs.get(id)));
+            }
+            sessions.add(newSession(request, courses.get(request.getCourseId()), creator, allowedPrograms));
+        }
+        sessions = labSessionRepository.saveAll(sessions);
+
+        List<TimeSlot> slots = new ArrayList<>();
+        for (LabSession session : sessions) {
+            slots.addAll(planTimeSlots(session, session.getStartDate()));
+            roomOccupancyIndex.put(session);
+        }
+        timeSlotBatchRepository.insertAll(slots);
+
+        List<Long> ids = sessions.stream().map(LabSession::getId).collect(Collectors.toList());
+        log.info("Created {} lab sessions with {} time slots in one batch", ids.size(), slots.size());
+        return new BatchResult(ids, slots.size());
+    }
+
+    public record BatchResult(List<Long> sessionIds, int slotCount) {}
+
+    private LabSession newSession(CreateLabSessionRequest request, Course course, User creator,
+                                  Set<Program> allowedPrograms) {
         LabSession session = LabSession.builder()
                 .name(request.getName())
                 .description(request.getDescription())
@@ -495,24 +552,21 @@ public class LabSessionService {
                 .allowedPrograms(allowedPrograms)
                 .openToAllPrograms(request.getOpenToAllPrograms() != null ? request.getOpenToAllPrograms() : false)
                 .registrationDeadline(request.getRegistrationDeadline())
+                .allocationMode(request.getAllocationMode() != null ? request.getAllocationMode() : AllocationMode.FIRST_COME)
                 .instructions(request.getInstructions())
                 .build();
+        requireDeadlineForPreferenceMode(session);
 
         if (request.getSessionDays() != null) {
             session.setSessionDaysFromSet(request.getSessionDays());
         }
+        return session;
+    }
 
-        session = labSessionRepository.save(session);
-
-        // Create time slots across the date range
-        createTimeSlots(session, request);
-
-        log.info("Lab session created: {} by {} (Duration: {} to {})",
-                session.getName(), creatorEmail, session.getStartDate(), session.getEndDate());
-
-        int currentRegistrations = registrationRepository.countByLabSessionIdAndActiveTrue(session.getId());
-        List<TimeSlot> slots = timeSlotRepository.findByLabSession(session);
-        return labSessionMapper.toDTOWithSlots(session, currentRegistrations, slots);
+    private static void requireDeadlineForPreferenceMode(LabSession session) {
+        if (session.allocatesByPreference() && session.getRegistrationDeadline() == null) {
+            throw new BadRequestException("Sessions allocated by preference need a registration deadline");
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -532,67 +586,57 @@ public class LabSessionService {
                 .orElseThrow(() -> new ResourceNotFoundException("Lab Session", "id", id));
     }
 
-    public List<LabSessionDTO> getAllLabSessions() {
-        return labSessionRepository.findAll().stream()
-                .map(session -> {
-                    int count = registrationRepository.countByLabSession(session);
-                    return labSessionMapper.toDTO(session, count);
-                })
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public List<LabSessionDTO> getAllLabSessions(boolean summary) {
+        return toListDTOs(labSessionRepository.findAllForListing(), summary);
     }
 
-    public List<LabSessionDTO> getAvailableLabSessions() {
-        return labSessionRepository.findAvailableSessions(LocalDate.now()).stream()
-                .map(session -> {
-                    int count = registrationRepository.countByLabSession(session);
-                    return labSessionMapper.toDTO(session, count);
-                })
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public List<LabSessionDTO> getAvailableLabSessions(boolean summary) {
+        return toListDTOs(labSessionRepository.findAvailableSessions(LocalDate.now()), summary);
     }
 
-    public List<LabSessionDTO> getAvailableSessionsForProgram(Long programId) {
-        return labSessionRepository.findAvailableSessionsForProgram(programId, LocalDate.now()).stream()
-                .map(session -> {
-                    int count = registrationRepository.countByLabSession(session);
-                    return labSessionMapper.toDTO(session, count);
-                })
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public List<LabSessionDTO> getAvailableSessionsForProgram(Long programId, boolean summary) {
+        return toListDTOs(labSessionRepository.findAvailableSessionsForProgram(programId, LocalDate.now()), summary);
     }
 
-    public List<LabSessionDTO> getAvailableSessionsByCourse(Long courseId) {
-        return labSessionRepository.findAvailableSessionsByCourse(courseId, LocalDate.now()).stream()
-                .map(session -> {
-                    int count = registrationRepository.countByLabSession(session);
-                    return labSessionMapper.toDTO(session, count);
-                })
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public List<LabSessionDTO> getAvailableSessionsByCourse(Long courseId, boolean summary) {
+        return toListDTOs(labSessionRepository.findAvailableSessionsByCourse(courseId, LocalDate.now()), summary);
     }
 
-    public List<LabSessionDTO> getLabSessionsByStatus(SessionStatus status) {
-        return labSessionRepository.findByStatus(status).stream()
-                .map(session -> {
-                    int count = registrationRepository.countByLabSession(session);
-                    return labSessionMapper.toDTO(session, count);
-                })
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public List<LabSessionDTO> getLabSessionsByStatus(SessionStatus status, boolean summary) {
+        return toListDTOs(labSessionRepository.findByStatus(status), summary);
     }
 
-    public List<LabSessionDTO> getSessionsBetweenDates(LocalDate startDate, LocalDate endDate) {
-        return labSessionRepository.findSessionsBetweenDates(startDate, endDate).stream()
-                .map(session -> {
-                    int count = registrationRepository.countByLabSession(session);
-                    return labSessionMapper.toDTO(session, count);
-                })
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public List<LabSessionDTO> getSessionsBetweenDates(LocalDate startDate, LocalDate endDate, boolean summary) {
+        return toListDTOs(labSessionRepository.findSessionsBetweenDates(startDate, endDate), summary);
     }
 
-    public List<LabSessionDTO> getSessionsWithAvailableSlots() {
-        return labSessionRepository.findSessionsWithAvailableSlots(LocalDate.now()).stream()
-                .map(session -> {
-                    int count = registrationRepository.countByLabSession(session);
-                    return labSessionMapper.toDTO(session, count);
-                })
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public List<LabSessionDTO> getSessionsWithAvailableSlots(boolean summary) {
+        return toListDTOs(labSessionRepository.findSessionsWithAvailableSlots(LocalDate.now()), summary);
+    }
+
+    /**
+     * Keyset page of sessions, newest first, optionally filtered by status.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<LabSessionDTO> getLabSessionsPage(SessionStatus status, String cursor, Integer limit, boolean summary) {
+        Cursor after = Cursor.decode(cursor);
+        int size = CursorPage.clampLimit(limit);
+        List<LabSession> rows = labSessionRepository.findPage(status, after.createdAt(), after.id(),
+                PageRequest.of(0, size + 1));
+        CursorPage<LabSession> page = CursorPage.of(rows, size, LabSession::getCreatedAt, LabSession::getId, s -> s);
+        return CursorPage.<LabSessionDTO>builder()
+                .items(toListDTOs(page.getItems(), summary))
+                .nextCursor(page.getNextCursor())
+                .hasMore(page.isHasMore())
+                .limit(size)
+                .build();
     }
 
     public int getActiveRegistrationCount(Long sessionId) {
@@ -620,6 +664,21 @@ public class LabSessionService {
                     "Cannot reduce capacity below current active registrations (%d)", currentRegistrations));
         }
 
+        // A new room or new days must not clash with other sessions
+        boolean roomChanged = !Objects.equals(session.getLabRoom(), request.getLabRoom());
+        boolean daysChanged = request.getSessionDays() != null
+                && !new HashSet<>(request.getSessionDays()).equals(session.getSessionDaysSet());
+        if (roomChanged || daysChanged) {
+            Set<DayOfWeek> days = parseDaysOfWeek(request.getSessionDays() != null
+                    ? request.getSessionDays() : session.getSessionDaysSet());
+            checkRoomConflicts(request.getLabRoom(), days, session.getStartDate(), session.getEndDate(),
+                    session.getStartTime(), session.getEndTime(), session.getId());
+        }
+
+        boolean scheduleChanged = !Objects.equals(session.getSlotsPerDay(), request.getSlotsPerDay())
+                || !Objects.equals(session.getMaxStudentsPerSlot(), request.getMaxStudentsPerSlot())
+                || daysChanged;
+
         // Update scalar fields
         session.setName(request.getName());
         session.setDescription(request.getDescription());
@@ -631,6 +690,15 @@ public class LabSessionService {
         session.setInstructions(request.getInstructions());
         session.setRegistrationDeadline(request.getRegistrationDeadline());
 
+        // Switching allocation mode would strand registrations made under the other mode
+        if (request.getAllocationMode() != null && request.getAllocationMode() != session.getAllocationMode()) {
+            if (registrationRepository.countByLabSessionIdAndActiveTrue(session.getId()) > 0) {
+                throw new BadRequestException("Cannot change the allocation mode of a session that has registrations");
+            }
+            session.setAllocationMode(request.getAllocationMode());
+        }
+        requireDeadlineForPreferenceMode(session);
+
         // Update session days
         if (request.getSessionDays() != null) {
             session.setSessionDaysFromSet(request.getSessionDays());
@@ -651,6 +719,10 @@ public class LabSessionService {
         }
 
         session = labSessionRepository.save(session);
+        if (scheduleChanged) {
+            reconcileTimeSlots(session);
+        }
+        roomOccupancyIndex.put(session);
         log.info("Lab session updated: {}", session.getName());
 
         List<TimeSlot> slots = timeSlotRepository.findByLabSession(session);
@@ -665,6 +737,13 @@ public class LabSessionService {
         validateStatusTransition(session.getStatus(), status);
         session.setStatus(status);
         session = labSessionRepository.save(session);
+        roomOccupancyIndex.put(session);
+        if (status == SessionStatus.OPEN) {
+            // Opening rush starts with a full token bucket and an empty queue
+            admissionControl.reset(session.getId());
+        } else if (status == SessionStatus.CANCELLED) {
+            notificationFanOutService.notifySessionCancelled(session);
+        }
 
         int currentRegistrations = registrationRepository.countByLabSession(session);
         log.info("Lab session '{}' status changed to {}", session.getName(), status);
@@ -692,6 +771,7 @@ public class LabSessionService {
 
         timeSlotRepository.findByLabSessionIdOrderByDateAndSlot(id).forEach(timeSlotRepository::delete);
         labSessionRepository.delete(session);
+        roomOccupancyIndex.remove(id);
         log.info("Lab session deleted: {}", session.getName());
     }
 
@@ -701,18 +781,95 @@ public class LabSessionService {
 
     /**
      * Creates time slots for every matching day-of-week between startDate and endDate.
+     * The whole timetable is built in memory and written as JDBC batches.
      */
-    private void createTimeSlots(LabSession session, CreateLabSessionRequest request) {
-        Set<DayOfWeek> sessionDays = parseDaysOfWeek(request.getSessionDays());
+    private void createTimeSlots(LabSession session) {
+        List<TimeSlot> slots = planTimeSlots(session, session.getStartDate());
+        timeSlotBatchRepository.insertAll(slots);
+        log.debug("Created {} time slots for session {}", slots.size(), session.getId());
+    }
 
-        long totalMinutes = java.time.Duration.between(request.getStartTime(), request.getEndTime()).toMinutes();
-        long slotDuration = totalMinutes / request.getSlotsPerDay();
+    /**
+     * Brings the slots from today onwards in line with the session's current days, slots per
+     * day and slot capacity, touching only what differs: missing slots are batch-inserted,
+     * changed ones updated in place (keeping their registrations) and slots that are no
+     * longer scheduled deactivated. Past slots are left as they are.
+     *
+     * The upcoming slots are row-locked first: the updates below are full-row writes that
+     * include current_count, and the capacity checks must see the real count, so no seat
+     * may be taken or freed between reading a slot and writing it back.
+     */
+    private void reconcileTimeSlots(LabSession session) {
+        LocalDate today = LocalDate.now();
+
+        Map<String, TimeSlot> existing = new HashMap<>();
+        for (TimeSlot slot : timeSlotRepository.lockUpcomingSlots(session.getId(), today)) {
+            existing.put(slotKey(slot), slot);
+        }
 
-        LocalDate currentDate = request.getStartDate();
-        while (!currentDate.isAfter(request.getEndDate())) {
+        List<TimeSlot> inserts = new ArrayList<>();
+        int updated = 0;
+        for (TimeSlot planned : planTimeSlots(session, today)) {
+            TimeSlot slot = existing.remove(slotKey(planned));
+            if (slot == null) {
+                inserts.add(planned);
+                continue;
+            }
+            if (slot.getCurrentCount() > planned.getMaxStudents()) {
+                throw new BadRequestException(String.format(
+                        "Cannot reduce capacity of %s below its %d registrations",
+                        slot.getDisplayName(), slot.getCurrentCount()));
+            }
+            if (!slot.getStartTime().equals(planned.getStartTime())
+                    || !slot.getEndTime().equals(planned.getEndTime())
+                    || !slot.getMaxStudents().equals(planned.getMaxStudents())
+                    || !Boolean.TRUE.equals(slot.getActive())) {
+                slot.setStartTime(planned.getStartTime());
+                slot.setEndTime(planned.getEndTime());
+                slot.setMaxStudents(planned.getMaxStudents());
+                slot.setActive(true);
+                updated++;
+            }
+        }
+
+        // Whatever is left is no longer on the schedule
+        int deactivated = 0;
+        for (TimeSlot slot : existing.values()) {
+            if (!Boolean.TRUE.equals(slot.getActive())) {
+                continue;
+            }
+            if (slot.getCurrentCount() > 0) {
+                throw new BadRequestException(String.format(
+                        "Cannot remove %s: it has %d registrations. Move them to another slot first.",
+                        slot.getDisplayName(), slot.getCurrentCount()));
+            }
+            slot.setActive(false);
+            deactivated++;
+        }
+
+        // Updates are flushed by dirty checking in JDBC batches (hibernate.jdbc.batch_size)
+        timeSlotBatchRepository.insertAll(inserts);
+        seatAllocator.invalidate(session.getId());
+        log.info("Reconciled time slots for session {}: {} inserted, {} updated, {} deactivated",
+                session.getId(), inserts.size(), updated, deactivated);
+    }
+
+    /**
+     * The slots the session should have from {@code from} to its end date: slotsPerDay equal
+     * slots between startTime and endTime on each session day.
+     */
+    private List<TimeSlot> planTimeSlots(LabSession session, LocalDate from) {
+        Set<DayOfWeek> sessionDays = parseDaysOfWeek(session.getSessionDaysSet());
+        List<TimeSlot> slots = new ArrayList<>();
+
+        long totalMinutes = java.time.Duration.between(session.getStartTime(), session.getEndTime()).toMinutes();
+        long slotDuration = totalMinutes / session.getSlotsPerDay();
+
+        LocalDate currentDate = from.isAfter(session.getStartDate()) ? from : session.getStartDate();
+        while (!currentDate.isAfter(session.getEndDate())) {
             if (sessionDays.contains(currentDate.getDayOfWeek())) {
-                LocalTime slotStart = request.getStartTime();
-                for (int i = 1; i <= request.getSlotsPerDay(); i++) {
+                LocalTime slotStart = session.getStartTime();
+                for (int i = 1; i <= session.getSlotsPerDay(); i++) {
                     LocalTime slotEnd = slotStart.plusMinutes(slotDuration);
                     TimeSlot slot = TimeSlot.builder()
                             .labSession(session)
@@ -720,16 +877,21 @@ public class LabSessionService {
                             .startTime(slotStart)
                             .endTime(slotEnd)
                             .groupNumber(i)
-                            .maxStudents(request.getMaxStudentsPerSlot())
+                            .maxStudents(session.getMaxStudentsPerSlot())
                             .currentCount(0)
                             .active(true)
                             .build();
-                    timeSlotRepository.save(slot);
+                    slots.add(slot);
                     slotStart = slotEnd;
                 }
             }
             currentDate = currentDate.plusDays(1);
         }
+        return slots;
+    }
+
+    private static String slotKey(TimeSlot slot) {
+        return slot.getSessionDate() + "#" + slot.getGroupNumber();
     }
 
     /**
@@ -748,20 +910,18 @@ public class LabSessionService {
     }
 
     /**
-     * Checks if any existing session in the same room on the same date overlaps the given time range.
+     * Checks if any existing session in the same room meets on one of the given days within
+     * the date range and overlaps the given time range.
      * Pass excludeId to skip a specific session (useful during updates).
      */
-    private void checkRoomConflicts(String labRoom, LocalDate date,
+    private void checkRoomConflicts(String labRoom, Set<DayOfWeek> days, LocalDate startDate, LocalDate endDate,
                                     LocalTime startTime, LocalTime endTime, Long excludeId) {
-        List<LabSession> existingSessions = labSessionRepository.findByLabRoomAndDate(labRoom, date);
-        for (LabSession existing : existingSessions) {
-            if (excludeId != null && existing.getId().equals(excludeId)) continue;
-            if (timesOverlap(startTime, endTime, existing.getStartTime(), existing.getEndTime())) {
-                throw new BadRequestException(String.format(
-                        "Room conflict with existing session '%s' on %s (%s - %s)",
-                        existing.getName(), date, existing.getStartTime(), existing.getEndTime()));
-            }
-        }
+        roomOccupancyIndex.findConflict(labRoom, days, startDate, endDate, startTime, endTime, excludeId)
+                .ifPresent(conflict -> {
+                    throw new BadRequestException(String.format(
+                            "Room conflict with existing session '%s' on %s (%s - %s)",
+                            conflict.sessionName(), conflict.date(), conflict.startTime(), conflict.endTime()));
+                });
     }
 
 
@@ -790,9 +950,49 @@ public class LabSessionService {
 
 
 
-    private boolean timesOverlap(LocalTime start1, LocalTime end1,
-                                 LocalTime start2, LocalTime end2) {
-        return start1.isBefore(end2) && end1.isAfter(start2);
+    /**
+     * Maps sessions loaded by a listing query (course and creator already fetched) with a
+     * fixed number of queries: one for their allowed programs, one grouped registration count,
+     * one grouped student count for the programs and, unless {@code summary} is set, one for
+     * all their time slots.
+     */
+    private List<LabSessionDTO> toListDTOs(List<LabSession> sessions, boolean summary) {
+        if (sessions.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = sessions.stream().map(LabSession::getId).collect(Collectors.toList());
+
+        // Same managed instances, now with their programs initialized
+        labSessionRepository.fetchAllowedProgramsByIds(ids);
+        Map<Long, Integer> registrationCounts = toCountMap(registrationRepository.countByLabSessionIds(ids));
+
+        Set<Long> programIds = sessions.stream()
+                .flatMap(s -> s.getAllowedPrograms().stream())
+                .map(Program::getId)
+                .collect(Collectors.toSet());
+        Map<Long, Integer> programStudentCounts = programIds.isEmpty()
+                ? Map.of()
+                : toCountMap(userRepository.countByProgramIds(programIds));
+
+        Map<Long, List<TimeSlot>> slotsBySession = summary
+                ? Map.of()
+                : timeSlotRepository.findBySessionIdsOrderByDateAndSlot(ids).stream()
+                        .collect(Collectors.groupingBy(ts -> ts.getLabSession().getId()));
+
+        return sessions.stream()
+                .map(s -> labSessionMapper.toListDTO(s,
+                        registrationCounts.getOrDefault(s.getId(), 0),
+                        summary ? null : slotsBySession.getOrDefault(s.getId(), List.of()),
+                        programStudentCounts))
+                .collect(Collectors.toList());
+    }
+
+    private static Map<Long, Integer> toCountMap(List<Object[]> rows) {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        return counts;
     }
 
     /**
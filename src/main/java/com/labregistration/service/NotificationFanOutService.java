@@ -0,0 +1,132 @@
+package com.labregistration.service;
+
+import com.labregistration.dto.AnnouncementResultDTO;
+import com.labregistration.dto.request.AnnouncementRequest;
+import com.labregistration.exception.ResourceNotFoundException;
+import com.labregistration.model.AnnouncementTarget;
+import com.labregistration.model.LabSession;
+import com.labregistration.repository.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends one message to every active registrant of a session, time slot or course, or a
+ * message of its own to each of many users ({@link #sendEach}).
+ *
+ * Recipients are read with one query, their in-app notifications are written as JDBC
+ * batches (multi-row INSERTs with rewriteBatchedStatements), and emails, when asked for,
+ * are queued the same way in the notification outbox, already marked as notified, for
+ * NotificationOutboxDispatcher to send.
+ */
+@Service
+@Slf4j
+public class NotificationFanOutService {
+
+    private final RegistrationRepository registrationRepository;
+    private final LabSessionRepository labSessionRepository;
+    private final TimeSlotRepository timeSlotRepository;
+    private final CourseRepository courseRepository;
+    private final NotificationBatchRepository notificationBatchRepository;
+    private final OutboxMessageBatchRepository outboxMessageBatchRepository;
+    private final boolean emailEnabled;
+
+    public NotificationFanOutService(RegistrationRepository registrationRepository,
+                                     LabSessionRepository labSessionRepository,
+                                     TimeSlotRepository timeSlotRepository,
+                                     CourseRepository courseRepository,
+                                     NotificationBatchRepository notificationBatchRepository,
+                                     OutboxMessageBatchRepository outboxMessageBatchRepository,
+                                     @Value("${app.outbox.email-enabled:false}") boolean emailEnabled) {
+        this.registrationRepository = registrationRepository;
+        this.labSessionRepository = labSessionRepository;
+        this.timeSlotRepository = timeSlotRepository;
+        this.courseRepository = courseRepository;
+        this.notificationBatchRepository = notificationBatchRepository;
+        this.outboxMessageBatchRepository = outboxMessageBatchRepository;
+        this.emailEnabled = emailEnabled;
+    }
+
+    @Transactional
+    public AnnouncementResultDTO announce(AnnouncementRequest request) {
+        long started = System.currentTimeMillis();
+        Long id = request.getTargetId();
+        List<Object[]> recipients = switch (request.getTarget()) {
+            case SESSION -> {
+                if (!labSessionRepository.existsById(id)) throw new ResourceNotFoundException("Lab Session", "id", id);
+                yield registrationRepository.findActiveRecipientsBySessionId(id);
+            }
+            case TIME_SLOT -> {
+                if (!timeSlotRepository.existsById(id)) throw new ResourceNotFoundException("Time Slot", "id", id);
+                yield registrationRepository.findActiveRecipientsByTimeSlotId(id);
+            }
+            case COURSE -> {
+                if (!courseRepository.existsById(id)) throw new ResourceNotFoundException("Course", "id", id);
+                yield registrationRepository.findActiveRecipientsByCourseId(id);
+            }
+        };
+
+        String type = request.getType() != null && !request.getType().isBlank() ? request.getType() : "INFO";
+        int emails = fanOut(recipients, request.getTitle(), request.getMessage(), type,
+                Boolean.TRUE.equals(request.getSendEmail()));
+
+        long elapsed = System.currentTimeMillis() - started;
+        log.info("Announcement '{}' sent to {} registrant(s) of {} {} ({} email(s) queued) in {} ms",
+                request.getTitle(), recipients.size(), request.getTarget(), id, emails, elapsed);
+        return AnnouncementResultDTO.builder()
+                .target(request.getTarget())
+                .targetId(id)
+                .recipients(recipients.size())
+                .emailsQueued(emails)
+                .elapsedMillis(elapsed)
+                .build();
+    }
+
+    /**
+     * Tell every active registrant, in app and by email, that the session was cancelled.
+     * Runs in the caller's transaction.
+     */
+    @Transactional
+    public int notifySessionCancelled(LabSession session) {
+        List<Object[]> recipients = registrationRepository.findActiveRecipientsBySessionId(session.getId());
+        fanOut(recipients, "Lab Session Cancelled",
+                String.format("%s has been cancelled. Your registration for it no longer applies.", session.getName()),
+                "WARNING", true);
+        log.info("Notified {} registrant(s) that session {} was cancelled", recipients.size(), session.getId());
+        return recipients.size();
+    }
+
+    /**
+     * Write one in-app notification per message as a batch and, when {@code sendEmail}, queue
+     * the matching emails the same way. Runs in the caller's transaction; returns the number
+     * of emails queued.
+     */
+    @Transactional
+    public int sendEach(List<Message> messages, boolean sendEmail) {
+        List<NotificationBatchRepository.Row> notifications = new ArrayList<>(messages.size());
+        List<OutboxMessageBatchRepository.Row> emails = new ArrayList<>();
+        for (Message m : messages) {
+            notifications.add(new NotificationBatchRepository.Row(m.userId(), m.title(), m.message(), m.type()));
+            if (sendEmail && emailEnabled && m.email() != null) {
+                emails.add(new OutboxMessageBatchRepository.Row(m.userId(), m.email(), m.title(), m.message(), m.type()));
+            }
+        }
+        notificationBatchRepository.insertAll(notifications);
+        outboxMessageBatchRepository.insertEmails(emails);
+        return emails.size();
+    }
+
+    private int fanOut(List<Object[]> recipients, String title, String message, String type, boolean sendEmail) {
+        List<Message> messages = new ArrayList<>(recipients.size());
+        for (Object[] row : recipients) {
+            messages.add(new Message((Long) row[0], (String) row[1], title, message, type));
+        }
+        return sendEach(messages, sendEmail);
+    }
+
+    public record Message(Long userId, String email, String title, String message, String type) {}
+}
@@ -0,0 +1,293 @@
+package com.labregistration.service;
+
+import com.labregistration.model.OutboxMessage;
+import com.labregistration.model.OutboxStatus;
+import com.labregistration.repository.NotificationBatchRepository;
+import com.labregistration.repository.OutboxMessageRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers the notification outbox in the background.
+ *
+ * In-app notifications and emails are delivered by separate schedules, so a slow mail server
+ * never holds up the in-app side. Each notification poll turns pending messages into in-app
+ * notifications a batch at a time: the rows are locked (skipping any another instance holds),
+ * inserted as one JDBC batch and stamped in the same transaction, so each is written exactly
+ * once.
+ *
+ * Each email poll claims at most one batch of due emails, and only while the previous batch
+ * is not still being sent, and hands it to a single mail thread of its own, so SMTP latency
+ * never holds a lock or a scheduler thread. Every send is bounded by the SMTP timeouts, and
+ * the mail thread stops before the claim could expire under a send in progress; whatever it
+ * did not get to is handed back uncounted for the next poll. A failed email is retried with
+ * exponential backoff up to {@code app.outbox.max-email-attempts}, then left FAILED; one
+ * claimed by an instance that died is picked up again when the claim expires.
+ */
+@Service
+@Slf4j
+public class NotificationOutboxDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final NotificationBatchRepository notificationBatchRepository;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor mailExecutor;
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private final int batchSize;
+    private final int emailBatchSize;
+    private final int maxEmailAttempts;
+    private final Duration retryBase;
+    private final Duration retryMax;
+    private final Duration claimTimeout;
+    // Longest a single send can take before the SMTP timeouts give up on it
+    private final Duration sendTimeout;
+    private final Duration retention;
+    private final String mailFrom;
+    private final String frontendUrl;
+
+    public NotificationOutboxDispatcher(OutboxMessageRepository outboxMessageRepository,
+                                        NotificationBatchRepository notificationBatchRepository,
+                                        JavaMailSender mailSender,
+                                        TransactionTemplate transactionTemplate,
+                                        @Value("${app.outbox.batch-size:200}") int batchSize,
+                                        @Value("${app.outbox.email-batch-size:50}") int emailBatchSize,
+                                        @Value("${app.outbox.max-email-attempts:6}") int maxEmailAttempts,
+                                        @Value("${app.outbox.retry-base-seconds:30}") long retryBaseSeconds,
+                                        @Value("${app.outbox.retry-max-seconds:3600}") long retryMaxSeconds,
+                                        @Value("${app.outbox.claim-seconds:300}") long claimSeconds,
+                                        @Value("${spring.mail.properties.mail.smtp.connectiontimeout:10000}") long connectTimeoutMs,
+                                        @Value("${spring.mail.properties.mail.smtp.timeout:15000}") long readTimeoutMs,
+                                        @Value("${spring.mail.properties.mail.smtp.writetimeout:15000}") long writeTimeoutMs,
+                                        @Value("${app.outbox.retention-days:7}") long retentionDays,
+                                        @Value("${app.outbox.mail-from:${spring.mail.username:}}") String mailFrom,
+                                        @Value("${app.frontend-url:}") String frontendUrl) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.notificationBatchRepository = notificationBatchRepository;
+        this.mailSender = mailSender;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.emailBatchSize = emailBatchSize;
+        this.maxEmailAttempts = maxEmailAttempts;
+        this.retryBase = Duration.ofSeconds(retryBaseSeconds);
+        this.retryMax = Duration.ofSeconds(retryMaxSeconds);
+        this.claimTimeout = Duration.ofSeconds(claimSeconds);
+        this.sendTimeout = Duration.ofMillis(connectTimeoutMs + readTimeoutMs + writeTimeoutMs);
+        if (claimTimeout.compareTo(sendTimeout.multipliedBy(2)) < 0) {
+            throw new IllegalStateException("app.outbox.claim-seconds (" + claimSeconds
+                    + ") must be at least twice the SMTP connect, read and write timeouts combined ("
+                    + sendTimeout.toSeconds() + "s)");
+        }
+        this.retention = Duration.ofDays(retentionDays);
+        this.mailFrom = mailFrom;
+        this.frontendUrl = frontendUrl;
+
+        // One batch at a time; the poll never queues a second behind it
+        this.mailExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "outbox-mail");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:2000}")
+    public void dispatchNotifications() {
+        try {
+            int notified = 0;
+            int written;
+            do {
+                written = writeNotifications();
+                notified += written;
+            } while (written == batchSize);
+
+            if (notified > 0) {
+                log.debug("Outbox: {} notification(s) written", notified);
+            }
+        } catch (RuntimeException e) {
+            log.error("Notification outbox dispatch failed", e);
+        }
+    }
+
+    /**
+     * Claim the next batch of due emails and hand it to the mail thread, unless it is still
+     * busy with the last one.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:2000}")
+    public void dispatchEmails() {
+        if (!sending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            EmailBatch batch = claimEmails();
+            if (batch.messages().isEmpty()) {
+                sending.set(false);
+                return;
+            }
+            try {
+                mailExecutor.execute(() -> {
+                    try {
+                        int emailed = sendEmails(batch);
+                        log.debug("Outbox: {} of {} email(s) sent", emailed, batch.messages().size());
+                    } catch (RuntimeException e) {
+                        log.error("Sending outbox emails failed", e);
+                    } finally {
+                        sending.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                releaseClaims(batch.messages());
+                sending.set(false);
+            }
+        } catch (RuntimeException e) {
+            sending.set(false);
+            log.error("Claiming outbox emails failed", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.purge-interval-ms:3600000}")
+    public void purgeDelivered() {
+        int deleted = outboxMessageRepository.deleteDeliveredBefore(LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Purged {} delivered outbox message(s)", deleted);
+        }
+    }
+
+    /**
+     * Write in-app notifications for one batch of messages; returns the batch size.
+     */
+    private int writeNotifications() {
+        Integer written = transactionTemplate.execute(status -> {
+            List<OutboxMessage> batch = outboxMessageRepository.lockUnnotified(PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            List<NotificationBatchRepository.Row> rows = new ArrayList<>(batch.size());
+            List<Long> ids = new ArrayList<>(batch.size());
+            List<Long> inAppOnly = new ArrayList<>();
+            for (OutboxMessage m : batch) {
+                rows.add(new NotificationBatchRepository.Row(m.getUserId(), m.getTitle(), m.getMessage(), m.getType()));
+                ids.add(m.getId());
+                if (m.getRecipientEmail() == null) {
+                    inAppOnly.add(m.getId());
+                }
+            }
+            LocalDateTime now = LocalDateTime.now();
+            notificationBatchRepository.insertAll(rows);
+            outboxMessageRepository.markNotified(ids, now);
+            if (!inAppOnly.isEmpty()) {
+                outboxMessageRepository.markDelivered(inAppOnly, now);
+            }
+            return batch.size();
+        });
+        return written != null ? written : 0;
+    }
+
+    /**
+     * Claim one batch of due emails. The claim counts the attempt and pushes the next attempt
+     * out by the claim timeout, so the rows stay hidden while they are being sent.
+     */
+    private EmailBatch claimEmails() {
+        EmailBatch claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime until = now.plus(claimTimeout);
+            List<OutboxMessage> batch = outboxMessageRepository.lockDueEmails(now, PageRequest.of(0, emailBatchSize));
+            if (!batch.isEmpty()) {
+                outboxMessageRepository.claimEmails(batch.stream().map(OutboxMessage::getId).toList(), until);
+            }
+            return new EmailBatch(batch, until);
+        });
+        return claimed != null ? claimed : new EmailBatch(List.of(), LocalDateTime.now());
+    }
+
+    /**
+     * Send a claimed batch. A send is only started while it can finish before the claim
+     * expires; the rest of the batch is released for the next poll.
+     */
+    private int sendEmails(EmailBatch batch) {
+        LocalDateTime lastStart = batch.claimedUntil().minus(sendTimeout);
+        List<Long> sent = new ArrayList<>();
+        List<OutboxMessage> messages = batch.messages();
+        for (int i = 0; i < messages.size(); i++) {
+            OutboxMessage m = messages.get(i);
+            if (Thread.currentThread().isInterrupted() || LocalDateTime.now().isAfter(lastStart)) {
+                releaseClaims(messages.subList(i, messages.size()));
+                break;
+            }
+            try {
+                mailSender.send(toMail(m));
+                sent.add(m.getId());
+            } catch (MailException e) {
+                recordFailure(m, e);
+            }
+        }
+        if (!sent.isEmpty()) {
+            outboxMessageRepository.markDelivered(sent, LocalDateTime.now());
+        }
+        return sent.size();
+    }
+
+    private void releaseClaims(List<OutboxMessage> messages) {
+        outboxMessageRepository.releaseClaims(messages.stream().map(OutboxMessage::getId).toList(),
+                LocalDateTime.now());
+        log.debug("Released {} unsent email claim(s)", messages.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        mailExecutor.shutdownNow();
+    }
+
+    private void recordFailure(OutboxMessage m, MailException e) {
+        // The loaded row predates the claim, which counted this attempt
+        int attempts = m.getEmailAttempts() + 1;
+        String error = e.getMessage() != null && e.getMessage().length() > MAX_ERROR_LENGTH
+                ? e.getMessage().substring(0, MAX_ERROR_LENGTH) : e.getMessage();
+        if (attempts >= maxEmailAttempts) {
+            log.warn("Giving up on email {} to {} after {} attempt(s): {}", m.getId(), m.getRecipientEmail(), attempts, error);
+            outboxMessageRepository.recordEmailFailure(m.getId(), OutboxStatus.FAILED, null, error);
+            return;
+        }
+        Duration backoff = retryBase.multipliedBy(1L << Math.min(attempts - 1, 20));
+        if (backoff.compareTo(retryMax) > 0) {
+            backoff = retryMax;
+        }
+        log.debug("Email {} failed (attempt {}), retrying in {}s: {}", m.getId(), attempts, backoff.toSeconds(), error);
+        outboxMessageRepository.recordEmailFailure(m.getId(), OutboxStatus.PENDING,
+                LocalDateTime.now().plus(backoff), error);
+    }
+
+    private SimpleMailMessage toMail(OutboxMessage m) {
+        SimpleMailMessage mail = new SimpleMailMessage();
+        if (!mailFrom.isBlank()) {
+            mail.setFrom(mailFrom);
+        }
+        mail.setTo(m.getRecipientEmail());
+        mail.setSubject(m.getTitle());
+        mail.setText(frontendUrl.isBlank() ? m.getMessage() : m.getMessage() + "\n\n" + frontendUrl);
+        return mail;
+    }
+
+    private record EmailBatch(List<OutboxMessage> messages, LocalDateTime claimedUntil) {}
+}
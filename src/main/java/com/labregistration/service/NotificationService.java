@@ -1,40 +1,64 @@
 package com.labregistration.service;
 
+import com.labregistration.dto.response.CursorPage;
+import com.labregistration.dto.response.CursorPage.Cursor;
 import com.labregistration.model.Notification;
+import com.labregistration.model.OutboxMessage;
 import com.labregistration.model.User;
 import com.labregistration.repository.NotificationRepository;
-import lombok.RequiredArgsConstructor;
+import com.labregistration.repository.OutboxMessageRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class NotificationService {
 
     private final NotificationRepository notificationRepository;
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final boolean emailEnabled;
 
+    public NotificationService(NotificationRepository notificationRepository,
+                               OutboxMessageRepository outboxMessageRepository,
+                               @Value("${app.outbox.email-enabled:false}") boolean emailEnabled) {
+        this.notificationRepository = notificationRepository;
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.emailEnabled = emailEnabled;
+    }
+
+    /**
+     * Queue a notification in the caller's transaction. NotificationOutboxDispatcher writes the
+     * in-app notification and sends the email (when enabled) once it has committed.
+     */
     @Transactional
-    public Notification createNotification(User user, String title, String message, String type) {
-        Notification notification = Notification.builder()
-                .user(user)
+    public void createNotification(User user, String title, String message, String type) {
+        outboxMessageRepository.save(OutboxMessage.builder()
+                .userId(user.getId())
+                .recipientEmail(emailEnabled ? user.getEmail() : null)
                 .title(title)
                 .message(message)
                 .type(type)
-                .build();
-        
-        notification = notificationRepository.save(notification);
-        log.debug("Notification created for user {}: {}", user.getEmail(), title);
-        return notification;
+                .build());
+        log.debug("Notification queued for user {}: {}", user.getEmail(), title);
     }
 
     public List<Notification> getUserNotifications(Long userId) {
         return notificationRepository.findByUserId(userId);
     }
 
+    public CursorPage<Notification> getUserNotificationsPage(Long userId, String cursor, Integer limit) {
+        Cursor after = Cursor.decode(cursor);
+        int size = CursorPage.clampLimit(limit);
+        List<Notification> rows = notificationRepository.findPageByUserId(userId, after.createdAt(), after.id(),
+                PageRequest.of(0, size + 1));
+        return CursorPage.of(rows, size, Notification::getCreatedAt, Notification::getId, n -> n);
+    }
+
     public List<Notification> getUnreadNotifications(Long userId) {
         return notificationRepository.findUnreadByUserId(userId);
     }
@@ -0,0 +1,267 @@
+package com.labregistration.service;
+
+import com.labregistration.exception.BadRequestException;
+import com.labregistration.exception.ResourceNotFoundException;
+import com.labregistration.model.LabSession;
+import com.labregistration.model.Registration;
+import com.labregistration.model.SlotPreference;
+import com.labregistration.model.TimeSlot;
+import com.labregistration.model.User;
+import com.labregistration.repository.LabSessionRepository;
+import com.labregistration.repository.RegistrationRepository;
+import com.labregistration.repository.SlotPreferenceRepository;
+import com.labregistration.repository.TimeSlotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Sessions in PREFERENCE mode: students rank time slots until the registration deadline and
+ * stay PENDING; then every pending registration is allocated in one run.
+ *
+ * The run locks the session's upcoming slots, solves the assignment with
+ * {@link PreferenceAllocator}, and writes it back with one UPDATE per slot for the
+ * registrations and one for its seat count. Slots that clash with a student's timetable are
+ * left out of that student's candidates, ranked or not. Students who do not fit go to the
+ * waitlist in registration order. A run is claimed by stamping the session's allocatedAt, so
+ * it happens once even with several instances polling. Registrations that still end up
+ * PENDING after the run (made while it was committing, e.g. after an early manual run) are
+ * allocated the same way on the next poll.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PreferenceAllocationService {
+
+    static final int MAX_PREFERENCES = 10;
+
+    private final LabSessionRepository labSessionRepository;
+    private final RegistrationRepository registrationRepository;
+    private final SlotPreferenceRepository slotPreferenceRepository;
+    private final TimeSlotRepository timeSlotRepository;
+    private final SeatAllocator seatAllocator;
+    private final WaitlistService waitlistService;
+    private final NotificationFanOutService notificationFanOutService;
+    private final StudentTimetableIndex studentTimetableIndex;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Whether new registrations for the session wait for the batch allocation.
+     */
+    public static boolean awaitsAllocation(LabSession session) {
+        return session.allocatesByPreference() && session.getAllocatedAt() == null;
+    }
+
+    /**
+     * Replace a saved registration's ranked choices with {@code timeSlotIds}, best first. An
+     * empty list means any slot will do.
+     */
+    @Transactional
+    public void savePreferences(Registration registration, List<Long> timeSlotIds) {
+        List<Long> ranked = timeSlotIds == null ? List.of()
+                : timeSlotIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (ranked.size() > MAX_PREFERENCES) {
+            throw new BadRequestException("You can rank at most " + MAX_PREFERENCES + " time slots");
+        }
+
+        Long sessionId = registration.getLabSession().getId();
+        Map<Long, TimeSlot> slots = timeSlotRepository.findAllById(ranked).stream()
+                .collect(Collectors.toMap(TimeSlot::getId, Function.identity()));
+        StudentTimetableIndex.Timetable timetable = ranked.isEmpty() ? null
+                : studentTimetableIndex.forStudent(registration.getStudent().getId());
+        LocalDate today = LocalDate.now();
+
+        List<SlotPreference> preferences = new ArrayList<>();
+        for (Long slotId : ranked) {
+            TimeSlot slot = slots.get(slotId);
+            if (slot == null) {
+                throw new ResourceNotFoundException("Time Slot", "id", slotId);
+            }
+            if (!slot.getLabSession().getId().equals(sessionId)) {
+                throw new BadRequestException("Time slot does not belong to this session");
+            }
+            if (!Boolean.TRUE.equals(slot.getActive()) || slot.getSessionDate().isBefore(today)) {
+                throw new BadRequestException("Time slot " + slotId + " is no longer available");
+            }
+            timetable.clash(slot.getSessionDate(), slot.getStartTime(), slot.getEndTime())
+                    .ifPresent(busy -> {
+                        throw new BadRequestException(String.format(
+                                "Time slot %d clashes with your %s session on %s (%s - %s)",
+                                slotId, busy.sessionName(), busy.start().toLocalDate(),
+                                busy.start().toLocalTime(), busy.end().toLocalTime()));
+                    });
+            preferences.add(SlotPreference.builder()
+                    .registration(registration)
+                    .timeSlot(slot)
+                    .rank(preferences.size() + 1)
+                    .build());
+        }
+
+        slotPreferenceRepository.deleteByRegistrationId(registration.getId());
+        slotPreferenceRepository.saveAll(preferences);
+    }
+
+    public List<Long> getPreferences(Long registrationId) {
+        return slotPreferenceRepository.findTimeSlotIdsByRegistrationId(registrationId);
+    }
+
+    /**
+     * Allocate every session whose deadline has passed, then any registrations left PENDING
+     * in sessions that were already allocated.
+     */
+    @Scheduled(fixedDelayString = "${app.allocation.check-interval-ms:60000}")
+    public void allocateDueSessions() {
+        for (Long sessionId : labSessionRepository.findIdsDueForAllocation(LocalDateTime.now())) {
+            try {
+                allocate(sessionId);
+            } catch (RuntimeException e) {
+                log.error("Preference allocation failed for session {}", sessionId, e);
+            }
+        }
+        for (Long sessionId : registrationRepository.findAllocatedSessionIdsWithPending()) {
+            try {
+                transactionTemplate.execute(status -> runAllocation(sessionId, false));
+            } catch (RuntimeException e) {
+                log.error("Allocation of late pending registrations failed for session {}", sessionId, e);
+            }
+        }
+    }
+
+    /**
+     * Allocate a session's pending registrations now, e.g. when a manager does not want to
+     * wait for the scheduler. Registrations made afterwards are handled first come, first served.
+     */
+    public AllocationResult allocate(Long sessionId) {
+        return transactionTemplate.execute(status -> runAllocation(sessionId, true));
+    }
+
+    /**
+     * @param claim whether this is the session's allocation run, which stamps allocatedAt, or a
+     *              later pass over registrations that were still PENDING after it
+     */
+    private AllocationResult runAllocation(Long sessionId, boolean claim) {
+        long started = System.currentTimeMillis();
+        LabSession session = labSessionRepository.findById(sessionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Lab Session", "id", sessionId));
+        if (!session.allocatesByPreference()) {
+            throw new BadRequestException("This session does not allocate slots by preference");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (claim && labSessionRepository.markAllocated(sessionId, now) == 0) {
+            throw new BadRequestException("Slots for this session have already been allocated");
+        }
+
+        // Locked before the pending registrations are read, so cancellations cannot change the
+        // counts between solving and writing, and overlapping passes run one after the other
+        List<TimeSlot> slots = timeSlotRepository.lockUpcomingActiveSlots(sessionId, now.toLocalDate());
+        List<Registration> pending = registrationRepository.findPendingWithStudentBySessionId(sessionId);
+        if (pending.isEmpty()) {
+            log.info("No pending registrations to allocate for session {}", sessionId);
+            return new AllocationResult(0, 0, 0, 0, System.currentTimeMillis() - started);
+        }
+
+        Map<Long, Integer> slotIndex = new HashMap<>();
+        int[] capacity = new int[slots.size()];
+        for (int j = 0; j < slots.size(); j++) {
+            TimeSlot slot = slots.get(j);
+            slotIndex.put(slot.getId(), j);
+            capacity[j] = Math.max(0, slot.getMaxStudents() - slot.getCurrentCount());
+        }
+
+        Map<Long, List<Integer>> choices = new HashMap<>();
+        for (Object[] row : slotPreferenceRepository.findPendingRanksBySessionId(sessionId)) {
+            Integer j = slotIndex.get((Long) row[1]);
+            if (j != null) {
+                // Choices for slots that have passed or were deactivated are dropped
+                choices.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add(j);
+            }
+        }
+
+        // Students may have booked other labs since ranking, so clashes are checked here
+        Map<Long, StudentTimetableIndex.Timetable> timetables = studentTimetableIndex.forStudents(
+                pending.stream().map(r -> r.getStudent().getId()).toList());
+        int[][] preferences = new int[pending.size()][];
+        int[][] allowed = new int[pending.size()][];
+        for (int i = 0; i < pending.size(); i++) {
+            StudentTimetableIndex.Timetable timetable = timetables.get(pending.get(i).getStudent().getId());
+            boolean[] free = new boolean[slots.size()];
+            int freeCount = 0;
+            for (int j = 0; j < slots.size(); j++) {
+                TimeSlot slot = slots.get(j);
+                free[j] = timetable.clash(slot.getSessionDate(), slot.getStartTime(), slot.getEndTime()).isEmpty();
+                if (free[j]) freeCount++;
+            }
+            preferences[i] = choices.getOrDefault(pending.get(i).getId(), List.of()).stream()
+                    .mapToInt(Integer::intValue).filter(j -> free[j]).toArray();
+            if (freeCount < slots.size()) {
+                allowed[i] = IntStream.range(0, slots.size()).filter(j -> free[j]).toArray();
+            }
+        }
+
+        int[] assignment = PreferenceAllocator.allocate(capacity, preferences, allowed);
+
+        Map<Integer, List<Long>> idsBySlot = new TreeMap<>();
+        List<Long> unallocated = new ArrayList<>();
+        int firstChoice = 0;
+        for (int i = 0; i < assignment.length; i++) {
+            Long registrationId = pending.get(i).getId();
+            if (assignment[i] == PreferenceAllocator.UNALLOCATED) {
+                unallocated.add(registrationId);
+                continue;
+            }
+            idsBySlot.computeIfAbsent(assignment[i], j -> new ArrayList<>()).add(registrationId);
+            if (preferences[i].length > 0 && preferences[i][0] == assignment[i]) {
+                firstChoice++;
+            }
+        }
+
+        idsBySlot.forEach((j, ids) -> {
+            TimeSlot slot = slots.get(j);
+            if (timeSlotRepository.addToCount(slot.getId(), ids.size()) != 1) {
+                throw new IllegalStateException("Slot " + slot.getId() + " has fewer free seats than allocated");
+            }
+            registrationRepository.allocatePendingToSlot(ids, slot, now);
+        });
+        if (!unallocated.isEmpty()) {
+            registrationRepository.waitlistPending(unallocated, waitlistService.nextPosition(sessionId), now);
+        }
+        seatAllocator.invalidate(sessionId);
+
+        List<NotificationFanOutService.Message> messages = new ArrayList<>(assignment.length);
+        for (int i = 0; i < assignment.length; i++) {
+            User student = pending.get(i).getStudent();
+            if (assignment[i] == PreferenceAllocator.UNALLOCATED) {
+                messages.add(new NotificationFanOutService.Message(student.getId(), student.getEmail(), "Lab Allocation",
+                        String.format("All slots for %s are full. You have been placed on the waitlist.",
+                                session.getName()),
+                        "INFO"));
+            } else {
+                TimeSlot slot = slots.get(assignment[i]);
+                messages.add(new NotificationFanOutService.Message(student.getId(), student.getEmail(), "Lab Allocation",
+                        String.format("You have been allocated to %s on %s (%s - %s).", session.getName(),
+                                slot.getSessionDate(), slot.getStartTime(), slot.getEndTime()),
+                        "SUCCESS"));
+            }
+        }
+        studentTimetableIndex.evictAll(pending.stream().map(r -> r.getStudent().getId()).toList());
+        notificationFanOutService.sendEach(messages, true);
+
+        int allocated = assignment.length - unallocated.size();
+        long elapsed = System.currentTimeMillis() - started;
+        log.info("Allocated {} of {} pending registration(s) for session {} ({} first choice, {} waitlisted) in {} ms",
+                allocated, pending.size(), sessionId, firstChoice, unallocated.size(), elapsed);
+        return new AllocationResult(pending.size(), allocated, firstChoice, unallocated.size(), elapsed);
+    }
+
+    public record AllocationResult(int pending, int allocated, int firstChoice, int waitlisted, long elapsedMillis) {}
+}
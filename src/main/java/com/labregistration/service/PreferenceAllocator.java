@@ -0,0 +1,253 @@
+package com.labregistration.service;
+
+import java.util.Arrays;
+
+/**
+ * Optimal assignment of students to slots with limited seats, given each student's ranked
+ * slot choices.
+ *
+ * Solved as a min-cost flow: student -> ranked slot (cost rank squared, so one student's
+ * third choice costs more than two students' second choices), slot -> sink (the slot's free
+ * seats). Each student also has an edge to a shared overflow node that reaches every slot,
+ * priced above any ranked choice, so students whose choices are full still get a seat
+ * somewhere while one remains; this keeps the graph at O(students x ranks) edges instead of
+ * O(students x slots). Students who may only take some slots (e.g. because the others clash
+ * with their timetable) get overflow edges straight to those slots instead.
+ *
+ * Students are added in the given order (registration order), each along the cheapest
+ * augmenting path found by Dijkstra over reduced costs. After each step the flow is
+ * min-cost for the students added so far, and when seats run out it is the latest
+ * students who are left over.
+ */
+final class PreferenceAllocator {
+
+    static final int UNALLOCATED = -1;
+
+    private static final long INF = Long.MAX_VALUE / 4;
+
+    private final int students;
+    private final int slots;
+    private final int hub;
+    private final int sink;
+
+    private final int[] head;
+    private final int[] next;
+    private final int[] to;
+    private final int[] cap;
+    private final long[] cost;
+    private int edgeCount;
+
+    private PreferenceAllocator(int students, int slots, int maxEdges) {
+        this.students = students;
+        this.slots = slots;
+        this.hub = students + slots;
+        this.sink = hub + 1;
+        this.head = new int[sink + 1];
+        Arrays.fill(head, -1);
+        this.next = new int[maxEdges];
+        this.to = new int[maxEdges];
+        this.cap = new int[maxEdges];
+        this.cost = new long[maxEdges];
+    }
+
+    /**
+     * @param capacity    free seats per slot
+     * @param preferences per student, slot indexes best first (may be empty)
+     * @param allowed     per student, the slot indexes they may be given when their choices are
+     *                    full, or null for any slot
+     * @return per student, the index of the slot allocated, or {@link #UNALLOCATED}
+     */
+    static int[] allocate(int[] capacity, int[][] preferences, int[][] allowed) {
+        int n = preferences.length;
+        int m = capacity.length;
+        int longest = 0;
+        long edges = n + 2L * m;
+        for (int i = 0; i < n; i++) {
+            longest = Math.max(longest, preferences[i].length);
+            edges += preferences[i].length + (allowed[i] != null ? allowed[i].length : 0);
+        }
+
+        PreferenceAllocator graph = new PreferenceAllocator(n, m, (int) (2 * edges));
+        long unranked = (long) (longest + 1) * (longest + 1);
+        for (int j = 0; j < m; j++) {
+            graph.addEdge(graph.slot(j), graph.sink, Math.max(0, capacity[j]), 0);
+            graph.addEdge(graph.hub, graph.slot(j), Math.max(0, capacity[j]), 0);
+        }
+        for (int i = 0; i < n; i++) {
+            int[] choices = preferences[i];
+            for (int r = 0; r < choices.length; r++) {
+                graph.addEdge(i, graph.slot(choices[r]), 1, (long) (r + 1) * (r + 1));
+            }
+            if (allowed[i] == null) {
+                graph.addEdge(i, graph.hub, 1, unranked);
+            } else {
+                for (int j : allowed[i]) {
+                    graph.addEdge(i, graph.slot(j), 1, unranked);
+                }
+            }
+        }
+
+        graph.run();
+        return graph.assignment(capacity);
+    }
+
+    private int slot(int j) {
+        return students + j;
+    }
+
+    private void addEdge(int u, int v, int capacity, long edgeCost) {
+        to[edgeCount] = v;
+        cap[edgeCount] = capacity;
+        cost[edgeCount] = edgeCost;
+        next[edgeCount] = head[u];
+        head[u] = edgeCount++;
+
+        to[edgeCount] = u;
+        cap[edgeCount] = 0;
+        cost[edgeCount] = -edgeCost;
+        next[edgeCount] = head[v];
+        head[v] = edgeCount++;
+    }
+
+    /**
+     * Route one unit of flow from each student in turn, along the cheapest residual path.
+     */
+    private void run() {
+        int nodes = sink + 1;
+        long[] potential = new long[nodes];
+        long[] dist = new long[nodes];
+        int[] via = new int[nodes];
+        boolean[] done = new boolean[nodes];
+        Heap heap = new Heap(Math.max(16, edgeCount));
+
+        for (int student = 0; student < students; student++) {
+            Arrays.fill(dist, INF);
+            Arrays.fill(done, false);
+            heap.clear();
+            dist[student] = 0;
+            heap.push(0, student);
+
+            while (!heap.isEmpty()) {
+                int u = heap.peekNode();
+                heap.pop();
+                if (done[u]) continue;
+                done[u] = true;
+                if (u == sink) break;
+                for (int e = head[u]; e != -1; e = next[e]) {
+                    if (cap[e] == 0) continue;
+                    int v = to[e];
+                    long d = dist[u] + cost[e] + potential[u] - potential[v];
+                    if (d < dist[v]) {
+                        dist[v] = d;
+                        via[v] = e;
+                        heap.push(d, v);
+                    }
+                }
+            }
+            if (!done[sink]) {
+                // Every seat is taken
+                continue;
+            }
+
+            // Nodes the search did not settle are at least as far as the sink; capping them
+            // there keeps every residual edge's reduced cost non-negative
+            long reach = dist[sink];
+            for (int v = 0; v < nodes; v++) {
+                potential[v] += done[v] ? dist[v] : reach;
+            }
+            for (int v = sink; v != student; v = to[via[v] ^ 1]) {
+                cap[via[v]]--;
+                cap[via[v] ^ 1]++;
+            }
+        }
+    }
+
+    private int[] assignment(int[] capacity) {
+        int[] result = new int[students];
+        Arrays.fill(result, UNALLOCATED);
+
+        // Seats routed through the overflow node, per slot
+        int[] overflow = new int[slots];
+        for (int e = head[hub]; e != -1; e = next[e]) {
+            if ((e & 1) == 0) {
+                int j = to[e] - students;
+                overflow[j] = Math.max(0, capacity[j]) - cap[e];
+            }
+        }
+
+        int j = 0;
+        for (int i = 0; i < students; i++) {
+            for (int e = head[i]; e != -1; e = next[e]) {
+                if ((e & 1) != 0 || cap[e] != 0) continue;
+                if (to[e] == hub) {
+                    while (overflow[j] == 0) j++;
+                    overflow[j]--;
+                    result[i] = j;
+                } else {
+                    result[i] = to[e] - students;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Binary min-heap of (distance, node) with lazy deletion.
+     */
+    private static final class Heap {
+        private long[] keys;
+        private int[] nodes;
+        private int size;
+
+        Heap(int capacity) {
+            keys = new long[capacity];
+            nodes = new int[capacity];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int peekNode() {
+            return nodes[0];
+        }
+
+        void push(long key, int node) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) break;
+                keys[i] = keys[parent];
+                nodes[i] = nodes[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+
+        void pop() {
+            long key = keys[--size];
+            int node = nodes[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+                if (key <= keys[child]) break;
+                keys[i] = keys[child];
+                nodes[i] = nodes[child];
+                i = child;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+    }
+}
@@ -20,6 +20,7 @@ public class ProgramService {
 
     private final ProgramRepository programRepository;
     private final DepartmentRepository departmentRepository;
+    private final AcademicHierarchyCache hierarchyCache;
 
     public ProgramDTO createProgram(CreateProgramRequest request) {
 
@@ -46,6 +47,7 @@ public class ProgramService {
                 .build();
 
         Program saved = programRepository.save(program);
+        hierarchyCache.invalidate();
 
         return mapToDTO(saved);
     }
@@ -81,6 +83,7 @@ public class ProgramService {
                         new ResourceNotFoundException("Program", "id", id));
 
         programRepository.delete(program);
+        hierarchyCache.invalidate();
     }
 
     public ProgramDTO deactivateProgram(Long id) {
@@ -90,8 +93,10 @@ public class ProgramService {
                         new ResourceNotFoundException("Program", "id", id));
 
         program.setActive(false);
+        Program saved = programRepository.save(program);
+        hierarchyCache.invalidate();
 
-        return mapToDTO(programRepository.save(program));
+        return mapToDTO(saved);
     }
 
 
@@ -100,7 +105,9 @@ public class ProgramService {
                 .orElseThrow(() ->
                         new ResourceNotFoundException("Program", "id", id));
         program.setActive(true);
-        return mapToDTO(programRepository.save(program));
+        Program saved = programRepository.save(program);
+        hierarchyCache.invalidate();
+        return mapToDTO(saved);
     }
 
     private ProgramDTO mapToDTO(Program program) {
@@ -148,6 +155,7 @@ public class ProgramService {
         program.setDegreeType(request.getDegreeType());
 
         Program updated = programRepository.save(program);
+        hierarchyCache.invalidate();
 
         return mapToDTO(updated);
     }
@@ -162,5 +170,6 @@ public class ProgramService {
                 .orElseThrow(() -> new ResourceNotFoundException("Program", "id", id));
         program.setActive(!program.getActive());
         programRepository.save(program);
+        hierarchyCache.invalidate();
     }
 }
\ No newline at end of file
@@ -0,0 +1,274 @@
+package com.labregistration.service;
+
+import com.labregistration.dto.QueueStatusDTO;
+import com.labregistration.exception.AdmissionQueuedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control in front of createRegistration, so a popular session opening does not
+ * drain the connection pool for the rest of the API.
+ *
+ * Each session has a token bucket (steady rate plus a burst) and a cap on concurrent
+ * writers. While tokens are available and nobody is waiting, requests go straight through.
+ * Otherwise the student gets a ticket in a FIFO virtual queue and a 429 with their
+ * position; a ticker admits the head of the queue as tokens refill, and an admitted student
+ * has a short window to submit again. Tickets that stop being polled are dropped.
+ *
+ * Limits are per application instance.
+ */
+@Component
+@Slf4j
+public class RegistrationAdmissionControl {
+
+    private final double ratePerSecond;
+    private final int burst;
+    private final int maxConcurrentWriters;
+    private final long admissionWindowMillis;
+    private final long ticketTimeoutMillis;
+
+    private final Map<Long, Gate> gates = new ConcurrentHashMap<>();
+
+    public RegistrationAdmissionControl(
+            @Value("${app.registration.admission.rate-per-second:20}") double ratePerSecond,
+            @Value("${app.registration.admission.burst:40}") int burst,
+            @Value("${app.registration.admission.max-concurrent-writers:8}") int maxConcurrentWriters,
+            @Value("${app.registration.admission.admission-window-seconds:60}") long admissionWindowSeconds,
+            @Value("${app.registration.admission.ticket-timeout-seconds:30}") long ticketTimeoutSeconds) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.maxConcurrentWriters = maxConcurrentWriters;
+        this.admissionWindowMillis = admissionWindowSeconds * 1000;
+        this.ticketTimeoutMillis = ticketTimeoutSeconds * 1000;
+    }
+
+    /**
+     * Let a registration for {@code sessionId} through, or throw {@link AdmissionQueuedException}
+     * with the student's place in the queue. Close the returned permit when the write is done.
+     */
+    public Permit enter(Long sessionId, String student) {
+        long now = System.currentTimeMillis();
+        Gate gate;
+        while (true) {
+            gate = gates.computeIfAbsent(sessionId, Gate::new);
+            synchronized (gate) {
+                if (gate.retired) {
+                    // Dropped by the ticker before we got to it; pick up its replacement
+                    continue;
+                }
+                gate.lastUsed = now;
+                gate.admit(now);
+                Long pass = gate.admitted.remove(student);
+                boolean allowed = pass != null && pass > now;
+                if (!allowed && gate.queue.isEmpty() && gate.tokens >= 1) {
+                    gate.tokens -= 1;
+                    allowed = true;
+                }
+                if (!allowed) {
+                    throw new AdmissionQueuedException(gate.join(student, now));
+                }
+            }
+            break;
+        }
+
+        try {
+            if (!gate.writers.tryAcquire(500, TimeUnit.MILLISECONDS)) {
+                synchronized (gate) {
+                    // Keep the student's turn; they only need to retry
+                    gate.admitted.put(student, now + admissionWindowMillis);
+                    throw new AdmissionQueuedException(gate.admittedStatus(student));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a registration slot", e);
+        }
+        Semaphore writers = gate.writers;
+        return writers::release;
+    }
+
+    /**
+     * Where the student stands for {@code sessionId}. Polling also keeps a ticket alive.
+     */
+    public QueueStatusDTO status(Long sessionId, String student) {
+        Gate gate = gates.get(sessionId);
+        if (gate == null) {
+            return notQueued(sessionId);
+        }
+        long now = System.currentTimeMillis();
+        synchronized (gate) {
+            gate.admit(now);
+            if (gate.admitted.containsKey(student)) {
+                return gate.admittedStatus(student);
+            }
+            Ticket ticket = gate.tickets.get(student);
+            if (ticket == null) {
+                return notQueued(sessionId);
+            }
+            ticket.lastSeen = now;
+            return gate.waitingStatus(ticket);
+        }
+    }
+
+    /**
+     * Start a session's gate from a clean state, e.g. when it is (re)opened. The bucket and
+     * queue are cleared in place; the writer cap is kept, since writers already let in may
+     * still hold permits.
+     */
+    public void reset(Long sessionId) {
+        Gate gate = gates.get(sessionId);
+        if (gate == null) {
+            return;
+        }
+        synchronized (gate) {
+            gate.clear(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Admit waiting students and drop gates that have been idle for a while. A gate is only
+     * dropped under its monitor and marked retired, so a thread that already looked it up
+     * goes back for a fresh one instead of using it.
+     */
+    @Scheduled(fixedDelayString = "${app.registration.admission.tick-ms:250}")
+    public void tick() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, Gate> entry : gates.entrySet()) {
+            Gate gate = entry.getValue();
+            synchronized (gate) {
+                gate.admit(now);
+                boolean idle = gate.queue.isEmpty() && gate.admitted.isEmpty()
+                        && now - gate.lastUsed > 10 * 60 * 1000L
+                        && gate.writers.availablePermits() == maxConcurrentWriters;
+                if (idle && gates.remove(entry.getKey(), gate)) {
+                    gate.retired = true;
+                }
+            }
+        }
+    }
+
+    private static QueueStatusDTO notQueued(Long sessionId) {
+        return QueueStatusDTO.builder().labSessionId(sessionId).status("NOT_QUEUED").build();
+    }
+
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class Ticket {
+        final String student;
+        final long seq;
+        long lastSeen;
+
+        Ticket(String student, long seq, long lastSeen) {
+            this.student = student;
+            this.seq = seq;
+            this.lastSeen = lastSeen;
+        }
+    }
+
+    /**
+     * Per-session state. All fields except {@code writers} are guarded by the gate's monitor.
+     */
+    private final class Gate {
+        final Long sessionId;
+        final Semaphore writers = new Semaphore(maxConcurrentWriters, true);
+        final Deque<Ticket> queue = new ArrayDeque<>();
+        final Map<String, Ticket> tickets = new HashMap<>();
+        final Map<String, Long> admitted = new HashMap<>();
+        double tokens = burst;
+        long lastRefill = System.currentTimeMillis();
+        long nextSeq = 1;
+        long lastUsed = System.currentTimeMillis();
+        // Set once the gate has been removed from the map; it must not be used after that
+        boolean retired;
+
+        Gate(Long sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        void clear(long now) {
+            queue.clear();
+            tickets.clear();
+            admitted.clear();
+            tokens = burst;
+            lastRefill = now;
+            lastUsed = now;
+        }
+
+        /**
+         * Refill the bucket and move as many live tickets from the head of the queue to
+         * admitted as there are tokens.
+         */
+        void admit(long now) {
+            tokens = Math.min(burst, tokens + (now - lastRefill) / 1000.0 * ratePerSecond);
+            lastRefill = now;
+            admitted.values().removeIf(until -> until <= now);
+
+            while (!queue.isEmpty()) {
+                Ticket head = queue.peekFirst();
+                if (now - head.lastSeen > ticketTimeoutMillis) {
+                    // Gave up waiting (stopped polling)
+                    queue.pollFirst();
+                    tickets.remove(head.student);
+                    continue;
+                }
+                if (tokens < 1) {
+                    break;
+                }
+                tokens -= 1;
+                queue.pollFirst();
+                tickets.remove(head.student);
+                admitted.put(head.student, now + admissionWindowMillis);
+            }
+        }
+
+        QueueStatusDTO join(String student, long now) {
+            Ticket ticket = tickets.get(student);
+            if (ticket == null) {
+                ticket = new Ticket(student, nextSeq++, now);
+                queue.addLast(ticket);
+                tickets.put(student, ticket);
+            }
+            ticket.lastSeen = now;
+            return waitingStatus(ticket);
+        }
+
+        QueueStatusDTO waitingStatus(Ticket ticket) {
+            // Tickets are numbered in arrival order and only leave from the head
+            int position = (int) (ticket.seq - queue.peekFirst().seq) + 1;
+            int wait = (int) Math.ceil(Math.max(0, position - tokens) / ratePerSecond);
+            return QueueStatusDTO.builder()
+                    .labSessionId(sessionId)
+                    .status("WAITING")
+                    .position(position)
+                    .queueLength(queue.size())
+                    .retryAfterSeconds(Math.max(1, Math.min(wait, 5)))
+                    .build();
+        }
+
+        QueueStatusDTO admittedStatus(String student) {
+            return QueueStatusDTO.builder()
+                    .labSessionId(sessionId)
+                    .status("ADMITTED")
+                    .position(0)
+                    .queueLength(queue.size())
+                    .retryAfterSeconds(1)
+                    .admittedUntil(LocalDateTime.ofInstant(Instant.ofEpochMilli(admitted.get(student)),
+                            ZoneId.systemDefault()))
+                    .build();
+        }
+    }
+}
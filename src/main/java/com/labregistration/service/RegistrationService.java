@@ -4,20 +4,22 @@ import com.labregistration.dto.GroupMemberDto;
 import com.labregistration.dto.RegistrationDTO;
 import com.labregistration.dto.WeeklyNoteDTO;
 import com.labregistration.dto.request.CreateRegistrationRequest;
+import com.labregistration.dto.response.CursorPage;
+import com.labregistration.dto.response.CursorPage.Cursor;
 import com.labregistration.exception.BadRequestException;
 import com.labregistration.exception.ResourceNotFoundException;
 import com.labregistration.mapper.RegistrationMapper;
 import com.labregistration.model.*;
 import com.labregistration.repository.RegistrationRepository;
 import com.labregistration.repository.TimeSlotRepository;
-import com.labregistration.repository.WeeklyNoteRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -29,11 +31,16 @@ public class RegistrationService {
 
     private final RegistrationRepository registrationRepository;
     private final TimeSlotRepository timeSlotRepository;
-    private final WeeklyNoteRepository weeklyNoteRepository;
+    private final WeeklyTimelineCache weeklyTimelineCache;
     private final LabSessionService labSessionService;
     private final UserService userService;
     private final RegistrationMapper registrationMapper;
     private final NotificationService notificationService;
+    private final SeatAllocator seatAllocator;
+    private final WaitlistService waitlistService;
+    private final StudentTimetableIndex studentTimetableIndex;
+    private final PreferenceAllocationService preferenceAllocationService;
+    private final SlotExchangeService slotExchangeService;
 
     /**
      * Create a registration for a student for the ENTIRE duration of a lab session.
@@ -151,7 +158,7 @@ public class RegistrationService {
 
         // Check registration deadline
         if (session.getRegistrationDeadline() != null &&
-                session.getRegistrationDeadline().isBefore(java.time.LocalDateTime.now())) {
+                session.getRegistrationDeadline().isBefore(LocalDateTime.now())) {
             throw new BadRequestException("Registration deadline has passed");
         }
 
@@ -165,7 +172,7 @@ public class RegistrationService {
             Registration reg = cancelledReg.get();
             reg.setActive(true);
             reg.setCancelledAt(null);
-            reg.setRegisteredAt(java.time.LocalDateTime.now());
+            reg.setRegisteredAt(LocalDateTime.now());
             reg.setStudentNotes(request.getNotes());
             reg.setWaitlistPosition(null);
             reg.setAdminNotes(null);
@@ -173,14 +180,20 @@ public class RegistrationService {
             // Re-run slot assignment (same logic as below)
             reg = assignSlot(reg, session, request);
             reg = registrationRepository.save(reg);
+            studentTimetableIndex.add(reg);
+            if (reg.getStatus() == RegistrationStatus.PENDING) {
+                preferenceAllocationService.savePreferences(reg, request.getPreferredTimeSlotIds());
+            }
 
             int totalSessions = session.getDurationWeeks() * session.getSessionDaysSet().size();
             reg.setTotalSessions(totalSessions);
 
-            String message = reg.getStatus() == RegistrationStatus.CONFIRMED
+            String message = reg.getStatus() == RegistrationStatus.PENDING
+                    ? preferencesRecordedMessage(session)
+                    : reg.getStatus() == RegistrationStatus.CONFIRMED
                     ? String.format("You have been re-registered for %s.", session.getName())
                     : String.format("You have been re-added to the waitlist for %s. Position: %d",
-                    session.getName(), reg.getWaitlistPosition());
+                    session.getName(), waitlistService.placeInQueue(reg));
             notificationService.createNotification(student, "Lab Registration", message, "INFO");
 
             return registrationMapper.toDTO(reg);
@@ -213,12 +226,18 @@ public class RegistrationService {
 
         registration = assignSlot(registration, session, request);
         registration = registrationRepository.save(registration);
+        studentTimetableIndex.add(registration);
+        if (registration.getStatus() == RegistrationStatus.PENDING) {
+            preferenceAllocationService.savePreferences(registration, request.getPreferredTimeSlotIds());
+        }
 
-        String message = registration.getStatus() == RegistrationStatus.CONFIRMED
+        String message = registration.getStatus() == RegistrationStatus.PENDING
+                ? preferencesRecordedMessage(session)
+                : registration.getStatus() == RegistrationStatus.CONFIRMED
                 ? String.format("You have been registered for %s. Check your registrations for weekly session details.",
                 session.getName())
                 : String.format("You have been added to the waitlist for %s. Position: %d",
-                session.getName(), registration.getWaitlistPosition());
+                session.getName(), waitlistService.placeInQueue(registration));
 
         notificationService.createNotification(student, "Lab Registration", message, "INFO");
         return registrationMapper.toDTO(registration);
@@ -238,17 +257,7 @@ public class RegistrationService {
      */
     public List<RegistrationDTO> getStudentRegistrations(String email) {
         User student = userService.getUserEntityByEmail(email);
-        List<Registration> registrations = registrationRepository.findByStudentId(student.getId());
-        
-        return registrations.stream()
-                .map(reg -> {
-                    RegistrationDTO dto = registrationMapper.toDTO(reg);
-                    // Add weekly notes for student view (only published)
-                    List<WeeklyNoteDTO> weeklyNotes = getWeeklyNotesForStudent(reg.getLabSession());
-                    dto.setWeeklyNotes(weeklyNotes);
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        return withWeeklyNotes(registrationRepository.findWithSessionByStudentId(student.getId()));
     }
 
     /**
@@ -256,111 +265,47 @@ public class RegistrationService {
      */
     public List<RegistrationDTO> getActiveStudentRegistrations(String email) {
         User student = userService.getUserEntityByEmail(email);
-        List<Registration> registrations = registrationRepository.findActiveByStudentId(student.getId());
-        
-        return registrations.stream()
-                .map(reg -> {
-                    RegistrationDTO dto = registrationMapper.toDTO(reg);
-                    List<WeeklyNoteDTO> weeklyNotes = getWeeklyNotesForStudent(reg.getLabSession());
-                    dto.setWeeklyNotes(weeklyNotes);
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        return withWeeklyNotes(registrationRepository.findActiveWithSessionByStudentId(student.getId()));
     }
 
     /**
-     * Get weekly notes for a student (only published ones with week info)
+     * Map registrations (fetched with their session, course and slot) and attach each
+     * session's weeks with only the published notes. Queue places take one query and the
+     * week timelines come from the cache, so the query count does not grow with the list.
      */
-    private List<WeeklyNoteDTO> getWeeklyNotesForStudent(LabSession session) {
-        List<WeeklyNote> existingNotes = weeklyNoteRepository.findByLabSessionIdOrderByWeekNumber(session.getId());
-        Map<Integer, WeeklyNote> noteMap = existingNotes.stream()
-                .collect(Collectors.toMap(WeeklyNote::getWeekNumber, n -> n));
-
-        List<WeeklyNoteDTO> result = new ArrayList<>();
-        int totalWeeks = session.getDurationWeeks();
-        LocalDate currentWeekStart = getFirstSessionDay(session);
-
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM d");
-        LocalDate today = LocalDate.now();
-
-        for (int week = 1; week <= totalWeeks; week++) {
-            LocalDate weekEnd = currentWeekStart.plusDays(6);
-            boolean isCurrentWeek = !today.isBefore(currentWeekStart) && !today.isAfter(weekEnd);
-            boolean isPastWeek = today.isAfter(weekEnd);
-            boolean isFutureWeek = today.isBefore(currentWeekStart);
-            String dateRange = currentWeekStart.format(formatter) + " - " + weekEnd.format(formatter);
-
-            WeeklyNote note = noteMap.get(week);
-            
-            WeeklyNoteDTO.WeeklyNoteDTOBuilder builder = WeeklyNoteDTO.builder()
-                    .labSessionId(session.getId())
-                    .labSessionName(session.getName())
-                    .weekNumber(week)
-                    .weekStartDate(currentWeekStart)
-                    .weekEndDate(weekEnd)
-                    .displayName("Week " + week)
-                    .dateRange(dateRange)
-                    .isCurrentWeek(isCurrentWeek)
-                    .isPastWeek(isPastWeek)
-                    .isFutureWeek(isFutureWeek);
-
-            // Only include content if note exists and is published
-            if (note != null && Boolean.TRUE.equals(note.getIsPublished())) {
-                builder.id(note.getId())
-                        .title(note.getTitle())
-                        .content(note.getContent())
-                        .learningObjectives(note.getLearningObjectives())
-                        .materialsNeeded(note.getMaterialsNeeded())
-                        .isPublished(true);
-                if (note.getTitle() != null) {
-                    builder.displayName("Week " + week + ": " + note.getTitle());
-                }
-            } else {
-                builder.isPublished(false);
-            }
+    private List<RegistrationDTO> withWeeklyNotes(List<Registration> registrations) {
+        Map<Long, Integer> places = waitlistService.placesInQueue(registrations);
+        Map<Long, List<WeeklyNoteDTO>> timelines = weeklyTimelineCache.forSessions(
+                registrations.stream().map(Registration::getLabSession).collect(Collectors.toList()));
 
-            result.add(builder.build());
-            currentWeekStart = currentWeekStart.plusWeeks(1);
-        }
-
-        return result;
+        return registrations.stream()
+                .map(reg -> {
+                    RegistrationDTO dto = registrationMapper.toDTO(reg, places.get(reg.getId()));
+                    dto.setWeeklyNotes(timelines.get(reg.getLabSession().getId()));
+                    return dto;
+                })
+                .collect(Collectors.toList());
     }
 
-    /**
-     * Get the first session day based on session start date and session days
-     */
-    private LocalDate getFirstSessionDay(LabSession session) {
-        LocalDate date = session.getStartDate();
-        var sessionDays = session.getSessionDaysSet();
-        
-        if (sessionDays.isEmpty()) {
-            return date;
-        }
-
-        // Find the first occurrence of a session day
-        for (int i = 0; i < 7; i++) {
-            LocalDate checkDate = date.plusDays(i);
-            String dayName = checkDate.getDayOfWeek().toString();
-            if (sessionDays.contains(dayName)) {
-                return checkDate;
-            }
-        }
-        
-        return date;
+    public List<RegistrationDTO> getRegistrationsBySessionId(Long sessionId) {
+        return registrationMapper.toDTOs(registrationRepository.findByLabSessionId(sessionId));
     }
 
-    public List<RegistrationDTO> getRegistrationsBySessionId(Long sessionId) {
-        return registrationRepository.findByLabSessionId(sessionId).stream()
-                .map(registrationMapper::toDTO)
-                .collect(Collectors.toList());
+    public CursorPage<RegistrationDTO> getRegistrationsPageBySessionId(Long sessionId, String cursor, Integer limit) {
+        Cursor after = Cursor.decode(cursor);
+        int size = CursorPage.clampLimit(limit);
+        List<Registration> rows = registrationRepository.findPageByLabSessionId(sessionId,
+                after.createdAt(), after.id(), PageRequest.of(0, size + 1));
+        Map<Long, Integer> places = waitlistService.placesInQueue(rows);
+        return CursorPage.of(rows, size, Registration::getCreatedAt, Registration::getId,
+                reg -> registrationMapper.toDTO(reg, places.get(reg.getId())));
     }
 
     public List<RegistrationDTO> getRegistrationsBySlotNumber(Long sessionId, Integer slotNumber) {
         List<TimeSlot> slots = timeSlotRepository.findByLabSessionIdAndGroupNumber(sessionId, slotNumber);
-        return slots.stream()
+        return registrationMapper.toDTOs(slots.stream()
                 .flatMap(slot -> registrationRepository.findConfirmedBySlotId(slot.getId()).stream())
-                .map(registrationMapper::toDTO)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
 
 
@@ -387,15 +332,17 @@ public class RegistrationService {
             throw new BadRequestException("Cannot cancel a completed registration");
         }
         // Decrement slot count if was confirmed
-        if (registration.getTimeSlot() != null && registration.getStatus() == RegistrationStatus.CONFIRMED) {
-            timeSlotRepository.decrementCount(registration.getTimeSlot().getId());
-            promoteFromWaitlist(registration.getLabSession().getId()); // ← add this
-
-        }
+        boolean seatFreed = registration.getTimeSlot() != null
+                && registration.getStatus() == RegistrationStatus.CONFIRMED
+                && releaseSeat(registration.getLabSession().getId(), registration.getTimeSlot().getId());
         registration.cancel();
         registration = registrationRepository.save(registration);
-        // Promote waitlisted student
-        promoteFromWaitlist(registration.getLabSession().getId());
+        studentTimetableIndex.evict(registration.getStudent().getId());
+        slotExchangeService.withdrawOpenRequests(List.of(registration.getId()));
+        // Promote waitlisted student into the freed seat
+        if (seatFreed) {
+            waitlistService.promote(registration.getLabSession().getId(), 1);
+        }
         // Send notification
         notificationService.createNotification(
                 registration.getStudent(),
@@ -411,38 +358,57 @@ public class RegistrationService {
 
     private Registration assignSlot(Registration registration, LabSession session,
                                     CreateRegistrationRequest request) {
+        if (PreferenceAllocationService.awaitsAllocation(session)) {
+            // Seats are handed out in one run after the deadline; only the choices are kept
+            registration.setStatus(RegistrationStatus.PENDING);
+            registration.setTimeSlot(null);
+            return registration;
+        }
+
         TimeSlot assignedSlot;
+        StudentTimetableIndex.Timetable timetable =
+                studentTimetableIndex.forStudent(registration.getStudent().getId());
 
         if (request.getTimeSlotId() != null) {
             assignedSlot = timeSlotRepository.findById(request.getTimeSlotId())
                     .orElseThrow(() -> new ResourceNotFoundException("Time Slot", "id", request.getTimeSlotId()));
 
-            if (assignedSlot.isFull()) {
+            if (!assignedSlot.getLabSession().getId().equals(session.getId())) {
+                throw new BadRequestException("Time slot does not belong to this session");
+            }
+
+            timetable.clash(assignedSlot.getSessionDate(), assignedSlot.getStartTime(), assignedSlot.getEndTime())
+                    .ifPresent(busy -> {
+                        throw new BadRequestException(String.format(
+                                "This time slot clashes with your %s session on %s (%s - %s)",
+                                busy.sessionName(), busy.start().toLocalDate(),
+                                busy.start().toLocalTime(), busy.end().toLocalTime()));
+                    });
+
+            if (!seatAllocator.reserve(session.getId(), assignedSlot.getId())) {
                 registration.setStatus(RegistrationStatus.WAITLISTED);
                 registration.setTimeSlot(null);
-                // ← replace .size() with count query
-                int waitlistCount = registrationRepository.countByLabSessionIdAndStatus(
-                        session.getId(), RegistrationStatus.WAITLISTED);
-                registration.setWaitlistPosition(waitlistCount + 1);
+                registration.setWaitlistPosition(waitlistService.nextPosition(session.getId()));
             } else {
                 registration.setTimeSlot(assignedSlot);
                 registration.confirm();
-                timeSlotRepository.incrementCount(assignedSlot.getId());
             }
         } else {
-            assignedSlot = timeSlotRepository.findFirstAvailableSlot(session.getId()).orElse(null);
+            // Seat is taken in memory first, then confirmed by the guarded UPDATE.
+            // Slots that overlap the student's other labs are skipped.
+            assignedSlot = seatAllocator.reserveFirstAvailable(session.getId(), window ->
+                    timetable.clash(window.date(), window.startTime(), window.endTime()).isEmpty()).orElse(null);
 
             if (assignedSlot != null) {
                 registration.setTimeSlot(assignedSlot);
                 registration.confirm();
-                timeSlotRepository.incrementCount(assignedSlot.getId());
+            } else if (seatAllocator.hasFreeSeats(session.getId())) {
+                throw new BadRequestException(
+                        "Every slot with free seats clashes with your other lab sessions");
             } else {
                 registration.setStatus(RegistrationStatus.WAITLISTED);
                 registration.setTimeSlot(null);
-                // ← replace .size() with count query here too
-                int waitlistCount = registrationRepository.countByLabSessionIdAndStatus(
-                        session.getId(), RegistrationStatus.WAITLISTED);
-                registration.setWaitlistPosition(waitlistCount + 1);
+                registration.setWaitlistPosition(waitlistService.nextPosition(session.getId()));
             }
         }
 
@@ -455,69 +421,63 @@ public class RegistrationService {
 
 
 
+    private static String preferencesRecordedMessage(LabSession session) {
+        return String.format("Your slot preferences for %s have been recorded. Slots are allocated after the " +
+                "registration deadline (%s).", session.getName(), session.getRegistrationDeadline());
+    }
+
+    /**
+     * Re-rank the slots of a registration still waiting for a preference allocation.
+     */
     @Transactional
-    public RegistrationDTO changeSlot(Long registrationId, Integer newSlotNumber, String adminEmail) {
-        Registration registration = registrationRepository.findById(registrationId)
-                .orElseThrow(() -> new ResourceNotFoundException("Registration", "id", registrationId));
-        if (registration.getStatus() != RegistrationStatus.CONFIRMED) {
-            throw new BadRequestException("Can only change slot for confirmed registrations");
+    public RegistrationDTO updatePreferences(Long id, List<Long> timeSlotIds, String email) {
+        Registration registration = registrationRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Registration", "id", id));
+        if (!registration.getStudent().getEmail().equals(email)) {
+            throw new BadRequestException("You can only change your own registrations");
         }
-
-        // Find an available slot with the new slot number
-        List<TimeSlot> newSlots = timeSlotRepository.findByLabSessionIdAndGroupNumber(
-                registration.getLabSession().getId(), newSlotNumber);
-        TimeSlot availableSlot = newSlots.stream()
-                .filter(slot -> !slot.isFull())
-                .findFirst()
-                .orElseThrow(() -> new BadRequestException("No available slot with number " + newSlotNumber));
-        // Decrement old slot count
-        if (registration.getTimeSlot() != null) {
-            timeSlotRepository.decrementCount(registration.getTimeSlot().getId());
+        LabSession session = registration.getLabSession();
+        if (registration.getStatus() != RegistrationStatus.PENDING
+                || !PreferenceAllocationService.awaitsAllocation(session)) {
+            throw new BadRequestException("Slot preferences can only be changed before slots are allocated");
         }
-        // Assign new slot
-        registration.setTimeSlot(availableSlot);
-        timeSlotRepository.incrementCount(availableSlot.getId());
-        registration = registrationRepository.save(registration);
+        if (session.getRegistrationDeadline().isBefore(LocalDateTime.now())) {
+            throw new BadRequestException("Registration deadline has passed");
+        }
+        preferenceAllocationService.savePreferences(registration, timeSlotIds);
         return registrationMapper.toDTO(registration);
     }
 
+    public List<Long> getPreferences(Long id, String email) {
+        Registration registration = registrationRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Registration", "id", id));
+        if (!registration.getStudent().getEmail().equals(email)) {
+            throw new BadRequestException("You can only view your own registrations");
+        }
+        return preferenceAllocationService.getPreferences(id);
+    }
 
+    @Transactional
+    public RegistrationDTO changeSlot(Long registrationId, Integer newSlotNumber) {
+        return slotExchangeService.moveToSlotNumber(registrationId, newSlotNumber);
+    }
 
 
 
 
 
-    private void promoteFromWaitlist(Long sessionId) {
-        List<Registration> waitlisted = registrationRepository.findWaitlistedBySessionId(sessionId);
-        if (waitlisted.isEmpty()) return;
-
-        TimeSlot availableSlot = timeSlotRepository.findFirstAvailableSlot(sessionId).orElse(null);
-        if (availableSlot == null) return;
 
-        Registration toPromote = waitlisted.get(0);
-        toPromote.setTimeSlot(availableSlot);
-        toPromote.confirm();
-        timeSlotRepository.incrementCount(availableSlot.getId());
-        registrationRepository.save(toPromote);
 
-        // Update remaining waitlist positions
-        for (int i = 1; i < waitlisted.size(); i++) {
-            Registration r = waitlisted.get(i);
-            r.setWaitlistPosition(i);
-            registrationRepository.save(r);
+    /**
+     * Free a seat in the database and hand it back to the in-memory counters.
+     * Returns false when the slot count was already zero.
+     */
+    private boolean releaseSeat(Long sessionId, Long slotId) {
+        if (timeSlotRepository.decrementCount(slotId) == 1) {
+            seatAllocator.release(sessionId, slotId);
+            return true;
         }
-
-        // Notify promoted student
-        notificationService.createNotification(
-                toPromote.getStudent(),
-                "Promoted from Waitlist",
-                "You have been promoted from the waitlist for " + toPromote.getLabSession().getName() + 
-                        ". Check your registrations for session details.",
-                "SUCCESS"
-        );
-
-        log.info("Promoted {} from waitlist for session {}", 
-                toPromote.getStudent().getEmail(), toPromote.getLabSession().getName());
+        return false;
     }
 
     @Transactional
@@ -529,21 +489,41 @@ public class RegistrationService {
             throw new BadRequestException("Cannot confirm registration without assigned time slot");
         }
 
+        RegistrationStatus previous = registration.getStatus();
+        if (previous == status) {
+            return registrationMapper.toDTO(registration);
+        }
+
+        // A confirmed seat has to be taken like any other, and only once
+        boolean holdsSeat = previous == RegistrationStatus.CONFIRMED || previous == RegistrationStatus.COMPLETED;
+        if (status == RegistrationStatus.CONFIRMED && !holdsSeat
+                && !seatAllocator.reserve(registration.getLabSession().getId(), registration.getTimeSlot().getId())) {
+            throw new BadRequestException("Cannot confirm registration: its time slot is full");
+        }
+
+        // Only a seat actually held is given back (a completed one stays counted)
+        boolean seatFreed = previous == RegistrationStatus.CONFIRMED
+                && status != RegistrationStatus.COMPLETED
+                && registration.getTimeSlot() != null
+                && releaseSeat(registration.getLabSession().getId(), registration.getTimeSlot().getId());
+
         registration.setStatus(status);
         if (status == RegistrationStatus.CONFIRMED) {
             registration.confirm();
         } else if (status == RegistrationStatus.CANCELLED) {
             registration.cancel();
-            if (registration.getTimeSlot() != null) {
-                timeSlotRepository.decrementCount(registration.getTimeSlot().getId());
-                promoteFromWaitlist(registration.getLabSession().getId()); // ← add this
-
-            }
         } else if (status == RegistrationStatus.COMPLETED) {
             registration.complete();
         }
 
         registration = registrationRepository.save(registration);
+        studentTimetableIndex.evict(registration.getStudent().getId());
+        if (status != RegistrationStatus.CONFIRMED) {
+            slotExchangeService.withdrawOpenRequests(List.of(registration.getId()));
+        }
+        if (seatFreed) {
+            waitlistService.promote(registration.getLabSession().getId(), 1);
+        }
         return registrationMapper.toDTO(registration);
     }
 
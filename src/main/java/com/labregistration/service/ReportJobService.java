@@ -0,0 +1,368 @@
+package com.labregistration.service;
+
+import com.labregistration.dto.ReportJobDTO;
+import com.labregistration.dto.request.CreateReportJobRequest;
+import com.labregistration.dto.request.CreateReportJobRequest.ReportType;
+import com.labregistration.exception.BadRequestException;
+import com.labregistration.exception.ConflictException;
+import com.labregistration.exception.ResourceNotFoundException;
+import com.labregistration.exception.ServiceBusyException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Renders reports in the background so large exports don't hold a request thread.
+ *
+ * Jobs run on a small bounded pool and write their artifact to local disk, where it is
+ * kept for a limited time. Submitting a report that is already queued or running returns
+ * the existing job instead of rendering it twice. A job can only be read or downloaded
+ * by the users it was handed to; to anyone else it does not exist. Job state is kept in
+ * memory; artifacts left over from a previous run are removed by the same cleanup that
+ * expires jobs.
+ */
+@Service
+@Slf4j
+public class ReportJobService {
+
+    public enum JobStatus { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    // Suggested wait when the render queue is full
+    private static final int BUSY_RETRY_AFTER_SECONDS = 30;
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String TEXT_CSV = "text/csv";
+    private static final String TEXT_PLAIN = "text/plain";
+    private static final String PDF = "application/pdf";
+    private static final String EXCEL = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private final ReportService reportService;
+    private final Path storageDir;
+    private final Duration artifactTtl;
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    // Dedup key -> id of the job currently queued or running for it
+    private final Map<String, String> inFlight = new ConcurrentHashMap<>();
+
+    public ReportJobService(ReportService reportService,
+                            @Value("${app.reports.storage-dir:${java.io.tmpdir}/lab-reports}") String storageDir,
+                            @Value("${app.reports.artifact-ttl-minutes:60}") long ttlMinutes,
+                            @Value("${app.reports.worker-threads:2}") int workerThreads,
+                            @Value("${app.reports.queue-capacity:20}") int queueCapacity) throws IOException {
+        this.reportService = reportService;
+        this.storageDir = Files.createDirectories(Paths.get(storageDir));
+        this.artifactTtl = Duration.ofMinutes(ttlMinutes);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "report-worker-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Queue a report for rendering, or return the job already working on the same report.
+     */
+    public ReportJobDTO submit(CreateReportJobRequest request, String requestedBy) {
+        Rendition rendition = resolve(request);
+
+        while (true) {
+            String existingId = inFlight.get(rendition.key());
+            if (existingId != null) {
+                ReportJob existing = jobs.get(existingId);
+                if (existing != null && existing.isInFlight()) {
+                    existing.requesters.add(requestedBy);
+                    log.debug("Report {} already in progress as job {}", rendition.key(), existingId);
+                    return toDTO(existing);
+                }
+                inFlight.remove(rendition.key(), existingId);
+                continue;
+            }
+
+            ReportJob job = new ReportJob(UUID.randomUUID().toString(), request.getType(), rendition, requestedBy);
+            if (inFlight.putIfAbsent(rendition.key(), job.id) != null) {
+                continue; // lost the race, pick up the other job
+            }
+            jobs.put(job.id, job);
+
+            try {
+                executor.execute(() -> render(job));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(job.id);
+                inFlight.remove(rendition.key(), job.id);
+                throw new ServiceBusyException("Too many reports are being generated right now. Please try again shortly.",
+                        BUSY_RETRY_AFTER_SECONDS);
+            }
+
+            log.info("Queued report job {} ({}) for {}", job.id, rendition.filename(), requestedBy);
+            return toDTO(job);
+        }
+    }
+
+    public ReportJobDTO getJob(String jobId, String username) {
+        return toDTO(findJob(jobId, username));
+    }
+
+    /**
+     * Path of a finished artifact, for download. A job that is still queued, running or has
+     * failed is a conflict (409), not a bad request, so pollers can tell "wait" apart.
+     */
+    public ReportArtifact getArtifact(String jobId, String username) {
+        ReportJob job = findJob(jobId, username);
+        if (job.status == JobStatus.FAILED) {
+            throw new ConflictException("Report generation failed: " + job.error);
+        }
+        if (job.status != JobStatus.COMPLETED) {
+            throw new ConflictException("Report is not ready yet (" + job.status + ")");
+        }
+        if (!Files.exists(job.artifact)) {
+            throw new ResourceNotFoundException("Report", "id", jobId);
+        }
+        return new ReportArtifact(job.artifact, job.rendition.filename(), job.rendition.mediaType());
+    }
+
+    /**
+     * Drop expired jobs and delete their artifacts, plus any stray files older than the TTL.
+     */
+    @Scheduled(fixedDelayString = "${app.reports.cleanup-interval-ms:300000}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        jobs.values().removeIf(job -> {
+            if (job.expiresAt == null || job.expiresAt.isAfter(now)) {
+                return false;
+            }
+            deleteQuietly(job.artifact);
+            return true;
+        });
+
+        FileTime cutoff = FileTime.from(Instant.now().minus(artifactTtl));
+        try (Stream<Path> files = Files.list(storageDir)) {
+            files.filter(f -> {
+                try {
+                    return Files.getLastModifiedTime(f).compareTo(cutoff) < 0;
+                } catch (IOException e) {
+                    return false;
+                }
+            }).forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Could not scan report storage {}: {}", storageDir, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // -------------------------------------------------------------------------
+    // RENDERING
+    // -------------------------------------------------------------------------
+
+    private void render(ReportJob job) {
+        job.status = JobStatus.RUNNING;
+        job.startedAt = LocalDateTime.now();
+        Path partial = storageDir.resolve(job.id + ".part");
+        Path target = storageDir.resolve(job.id + "." + job.rendition.extension());
+
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial))) {
+                job.rendition.writer().write(out);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+            job.artifact = target;
+            job.sizeBytes = Files.size(target);
+            job.status = JobStatus.COMPLETED;
+            log.info("Report job {} completed ({} bytes)", job.id, job.sizeBytes);
+        } catch (Exception e) {
+            deleteQuietly(partial);
+            job.error = e.getMessage();
+            job.status = JobStatus.FAILED;
+            log.error("Report job {} failed: {}", job.id, e.getMessage(), e);
+        } finally {
+            job.completedAt = LocalDateTime.now();
+            job.expiresAt = job.completedAt.plus(artifactTtl);
+            inFlight.remove(job.rendition.key(), job.id);
+        }
+    }
+
+    private Rendition resolve(CreateReportJobRequest request) {
+        String format = request.getFormat() == null ? "" : request.getFormat().toLowerCase();
+        String dateStr = LocalDate.now().format(FILE_DATE);
+
+        switch (request.getType()) {
+            case SESSION: {
+                Long id = require(request.getSessionId(), "Session ID is required");
+                reportService.requireSession(id);
+                String base = "session_report_" + id + "_" + dateStr;
+                switch (format) {
+                    case "csv":
+                        return rendition("session:" + id, base, "csv", TEXT_CSV, out -> reportService.writeSessionReportCsv(id, out));
+                    case "excel":
+                    case "xlsx":
+                        return rendition("session:" + id, base, "xlsx", EXCEL, out -> reportService.writeSessionReportExcel(id, out));
+                    case "pdf":
+                        return rendition("session:" + id, base, "pdf", PDF, out -> reportService.writeSessionReportPdf(id, out));
+                    default:
+                        return rendition("session:" + id, base, "txt", TEXT_PLAIN, out -> reportService.writeSessionReportTxt(id, out));
+                }
+            }
+            case ALL_REGISTRATIONS: {
+                String base = "all_registrations_" + dateStr;
+                switch (format) {
+                    case "excel":
+                    case "xlsx":
+                        return rendition("all", base, "xlsx", EXCEL, reportService::writeAllRegistrationsExcel);
+                    case "pdf":
+                        return rendition("all", base, "pdf", PDF, reportService::writeAllRegistrationsPdf);
+                    default:
+                        return rendition("all", base, "csv", TEXT_CSV, reportService::writeAllRegistrationsCsv);
+                }
+            }
+            case COURSE: {
+                Long id = require(request.getCourseId(), "Course ID is required");
+                reportService.requireCourse(id);
+                String base = "course_report_" + id + "_" + dateStr;
+                if ("pdf".equals(format)) {
+                    return rendition("course:" + id, base, "pdf", PDF, out -> reportService.writeCourseReportPdf(id, out));
+                }
+                return rendition("course:" + id, base, "txt", TEXT_PLAIN, out -> reportService.writeCourseReportTxt(id, out));
+            }
+            case DATE_RANGE: {
+                LocalDate start = require(request.getStartDate(), "Start date is required");
+                LocalDate end = require(request.getEndDate(), "End date is required");
+                if (end.isBefore(start)) {
+                    throw new BadRequestException("End date must be on or after start date");
+                }
+                String range = start.format(FILE_DATE) + "_to_" + end.format(FILE_DATE);
+                String base = "registrations_" + range;
+                switch (format) {
+                    case "pdf":
+                        return rendition("range:" + range, base, "pdf", PDF, out -> reportService.writeDateRangeReportPdf(start, end, out));
+                    case "excel":
+                    case "xlsx":
+                        return rendition("range:" + range, base, "xlsx", EXCEL, out -> reportService.writeDateRangeReportExcel(start, end, out));
+                    default:
+                        return rendition("range:" + range, base, "csv", TEXT_CSV, out -> reportService.writeDateRangeReportCsv(start, end, out));
+                }
+            }
+            case DEPARTMENT: {
+                String name = require(request.getDepartmentName(), "Department name is required");
+                String base = "department_report_" + name + "_" + dateStr;
+                if ("pdf".equals(format)) {
+                    return rendition("department:" + name, base, "pdf", PDF, out -> reportService.writeDepartmentReportPdf(name, out));
+                }
+                return rendition("department:" + name, base, "xlsx", EXCEL, out -> reportService.writeDepartmentReportExcel(name, out));
+            }
+            default:
+                throw new BadRequestException("Unsupported report type: " + request.getType());
+        }
+    }
+
+    private Rendition rendition(String subject, String baseName, String extension, String mediaType, ReportWriter writer) {
+        return new Rendition(subject + ":" + extension, baseName + "." + extension, extension, mediaType, writer);
+    }
+
+    private static <T> T require(T value, String message) {
+        if (value == null || (value instanceof String && ((String) value).isBlank())) {
+            throw new BadRequestException(message);
+        }
+        return value;
+    }
+
+    private ReportJob findJob(String jobId, String username) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null || !job.requesters.contains(username)) {
+            throw new ResourceNotFoundException("Report job", "id", jobId);
+        }
+        return job;
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) return;
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete report artifact {}: {}", path, e.getMessage());
+        }
+    }
+
+    private ReportJobDTO toDTO(ReportJob job) {
+        return ReportJobDTO.builder()
+                .id(job.id)
+                .type(job.type)
+                .format(job.rendition.extension())
+                .status(job.status.name())
+                .filename(job.rendition.filename())
+                .sizeBytes(job.sizeBytes)
+                .error(job.error)
+                .downloadUrl(job.status == JobStatus.COMPLETED ? "/api/reports/jobs/" + job.id + "/download" : null)
+                .createdAt(job.createdAt)
+                .startedAt(job.startedAt)
+                .completedAt(job.completedAt)
+                .expiresAt(job.expiresAt)
+                .build();
+    }
+
+    // -------------------------------------------------------------------------
+    // TYPES
+    // -------------------------------------------------------------------------
+
+    @FunctionalInterface
+    private interface ReportWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private record Rendition(String key, String filename, String extension, String mediaType, ReportWriter writer) {}
+
+    public record ReportArtifact(Path path, String filename, String mediaType) {}
+
+    private static class ReportJob {
+        private final String id;
+        private final ReportType type;
+        private final Rendition rendition;
+        // Everyone who submitted this report while it was in flight
+        private final Set<String> requesters = ConcurrentHashMap.newKeySet();
+        private final LocalDateTime createdAt = LocalDateTime.now();
+
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime completedAt;
+        private volatile LocalDateTime expiresAt;
+        private volatile Path artifact;
+        private volatile Long sizeBytes;
+        private volatile String error;
+
+        ReportJob(String id, ReportType type, Rendition rendition, String requestedBy) {
+            this.id = id;
+            this.type = type;
+            this.rendition = rendition;
+            this.requesters.add(requestedBy);
+        }
+
+        boolean isInFlight() {
+            return status == JobStatus.QUEUED || status == JobStatus.RUNNING;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.labregistration.service;
+
+import com.labregistration.exception.ResourceNotFoundException;
+import com.labregistration.model.LabSession;
+import com.labregistration.model.Registration;
+import com.labregistration.model.RegistrationStatus;
+import com.labregistration.model.TimeSlot;
+import com.labregistration.repository.LabSessionRepository;
+import com.labregistration.repository.RegistrationRepository;
+import com.labregistration.repository.TimeSlotRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Loads everything a report needs for a set of sessions up front: sessions with their
+ * course and department, all time slots, and all registrations and waitlists with
+ * student, program and department fetched in the same query.
+ *
+ * The number of queries is fixed per report (one per entity type, plus one per
+ * {@value #ID_BATCH_SIZE} ids for very large exports) instead of growing with the number
+ * of slots and students. Exports of every session are loaded
+ * {@value #SESSION_CHUNK_SIZE} sessions at a time instead, so memory is bounded by a
+ * chunk rather than by the whole export.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReportRosterLoader {
+
+    // Keeps IN lists well below driver / database parameter limits
+    static final int ID_BATCH_SIZE = 1000;
+
+    static final int SESSION_CHUNK_SIZE = 50;
+
+    private final LabSessionRepository labSessionRepository;
+    private final TimeSlotRepository timeSlotRepository;
+    private final RegistrationRepository registrationRepository;
+    private final EntityManager entityManager;
+
+    public Roster forSession(Long sessionId) {
+        LabSession session = labSessionRepository.findWithCourseById(sessionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Lab Session", "id", sessionId));
+        return forSessions(List.of(session));
+    }
+
+    /**
+     * Rosters of every session, one chunk of sessions at a time in id order. Sessions are
+     * paged by id, and the persistence context is cleared before each further chunk is
+     * loaded, so a chunk's entities must not be used once iteration moves on. Call within a
+     * read-only transaction.
+     */
+    public Iterable<Roster> forAllSessions() {
+        return () -> new Iterator<>() {
+            private Long afterId = 0L;
+            private boolean exhausted;
+            private List<LabSession> chunk;
+
+            @Override
+            public boolean hasNext() {
+                if (chunk == null && !exhausted) {
+                    if (afterId > 0) {
+                        entityManager.clear();
+                    }
+                    chunk = labSessionRepository.findWithCourseAfterId(afterId, PageRequest.of(0, SESSION_CHUNK_SIZE));
+                    if (chunk.isEmpty()) {
+                        exhausted = true;
+                        chunk = null;
+                    }
+                }
+                return chunk != null;
+            }
+
+            @Override
+            public Roster next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<LabSession> sessions = chunk;
+                chunk = null;
+                afterId = sessions.get(sessions.size() - 1).getId();
+                exhausted = sessions.size() < SESSION_CHUNK_SIZE;
+                return forSessions(sessions);
+            }
+        };
+    }
+
+    public Roster forCourses(Collection<Long> courseIds) {
+        if (courseIds.isEmpty()) {
+            return forSessions(List.of());
+        }
+        return forSessions(inBatches(courseIds, labSessionRepository::findWithCourseByCourseIds));
+    }
+
+    /**
+     * Roster for all slots dated within the range, each with its session and course already loaded.
+     */
+    public Roster forDateRange(LocalDate startDate, LocalDate endDate) {
+        List<TimeSlot> slots = timeSlotRepository.findWithSessionBySessionDateBetween(startDate, endDate);
+        List<LabSession> sessions = slots.stream()
+                .map(TimeSlot::getLabSession)
+                .distinct()
+                .collect(Collectors.toList());
+        return build(sessions, slots, false);
+    }
+
+    private Roster forSessions(List<LabSession> sessions) {
+        List<Long> sessionIds = sessions.stream().map(LabSession::getId).collect(Collectors.toList());
+        List<TimeSlot> slots = sessionIds.isEmpty()
+                ? List.of()
+                : inBatches(sessionIds, timeSlotRepository::findBySessionIdsOrderByDateAndSlot);
+        return build(sessions, slots, true);
+    }
+
+    private Roster build(List<LabSession> sessions, List<TimeSlot> slots, boolean withWaitlists) {
+        List<Long> slotIds = slots.stream().map(TimeSlot::getId).collect(Collectors.toList());
+        List<Registration> registrations = slotIds.isEmpty()
+                ? List.of()
+                : inBatches(slotIds, registrationRepository::findWithStudentByTimeSlotIds);
+
+        List<Registration> waitlisted = List.of();
+        if (withWaitlists && !sessions.isEmpty()) {
+            List<Long> sessionIds = sessions.stream().map(LabSession::getId).collect(Collectors.toList());
+            waitlisted = inBatches(sessionIds, registrationRepository::findWaitlistedWithStudentBySessionIds);
+        }
+
+        return new Roster(sessions, slots,
+                slots.stream().collect(Collectors.groupingBy(s -> s.getLabSession().getId())),
+                registrations.stream().collect(Collectors.groupingBy(r -> r.getTimeSlot().getId())),
+                waitlisted.stream().collect(Collectors.groupingBy(r -> r.getLabSession().getId())));
+    }
+
+    private static <T> List<T> inBatches(Collection<Long> ids, Function<List<Long>, List<T>> query) {
+        List<Long> all = new ArrayList<>(ids);
+        if (all.size() <= ID_BATCH_SIZE) {
+            return query.apply(all);
+        }
+        List<T> result = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += ID_BATCH_SIZE) {
+            result.addAll(query.apply(all.subList(i, Math.min(i + ID_BATCH_SIZE, all.size()))));
+        }
+        return result;
+    }
+
+    /**
+     * Preloaded report data, indexed by session and slot. Lists keep the database ordering
+     * (slots by date then group, waitlists by position).
+     */
+    public static class Roster {
+
+        private final List<LabSession> sessions;
+        private final List<TimeSlot> slots;
+        private final Map<Long, List<TimeSlot>> slotsBySession;
+        private final Map<Long, List<Registration>> registrationsBySlot;
+        private final Map<Long, List<Registration>> waitlistBySession;
+
+        Roster(List<LabSession> sessions,
+               List<TimeSlot> slots,
+               Map<Long, List<TimeSlot>> slotsBySession,
+               Map<Long, List<Registration>> registrationsBySlot,
+               Map<Long, List<Registration>> waitlistBySession) {
+            this.sessions = sessions;
+            this.slots = slots;
+            this.slotsBySession = slotsBySession;
+            this.registrationsBySlot = registrationsBySlot;
+            this.waitlistBySession = waitlistBySession;
+        }
+
+        public List<LabSession> sessions() {
+            return sessions;
+        }
+
+        public List<LabSession> sessionsForCourse(Long courseId) {
+            return sessions.stream()
+                    .filter(s -> s.getCourse().getId().equals(courseId))
+                    .collect(Collectors.toList());
+        }
+
+        /** All loaded slots, in the order they were queried. */
+        public List<TimeSlot> slots() {
+            return slots;
+        }
+
+        public List<TimeSlot> slots(Long sessionId) {
+            return slotsBySession.getOrDefault(sessionId, List.of());
+        }
+
+        /** Every registration in the slot, whatever its status. */
+        public List<Registration> registrations(Long slotId) {
+            return registrationsBySlot.getOrDefault(slotId, List.of());
+        }
+
+        /** Students holding a place in the slot (confirmed or pending). */
+        public List<Registration> rostered(Long slotId) {
+            return registrations(slotId).stream()
+                    .filter(r -> r.getStatus() == RegistrationStatus.CONFIRMED
+                            || r.getStatus() == RegistrationStatus.PENDING)
+                    .collect(Collectors.toList());
+        }
+
+        public List<Registration> waitlisted(Long sessionId) {
+            return waitlistBySession.getOrDefault(sessionId, List.of());
+        }
+    }
+}
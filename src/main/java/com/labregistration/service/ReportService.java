@@ -13,6 +13,7 @@ import com.itextpdf.layout.properties.UnitValue;
 import com.labregistration.exception.ResourceNotFoundException;
 import com.labregistration.model.*;
 import com.labregistration.repository.*;
+import com.labregistration.service.ReportRosterLoader.Roster;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.BorderStyle;
@@ -24,11 +25,18 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -41,9 +49,8 @@ import java.util.stream.Collectors;
 public class ReportService {
 
     private final LabSessionRepository labSessionRepository;
-    private final TimeSlotRepository timeSlotRepository;
-    private final RegistrationRepository registrationRepository;
     private final CourseRepository courseRepository;
+    private final ReportRosterLoader rosterLoader;
 
     // ── Formatters ────────────────────────────────────────────────────────────
     private static final DateTimeFormatter DATE_FORMAT      = DateTimeFormatter.ofPattern("yyyy-MM-dd");
@@ -52,6 +59,9 @@ public class ReportService {
     private static final DateTimeFormatter DATETIME_FORMAT  = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private static final DateTimeFormatter DATETIME_DISPLAY = DateTimeFormatter.ofPattern("dd MMM yyyy, HH:mm");
 
+    // Rows kept in memory per sheet before SXSSF flushes them to its temp file
+    private static final int EXCEL_ROW_WINDOW = 100;
+
     // ── PDF colour palette ────────────────────────────────────────────────────
     private static final DeviceRgb PDF_NAVY       = new DeviceRgb(0x1E, 0x3A, 0x5F);
     private static final DeviceRgb PDF_BLUE       = new DeviceRgb(0x2E, 0x6D, 0xA4);
@@ -73,13 +83,19 @@ public class ReportService {
     // =========================================================================
 
     public byte[] generateSessionReportTxt(Long sessionId) {
-        LabSession session = labSessionRepository.findById(sessionId)
-                .orElseThrow(() -> new ResourceNotFoundException("Lab Session", "id", sessionId));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeSessionReportTxt(sessionId, baos);
+        return baos.toByteArray();
+    }
 
-        List<TimeSlot> slots = timeSlotRepository.findByLabSessionIdOrderByDateAndSlot(sessionId);
+    @Transactional(readOnly = true)
+    public void writeSessionReportTxt(Long sessionId, OutputStream out) {
+        Roster roster = rosterLoader.forSession(sessionId);
+        LabSession session = roster.sessions().get(0);
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        PrintWriter writer = new PrintWriter(baos);
+        List<TimeSlot> slots = roster.slots(sessionId);
+
+        PrintWriter writer = textWriter(out);
 
         writer.println("================================================================================");
         writer.println("                    LAB SESSION REGISTRATION REPORT");
@@ -99,11 +115,7 @@ public class ReportService {
         int totalRegistered = 0;
 
         for (TimeSlot slot : slots) {
-            List<Registration> registrations = registrationRepository.findByTimeSlotId(slot.getId())
-                    .stream()
-                    .filter(r -> r.getStatus() == RegistrationStatus.CONFIRMED
-                            || r.getStatus() == RegistrationStatus.PENDING)
-                    .collect(Collectors.toList());
+            List<Registration> registrations = roster.rostered(slot.getId());
 
             String fill = registrations.isEmpty()
                     ? "EMPTY"
@@ -149,8 +161,7 @@ public class ReportService {
         }
 
         // Waitlist
-        List<Registration> waitlisted = registrationRepository
-                .findByLabSessionIdAndStatusOrderByWaitlistPositionAsc(sessionId, RegistrationStatus.WAITLISTED);
+        List<Registration> waitlisted = roster.waitlisted(sessionId);
 
         if (!waitlisted.isEmpty()) {
             writer.println("================================================================================");
@@ -162,10 +173,12 @@ public class ReportService {
                     "-----", "------------", "-------------------------", "---------------",
                     "--------------------------------", "----------------------", "--------------------");
 
+            // Positions are tickets with gaps; the list is already in queue order
+            int position = 1;
             for (Registration reg : waitlisted) {
                 User s = reg.getStudent();
                 writer.printf("  #%-4d  %-12s  %-25s  %-15s  %-32s  %-22s  %-20s%n",
-                        reg.getWaitlistPosition(),
+                        position++,
                         nullSafe(s.getStudentId()),
                         truncate(s.getFullName(), 25),
                         truncate(s.getUsername(), 15),
@@ -185,7 +198,6 @@ public class ReportService {
         writer.println("================================================================================");
 
         writer.flush();
-        return baos.toByteArray();
     }
 
     // =========================================================================
@@ -193,18 +205,24 @@ public class ReportService {
     // =========================================================================
 
     public byte[] generateSessionReportCsv(Long sessionId) {
-        LabSession session = labSessionRepository.findById(sessionId)
-                .orElseThrow(() -> new ResourceNotFoundException("Lab Session", "id", sessionId));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeSessionReportCsv(sessionId, baos);
+        return baos.toByteArray();
+    }
 
-        List<TimeSlot> slots = timeSlotRepository.findByLabSessionIdOrderByDateAndSlot(sessionId);
+    @Transactional(readOnly = true)
+    public void writeSessionReportCsv(Long sessionId, OutputStream out) {
+        Roster roster = rosterLoader.forSession(sessionId);
+        LabSession session = roster.sessions().get(0);
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        PrintWriter writer = new PrintWriter(baos);
+        List<TimeSlot> slots = roster.slots(sessionId);
+
+        PrintWriter writer = textWriter(out);
 
         writer.println("Group #,Date,Day,Start Time,End Time,Capacity,Student ID,Full Name,Username,Email,Program,Status,Registered At");
 
         for (TimeSlot slot : slots) {
-            List<Registration> registrations = registrationRepository.findByTimeSlotId(slot.getId());
+            List<Registration> registrations = roster.registrations(slot.getId());
             for (Registration reg : registrations) {
                 User s = reg.getStudent();
                 writer.printf("%d,%s,%s,%s,%s,%d,%s,%s,%s,%s,%s,%s,%s%n",
@@ -226,65 +244,71 @@ public class ReportService {
         }
 
         writer.flush();
-        return baos.toByteArray();
     }
 
     public byte[] generateAllRegistrationsCsv() {
-        List<LabSession> sessions = labSessionRepository.findAll();
-
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        PrintWriter writer = new PrintWriter(baos);
+        writeAllRegistrationsCsv(baos);
+        return baos.toByteArray();
+    }
+
+    @Transactional(readOnly = true)
+    public void writeAllRegistrationsCsv(OutputStream out) {
+        PrintWriter writer = textWriter(out);
 
         writer.println("Course Code,Course Name,Level,Department,Session,Group #,Date,Day,Start,End,Student ID,Full Name,Username,Email,Program,Status,Registered At");
 
-        for (LabSession session : sessions) {
-            List<TimeSlot> slots = timeSlotRepository.findByLabSessionIdOrderByDateAndSlot(session.getId());
-            for (TimeSlot slot : slots) {
-                for (Registration reg : registrationRepository.findByTimeSlotId(slot.getId())) {
-                    User s = reg.getStudent();
-                    writer.printf("%s,%s,%s,%s,%s,%d,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s%n",
-                            escapeCsv(session.getCourse().getCourseCode()),
-                            escapeCsv(session.getCourse().getCourseName()),
-                            session.getCourse().getLevel().getDisplayName(),
-                            escapeCsv(session.getCourse().getDepartmentName()),
-                            escapeCsv(session.getName()),
-                            slot.getGroupNumber(),
-                            slot.getSessionDate().format(DATE_FORMAT),
-                            slot.getSessionDate().getDayOfWeek(),
-                            slot.getStartTime().format(TIME_FORMAT),
-                            slot.getEndTime().format(TIME_FORMAT),
-                            escapeCsv(s.getStudentId()),
-                            escapeCsv(s.getFullName()),
-                            escapeCsv(s.getUsername()),
-                            escapeCsv(s.getEmail()),
-                            escapeCsv(s.getProgramName()),
-//                            escapeCsv(s.getPhone()),
-                            reg.getStatus(),
-                            reg.getRegisteredAt().format(DATETIME_FORMAT));
+        for (Roster roster : rosterLoader.forAllSessions()) {
+            for (LabSession session : roster.sessions()) {
+                List<TimeSlot> slots = roster.slots(session.getId());
+                for (TimeSlot slot : slots) {
+                    for (Registration reg : roster.registrations(slot.getId())) {
+                        User s = reg.getStudent();
+                        writer.printf("%s,%s,%s,%s,%s,%d,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s%n",
+                                escapeCsv(session.getCourse().getCourseCode()),
+                                escapeCsv(session.getCourse().getCourseName()),
+                                session.getCourse().getLevel().getDisplayName(),
+                                escapeCsv(session.getCourse().getDepartmentName()),
+                                escapeCsv(session.getName()),
+                                slot.getGroupNumber(),
+                                slot.getSessionDate().format(DATE_FORMAT),
+                                slot.getSessionDate().getDayOfWeek(),
+                                slot.getStartTime().format(TIME_FORMAT),
+                                slot.getEndTime().format(TIME_FORMAT),
+                                escapeCsv(s.getStudentId()),
+                                escapeCsv(s.getFullName()),
+                                escapeCsv(s.getUsername()),
+                                escapeCsv(s.getEmail()),
+                                escapeCsv(s.getProgramName()),
+//                                escapeCsv(s.getPhone()),
+                                reg.getStatus(),
+                                reg.getRegisteredAt().format(DATETIME_FORMAT));
+                    }
                 }
             }
         }
 
         writer.flush();
-        return baos.toByteArray();
     }
 
     public byte[] generateDateRangeReport(LocalDate startDate, LocalDate endDate) {
-        List<TimeSlot> slots = timeSlotRepository
-                .findBySessionDateBetweenOrderBySessionDateAsc(startDate, endDate);
-
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        PrintWriter writer = new PrintWriter(baos);
+        writeDateRangeReportCsv(startDate, endDate, baos);
+        return baos.toByteArray();
+    }
+
+    @Transactional(readOnly = true)
+    public void writeDateRangeReportCsv(LocalDate startDate, LocalDate endDate, OutputStream out) {
+        Roster roster = rosterLoader.forDateRange(startDate, endDate);
+        List<TimeSlot> slots = roster.slots();
+
+        PrintWriter writer = textWriter(out);
 
         writer.println("Date,Day,Start,End,Course,Session,Group #,Student ID,Full Name,Username,Email,Program,Status");
 
         for (TimeSlot slot : slots) {
             LabSession session = slot.getLabSession();
-            List<Registration> registrations = registrationRepository.findByTimeSlotId(slot.getId())
-                    .stream()
-                    .filter(r -> r.getStatus() == RegistrationStatus.CONFIRMED
-                            || r.getStatus() == RegistrationStatus.PENDING)
-                    .collect(Collectors.toList());
+            List<Registration> registrations = roster.rostered(slot.getId());
 
             if (registrations.isEmpty()) {
                 writer.printf("%s,%s,%s,%s,%s,%s,%d,,,,,,EMPTY%n",
@@ -318,17 +342,23 @@ public class ReportService {
         }
 
         writer.flush();
-        return baos.toByteArray();
     }
 
     public byte[] generateCourseReport(Long courseId) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeCourseReportTxt(courseId, baos);
+        return baos.toByteArray();
+    }
+
+    @Transactional(readOnly = true)
+    public void writeCourseReportTxt(Long courseId, OutputStream out) {
         Course course = courseRepository.findById(courseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Course", "id", courseId));
 
-        List<LabSession> sessions = labSessionRepository.findByCourseId(courseId);
+        Roster roster = rosterLoader.forCourses(List.of(courseId));
+        List<LabSession> sessions = roster.sessions();
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        PrintWriter writer = new PrintWriter(baos);
+        PrintWriter writer = textWriter(out);
 
         writer.println("================================================================================");
         writer.println("                     COURSE LAB REGISTRATION REPORT");
@@ -349,13 +379,9 @@ public class ReportService {
                     + "  |  Days: " + String.join(", ", session.getSessionDaysSet()));
             writer.println("================================================================================");
 
-            List<TimeSlot> slots = timeSlotRepository.findByLabSessionIdOrderByDateAndSlot(session.getId());
+            List<TimeSlot> slots = roster.slots(session.getId());
             for (TimeSlot slot : slots) {
-                List<Registration> registrations = registrationRepository.findByTimeSlotId(slot.getId())
-                        .stream()
-                        .filter(r -> r.getStatus() == RegistrationStatus.CONFIRMED
-                                || r.getStatus() == RegistrationStatus.PENDING)
-                        .collect(Collectors.toList());
+                List<Registration> registrations = roster.rostered(slot.getId());
 
                 writer.printf("%n  Group #%d  |  %s (%s)  |  %s-%s  |  %d/%d%n",
                         slot.getGroupNumber(),
@@ -391,7 +417,6 @@ public class ReportService {
         }
 
         writer.flush();
-        return baos.toByteArray();
     }
 
     // =========================================================================
@@ -399,12 +424,20 @@ public class ReportService {
     // =========================================================================
 
     public byte[] generateSessionReportExcel(Long sessionId) throws Exception {
-        LabSession session = labSessionRepository.findById(sessionId)
-                .orElseThrow(() -> new ResourceNotFoundException("Lab Session", "id", sessionId));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeSessionReportExcel(sessionId, baos);
+        return baos.toByteArray();
+    }
 
-        List<TimeSlot> slots = timeSlotRepository.findByLabSessionIdOrderByDateAndSlot(sessionId);
+    @Transactional(readOnly = true)
+    public void writeSessionReportExcel(Long sessionId, OutputStream out) throws IOException {
+        Roster roster = rosterLoader.forSession(sessionId);
+        LabSession session = roster.sessions().get(0);
 
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+        List<TimeSlot> slots = roster.slots(sessionId);
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXCEL_ROW_WINDOW);
+        try {
             CellStyle headerStyle    = createHeaderStyle(workbook);
             CellStyle boldStyle      = createBoldStyle(workbook);
             CellStyle slotTitleStyle = createSlotTitleStyle(workbook);
@@ -413,7 +446,7 @@ public class ReportService {
             CellStyle altDataStyle   = createAltDataStyle(workbook);
 
             // ── Sheet 1: Summary ──────────────────────────────────────────
-            Sheet summarySheet = workbook.createSheet("Summary");
+            Sheet summarySheet = createSheet(workbook, "Summary");
             int rowNum = 0;
 
             org.apache.poi.ss.usermodel.Cell titleCell = summarySheet.createRow(rowNum++).createCell(0);
@@ -471,15 +504,11 @@ public class ReportService {
             for (int i = 0; i < ovCols.length; i++) summarySheet.autoSizeColumn(i);
 
             // ── Sheet 2: Roster by Slot ───────────────────────────────────
-            Sheet rosterSheet = workbook.createSheet("Roster by Group");
+            Sheet rosterSheet = createSheet(workbook, "Roster by Group");
             rowNum = 0;
 
             for (TimeSlot slot : slots) {
-                List<Registration> registrations = registrationRepository.findByTimeSlotId(slot.getId())
-                        .stream()
-                        .filter(r -> r.getStatus() == RegistrationStatus.CONFIRMED
-                                || r.getStatus() == RegistrationStatus.PENDING)
-                        .collect(Collectors.toList());
+                List<Registration> registrations = roster.rostered(slot.getId());
 
                 Row slotRow = rosterSheet.createRow(rowNum++);
                 org.apache.poi.ss.usermodel.Cell slotCell = slotRow.createCell(0);
@@ -530,11 +559,10 @@ public class ReportService {
             for (int i = 0; i < 9; i++) rosterSheet.autoSizeColumn(i);
 
             // ── Sheet 3: Waitlist ─────────────────────────────────────────
-            List<Registration> waitlisted = registrationRepository
-                    .findByLabSessionIdAndStatusOrderByWaitlistPositionAsc(sessionId, RegistrationStatus.WAITLISTED);
+            List<Registration> waitlisted = roster.waitlisted(sessionId);
 
             if (!waitlisted.isEmpty()) {
-                Sheet waitSheet = workbook.createSheet("Waitlist");
+                Sheet waitSheet = createSheet(workbook, "Waitlist");
                 rowNum = 0;
 
                 Row wHdr = waitSheet.createRow(rowNum++);
@@ -550,7 +578,7 @@ public class ReportService {
                     User s = reg.getStudent();
                     CellStyle style = (wCount % 2 == 0) ? altDataStyle : dataStyle;
                     Row row = waitSheet.createRow(rowNum++);
-                    createStyledCell(row, 0, "#" + reg.getWaitlistPosition(), style);
+                    createStyledCell(row, 0, "#" + wCount, style);
                     createStyledCell(row, 1, nullSafe(s.getStudentId()), style);
                     createStyledCell(row, 2, nullSafe(s.getFullName()), style);
                     createStyledCell(row, 3, nullSafe(s.getUsername()), style);
@@ -565,7 +593,7 @@ public class ReportService {
             }
 
             // ── Sheet 4: Flat all-registrations ───────────────────────────
-            Sheet flatSheet = workbook.createSheet("All Registrations");
+            Sheet flatSheet = createSheet(workbook, "All Registrations");
             rowNum = 0;
 
             Row flatHdr = flatSheet.createRow(rowNum++);
@@ -580,7 +608,7 @@ public class ReportService {
 
             int fc = 1;
             for (TimeSlot slot : slots) {
-                for (Registration reg : registrationRepository.findByTimeSlotId(slot.getId())) {
+                for (Registration reg : roster.registrations(slot.getId())) {
                     User s = reg.getStudent();
                     CellStyle style = (fc % 2 == 0) ? altDataStyle : dataStyle;
                     Row row = flatSheet.createRow(rowNum++);
@@ -602,21 +630,28 @@ public class ReportService {
             }
             for (int i = 0; i < flatCols.length; i++) flatSheet.autoSizeColumn(i);
 
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            workbook.write(baos);
-            return baos.toByteArray();
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
         }
     }
 
     public byte[] generateAllRegistrationsExcel() throws Exception {
-        List<LabSession> sessions = labSessionRepository.findAll();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writeAllRegistrationsExcel(baos);
+        return baos.toByteArray();
+    }
 
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+    @Transactional(readOnly = true)
+    public void writeAllRegistrationsExcel(OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXCEL_ROW_WINDOW);
+        try {
             CellStyle headerStyle  = createHeaderStyle(workbook);
             CellStyle dataStyle    = createDataStyle(workbook);
             CellStyle altDataStyle = createAltDataStyle(workbook);
 
-            Sheet sheet = workbook.createSheet("All Registrations");
+            Sheet sheet = createSheet(workbook, "All Registrations");
             int rowNum = 0;
 
             Row hdr = sheet.createRow(rowNum++);
@@ -631,45 +666,61 @@ public class ReportService {
             }
 
             int count = 1;
-            for (LabSession session : sessions) {
-                for (TimeSlot slot : timeSlotRepository.findByLabSessionIdOrderByDateAndSlot(session.getId())) {
-                    for (Registration reg : registrationRepository.findByTimeSlotId(slot.getId())) {
-                        User s = reg.getStudent();
-                        CellStyle style = (count % 2 == 0) ? altDataStyle : dataStyle;
-                        Row row = sheet.createRow(rowNum++);
-                        createStyledCell(row, 0,  session.getCourse().getCourseCode(), style);
-                        createStyledCell(row, 1,  session.getCourse().getCourseName(), style);
-                        createStyledCell(row, 2,  session.getCourse().getLevel().getDisplayName(), style);
-                        createStyledCell(row, 3,  session.getCourse().getDepartmentName(), style);
-                        createStyledCell(row, 4,  session.getName(), style);
-                        createStyledCell(row, 5,  "Slot #" + slot.getGroupNumber(), style);
-                        createStyledCell(row, 6,  slot.getSessionDate().format(DATE_FORMAT), style);
-                        createStyledCell(row, 7,  slot.getSessionDate().getDayOfWeek().toString(), style);
-                        createStyledCell(row, 8,  slot.getStartTime().format(TIME_FORMAT), style);
-                        createStyledCell(row, 9,  slot.getEndTime().format(TIME_FORMAT), style);
-                        createStyledCell(row, 10, nullSafe(s.getStudentId()), style);
-                        createStyledCell(row, 11, nullSafe(s.getFullName()), style);
-                        createStyledCell(row, 12, nullSafe(s.getUsername()), style);
-                        createStyledCell(row, 13, nullSafe(s.getEmail()), style);
-                        createStyledCell(row, 14, nullSafe(s.getProgramName()), style);
-//                        createStyledCell(row, 15, nullSafe(s.getPhone()), style);
-                        createStyledCell(row, 16, reg.getStatus().name(), style);
-                        createStyledCell(row, 17, reg.getRegisteredAt().format(DATETIME_FORMAT), style);
-                        count++;
+            for (Roster roster : rosterLoader.forAllSessions()) {
+                for (LabSession session : roster.sessions()) {
+                    for (TimeSlot slot : roster.slots(session.getId())) {
+                        for (Registration reg : roster.registrations(slot.getId())) {
+                            User s = reg.getStudent();
+                            CellStyle style = (count % 2 == 0) ? altDataStyle : dataStyle;
+                            Row row = sheet.createRow(rowNum++);
+                            createStyledCell(row, 0,  session.getCourse().getCourseCode(), style);
+                            createStyledCell(row, 1,  session.getCourse().getCourseName(), style);
+                            createStyledCell(row, 2,  session.getCourse().getLevel().getDisplayName(), style);
+                            createStyledCell(row, 3,  session.getCourse().getDepartmentName(), style);
+                            createStyledCell(row, 4,  session.getName(), style);
+                            createStyledCell(row, 5,  "Slot #" + slot.getGroupNumber(), style);
+                            createStyledCell(row, 6,  slot.getSessionDate().format(DATE_FORMAT), style);
+                            createStyledCell(row, 7,  slot.getSessionDate().getDayOfWeek().toString(), style);
+                            createStyledCell(row, 8,  slot.getStartTime().format(TIME_FORMAT), style);
+                            createStyledCell(row, 9,  slot.getEndTime().format(TIME_FORMAT), style);
+                            createStyledCell(row, 10, nullSafe(s.getStudentId()), style);
+                            createStyledCell(row, 11, nullSafe(s.getFullName()), style);
+                            createStyledCell(row, 12, nullSafe(s.getUsername()), style);
+                            createStyledCell(row, 13, nullSafe(s.getEmail()), style);
+                            createStyledCell(row, 14, nullSafe(s.getProgramName()), style);
+//                            createStyledCell(row, 15, nullSafe(s.getPhone()), style);
+                            createStyledCell(row, 16, reg.getStatus().name(), style);
+                            createStyledCell(row, 17, reg.getRegisteredAt().format(DATETIME_FORMAT), style);
+                            count++;
+                        }
                     }
                 }
             }
 
             for (int i = 0; i < cols.length; i++) sheet.autoSizeColumn(i);
 
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    public byte[] generateDateRangeReportExcel(LocalDate startDate, LocalDate endDate) {
+        try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            workbook.write(baos);
+            writeDateRangeReportExcel(startDate, endDate, baos);
             return baos.toByteArray();
+        } catch (IOException e) {
+            log.error("Error generating date range Excel: {}", e.getMessage());
+            throw new RuntimeException("Failed to generate Excel report", e);
         }
     }
 
-    public byte[] generateDateRangeReportExcel(LocalDate startDate, LocalDate endDate) {
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+    @Transactional(readOnly = true)
+    public void writeDateRangeReportExcel(LocalDate startDate, LocalDate endDate, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXCEL_ROW_WINDOW);
+        try {
             CellStyle headerStyle  = createHeaderStyle(workbook);
             CellStyle boldStyle    = createBoldStyle(workbook);
             CellStyle slotStyle    = createSlotTitleStyle(workbook);
@@ -677,7 +728,7 @@ public class ReportService {
             CellStyle dataStyle    = createDataStyle(workbook);
             CellStyle altDataStyle = createAltDataStyle(workbook);
 
-            Sheet sheet = workbook.createSheet("Date Range Report");
+            Sheet sheet = createSheet(workbook, "Date Range Report");
             int rowNum = 0;
 
             org.apache.poi.ss.usermodel.Cell titleCell = sheet.createRow(rowNum++).createCell(0);
@@ -686,16 +737,12 @@ public class ReportService {
             sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 8));
             rowNum++;
 
-            List<TimeSlot> slots = timeSlotRepository
-                    .findBySessionDateBetweenOrderBySessionDateAsc(startDate, endDate);
+            Roster roster = rosterLoader.forDateRange(startDate, endDate);
+            List<TimeSlot> slots = roster.slots();
 
             for (TimeSlot slot : slots) {
                 LabSession session = slot.getLabSession();
-                List<Registration> registrations = registrationRepository.findByTimeSlotId(slot.getId())
-                        .stream()
-                        .filter(r -> r.getStatus() == RegistrationStatus.CONFIRMED
-                                || r.getStatus() == RegistrationStatus.PENDING)
-                        .collect(Collectors.toList());
+                List<Registration> registrations = roster.rostered(slot.getId());
 
                 Row slotRow = sheet.createRow(rowNum++);
                 org.apache.poi.ss.usermodel.Cell slotCell = slotRow.createCell(0);
@@ -735,17 +782,28 @@ public class ReportService {
 
             for (int i = 0; i < 9; i++) sheet.autoSizeColumn(i);
 
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    public byte[] generateDepartmentReportExcel(String departmentName) {
+        try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            workbook.write(baos);
+            writeDepartmentReportExcel(departmentName, baos);
             return baos.toByteArray();
-        } catch (Exception e) {
-            log.error("Error generating date range Excel: {}", e.getMessage());
+        } catch (IOException e) {
+            log.error("Error generating department Excel: {}", e.getMessage());
             throw new RuntimeException("Failed to generate Excel report", e);
         }
     }
 
-    public byte[] generateDepartmentReportExcel(String departmentName) {
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+    @Transactional(readOnly = true)
+    public void writeDepartmentReportExcel(String departmentName, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXCEL_ROW_WINDOW);
+        try {
             CellStyle headerStyle  = createHeaderStyle(workbook);
             CellStyle boldStyle    = createBoldStyle(workbook);
             CellStyle slotStyle    = createSlotTitleStyle(workbook);
@@ -753,7 +811,7 @@ public class ReportService {
             CellStyle dataStyle    = createDataStyle(workbook);
             CellStyle altDataStyle = createAltDataStyle(workbook);
 
-            Sheet sheet = workbook.createSheet("Department Report");
+            Sheet sheet = createSheet(workbook, "Department Report");
             int rowNum = 0;
 
             org.apache.poi.ss.usermodel.Cell titleCell = sheet.createRow(rowNum++).createCell(0);
@@ -764,6 +822,7 @@ public class ReportService {
             rowNum++;
 
             List<Course> courses = courseRepository.findByDepartmentName(departmentName);
+            Roster roster = rosterLoader.forCourses(courses.stream().map(Course::getId).collect(Collectors.toList()));
             for (Course course : courses) {
                 Row courseRow = sheet.createRow(rowNum++);
                 org.apache.poi.ss.usermodel.Cell courseCell = courseRow.createCell(0);
@@ -773,13 +832,9 @@ public class ReportService {
                 courseCell.setCellStyle(boldStyle);
                 sheet.addMergedRegion(new CellRangeAddress(rowNum - 1, rowNum - 1, 0, 9));
 
-                for (LabSession session : labSessionRepository.findByCourseId(course.getId())) {
-                    for (TimeSlot slot : timeSlotRepository.findByLabSessionIdOrderByDateAndSlot(session.getId())) {
-                        List<Registration> registrations = registrationRepository.findByTimeSlotId(slot.getId())
-                                .stream()
-                                .filter(r -> r.getStatus() == RegistrationStatus.CONFIRMED
-                                        || r.getStatus() == RegistrationStatus.PENDING)
-                                .collect(Collectors.toList());
+                for (LabSession session : roster.sessionsForCourse(course.getId())) {
+                    for (TimeSlot slot : roster.slots(session.getId())) {
+                        List<Registration> registrations = roster.rostered(slot.getId());
 
                         Row slotRow = sheet.createRow(rowNum++);
                         org.apache.poi.ss.usermodel.Cell slotCell = slotRow.createCell(0);
@@ -827,12 +882,10 @@ public class ReportService {
 
             for (int i = 0; i < 10; i++) sheet.autoSizeColumn(i);
 
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            workbook.write(baos);
-            return baos.toByteArray();
-        } catch (Exception e) {
-            log.error("Error generating department Excel: {}", e.getMessage());
-            throw new RuntimeException("Failed to generate Excel report", e);
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
         }
     }
 
@@ -847,105 +900,115 @@ public class ReportService {
      *           per-group rosters → waitlist → summary footer.
      */
     public byte[] generateSessionReportPdf(Long sessionId) {
-        LabSession session = labSessionRepository.findById(sessionId)
-                .orElseThrow(() -> new ResourceNotFoundException("Lab Session", "id", sessionId));
-
-        List<TimeSlot> slots = timeSlotRepository.findByLabSessionIdOrderByDateAndSlot(sessionId);
-        List<Registration> waitlisted = registrationRepository
-                .findByLabSessionIdAndStatusOrderByWaitlistPositionAsc(sessionId, RegistrationStatus.WAITLISTED);
-
         try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            PdfDocument pdf = new PdfDocument(new PdfWriter(baos));
-            Document doc = new Document(pdf, PageSize.A4.rotate());
-            doc.setMargins(36, 36, 36, 36);
+            writeSessionReportPdf(sessionId, baos);
+            return baos.toByteArray();
+        } catch (ResourceNotFoundException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error generating professional PDF for session {}: {}", sessionId, e.getMessage(), e);
+            return convertTxtToPdf(new String(generateSessionReportTxt(sessionId)), "Lab Session Registration Report");
+        }
+    }
 
-            // 1. Header bar
-            doc.add(pdfBuildReportHeader(session));
-            doc.add(pdfSpacer(8));
+    @Transactional(readOnly = true)
+    public void writeSessionReportPdf(Long sessionId, OutputStream out) {
+        Roster roster = rosterLoader.forSession(sessionId);
+        LabSession session = roster.sessions().get(0);
 
-            // 2. Session info card
-            doc.add(pdfBuildSessionInfoCard(session));
-            doc.add(pdfSpacer(12));
+        List<TimeSlot> slots = roster.slots(sessionId);
+        List<Registration> waitlisted = roster.waitlisted(sessionId);
 
-            // 3. Groups overview
-            doc.add(pdfSectionTitle("Groups Overview", PDF_NAVY));
-            doc.add(pdfSpacer(4));
-            doc.add(pdfBuildGroupsOverviewTable(slots));
-            doc.add(pdfSpacer(16));
+        Document doc = openPdfDocument(out);
 
-            // 4. Per-group rosters
-            doc.add(pdfSectionTitle("Student Rosters by Group", PDF_NAVY));
-            doc.add(pdfSpacer(4));
+        // 1. Header bar
+        doc.add(pdfBuildReportHeader(session));
+        doc.add(pdfSpacer(8));
 
-            int totalRegistered = 0;
-            for (TimeSlot slot : slots) {
-                List<Registration> regs = registrationRepository.findByTimeSlotId(slot.getId())
-                        .stream()
-                        .filter(r -> r.getStatus() == RegistrationStatus.CONFIRMED
-                                || r.getStatus() == RegistrationStatus.PENDING)
-                        .collect(Collectors.toList());
-                totalRegistered += regs.size();
+        // 2. Session info card
+        doc.add(pdfBuildSessionInfoCard(session));
+        doc.add(pdfSpacer(12));
 
-                doc.add(pdfBuildGroupBanner(slot, regs.size()));
-                doc.add(pdfSpacer(3));
-                if (regs.isEmpty()) {
-                    doc.add(new Paragraph("No students registered for this group.")
-                            .setFontColor(PDF_EMPTY).setItalic().setFontSize(8).setPaddingLeft(10));
-                } else {
-                    doc.add(pdfBuildRosterTable(regs));
-                }
-                doc.add(pdfSpacer(10));
-            }
+        // 3. Groups overview
+        doc.add(pdfSectionTitle("Groups Overview", PDF_NAVY));
+        doc.add(pdfSpacer(4));
+        doc.add(pdfBuildGroupsOverviewTable(slots));
+        doc.add(pdfSpacer(16));
 
-            // 5. Waitlist
-            if (!waitlisted.isEmpty()) {
-                doc.add(pdfSectionTitle("Waitlisted Students", PDF_WAITLIST));
-                doc.add(pdfSpacer(4));
-                doc.add(pdfBuildWaitlistTable(waitlisted));
-                doc.add(pdfSpacer(16));
+        // 4. Per-group rosters
+        doc.add(pdfSectionTitle("Student Rosters by Group", PDF_NAVY));
+        doc.add(pdfSpacer(4));
+
+        int totalRegistered = 0;
+        for (TimeSlot slot : slots) {
+            List<Registration> regs = roster.rostered(slot.getId());
+            totalRegistered += regs.size();
+
+            doc.add(pdfBuildGroupBanner(slot, regs.size()));
+            doc.add(pdfSpacer(3));
+            if (regs.isEmpty()) {
+                doc.add(new Paragraph("No students registered for this group.")
+                        .setFontColor(PDF_EMPTY).setItalic().setFontSize(8).setPaddingLeft(10));
+            } else {
+                doc.add(pdfBuildRosterTable(regs));
             }
+            doc.add(pdfSpacer(10));
+        }
 
-            // 6. Summary footer
-            doc.add(pdfBuildSummaryFooter(slots.size(), totalRegistered, waitlisted.size(), session.getTotalCapacity()));
+        // 5. Waitlist
+        if (!waitlisted.isEmpty()) {
+            doc.add(pdfSectionTitle("Waitlisted Students", PDF_WAITLIST));
+            doc.add(pdfSpacer(4));
+            doc.add(pdfBuildWaitlistTable(waitlisted));
+            doc.add(pdfSpacer(16));
+        }
 
-            doc.close();
-            return baos.toByteArray();
+        // 6. Summary footer
+        doc.add(pdfBuildSummaryFooter(slots.size(), totalRegistered, waitlisted.size(), session.getTotalCapacity()));
 
-        } catch (Exception e) {
-            log.error("Error generating professional PDF for session {}: {}", sessionId, e.getMessage(), e);
-            return convertTxtToPdf(new String(generateSessionReportTxt(sessionId)), "Lab Session Registration Report");
-        }
+        doc.close();
     }
 
     public byte[] generateAllRegistrationsPdf() {
-        List<LabSession> sessions = labSessionRepository.findAll();
-
         try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            PdfDocument pdf = new PdfDocument(new PdfWriter(baos));
-            Document doc = new Document(pdf, PageSize.A4.rotate());
-            doc.setMargins(36, 36, 36, 36);
-
-            // Header bar
-            Table header = pdfFullWidthTable(2);
-            header.addCell(new Cell().setBorder(null).setBackgroundColor(PDF_NAVY).setPadding(12)
-                    .add(new Paragraph("ALL REGISTRATIONS REPORT")
-                            .setFontColor(PDF_WHITE).setBold().setFontSize(16))
-                    .add(new Paragraph("Complete export across all sessions and departments")
-                            .setFontColor(PDF_LIGHT_BLUE).setFontSize(10)));
-            header.addCell(new Cell().setBorder(null).setBackgroundColor(PDF_NAVY).setPadding(12)
-                    .setTextAlignment(TextAlignment.RIGHT)
-                    .add(new Paragraph("Generated").setFontColor(PDF_LIGHT_BLUE).setFontSize(8))
-                    .add(new Paragraph(LocalDateTime.now().format(DATETIME_DISPLAY))
-                            .setFontColor(PDF_WHITE).setFontSize(9)));
-            doc.add(header);
-            doc.add(pdfSpacer(14));
+            writeAllRegistrationsPdf(baos);
+            return baos.toByteArray();
+        } catch (ResourceNotFoundException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error generating all-registrations PDF: {}", e.getMessage(), e);
+            return convertTxtToPdf(new String(generateAllRegistrationsCsv()), "All Registrations Report");
+        }
+    }
 
-            int grandTotal = 0;
+    @Transactional(readOnly = true)
+    public void writeAllRegistrationsPdf(OutputStream out) {
+        Document doc = openPdfDocument(out);
 
-            for (LabSession session : sessions) {
-                List<TimeSlot> slots = timeSlotRepository.findByLabSessionIdOrderByDateAndSlot(session.getId());
+        // Header bar
+        Table header = pdfFullWidthTable(2);
+        header.addCell(new Cell().setBorder(null).setBackgroundColor(PDF_NAVY).setPadding(12)
+                .add(new Paragraph("ALL REGISTRATIONS REPORT")
+                        .setFontColor(PDF_WHITE).setBold().setFontSize(16))
+                .add(new Paragraph("Complete export across all sessions and departments")
+                        .setFontColor(PDF_LIGHT_BLUE).setFontSize(10)));
+        header.addCell(new Cell().setBorder(null).setBackgroundColor(PDF_NAVY).setPadding(12)
+                .setTextAlignment(TextAlignment.RIGHT)
+                .add(new Paragraph("Generated").setFontColor(PDF_LIGHT_BLUE).setFontSize(8))
+                .add(new Paragraph(LocalDateTime.now().format(DATETIME_DISPLAY))
+                        .setFontColor(PDF_WHITE).setFontSize(9)));
+        doc.add(header);
+        doc.add(pdfSpacer(14));
+
+        int grandTotal = 0;
+        int sessionCount = 0;
+
+        for (Roster roster : rosterLoader.forAllSessions()) {
+            for (LabSession session : roster.sessions()) {
+                sessionCount++;
+                List<TimeSlot> slots = roster.slots(session.getId());
                 if (slots.isEmpty()) continue;
 
                 // Session banner — dark blue
@@ -962,11 +1025,7 @@ public class ReportService {
                 doc.add(pdfSpacer(4));
 
                 for (TimeSlot slot : slots) {
-                    List<Registration> regs = registrationRepository.findByTimeSlotId(slot.getId())
-                            .stream()
-                            .filter(r -> r.getStatus() == RegistrationStatus.CONFIRMED
-                                    || r.getStatus() == RegistrationStatus.PENDING)
-                            .collect(Collectors.toList());
+                    List<Registration> regs = roster.rostered(slot.getId());
                     grandTotal += regs.size();
 
                     doc.add(pdfBuildGroupBanner(slot, regs.size()));
@@ -981,195 +1040,92 @@ public class ReportService {
                 }
                 doc.add(pdfSpacer(8));
             }
+        }
 
-            // Summary footer
-            doc.add(pdfBuildSummaryFooter(sessions.size(), grandTotal, 0, 0));
-
-            doc.close();
-            return baos.toByteArray();
+        // Summary footer
+        doc.add(pdfBuildSummaryFooter(sessionCount, grandTotal, 0, 0));
 
-        } catch (Exception e) {
-            log.error("Error generating all-registrations PDF: {}", e.getMessage(), e);
-            return convertTxtToPdf(new String(generateAllRegistrationsCsv()), "All Registrations Report");
-        }
+        doc.close();
     }
 
     public byte[] generateCourseReportPdf(Long courseId) {
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new ResourceNotFoundException("Course", "id", courseId));
-        List<LabSession> sessions = labSessionRepository.findByCourseId(courseId);
-
         try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            PdfDocument pdf = new PdfDocument(new PdfWriter(baos));
-            Document doc = new Document(pdf, PageSize.A4.rotate());
-            doc.setMargins(36, 36, 36, 36);
-
-            // Header bar
-            Table header = pdfFullWidthTable(2);
-            header.addCell(new Cell().setBorder(null).setBackgroundColor(PDF_NAVY).setPadding(12)
-                    .add(new Paragraph("COURSE LAB REGISTRATION REPORT")
-                            .setFontColor(PDF_WHITE).setBold().setFontSize(16))
-                    .add(new Paragraph(course.getCourseCode() + "  –  " + course.getCourseName())
-                            .setFontColor(PDF_LIGHT_BLUE).setFontSize(11)));
-            header.addCell(new Cell().setBorder(null).setBackgroundColor(PDF_NAVY).setPadding(12)
-                    .setTextAlignment(TextAlignment.RIGHT)
-                    .add(new Paragraph("Generated").setFontColor(PDF_LIGHT_BLUE).setFontSize(8))
-                    .add(new Paragraph(LocalDateTime.now().format(DATETIME_DISPLAY))
-                            .setFontColor(PDF_WHITE).setFontSize(9)));
-            doc.add(header);
-            doc.add(pdfSpacer(8));
-
-            // Course info card
-            Table info = pdfFullWidthTable(4);
-            info.setBorder(new SolidBorder(PDF_BORDER, 1));
-            pdfAddInfoCell(info, "Course Code",  course.getCourseCode());
-            pdfAddInfoCell(info, "Course Name",  course.getCourseName());
-            pdfAddInfoCell(info, "Level",        course.getLevel().getDisplayName());
-            pdfAddInfoCell(info, "Department",   course.getDepartment().toString());
-            doc.add(info);
-            doc.add(pdfSpacer(14));
-
-            int totalRegistered = 0;
-
-            for (LabSession session : sessions) {
-                List<TimeSlot> slots = timeSlotRepository.findByLabSessionIdOrderByDateAndSlot(session.getId());
-
-                // Session banner
-                Table sessionBanner = pdfFullWidthTable(1);
-                sessionBanner.addCell(new Cell().setBackgroundColor(PDF_NAVY).setBorder(null)
-                        .setPaddingTop(7).setPaddingBottom(7).setPaddingLeft(12).setPaddingRight(12)
-                        .add(new Paragraph(
-                                "Session: " + session.getName()
-                                        + "   |   " + session.getStartDate().format(DATE_DISPLAY)
-                                        + "  →  " + session.getEndDate().format(DATE_DISPLAY)
-                                        + "   |   Days: " + String.join(", ", session.getSessionDaysSet())
-                                        + "   |   Status: " + session.getStatus())
-                                .setFontColor(PDF_WHITE).setBold().setFontSize(9)));
-                doc.add(sessionBanner);
-                doc.add(pdfSpacer(4));
-
-                // Groups overview for this session
-                doc.add(pdfSectionTitle("Groups Overview", PDF_COL_HDR));
-                doc.add(pdfSpacer(3));
-                doc.add(pdfBuildGroupsOverviewTable(slots));
-                doc.add(pdfSpacer(10));
-
-                // Per-group rosters
-                doc.add(pdfSectionTitle("Student Rosters", PDF_NAVY));
-                doc.add(pdfSpacer(4));
-
-                for (TimeSlot slot : slots) {
-                    List<Registration> regs = registrationRepository.findByTimeSlotId(slot.getId())
-                            .stream()
-                            .filter(r -> r.getStatus() == RegistrationStatus.CONFIRMED
-                                    || r.getStatus() == RegistrationStatus.PENDING)
-                            .collect(Collectors.toList());
-                    totalRegistered += regs.size();
-
-                    doc.add(pdfBuildGroupBanner(slot, regs.size()));
-                    doc.add(pdfSpacer(3));
-                    if (regs.isEmpty()) {
-                        doc.add(new Paragraph("No students registered for this group.")
-                                .setFontColor(PDF_EMPTY).setItalic().setFontSize(8).setPaddingLeft(10));
-                    } else {
-                        doc.add(pdfBuildRosterTable(regs));
-                    }
-                    doc.add(pdfSpacer(8));
-                }
-
-                // Waitlist for this session
-                List<Registration> waitlisted = registrationRepository
-                        .findByLabSessionIdAndStatusOrderByWaitlistPositionAsc(session.getId(), RegistrationStatus.WAITLISTED);
-                if (!waitlisted.isEmpty()) {
-                    doc.add(pdfSectionTitle("Waitlisted Students", PDF_WAITLIST));
-                    doc.add(pdfSpacer(4));
-                    doc.add(pdfBuildWaitlistTable(waitlisted));
-                }
-                doc.add(pdfSpacer(14));
-            }
-
-            // Summary footer
-            doc.add(pdfBuildSummaryFooter(sessions.size(), totalRegistered, 0, 0));
-
-            doc.close();
+            writeCourseReportPdf(courseId, baos);
             return baos.toByteArray();
-
+        } catch (ResourceNotFoundException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error generating course PDF for course {}: {}", courseId, e.getMessage(), e);
             return convertTxtToPdf(new String(generateCourseReport(courseId)), "Course Lab Registration Report");
         }
     }
 
-    public byte[] generateDateRangeReportPdf(LocalDate startDate, LocalDate endDate) {
-        List<TimeSlot> slots = timeSlotRepository
-                .findBySessionDateBetweenOrderBySessionDateAsc(startDate, endDate);
+    @Transactional(readOnly = true)
+    public void writeCourseReportPdf(Long courseId, OutputStream out) {
+        Course course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new ResourceNotFoundException("Course", "id", courseId));
+        Roster roster = rosterLoader.forCourses(List.of(courseId));
+        List<LabSession> sessions = roster.sessions();
 
-        try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            PdfDocument pdf = new PdfDocument(new PdfWriter(baos));
-            Document doc = new Document(pdf, PageSize.A4.rotate());
-            doc.setMargins(36, 36, 36, 36);
-
-            // Header bar
-            Table header = pdfFullWidthTable(2);
-            header.addCell(new Cell().setBorder(null).setBackgroundColor(PDF_NAVY).setPadding(12)
-                    .add(new Paragraph("DATE RANGE REGISTRATION REPORT")
-                            .setFontColor(PDF_WHITE).setBold().setFontSize(16))
-                    .add(new Paragraph(startDate.format(DATE_DISPLAY) + "  →  " + endDate.format(DATE_DISPLAY))
-                            .setFontColor(PDF_LIGHT_BLUE).setFontSize(11)));
-            header.addCell(new Cell().setBorder(null).setBackgroundColor(PDF_NAVY).setPadding(12)
-                    .setTextAlignment(TextAlignment.RIGHT)
-                    .add(new Paragraph("Generated").setFontColor(PDF_LIGHT_BLUE).setFontSize(8))
-                    .add(new Paragraph(LocalDateTime.now().format(DATETIME_DISPLAY))
-                            .setFontColor(PDF_WHITE).setFontSize(9)));
-            doc.add(header);
-            doc.add(pdfSpacer(14));
+        Document doc = openPdfDocument(out);
 
-            if (slots.isEmpty()) {
-                doc.add(new Paragraph("No time slots found for the selected date range.")
-                        .setFontColor(PDF_EMPTY).setItalic().setFontSize(10));
-                doc.close();
-                return baos.toByteArray();
-            }
+        // Header bar
+        Table header = pdfFullWidthTable(2);
+        header.addCell(new Cell().setBorder(null).setBackgroundColor(PDF_NAVY).setPadding(12)
+                .add(new Paragraph("COURSE LAB REGISTRATION REPORT")
+                        .setFontColor(PDF_WHITE).setBold().setFontSize(16))
+                .add(new Paragraph(course.getCourseCode() + "  –  " + course.getCourseName())
+                        .setFontColor(PDF_LIGHT_BLUE).setFontSize(11)));
+        header.addCell(new Cell().setBorder(null).setBackgroundColor(PDF_NAVY).setPadding(12)
+                .setTextAlignment(TextAlignment.RIGHT)
+                .add(new Paragraph("Generated").setFontColor(PDF_LIGHT_BLUE).setFontSize(8))
+                .add(new Paragraph(LocalDateTime.now().format(DATETIME_DISPLAY))
+                        .setFontColor(PDF_WHITE).setFontSize(9)));
+        doc.add(header);
+        doc.add(pdfSpacer(8));
+
+        // Course info card
+        Table info = pdfFullWidthTable(4);
+        info.setBorder(new SolidBorder(PDF_BORDER, 1));
+        pdfAddInfoCell(info, "Course Code",  course.getCourseCode());
+        pdfAddInfoCell(info, "Course Name",  course.getCourseName());
+        pdfAddInfoCell(info, "Level",        course.getLevel().getDisplayName());
+        pdfAddInfoCell(info, "Department",   course.getDepartment().toString());
+        doc.add(info);
+        doc.add(pdfSpacer(14));
 
-            // Overview table — all slots in range
-            doc.add(pdfSectionTitle("Slots in Range (" + slots.size() + " total)", PDF_NAVY));
+        int totalRegistered = 0;
+
+        for (LabSession session : sessions) {
+            List<TimeSlot> slots = roster.slots(session.getId());
+
+            // Session banner
+            Table sessionBanner = pdfFullWidthTable(1);
+            sessionBanner.addCell(new Cell().setBackgroundColor(PDF_NAVY).setBorder(null)
+                    .setPaddingTop(7).setPaddingBottom(7).setPaddingLeft(12).setPaddingRight(12)
+                    .add(new Paragraph(
+                            "Session: " + session.getName()
+                                    + "   |   " + session.getStartDate().format(DATE_DISPLAY)
+                                    + "  →  " + session.getEndDate().format(DATE_DISPLAY)
+                                    + "   |   Days: " + String.join(", ", session.getSessionDaysSet())
+                                    + "   |   Status: " + session.getStatus())
+                            .setFontColor(PDF_WHITE).setBold().setFontSize(9)));
+            doc.add(sessionBanner);
             doc.add(pdfSpacer(4));
+
+            // Groups overview for this session
+            doc.add(pdfSectionTitle("Groups Overview", PDF_COL_HDR));
+            doc.add(pdfSpacer(3));
             doc.add(pdfBuildGroupsOverviewTable(slots));
-            doc.add(pdfSpacer(16));
+            doc.add(pdfSpacer(10));
 
-            // Per-slot rosters
-            doc.add(pdfSectionTitle("Student Rosters by Group", PDF_NAVY));
+            // Per-group rosters
+            doc.add(pdfSectionTitle("Student Rosters", PDF_NAVY));
             doc.add(pdfSpacer(4));
 
-            int totalRegistered = 0;
-
-            // Group slots by session for cleaner organisation
-            LabSession currentSession = null;
             for (TimeSlot slot : slots) {
-                LabSession session = slot.getLabSession();
-
-                // Print a session divider when session changes
-                if (currentSession == null || !currentSession.getId().equals(session.getId())) {
-                    if (currentSession != null) doc.add(pdfSpacer(6));
-                    Table sessionBanner = pdfFullWidthTable(1);
-                    sessionBanner.addCell(new Cell().setBackgroundColor(PDF_NAVY).setBorder(null)
-                            .setPaddingTop(6).setPaddingBottom(6).setPaddingLeft(12).setPaddingRight(12)
-                            .add(new Paragraph(
-                                    session.getCourse().getCourseCode() + "  –  " + session.getName()
-                                            + "   |   " + session.getCourse().getDepartment())
-                                    .setFontColor(PDF_WHITE).setBold().setFontSize(9)));
-                    doc.add(sessionBanner);
-                    doc.add(pdfSpacer(4));
-                    currentSession = session;
-                }
-
-                List<Registration> regs = registrationRepository.findByTimeSlotId(slot.getId())
-                        .stream()
-                        .filter(r -> r.getStatus() == RegistrationStatus.CONFIRMED
-                                || r.getStatus() == RegistrationStatus.PENDING)
-                        .collect(Collectors.toList());
+                List<Registration> regs = roster.rostered(slot.getId());
                 totalRegistered += regs.size();
 
                 doc.add(pdfBuildGroupBanner(slot, regs.size()));
@@ -1183,12 +1139,29 @@ public class ReportService {
                 doc.add(pdfSpacer(8));
             }
 
-            // Summary footer
-            doc.add(pdfBuildSummaryFooter(slots.size(), totalRegistered, 0, 0));
+            // Waitlist for this session
+            List<Registration> waitlisted = roster.waitlisted(session.getId());
+            if (!waitlisted.isEmpty()) {
+                doc.add(pdfSectionTitle("Waitlisted Students", PDF_WAITLIST));
+                doc.add(pdfSpacer(4));
+                doc.add(pdfBuildWaitlistTable(waitlisted));
+            }
+            doc.add(pdfSpacer(14));
+        }
 
-            doc.close();
-            return baos.toByteArray();
+        // Summary footer
+        doc.add(pdfBuildSummaryFooter(sessions.size(), totalRegistered, 0, 0));
 
+        doc.close();
+    }
+
+    public byte[] generateDateRangeReportPdf(LocalDate startDate, LocalDate endDate) {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            writeDateRangeReportPdf(startDate, endDate, baos);
+            return baos.toByteArray();
+        } catch (ResourceNotFoundException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error generating date range PDF ({} to {}): {}", startDate, endDate, e.getMessage(), e);
             return convertTxtToPdf(new String(generateDateRangeReport(startDate, endDate)),
@@ -1196,112 +1169,212 @@ public class ReportService {
         }
     }
 
-    public byte[] generateDepartmentReportPdf(String departmentName) {
-        List<Course> courses = courseRepository.findByDepartmentName(departmentName);
+    @Transactional(readOnly = true)
+    public void writeDateRangeReportPdf(LocalDate startDate, LocalDate endDate, OutputStream out) {
+        Roster roster = rosterLoader.forDateRange(startDate, endDate);
+        List<TimeSlot> slots = roster.slots();
+
+        Document doc = openPdfDocument(out);
+
+        // Header bar
+        Table header = pdfFullWidthTable(2);
+        header.addCell(new Cell().setBorder(null).setBackgroundColor(PDF_NAVY).setPadding(12)
+                .add(new Paragraph("DATE RANGE REGISTRATION REPORT")
+                        .setFontColor(PDF_WHITE).setBold().setFontSize(16))
+                .add(new Paragraph(startDate.format(DATE_DISPLAY) + "  →  " + endDate.format(DATE_DISPLAY))
+                        .setFontColor(PDF_LIGHT_BLUE).setFontSize(11)));
+        header.addCell(new Cell().setBorder(null).setBackgroundColor(PDF_NAVY).setPadding(12)
+                .setTextAlignment(TextAlignment.RIGHT)
+                .add(new Paragraph("Generated").setFontColor(PDF_LIGHT_BLUE).setFontSize(8))
+                .add(new Paragraph(LocalDateTime.now().format(DATETIME_DISPLAY))
+                        .setFontColor(PDF_WHITE).setFontSize(9)));
+        doc.add(header);
+        doc.add(pdfSpacer(14));
+
+        if (slots.isEmpty()) {
+            doc.add(new Paragraph("No time slots found for the selected date range.")
+                    .setFontColor(PDF_EMPTY).setItalic().setFontSize(10));
+            doc.close();
+            return;
+        }
+
+        // Overview table — all slots in range
+        doc.add(pdfSectionTitle("Slots in Range (" + slots.size() + " total)", PDF_NAVY));
+        doc.add(pdfSpacer(4));
+        doc.add(pdfBuildGroupsOverviewTable(slots));
+        doc.add(pdfSpacer(16));
+
+        // Per-slot rosters
+        doc.add(pdfSectionTitle("Student Rosters by Group", PDF_NAVY));
+        doc.add(pdfSpacer(4));
+
+        int totalRegistered = 0;
+
+        // Group slots by session for cleaner organisation
+        LabSession currentSession = null;
+        for (TimeSlot slot : slots) {
+            LabSession session = slot.getLabSession();
+
+            // Print a session divider when session changes
+            if (currentSession == null || !currentSession.getId().equals(session.getId())) {
+                if (currentSession != null) doc.add(pdfSpacer(6));
+                Table sessionBanner = pdfFullWidthTable(1);
+                sessionBanner.addCell(new Cell().setBackgroundColor(PDF_NAVY).setBorder(null)
+                        .setPaddingTop(6).setPaddingBottom(6).setPaddingLeft(12).setPaddingRight(12)
+                        .add(new Paragraph(
+                                session.getCourse().getCourseCode() + "  –  " + session.getName()
+                                        + "   |   " + session.getCourse().getDepartment())
+                                .setFontColor(PDF_WHITE).setBold().setFontSize(9)));
+                doc.add(sessionBanner);
+                doc.add(pdfSpacer(4));
+                currentSession = session;
+            }
+
+            List<Registration> regs = roster.rostered(slot.getId());
+            totalRegistered += regs.size();
+
+            doc.add(pdfBuildGroupBanner(slot, regs.size()));
+            doc.add(pdfSpacer(3));
+            if (regs.isEmpty()) {
+                doc.add(new Paragraph("No students registered for this group.")
+                        .setFontColor(PDF_EMPTY).setItalic().setFontSize(8).setPaddingLeft(10));
+            } else {
+                doc.add(pdfBuildRosterTable(regs));
+            }
+            doc.add(pdfSpacer(8));
+        }
+
+        // Summary footer
+        doc.add(pdfBuildSummaryFooter(slots.size(), totalRegistered, 0, 0));
+
+        doc.close();
+    }
 
+    public byte[] generateDepartmentReportPdf(String departmentName) {
         try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            PdfDocument pdf = new PdfDocument(new PdfWriter(baos));
-            Document doc = new Document(pdf, PageSize.A4.rotate());
-            doc.setMargins(36, 36, 36, 36);
-
-            // Header bar
-            Table header = pdfFullWidthTable(2);
-            header.addCell(new Cell().setBorder(null).setBackgroundColor(PDF_NAVY).setPadding(12)
-                    .add(new Paragraph("DEPARTMENT REGISTRATION REPORT")
-                            .setFontColor(PDF_WHITE).setBold().setFontSize(16))
-                    .add(new Paragraph(departmentName)
-                            .setFontColor(PDF_LIGHT_BLUE).setFontSize(11)));
-            header.addCell(new Cell().setBorder(null).setBackgroundColor(PDF_NAVY).setPadding(12)
-                    .setTextAlignment(TextAlignment.RIGHT)
-                    .add(new Paragraph("Generated").setFontColor(PDF_LIGHT_BLUE).setFontSize(8))
-                    .add(new Paragraph(LocalDateTime.now().format(DATETIME_DISPLAY))
-                            .setFontColor(PDF_WHITE).setFontSize(9)));
-            doc.add(header);
-            doc.add(pdfSpacer(14));
+            writeDepartmentReportPdf(departmentName, baos);
+            return baos.toByteArray();
+        } catch (ResourceNotFoundException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error generating department PDF for {}: {}", departmentName, e.getMessage(), e);
+            return convertTxtToPdf("Department Report: " + departmentName, "Department Report: " + departmentName);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void writeDepartmentReportPdf(String departmentName, OutputStream out) {
+        List<Course> courses = courseRepository.findByDepartmentName(departmentName);
+        Roster roster = rosterLoader.forCourses(courses.stream().map(Course::getId).collect(Collectors.toList()));
 
-            int totalRegistered = 0;
-            int totalGroups = 0;
+        Document doc = openPdfDocument(out);
 
-            for (Course course : courses) {
-                List<LabSession> sessions = labSessionRepository.findByCourseId(course.getId());
-                if (sessions.isEmpty()) continue;
-
-                // Course banner — indigo
-                DeviceRgb courseColor = new DeviceRgb(0x3B, 0x27, 0x8C); // deep indigo
-                Table courseBanner = pdfFullWidthTable(1);
-                courseBanner.addCell(new Cell().setBackgroundColor(courseColor).setBorder(null)
-                        .setPaddingTop(8).setPaddingBottom(8).setPaddingLeft(12).setPaddingRight(12)
+        // Header bar
+        Table header = pdfFullWidthTable(2);
+        header.addCell(new Cell().setBorder(null).setBackgroundColor(PDF_NAVY).setPadding(12)
+                .add(new Paragraph("DEPARTMENT REGISTRATION REPORT")
+                        .setFontColor(PDF_WHITE).setBold().setFontSize(16))
+                .add(new Paragraph(departmentName)
+                        .setFontColor(PDF_LIGHT_BLUE).setFontSize(11)));
+        header.addCell(new Cell().setBorder(null).setBackgroundColor(PDF_NAVY).setPadding(12)
+                .setTextAlignment(TextAlignment.RIGHT)
+                .add(new Paragraph("Generated").setFontColor(PDF_LIGHT_BLUE).setFontSize(8))
+                .add(new Paragraph(LocalDateTime.now().format(DATETIME_DISPLAY))
+                        .setFontColor(PDF_WHITE).setFontSize(9)));
+        doc.add(header);
+        doc.add(pdfSpacer(14));
+
+        int totalRegistered = 0;
+        int totalGroups = 0;
+
+        for (Course course : courses) {
+            List<LabSession> sessions = roster.sessionsForCourse(course.getId());
+            if (sessions.isEmpty()) continue;
+
+            // Course banner — indigo
+            DeviceRgb courseColor = new DeviceRgb(0x3B, 0x27, 0x8C); // deep indigo
+            Table courseBanner = pdfFullWidthTable(1);
+            courseBanner.addCell(new Cell().setBackgroundColor(courseColor).setBorder(null)
+                    .setPaddingTop(8).setPaddingBottom(8).setPaddingLeft(12).setPaddingRight(12)
+                    .add(new Paragraph(
+                            course.getCourseCode() + "  –  " + course.getCourseName()
+                                    + "   |   " + course.getLevel().getDisplayName())
+                            .setFontColor(PDF_WHITE).setBold().setFontSize(10)));
+            doc.add(courseBanner);
+            doc.add(pdfSpacer(4));
+
+            for (LabSession session : sessions) {
+                List<TimeSlot> slots = roster.slots(session.getId());
+                totalGroups += slots.size();
+
+                // Session banner
+                Table sessionBanner = pdfFullWidthTable(1);
+                sessionBanner.addCell(new Cell().setBackgroundColor(PDF_BLUE).setBorder(null)
+                        .setPaddingTop(6).setPaddingBottom(6).setPaddingLeft(12).setPaddingRight(12)
                         .add(new Paragraph(
-                                course.getCourseCode() + "  –  " + course.getCourseName()
-                                        + "   |   " + course.getLevel().getDisplayName())
-                                .setFontColor(PDF_WHITE).setBold().setFontSize(10)));
-                doc.add(courseBanner);
-                doc.add(pdfSpacer(4));
+                                "Session: " + session.getName()
+                                        + "   |   " + session.getStartDate().format(DATE_DISPLAY)
+                                        + "  →  " + session.getEndDate().format(DATE_DISPLAY)
+                                        + "   |   Days: " + String.join(", ", session.getSessionDaysSet()))
+                                .setFontColor(PDF_WHITE).setFontSize(8.5f)));
+                doc.add(sessionBanner);
+                doc.add(pdfSpacer(3));
 
-                for (LabSession session : sessions) {
-                    List<TimeSlot> slots = timeSlotRepository.findByLabSessionIdOrderByDateAndSlot(session.getId());
-                    totalGroups += slots.size();
-
-                    // Session banner
-                    Table sessionBanner = pdfFullWidthTable(1);
-                    sessionBanner.addCell(new Cell().setBackgroundColor(PDF_BLUE).setBorder(null)
-                            .setPaddingTop(6).setPaddingBottom(6).setPaddingLeft(12).setPaddingRight(12)
-                            .add(new Paragraph(
-                                    "Session: " + session.getName()
-                                            + "   |   " + session.getStartDate().format(DATE_DISPLAY)
-                                            + "  →  " + session.getEndDate().format(DATE_DISPLAY)
-                                            + "   |   Days: " + String.join(", ", session.getSessionDaysSet()))
-                                    .setFontColor(PDF_WHITE).setFontSize(8.5f)));
-                    doc.add(sessionBanner);
-                    doc.add(pdfSpacer(3));
+                // Groups overview
+                doc.add(pdfBuildGroupsOverviewTable(slots));
+                doc.add(pdfSpacer(8));
 
-                    // Groups overview
-                    doc.add(pdfBuildGroupsOverviewTable(slots));
-                    doc.add(pdfSpacer(8));
+                // Per-group rosters
+                for (TimeSlot slot : slots) {
+                    List<Registration> regs = roster.rostered(slot.getId());
+                    totalRegistered += regs.size();
 
-                    // Per-group rosters
-                    for (TimeSlot slot : slots) {
-                        List<Registration> regs = registrationRepository.findByTimeSlotId(slot.getId())
-                                .stream()
-                                .filter(r -> r.getStatus() == RegistrationStatus.CONFIRMED
-                                        || r.getStatus() == RegistrationStatus.PENDING)
-                                .collect(Collectors.toList());
-                        totalRegistered += regs.size();
-
-                        doc.add(pdfBuildGroupBanner(slot, regs.size()));
-                        doc.add(pdfSpacer(3));
-                        if (regs.isEmpty()) {
-                            doc.add(new Paragraph("No students registered for this group.")
-                                    .setFontColor(PDF_EMPTY).setItalic().setFontSize(8).setPaddingLeft(10));
-                        } else {
-                            doc.add(pdfBuildRosterTable(regs));
-                        }
-                        doc.add(pdfSpacer(6));
+                    doc.add(pdfBuildGroupBanner(slot, regs.size()));
+                    doc.add(pdfSpacer(3));
+                    if (regs.isEmpty()) {
+                        doc.add(new Paragraph("No students registered for this group.")
+                                .setFontColor(PDF_EMPTY).setItalic().setFontSize(8).setPaddingLeft(10));
+                    } else {
+                        doc.add(pdfBuildRosterTable(regs));
                     }
+                    doc.add(pdfSpacer(6));
+                }
 
-                    // Waitlist for this session
-                    List<Registration> waitlisted = registrationRepository
-                            .findByLabSessionIdAndStatusOrderByWaitlistPositionAsc(session.getId(), RegistrationStatus.WAITLISTED);
-                    if (!waitlisted.isEmpty()) {
-                        doc.add(pdfSectionTitle("Waitlisted Students", PDF_WAITLIST));
-                        doc.add(pdfSpacer(4));
-                        doc.add(pdfBuildWaitlistTable(waitlisted));
-                    }
-                    doc.add(pdfSpacer(10));
+                // Waitlist for this session
+                List<Registration> waitlisted = roster.waitlisted(session.getId());
+                if (!waitlisted.isEmpty()) {
+                    doc.add(pdfSectionTitle("Waitlisted Students", PDF_WAITLIST));
+                    doc.add(pdfSpacer(4));
+                    doc.add(pdfBuildWaitlistTable(waitlisted));
                 }
-                doc.add(pdfSpacer(8));
+                doc.add(pdfSpacer(10));
             }
+            doc.add(pdfSpacer(8));
+        }
 
-            // Summary footer
-            doc.add(pdfBuildSummaryFooter(totalGroups, totalRegistered, 0, 0));
+        // Summary footer
+        doc.add(pdfBuildSummaryFooter(totalGroups, totalRegistered, 0, 0));
 
-            doc.close();
-            return baos.toByteArray();
+        doc.close();
+    }
 
-        } catch (Exception e) {
-            log.error("Error generating department PDF for {}: {}", departmentName, e.getMessage(), e);
-            return convertTxtToPdf("Department Report: " + departmentName, "Department Report: " + departmentName);
+    // =========================================================================
+    // LOOKUPS
+    // =========================================================================
+
+    // Streaming responses are committed before the report body runs, so callers
+    // check the target exists up front to still get a proper 404.
+
+    public void requireSession(Long sessionId) {
+        if (!labSessionRepository.existsById(sessionId)) {
+            throw new ResourceNotFoundException("Lab Session", "id", sessionId);
+        }
+    }
+
+    public void requireCourse(Long courseId) {
+        if (!courseRepository.existsById(courseId)) {
+            throw new ResourceNotFoundException("Course", "id", courseId);
         }
     }
 
@@ -1432,7 +1505,7 @@ public class ReportService {
         for (Registration reg : waitlisted) {
             User s = reg.getStudent();
             DeviceRgb bg = (idx++ % 2 == 1) ? new DeviceRgb(0xFD, 0xF0, 0xE6) : PDF_WHITE;
-            t.addCell(pdfDataCell("#" + reg.getWaitlistPosition(), bg).setTextAlignment(TextAlignment.CENTER));
+            t.addCell(pdfDataCell("#" + idx, bg).setTextAlignment(TextAlignment.CENTER));
             t.addCell(pdfDataCell(nullSafe(s.getStudentId()), bg));
             t.addCell(pdfDataCell(nullSafe(s.getFullName()), bg));
             t.addCell(pdfDataCell(nullSafe(s.getUsername()), bg));
@@ -1579,6 +1652,31 @@ public class ReportService {
         cell.setCellStyle(style);
     }
 
+    // =========================================================================
+    // STREAMING HELPERS
+    // =========================================================================
+
+    // The write* methods never close the target stream; the caller owns it.
+
+    private PrintWriter textWriter(OutputStream out) {
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+    }
+
+    private Sheet createSheet(SXSSFWorkbook workbook, String name) {
+        SXSSFSheet sheet = workbook.createSheet(name);
+        // Column widths must be tracked while rows are written, flushed rows can't be measured later
+        sheet.trackAllColumnsForAutoSizing();
+        return sheet;
+    }
+
+    private Document openPdfDocument(OutputStream out) {
+        PdfWriter writer = new PdfWriter(out);
+        writer.setCloseStream(false);
+        Document doc = new Document(new PdfDocument(writer), PageSize.A4.rotate());
+        doc.setMargins(36, 36, 36, 36);
+        return doc;
+    }
+
     // =========================================================================
     // SHARED HELPERS
     // =========================================================================
@@ -0,0 +1,324 @@
+package com.labregistration.service;
+
+import com.labregistration.model.LabSession;
+import com.labregistration.model.SessionStatus;
+import com.labregistration.repository.LabSessionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+/**
+ * In-memory room occupancy used for scheduling conflict checks.
+ *
+ * Every non-cancelled session is a recurring booking: a room, a date range, a set of
+ * weekdays and a daily time window (the union of its time slots). Bookings are indexed per
+ * room and weekday in an interval tree over the time of day, so a whole recurring pattern
+ * is checked with one lookup per weekday instead of one query per calendar day. A time
+ * overlap only counts as a conflict when the two date ranges share a date on that weekday.
+ *
+ * The index is loaded on first use, updated after commit by LabSessionService on create,
+ * update, status change and delete, and periodically rebuilt to pick up changes made by
+ * other instances.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RoomOccupancyIndex {
+
+    private final LabSessionRepository labSessionRepository;
+
+    // Guarded by "this"; rooms is republished as a new immutable map on every change
+    private Map<Long, Booking> bookings;
+    private volatile Map<String, RoomSchedule> rooms;
+
+    /**
+     * First existing booking that uses {@code labRoom} at the same time on a shared date, if any.
+     */
+    public Optional<Conflict> findConflict(String labRoom, Set<DayOfWeek> days,
+                                           LocalDate startDate, LocalDate endDate,
+                                           LocalTime startTime, LocalTime endTime, Long excludeId) {
+        if (labRoom == null || days.isEmpty()) {
+            return Optional.empty();
+        }
+        RoomSchedule schedule = rooms().get(roomKey(labRoom));
+        if (schedule == null) {
+            return Optional.empty();
+        }
+
+        int from = startTime.toSecondOfDay();
+        int to = endTime.toSecondOfDay();
+        Conflict first = null;
+        for (DayOfWeek day : days) {
+            IntervalTree tree = schedule.byDay.get(day);
+            if (tree == null) {
+                continue;
+            }
+            for (Booking existing : tree.overlapping(from, to)) {
+                if (existing.sessionId.equals(excludeId)) {
+                    continue;
+                }
+                LocalDate date = firstSharedDate(day, startDate, endDate, existing);
+                if (date != null && (first == null || date.isBefore(first.date()))) {
+                    first = new Conflict(existing.sessionId, existing.name, date, existing.startTime, existing.endTime);
+                }
+            }
+        }
+        return Optional.ofNullable(first);
+    }
+
+    /**
+     * Record the current state of a session once the surrounding transaction commits.
+     */
+    public void put(LabSession session) {
+        Long id = session.getId();
+        Booking booking = toBooking(session);
+        afterCommit(() -> apply(id, booking));
+    }
+
+    public void remove(Long sessionId) {
+        afterCommit(() -> apply(sessionId, null));
+    }
+
+    @Scheduled(fixedDelayString = "${app.room-occupancy.refresh-interval-ms:300000}")
+    public void refresh() {
+        synchronized (this) {
+            if (rooms == null) {
+                return;
+            }
+            try {
+                load();
+            } catch (Exception e) {
+                log.warn("Failed to refresh room occupancy index: {}", e.getMessage());
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // INTERNALS
+    // -------------------------------------------------------------------------
+
+    private Map<String, RoomSchedule> rooms() {
+        Map<String, RoomSchedule> r = rooms;
+        if (r != null) {
+            return r;
+        }
+        synchronized (this) {
+            if (rooms == null) {
+                load();
+            }
+            return rooms;
+        }
+    }
+
+    private void load() {
+        Map<Long, Booking> loaded = new HashMap<>();
+        for (Object[] row : labSessionRepository.findRoomBookings()) {
+            Booking booking = toBooking((Long) row[0], (String) row[1], (String) row[2],
+                    (LocalDate) row[3], (LocalDate) row[4], (LocalTime) row[5], (LocalTime) row[6], (String) row[7]);
+            if (booking != null) {
+                loaded.put(booking.sessionId, booking);
+            }
+        }
+
+        Map<String, List<Booking>> byRoom = new HashMap<>();
+        for (Booking booking : loaded.values()) {
+            byRoom.computeIfAbsent(booking.room, k -> new ArrayList<>()).add(booking);
+        }
+        Map<String, RoomSchedule> built = new HashMap<>();
+        byRoom.forEach((room, list) -> built.put(room, RoomSchedule.of(list)));
+
+        bookings = loaded;
+        rooms = Collections.unmodifiableMap(built);
+        log.debug("Loaded room occupancy index: {} sessions in {} rooms", loaded.size(), built.size());
+    }
+
+    private synchronized void apply(Long sessionId, Booking booking) {
+        if (rooms == null) {
+            // Not loaded yet; the first load reads the committed state
+            return;
+        }
+        Booking previous = booking != null ? bookings.put(sessionId, booking) : bookings.remove(sessionId);
+
+        Set<String> affected = new HashSet<>();
+        if (previous != null) affected.add(previous.room);
+        if (booking != null) affected.add(booking.room);
+        if (affected.isEmpty()) {
+            return;
+        }
+
+        Map<String, RoomSchedule> next = new HashMap<>(rooms);
+        for (String room : affected) {
+            List<Booking> inRoom = new ArrayList<>();
+            for (Booking b : bookings.values()) {
+                if (b.room.equals(room)) inRoom.add(b);
+            }
+            if (inRoom.isEmpty()) {
+                next.remove(room);
+            } else {
+                next.put(room, RoomSchedule.of(inRoom));
+            }
+        }
+        rooms = Collections.unmodifiableMap(next);
+    }
+
+    private static Booking toBooking(LabSession s) {
+        if (s.getStatus() == SessionStatus.CANCELLED) {
+            return null;
+        }
+        return toBooking(s.getId(), s.getName(), s.getLabRoom(), s.getStartDate(), s.getEndDate(),
+                s.getStartTime(), s.getEndTime(), s.getSessionDays());
+    }
+
+    private static Booking toBooking(Long id, String name, String room,
+                                     LocalDate startDate, LocalDate endDate,
+                                     LocalTime startTime, LocalTime endTime, String sessionDays) {
+        if (room == null || startDate == null || endDate == null || startTime == null || endTime == null) {
+            return null;
+        }
+        EnumSet<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        if (sessionDays != null) {
+            for (String day : sessionDays.split(",")) {
+                try {
+                    days.add(DayOfWeek.valueOf(day.trim().toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    // Ignore malformed day names, as parseDaysOfWeek does
+                }
+            }
+        }
+        if (days.isEmpty()) {
+            return null;
+        }
+        return new Booking(id, name, roomKey(room), startDate, endDate, startTime, endTime, days);
+    }
+
+    // MySQL compares room names case-insensitively, and so does this index
+    private static String roomKey(String labRoom) {
+        return labRoom.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Earliest date on {@code day} inside both date ranges, or null if there is none.
+     */
+    private static LocalDate firstSharedDate(DayOfWeek day, LocalDate startDate, LocalDate endDate, Booking existing) {
+        if (!existing.days.contains(day)) {
+            return null;
+        }
+        LocalDate from = startDate.isAfter(existing.startDate) ? startDate : existing.startDate;
+        LocalDate to = endDate.isBefore(existing.endDate) ? endDate : existing.endDate;
+        LocalDate date = from.with(TemporalAdjusters.nextOrSame(day));
+        return date.isAfter(to) ? null : date;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public record Conflict(Long sessionId, String sessionName, LocalDate date,
+                           LocalTime startTime, LocalTime endTime) {}
+
+    private record Booking(Long sessionId, String name, String room,
+                           LocalDate startDate, LocalDate endDate,
+                           LocalTime startTime, LocalTime endTime, Set<DayOfWeek> days) {}
+
+    private record RoomSchedule(Map<DayOfWeek, IntervalTree> byDay) {
+
+        static RoomSchedule of(List<Booking> bookings) {
+            Map<DayOfWeek, List<Booking>> grouped = new EnumMap<>(DayOfWeek.class);
+            for (Booking booking : bookings) {
+                for (DayOfWeek day : booking.days) {
+                    grouped.computeIfAbsent(day, d -> new ArrayList<>()).add(booking);
+                }
+            }
+            Map<DayOfWeek, IntervalTree> byDay = new EnumMap<>(DayOfWeek.class);
+            grouped.forEach((day, list) -> byDay.put(day, IntervalTree.of(list)));
+            return new RoomSchedule(byDay);
+        }
+    }
+
+    /**
+     * Static, balanced interval tree over daily time windows (seconds of the day). Nodes are
+     * ordered by start and carry the largest end in their subtree, so a query skips every
+     * subtree that ends before the window starts or begins after it ends.
+     */
+    private static final class IntervalTree {
+
+        private final Node root;
+
+        private IntervalTree(Node root) {
+            this.root = root;
+        }
+
+        static IntervalTree of(List<Booking> bookings) {
+            List<Booking> sorted = new ArrayList<>(bookings);
+            sorted.sort(Comparator.comparing(Booking::startTime));
+            return new IntervalTree(build(sorted, 0, sorted.size() - 1));
+        }
+
+        private static Node build(List<Booking> sorted, int lo, int hi) {
+            if (lo > hi) {
+                return null;
+            }
+            int mid = (lo + hi) >>> 1;
+            Node node = new Node(sorted.get(mid), build(sorted, lo, mid - 1), build(sorted, mid + 1, hi));
+            node.maxEnd = Math.max(node.end,
+                    Math.max(node.left != null ? node.left.maxEnd : -1, node.right != null ? node.right.maxEnd : -1));
+            return node;
+        }
+
+        List<Booking> overlapping(int from, int to) {
+            List<Booking> result = new ArrayList<>();
+            collect(root, from, to, result);
+            return result;
+        }
+
+        private static void collect(Node node, int from, int to, List<Booking> out) {
+            if (node == null || node.maxEnd <= from) {
+                return;
+            }
+            collect(node.left, from, to, out);
+            if (node.start >= to) {
+                // This node and everything to its right starts after the window
+                return;
+            }
+            if (node.end > from) {
+                out.add(node.booking);
+            }
+            collect(node.right, from, to, out);
+        }
+
+        private static final class Node {
+            final Booking booking;
+            final int start;
+            final int end;
+            final Node left;
+            final Node right;
+            int maxEnd;
+
+            Node(Booking booking, Node left, Node right) {
+                this.booking = booking;
+                this.start = booking.startTime.toSecondOfDay();
+                this.end = booking.endTime.toSecondOfDay();
+                this.left = left;
+                this.right = right;
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.labregistration.service;
+
+import com.labregistration.model.TimeSlot;
+import com.labregistration.repository.TimeSlotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * In-memory seat counters in front of the guarded {@code incrementCount} UPDATE.
+ *
+ * Each session's slots are loaded once into per-slot remaining-capacity counters. A seat is
+ * taken with a compare-and-set on the counter first, so concurrent registrations spread
+ * over the candidate slots without queueing on the same time_slots row lock, and only
+ * requests that already hold a seat in memory reach the database. The guarded UPDATE stays
+ * the source of truth: when it reports no row changed, the counter is resynced and the next
+ * candidate is tried. Counters are restored when the surrounding transaction rolls back and
+ * are periodically reconciled against the database.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SeatAllocator {
+
+    private final TimeSlotRepository timeSlotRepository;
+    private final SlotAvailabilityStream slotAvailabilityStream;
+
+    private final Map<Long, SessionSeats> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Reserve a seat in the first slot (by date, then group) that still has room and has not
+     * already taken place. The returned slot's count has been incremented in the database.
+     */
+    public Optional<TimeSlot> reserveFirstAvailable(Long sessionId) {
+        return reserveFirstAvailable(sessionId, window -> true);
+    }
+
+    /**
+     * Same as {@link #reserveFirstAvailable(Long)}, skipping slots whose time window is not
+     * {@code allowed} (e.g. because it clashes with the student's timetable).
+     */
+    public Optional<TimeSlot> reserveFirstAvailable(Long sessionId, Predicate<SlotWindow> allowed) {
+        LocalDate today = LocalDate.now();
+        for (SlotSeats seats : seatsFor(sessionId).ordered) {
+            if (!seats.active || seats.window.date().isBefore(today) || seats.remaining.get() <= 0) {
+                continue;
+            }
+            if (allowed.test(seats.window) && tryReserve(seats)) {
+                return Optional.of(timeSlotRepository.getReferenceById(seats.slotId));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Whether any upcoming slot of the session still has a free seat, by the in-memory counters.
+     */
+    public boolean hasFreeSeats(Long sessionId) {
+        LocalDate today = LocalDate.now();
+        for (SlotSeats seats : seatsFor(sessionId).ordered) {
+            if (seats.active && !seats.window.date().isBefore(today) && seats.remaining.get() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reserve up to {@code seats} seats, filling slots in the same order as
+     * {@link #reserveFirstAvailable(Long)}. The result may be shorter when the session runs out.
+     */
+    public List<TimeSlot> reserveAvailable(Long sessionId, int seats) {
+        List<TimeSlot> reserved = new ArrayList<>(seats);
+        LocalDate today = LocalDate.now();
+        for (SlotSeats slot : seatsFor(sessionId).ordered) {
+            if (reserved.size() >= seats) {
+                break;
+            }
+            if (!slot.active || slot.window.date().isBefore(today)) {
+                continue;
+            }
+            while (reserved.size() < seats && tryReserve(slot)) {
+                reserved.add(timeSlotRepository.getReferenceById(slot.slotId));
+            }
+        }
+        return reserved;
+    }
+
+    /**
+     * Reserve a seat in a specific slot of the session. Returns false when the slot is full.
+     */
+    public boolean reserve(Long sessionId, Long slotId) {
+        SlotSeats seats = seatsFor(sessionId).byId.get(slotId);
+        if (seats == null) {
+            // Slot created after the counters were loaded
+            seats = reload(sessionId).byId.get(slotId);
+        }
+        return seats != null && tryReserve(seats);
+    }
+
+    /**
+     * Give a seat back after {@code decrementCount} succeeded. The seat is visible right away so
+     * a waitlist promotion in the same transaction can take it; anyone else who grabs it waits on
+     * the row lock in the guarded UPDATE, which stays correct if this transaction rolls back.
+     */
+    public void release(Long sessionId, Long slotId) {
+        slotAvailabilityStream.slotChanged(sessionId, slotId);
+        SessionSeats session = sessions.get(sessionId);
+        if (session == null) {
+            return;
+        }
+        SlotSeats seats = session.byId.get(slotId);
+        if (seats == null) {
+            return;
+        }
+        seats.remaining.incrementAndGet();
+        onRollback(seats.remaining::decrementAndGet);
+    }
+
+    /**
+     * Drop the counters for a session so they are reloaded on next use. Call this whenever
+     * slots are created, deleted, resized or toggled, or their counts are changed in bulk;
+     * live slot watchers get a fresh snapshot.
+     */
+    public void invalidate(Long sessionId) {
+        afterCommit(() -> sessions.remove(sessionId));
+        slotAvailabilityStream.sessionChanged(sessionId);
+    }
+
+    /**
+     * Reload all cached sessions from the database to correct any drift, e.g. counts changed
+     * by another instance or by direct edits.
+     */
+    @Scheduled(fixedDelayString = "${app.seat-allocation.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        for (Long sessionId : new ArrayList<>(sessions.keySet())) {
+            try {
+                reload(sessionId);
+            } catch (Exception e) {
+                log.warn("Failed to reconcile seat counters for session {}: {}", sessionId, e.getMessage());
+                sessions.remove(sessionId);
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // INTERNALS
+    // -------------------------------------------------------------------------
+
+    private boolean tryReserve(SlotSeats seats) {
+        while (true) {
+            int remaining = seats.remaining.get();
+            if (remaining <= 0) {
+                return false;
+            }
+            if (seats.remaining.compareAndSet(remaining, remaining - 1)) {
+                break;
+            }
+        }
+
+        if (timeSlotRepository.incrementCount(seats.slotId) == 1) {
+            onRollback(seats.remaining::incrementAndGet);
+            slotAvailabilityStream.slotChanged(seats.sessionId, seats.slotId);
+            return true;
+        }
+
+        // The database says the slot is full: our counter was stale
+        log.debug("Seat counter for slot {} was out of sync, marking full", seats.slotId);
+        seats.remaining.set(0);
+        return false;
+    }
+
+    private SessionSeats seatsFor(Long sessionId) {
+        return sessions.computeIfAbsent(sessionId, this::load);
+    }
+
+    private SessionSeats reload(Long sessionId) {
+        SessionSeats fresh = load(sessionId);
+        sessions.put(sessionId, fresh);
+        return fresh;
+    }
+
+    private SessionSeats load(Long sessionId) {
+        List<TimeSlot> slots = timeSlotRepository.findByLabSessionIdOrderByDateAndSlot(sessionId);
+        List<SlotSeats> ordered = new ArrayList<>(slots.size());
+        Map<Long, SlotSeats> byId = new HashMap<>();
+        for (TimeSlot slot : slots) {
+            SlotSeats seats = new SlotSeats(sessionId, slot.getId(),
+                    new SlotWindow(slot.getSessionDate(), slot.getStartTime(), slot.getEndTime()),
+                    Boolean.TRUE.equals(slot.getActive()),
+                    new AtomicInteger(Math.max(0, slot.getMaxStudents() - slot.getCurrentCount())));
+            ordered.add(seats);
+            byId.put(seats.slotId, seats);
+        }
+        return new SessionSeats(ordered, byId);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static void onRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+
+    private record SessionSeats(List<SlotSeats> ordered, Map<Long, SlotSeats> byId) {}
+
+    public record SlotWindow(LocalDate date, LocalTime startTime, LocalTime endTime) {}
+
+    private record SlotSeats(Long sessionId, Long slotId, SlotWindow window, boolean active, AtomicInteger remaining) {}
+}
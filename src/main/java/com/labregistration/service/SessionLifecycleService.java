@@ -0,0 +1,133 @@
+package com.labregistration.service;
+
+import com.labregistration.model.SessionStatus;
+import com.labregistration.repository.LabSessionRepository;
+import com.labregistration.repository.RegistrationRepository;
+import com.labregistration.repository.SlotSwapRequestRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Moves sessions through their lifecycle on a schedule instead of leaving it to managers:
+ * OPEN sessions are CLOSED once their registration deadline passes, and OPEN or CLOSED
+ * sessions are COMPLETED after their end date, along with their CONFIRMED registrations
+ * (registrations still PENDING or WAITLISTED are cancelled).
+ *
+ * Sessions are handled in batches of ids, each batch in its own short transaction with a
+ * few set-based UPDATEs. A database lease keeps the job to one instance at a time.
+ */
+@Service
+@Slf4j
+public class SessionLifecycleService {
+
+    private static final String LEASE = "session-lifecycle";
+
+    private final LabSessionRepository labSessionRepository;
+    private final RegistrationRepository registrationRepository;
+    private final SlotSwapRequestRepository slotSwapRequestRepository;
+    private final SeatAllocator seatAllocator;
+    private final DatabaseLease databaseLease;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration leaseTtl;
+
+    public SessionLifecycleService(LabSessionRepository labSessionRepository,
+                                   RegistrationRepository registrationRepository,
+                                   SlotSwapRequestRepository slotSwapRequestRepository,
+                                   SeatAllocator seatAllocator,
+                                   DatabaseLease databaseLease,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${app.session-lifecycle.batch-size:200}") int batchSize,
+                                   @Value("${app.session-lifecycle.lease-seconds:600}") long leaseSeconds) {
+        this.labSessionRepository = labSessionRepository;
+        this.registrationRepository = registrationRepository;
+        this.slotSwapRequestRepository = slotSwapRequestRepository;
+        this.seatAllocator = seatAllocator;
+        this.databaseLease = databaseLease;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.leaseTtl = Duration.ofSeconds(leaseSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${app.session-lifecycle.interval-ms:300000}",
+               initialDelayString = "${app.session-lifecycle.initial-delay-ms:60000}")
+    public void run() {
+        if (!databaseLease.tryAcquire(LEASE, leaseTtl)) {
+            log.debug("Session lifecycle is running on another instance");
+            return;
+        }
+        try {
+            int closed = closePastDeadline();
+            int completed = completeEnded();
+            if (closed > 0 || completed > 0) {
+                log.info("Session lifecycle: {} session(s) closed, {} completed", closed, completed);
+            }
+        } catch (RuntimeException e) {
+            log.error("Session lifecycle run failed", e);
+        } finally {
+            databaseLease.release(LEASE);
+        }
+    }
+
+    /**
+     * Close OPEN sessions whose registration deadline has passed.
+     */
+    int closePastDeadline() {
+        int total = 0;
+        while (databaseLease.tryAcquire(LEASE, leaseTtl)) {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = labSessionRepository.findOpenIdsPastDeadline(now, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            Integer closed = transactionTemplate.execute(status ->
+                    labSessionRepository.transitionStatus(ids, Set.of(SessionStatus.OPEN), SessionStatus.CLOSED, now));
+            total += closed != null ? closed : 0;
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Complete sessions that have ended, together with their registrations.
+     */
+    int completeEnded() {
+        int total = 0;
+        while (databaseLease.tryAcquire(LEASE, leaseTtl)) {
+            LocalDate today = LocalDate.now();
+            List<Long> ids = labSessionRepository.findIdsToComplete(today, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            Integer completed = transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                int sessions = labSessionRepository.transitionStatus(ids,
+                        Set.of(SessionStatus.OPEN, SessionStatus.CLOSED), SessionStatus.COMPLETED, now);
+                int registrations = registrationRepository.completeConfirmedBySessionIds(ids, now);
+                int cancelled = registrationRepository.cancelUnseatedBySessionIds(ids, now);
+                slotSwapRequestRepository.cancelOpenBySessionIds(ids, now);
+                log.debug("Completed {} session(s) with {} registration(s); {} unseated registration(s) cancelled",
+                        sessions, registrations, cancelled);
+                return sessions;
+            });
+            ids.forEach(seatAllocator::invalidate);
+            total += completed != null ? completed : 0;
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+}
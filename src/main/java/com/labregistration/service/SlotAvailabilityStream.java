@@ -0,0 +1,343 @@
+package com.labregistration.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.labregistration.exception.BadRequestException;
+import com.labregistration.model.TimeSlot;
+import com.labregistration.repository.TimeSlotRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Server-Sent Events stream of slot availability per session, so registration pages can
+ * watch slots fill up instead of polling the available-slots endpoint.
+ *
+ * Code that changes a slot reports it through {@link #slotChanged} (a seat taken or freed)
+ * or {@link #sessionChanged} (slots created, deleted, resized or toggled); the change is
+ * recorded after commit, and only for sessions someone is watching. A background thread
+ * re-reads the changed slots at most once per interval and sends their absolute state, so
+ * an event can be applied any number of times and in any order relative to a REST load.
+ * Each new watcher first gets a "snapshot" event with every slot of the session, then
+ * "capacity" events for the slots that changed since. Every event carries a sequence number
+ * (also the SSE id) that only goes up; clients ignore anything older than what they hold.
+ *
+ * Events are queued per watcher and written by a small pool of sender threads, so a slow
+ * client only delays itself. A watcher that falls more than
+ * {@code app.slot-stream.max-pending-events} behind is disconnected and can reconnect for a
+ * fresh snapshot. Only changes committed on this instance are streamed.
+ */
+@Component
+@Slf4j
+public class SlotAvailabilityStream {
+
+    private final TimeSlotRepository timeSlotRepository;
+    private final ObjectMapper objectMapper;
+    private final long emitterTimeoutMillis;
+    private final long heartbeatMillis;
+    private final int maxWatchers;
+    private final int maxPendingEvents;
+    private final ScheduledExecutorService reader;
+    private final ExecutorService senders;
+
+    // Committed changes not yet sent, by session id
+    private final Map<Long, Changes> pending = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Watcher>> watchers = new ConcurrentHashMap<>();
+    private final AtomicInteger watcherCount = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile long lastSentAt = System.currentTimeMillis();
+
+    public SlotAvailabilityStream(TimeSlotRepository timeSlotRepository,
+                                  ObjectMapper objectMapper,
+                                  @Value("${app.slot-stream.interval-ms:1000}") long intervalMillis,
+                                  @Value("${app.slot-stream.emitter-timeout-ms:1800000}") long emitterTimeoutMillis,
+                                  @Value("${app.slot-stream.heartbeat-ms:15000}") long heartbeatMillis,
+                                  @Value("${app.slot-stream.max-watchers:10000}") int maxWatchers,
+                                  @Value("${app.slot-stream.max-pending-events:32}") int maxPendingEvents,
+                                  @Value("${app.slot-stream.sender-threads:4}") int senderThreads) {
+        this.timeSlotRepository = timeSlotRepository;
+        this.objectMapper = objectMapper;
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        this.maxWatchers = maxWatchers;
+        this.maxPendingEvents = maxPendingEvents;
+        this.reader = Executors.newSingleThreadScheduledExecutor(daemon("slot-stream"));
+        this.senders = Executors.newFixedThreadPool(senderThreads, daemon("slot-stream-send"));
+        reader.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Start streaming the session's slot availability to a new watcher. The first event,
+     * sent within one interval, is a snapshot of every slot.
+     */
+    public SseEmitter subscribe(Long sessionId) {
+        if (watcherCount.incrementAndGet() > maxWatchers) {
+            watcherCount.decrementAndGet();
+            throw new BadRequestException("Too many live slot watchers right now. Please refresh the slots instead.");
+        }
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Watcher watcher = new Watcher(sessionId, emitter);
+        emitter.onCompletion(() -> removeWatcher(watcher));
+        emitter.onTimeout(() -> removeWatcher(watcher));
+        emitter.onError(e -> removeWatcher(watcher));
+
+        try {
+            // Sends the response headers right away
+            emitter.send(SseEmitter.event().comment("watching session " + sessionId).build());
+        } catch (IOException e) {
+            watcherCount.decrementAndGet();
+            emitter.complete();
+            return emitter;
+        }
+        watchers.compute(sessionId, (id, set) -> {
+            Set<Watcher> session = set != null ? set : ConcurrentHashMap.newKeySet();
+            session.add(watcher);
+            return session;
+        });
+        return emitter;
+    }
+
+    /**
+     * Report that a slot's count changed (a seat was taken or freed). Recorded once the
+     * current transaction commits.
+     */
+    public void slotChanged(Long sessionId, Long slotId) {
+        if (!watchers.containsKey(sessionId)) {
+            return;
+        }
+        afterCommit(() -> record(sessionId, changes -> changes.add(slotId)));
+    }
+
+    /**
+     * Report that the session's slots changed as a whole: created, deleted, resized, toggled
+     * or recounted in bulk. Watchers get a fresh snapshot once the current transaction commits.
+     */
+    public void sessionChanged(Long sessionId) {
+        if (!watchers.containsKey(sessionId)) {
+            return;
+        }
+        afterCommit(() -> record(sessionId, Changes::addAll));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reader.shutdownNow();
+        senders.shutdownNow();
+        watchers.values().forEach(set -> set.forEach(w -> w.emitter.complete()));
+    }
+
+    // -------------------------------------------------------------------------
+    // READING
+    // -------------------------------------------------------------------------
+
+    private void flush() {
+        try {
+            boolean sent = false;
+            for (Map.Entry<Long, Set<Watcher>> entry : watchers.entrySet()) {
+                Long sessionId = entry.getKey();
+                List<Watcher> fresh = entry.getValue().stream().filter(w -> w.needsSnapshot).toList();
+                Changes changes = pending.remove(sessionId);
+                if (changes == null && fresh.isEmpty()) continue;
+
+                Set<Long> slotIds = changes != null ? changes.slotIds() : null;
+                if (slotIds == null || !fresh.isEmpty()) {
+                    // Everyone gets the snapshot; its states are absolute, so existing watchers just apply it
+                    List<SlotState> slots = timeSlotRepository.findByLabSessionIdOrderByDateAndSlot(sessionId)
+                            .stream().map(SlotState::of).toList();
+                    fresh.forEach(w -> w.needsSnapshot = false);
+                    publish(entry.getValue(), "snapshot", sessionId, slots, List.of());
+                } else {
+                    List<SlotState> slots = timeSlotRepository.findAllById(slotIds)
+                            .stream().map(SlotState::of).toList();
+                    List<Long> removed = new ArrayList<>(slotIds);
+                    slots.forEach(s -> removed.remove(s.timeSlotId()));
+                    publish(entry.getValue(), "capacity", sessionId, slots, removed);
+                }
+                sent = true;
+            }
+            // Changes for sessions whose last watcher left
+            pending.keySet().removeIf(id -> !watchers.containsKey(id));
+
+            long now = System.currentTimeMillis();
+            if (sent) {
+                lastSentAt = now;
+            } else if (now - lastSentAt >= heartbeatMillis) {
+                Set<ResponseBodyEmitter.DataWithMediaType> keepAlive = SseEmitter.event().comment("keep-alive").build();
+                watchers.values().forEach(set -> set.forEach(w -> {
+                    if (w.queued.get() == 0) enqueue(w, keepAlive);
+                }));
+                lastSentAt = now;
+            }
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Failed to send slot availability updates: {}", e.getMessage());
+        }
+    }
+
+    private void publish(Set<Watcher> targets, String name, Long sessionId, List<SlotState> slots, List<Long> removed)
+            throws JsonProcessingException {
+        long seq = sequence.incrementAndGet();
+        Set<ResponseBodyEmitter.DataWithMediaType> event = SseEmitter.event()
+                .id(Long.toString(seq))
+                .name(name)
+                .data(objectMapper.writeValueAsString(new SlotAvailability(sessionId, seq, slots, removed)))
+                .build();
+        for (Watcher watcher : targets) {
+            enqueue(watcher, event);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // SENDING
+    // -------------------------------------------------------------------------
+
+    private void enqueue(Watcher watcher, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        if (watcher.closed) {
+            return;
+        }
+        if (watcher.queued.incrementAndGet() > maxPendingEvents) {
+            log.debug("Slot watcher of session {} fell behind, disconnecting it", watcher.sessionId);
+            watcher.closed = true;
+            removeWatcher(watcher);
+        } else {
+            watcher.queue.add(event);
+        }
+        scheduleDrain(watcher);
+    }
+
+    private void scheduleDrain(Watcher watcher) {
+        if (watcher.draining.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(watcher));
+            } catch (RejectedExecutionException e) {
+                watcher.draining.set(false);
+            }
+        }
+    }
+
+    /**
+     * Write a watcher's queued events on a sender thread. Only one drain runs per watcher at a
+     * time, so events go out in order, and a client that blocks the write holds up no one else.
+     */
+    private void drain(Watcher watcher) {
+        while (true) {
+            Set<ResponseBodyEmitter.DataWithMediaType> event;
+            while (!watcher.closed && (event = watcher.queue.poll()) != null) {
+                watcher.queued.decrementAndGet();
+                try {
+                    watcher.emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // Client went away
+                    watcher.closed = true;
+                    removeWatcher(watcher);
+                }
+            }
+            if (watcher.closed) {
+                watcher.queue.clear();
+                watcher.emitter.complete();
+                return;
+            }
+            watcher.draining.set(false);
+            if (watcher.queue.isEmpty() || !watcher.draining.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    // Changes are only touched inside compute, which is atomic with the remove in flush
+    private void record(Long sessionId, Consumer<Changes> change) {
+        pending.compute(sessionId, (id, current) -> {
+            Changes changes = current != null ? current : new Changes();
+            change.accept(changes);
+            return changes;
+        });
+    }
+
+    private void removeWatcher(Watcher watcher) {
+        watchers.computeIfPresent(watcher.sessionId, (id, set) -> {
+            if (set.remove(watcher)) {
+                watcherCount.decrementAndGet();
+            }
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Changed slots of one session; a null set means all of them.
+     */
+    private static final class Changes {
+
+        private Set<Long> slotIds = new HashSet<>();
+
+        void add(Long slotId) {
+            if (slotIds != null) slotIds.add(slotId);
+        }
+
+        void addAll() {
+            slotIds = null;
+        }
+
+        Set<Long> slotIds() {
+            return slotIds;
+        }
+    }
+
+    private static final class Watcher {
+
+        private final Long sessionId;
+        private final SseEmitter emitter;
+        private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean needsSnapshot = true;
+        private volatile boolean closed;
+
+        Watcher(Long sessionId, SseEmitter emitter) {
+            this.sessionId = sessionId;
+            this.emitter = emitter;
+        }
+    }
+
+    public record SlotState(Long timeSlotId, int currentCount, int maxStudents, int availableSpots, boolean active) {
+
+        static SlotState of(TimeSlot slot) {
+            return new SlotState(slot.getId(), slot.getCurrentCount(), slot.getMaxStudents(),
+                    slot.getAvailableSlots(), Boolean.TRUE.equals(slot.getActive()));
+        }
+    }
+
+    public record SlotAvailability(Long labSessionId, long sequence, List<SlotState> slots, List<Long> removedSlotIds) {}
+}
@@ -0,0 +1,384 @@
+package com.labregistration.service;
+
+import com.labregistration.dto.RegistrationDTO;
+import com.labregistration.dto.SlotSwapRequestDTO;
+import com.labregistration.exception.BadRequestException;
+import com.labregistration.exception.ConflictException;
+import com.labregistration.exception.ResourceNotFoundException;
+import com.labregistration.mapper.RegistrationMapper;
+import com.labregistration.model.*;
+import com.labregistration.repository.RegistrationRepository;
+import com.labregistration.repository.SlotSwapRequestRepository;
+import com.labregistration.repository.TimeSlotRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Moving confirmed registrations between time slots of the same session.
+ *
+ * A move takes a seat in the target slot and frees one in the old slot with the guarded
+ * counter UPDATEs, always touching the lower slot id first so opposite moves cannot
+ * deadlock; the registration itself is only moved if it still holds the slot it was read
+ * with. A swap exchanges the slots of two registrations without touching seat counts, so
+ * it works between full slots and never waits on a time_slots row lock. Students can post
+ * swap requests; a request is completed as soon as someone holding the wanted slot posts
+ * the mirror request or accepts it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SlotExchangeService {
+
+    private final RegistrationRepository registrationRepository;
+    private final TimeSlotRepository timeSlotRepository;
+    private final SlotSwapRequestRepository slotSwapRequestRepository;
+    private final SeatAllocator seatAllocator;
+    private final StudentTimetableIndex studentTimetableIndex;
+    private final NotificationService notificationService;
+    private final RegistrationMapper registrationMapper;
+    private final EntityManager entityManager;
+
+    // -------------------------------------------------------------------------
+    // MOVE / SWAP (admin)
+    // -------------------------------------------------------------------------
+
+    /**
+     * Move a confirmed registration into another slot of its session that has a free seat.
+     */
+    @Transactional
+    public RegistrationDTO move(Long registrationId, Long targetSlotId) {
+        Registration registration = findConfirmed(registrationId);
+        TimeSlot from = registration.getTimeSlot();
+        TimeSlot to = findTargetSlot(registration, targetSlotId);
+        requireNoClash(registration, to);
+
+        if (!moveSeat(registration.getLabSession().getId(), from, to)) {
+            throw new BadRequestException("The selected time slot is full");
+        }
+        return finishMove(registration, from, to);
+    }
+
+    /**
+     * Move to the first upcoming slot with a free seat among those numbered {@code slotNumber}.
+     * Slots that clash with the student's timetable are skipped, and so is a slot that turns
+     * out to be full when its seat is taken.
+     */
+    @Transactional
+    public RegistrationDTO moveToSlotNumber(Long registrationId, Integer slotNumber) {
+        Registration registration = findConfirmed(registrationId);
+        TimeSlot from = registration.getTimeSlot();
+        Long sessionId = registration.getLabSession().getId();
+        LocalDate today = LocalDate.now();
+        List<TimeSlot> candidates = timeSlotRepository.findByLabSessionIdAndGroupNumber(sessionId, slotNumber).stream()
+                .filter(slot -> Boolean.TRUE.equals(slot.getActive()) && !slot.getSessionDate().isBefore(today))
+                .filter(slot -> !slot.getId().equals(from.getId()))
+                .filter(slot -> !slot.isFull())
+                .filter(slot -> !clash(registration, slot))
+                .toList();
+        for (TimeSlot to : candidates) {
+            if (moveSeat(sessionId, from, to)) {
+                return finishMove(registration, from, to);
+            }
+        }
+        throw new BadRequestException("No available slot with number " + slotNumber);
+    }
+
+    /**
+     * Exchange the slots of two confirmed registrations of the same session.
+     */
+    @Transactional
+    public List<RegistrationDTO> swap(Long registrationId, Long otherRegistrationId) {
+        Registration a = findConfirmed(registrationId);
+        Registration b = findConfirmed(otherRegistrationId);
+        exchange(a, b);
+        return List.of(registrationMapper.toDTO(a), registrationMapper.toDTO(b));
+    }
+
+    // -------------------------------------------------------------------------
+    // SWAP REQUESTS (students)
+    // -------------------------------------------------------------------------
+
+    /**
+     * Offer to trade the registration's slot for {@code targetSlotId}. If another student
+     * already offered the opposite trade, the swap happens right away. A student has at most
+     * one open request per registration; posting again replaces it.
+     */
+    @Transactional
+    public SlotSwapRequestDTO requestSwap(Long registrationId, Long targetSlotId, String email) {
+        Registration registration = findConfirmed(registrationId);
+        requireOwner(registration, email);
+        TimeSlot from = registration.getTimeSlot();
+        TimeSlot to = findTargetSlot(registration, targetSlotId);
+        requireNoClash(registration, to);
+
+        withdrawOpenRequests(List.of(registrationId));
+        SlotSwapRequest request = SlotSwapRequest.builder()
+                .registration(registration)
+                .labSession(registration.getLabSession())
+                .fromTimeSlot(from)
+                .toTimeSlot(to)
+                .build();
+
+        // Someone in the wanted slot who wants ours, and whose timetable still allows it
+        List<SlotSwapRequest> matches = slotSwapRequestRepository.lockOpenMatches(
+                registration.getLabSession().getId(), to.getId(), from.getId(), PageRequest.of(0, 5));
+        for (SlotSwapRequest match : matches) {
+            Registration other = match.getRegistration();
+            if (clash(other, from)) {
+                continue;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            complete(match, registration, now);
+            complete(request, other, now);
+            request = slotSwapRequestRepository.save(request);
+            exchange(registration, other);
+            return toDTO(request);
+        }
+
+        request = slotSwapRequestRepository.save(request);
+        log.info("Swap request {} opened: registration {} offers slot {} for slot {}",
+                request.getId(), registrationId, from.getId(), to.getId());
+        return toDTO(request);
+    }
+
+    /**
+     * Take up an open swap request with a registration that holds the slot it wants.
+     */
+    @Transactional
+    public SlotSwapRequestDTO acceptSwapRequest(Long requestId, Long registrationId, String email) {
+        SlotSwapRequest request = slotSwapRequestRepository.findByIdForUpdate(requestId)
+                .orElseThrow(() -> new ResourceNotFoundException("Swap Request", "id", requestId));
+        if (request.getStatus() != SwapRequestStatus.OPEN) {
+            throw new BadRequestException("This swap request is no longer open");
+        }
+        Registration mine = findConfirmed(registrationId);
+        requireOwner(mine, email);
+        if (!mine.getTimeSlot().getId().equals(request.getToTimeSlot().getId())) {
+            throw new BadRequestException("You can only accept a swap for the slot you hold");
+        }
+
+        Registration requester = request.getRegistration();
+        if (requester.getStatus() != RegistrationStatus.CONFIRMED || requester.getTimeSlot() == null
+                || !requester.getTimeSlot().getId().equals(request.getFromTimeSlot().getId())) {
+            throw new BadRequestException("This swap request is no longer valid");
+        }
+
+        complete(request, mine, LocalDateTime.now());
+        exchange(requester, mine);
+        return toDTO(request);
+    }
+
+    @Transactional
+    public void cancelSwapRequest(Long requestId, String email) {
+        SlotSwapRequest request = slotSwapRequestRepository.findByIdForUpdate(requestId)
+                .orElseThrow(() -> new ResourceNotFoundException("Swap Request", "id", requestId));
+        requireOwner(request.getRegistration(), email);
+        if (request.getStatus() != SwapRequestStatus.OPEN) {
+            throw new BadRequestException("This swap request is no longer open");
+        }
+        request.setStatus(SwapRequestStatus.CANCELLED);
+        request.setResolvedAt(LocalDateTime.now());
+    }
+
+    public List<SlotSwapRequestDTO> getOpenSwapRequests(Long sessionId) {
+        return slotSwapRequestRepository.findOpenBySessionId(sessionId).stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Withdraw the open swap requests of registrations that moved, were cancelled or ended.
+     */
+    public void withdrawOpenRequests(Collection<Long> registrationIds) {
+        slotSwapRequestRepository.cancelOpenByRegistrationIds(registrationIds, LocalDateTime.now());
+    }
+
+    // -------------------------------------------------------------------------
+    // INTERNALS
+    // -------------------------------------------------------------------------
+
+    private void exchange(Registration a, Registration b) {
+        if (a.getId().equals(b.getId())) {
+            throw new BadRequestException("Cannot swap a registration with itself");
+        }
+        if (!a.getLabSession().getId().equals(b.getLabSession().getId())) {
+            throw new BadRequestException("Registrations belong to different sessions");
+        }
+        TimeSlot slotA = a.getTimeSlot();
+        TimeSlot slotB = b.getTimeSlot();
+        if (slotA.getId().equals(slotB.getId())) {
+            throw new BadRequestException("Both registrations are already in the same slot");
+        }
+        requireNoClash(a, slotB);
+        requireNoClash(b, slotA);
+
+        // Rows are updated in id order so two overlapping swaps cannot deadlock
+        if (a.getId() < b.getId()) {
+            reassign(a, slotA, slotB);
+            reassign(b, slotB, slotA);
+        } else {
+            reassign(b, slotB, slotA);
+            reassign(a, slotA, slotB);
+        }
+        withdrawOpenRequests(List.of(a.getId(), b.getId()));
+        notifySlotChanged(a);
+        notifySlotChanged(b);
+        log.info("Swapped slots of registrations {} and {}", a.getId(), b.getId());
+    }
+
+    private RegistrationDTO finishMove(Registration registration, TimeSlot from, TimeSlot to) {
+        reassign(registration, from, to);
+        withdrawOpenRequests(List.of(registration.getId()));
+        notifySlotChanged(registration);
+
+        log.info("Moved registration {} from slot {} to slot {}", registration.getId(), from.getId(), to.getId());
+        return registrationMapper.toDTO(registration);
+    }
+
+    /**
+     * Point the registration at {@code to} if it still holds {@code from}. The entity is then
+     * refreshed from the row rather than edited, so the persistence context never holds a
+     * change the guarded UPDATE did not make.
+     */
+    private void reassign(Registration registration, TimeSlot from, TimeSlot to) {
+        if (registrationRepository.moveToSlot(registration.getId(), from.getId(), to, LocalDateTime.now()) != 1) {
+            throw new ConflictException("Registration " + registration.getId() + " was changed by another request. Please retry.");
+        }
+        entityManager.refresh(registration);
+        studentTimetableIndex.evict(registration.getStudent().getId());
+    }
+
+    /**
+     * Take a seat in {@code to} and free the one in {@code from}, touching the lower slot id
+     * first. Returns false, with both counts as they were, when {@code to} turns out to be full.
+     */
+    private boolean moveSeat(Long sessionId, TimeSlot from, TimeSlot to) {
+        if (to.getId() < from.getId()) {
+            if (!seatAllocator.reserve(sessionId, to.getId())) {
+                return false;
+            }
+            freeSeat(sessionId, from);
+            return true;
+        }
+        boolean freed = freeSeat(sessionId, from);
+        if (seatAllocator.reserve(sessionId, to.getId())) {
+            return true;
+        }
+        // Give the old seat back; this transaction holds its row lock, so it is still free
+        if (freed && !seatAllocator.reserve(sessionId, from.getId())) {
+            throw new ConflictException("Slot " + from.getId() + " was changed by another request. Please retry.");
+        }
+        return false;
+    }
+
+    /**
+     * Free a seat; returns false when the count was already zero.
+     */
+    private boolean freeSeat(Long sessionId, TimeSlot slot) {
+        if (timeSlotRepository.decrementCount(slot.getId()) == 1) {
+            seatAllocator.release(sessionId, slot.getId());
+            return true;
+        }
+        // Count was already zero: it has drifted from the registrations, so resync the counters
+        log.warn("Seat count of slot {} was already zero when freeing a seat", slot.getId());
+        seatAllocator.invalidate(sessionId);
+        return false;
+    }
+
+    private Registration findConfirmed(Long registrationId) {
+        Registration registration = registrationRepository.findById(registrationId)
+                .orElseThrow(() -> new ResourceNotFoundException("Registration", "id", registrationId));
+        if (registration.getStatus() != RegistrationStatus.CONFIRMED || registration.getTimeSlot() == null) {
+            throw new BadRequestException("Can only change slot for confirmed registrations");
+        }
+        return registration;
+    }
+
+    private TimeSlot findTargetSlot(Registration registration, Long targetSlotId) {
+        TimeSlot slot = timeSlotRepository.findById(targetSlotId)
+                .orElseThrow(() -> new ResourceNotFoundException("Time Slot", "id", targetSlotId));
+        if (!slot.getLabSession().getId().equals(registration.getLabSession().getId())) {
+            throw new BadRequestException("Time slot does not belong to this session");
+        }
+        if (slot.getId().equals(registration.getTimeSlot().getId())) {
+            throw new BadRequestException("Registration is already in this time slot");
+        }
+        if (!Boolean.TRUE.equals(slot.getActive()) || slot.getSessionDate().isBefore(LocalDate.now())) {
+            throw new BadRequestException("Time slot is no longer available");
+        }
+        return slot;
+    }
+
+    private static void requireOwner(Registration registration, String email) {
+        if (!registration.getStudent().getEmail().equals(email)) {
+            throw new BadRequestException("You can only swap your own registrations");
+        }
+    }
+
+    private boolean clash(Registration registration, TimeSlot slot) {
+        return studentTimetableIndex.forStudent(registration.getStudent().getId())
+                .clash(slot.getSessionDate(), slot.getStartTime(), slot.getEndTime(), registration.getId())
+                .isPresent();
+    }
+
+    private void requireNoClash(Registration registration, TimeSlot slot) {
+        studentTimetableIndex.forStudent(registration.getStudent().getId())
+                .clash(slot.getSessionDate(), slot.getStartTime(), slot.getEndTime(), registration.getId())
+                .ifPresent(busy -> {
+                    throw new BadRequestException(String.format(
+                            "The slot on %s (%s - %s) clashes with %s's %s session",
+                            slot.getSessionDate(), slot.getStartTime(), slot.getEndTime(),
+                            registration.getStudent().getFullName(), busy.sessionName()));
+                });
+    }
+
+    private static void complete(SlotSwapRequest request, Registration matchedWith, LocalDateTime now) {
+        request.setStatus(SwapRequestStatus.COMPLETED);
+        request.setMatchedRegistration(matchedWith);
+        request.setResolvedAt(now);
+    }
+
+    private void notifySlotChanged(Registration registration) {
+        TimeSlot slot = registration.getTimeSlot();
+        notificationService.createNotification(
+                registration.getStudent(),
+                "Time Slot Changed",
+                String.format("Your slot for %s is now %s, %s - %s.", registration.getLabSession().getName(),
+                        slot.getSessionDate(), slot.getStartTime(), slot.getEndTime()),
+                "INFO");
+    }
+
+    private SlotSwapRequestDTO toDTO(SlotSwapRequest request) {
+        TimeSlot from = request.getFromTimeSlot();
+        TimeSlot to = request.getToTimeSlot();
+        return SlotSwapRequestDTO.builder()
+                .id(request.getId())
+                .registrationId(request.getRegistration().getId())
+                .labSessionId(request.getLabSession().getId())
+                .studentName(request.getRegistration().getStudent().getFullName())
+                .status(request.getStatus())
+                .fromTimeSlotId(from.getId())
+                .fromDate(from.getSessionDate())
+                .fromStartTime(from.getStartTime())
+                .fromEndTime(from.getEndTime())
+                .toTimeSlotId(to.getId())
+                .toDate(to.getSessionDate())
+                .toStartTime(to.getStartTime())
+                .toEndTime(to.getEndTime())
+                .matchedRegistrationId(request.getMatchedRegistration() != null
+                        ? request.getMatchedRegistration().getId() : null)
+                .createdAt(request.getCreatedAt())
+                .resolvedAt(request.getResolvedAt())
+                .build();
+    }
+}
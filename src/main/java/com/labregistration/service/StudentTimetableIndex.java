@@ -0,0 +1,232 @@
+package com.labregistration.service;
+
+import com.labregistration.model.Registration;
+import com.labregistration.repository.RegistrationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-student index of the time slots a student already holds, used to stop a registration
+ * from double-booking them.
+ *
+ * A student's busy intervals are loaded with one query from their active registrations
+ * and kept in a tree ordered by start, so checking a candidate slot is a range lookup
+ * bounded by the longest interval rather than a scan. Entries are extended after commit
+ * when a registration gets a slot, evicted when one is cancelled or moved, and expire after
+ * {@code app.registration.timetable-cache-ttl-seconds}. A load that overlapped any of those
+ * changes is returned but not cached, so it cannot put a pre-commit timetable back.
+ */
+@Component
+@Slf4j
+public class StudentTimetableIndex {
+
+    // Keeps IN lists well below driver / database parameter limits
+    private static final int ID_BATCH_SIZE = 1000;
+
+    private final RegistrationRepository registrationRepository;
+    private final long ttlMillis;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    // Bumped on every change so a load that raced with a commit is not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    public StudentTimetableIndex(RegistrationRepository registrationRepository,
+                                 @Value("${app.registration.timetable-cache-ttl-seconds:300}") long ttlSeconds) {
+        this.registrationRepository = registrationRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    public Timetable forStudent(Long studentId) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(studentId);
+        if (entry != null && entry.expiresAt > now) {
+            return entry.timetable;
+        }
+        long loadedAt = generation.get();
+        List<Busy> busy = new ArrayList<>();
+        for (Object[] row : registrationRepository.findOccupiedSlotsByStudentId(studentId)) {
+            LocalDate date = (LocalDate) row[3];
+            busy.add(new Busy((Long) row[0], (Long) row[1], (String) row[2],
+                    date.atTime((LocalTime) row[4]), date.atTime((LocalTime) row[5])));
+        }
+        Timetable timetable = Timetable.of(busy);
+        if (generation.get() == loadedAt) {
+            entries.put(studentId, new Entry(timetable, now + ttlMillis));
+        }
+        return timetable;
+    }
+
+    /**
+     * Timetables of many students, keyed by student id; the ones not cached are loaded with
+     * one query per {@value #ID_BATCH_SIZE} students.
+     */
+    public Map<Long, Timetable> forStudents(Collection<Long> studentIds) {
+        long now = System.currentTimeMillis();
+        Map<Long, Timetable> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long studentId : new LinkedHashSet<>(studentIds)) {
+            Entry entry = entries.get(studentId);
+            if (entry != null && entry.expiresAt > now) {
+                result.put(studentId, entry.timetable);
+            } else {
+                missing.add(studentId);
+            }
+        }
+
+        for (int i = 0; i < missing.size(); i += ID_BATCH_SIZE) {
+            List<Long> batch = missing.subList(i, Math.min(i + ID_BATCH_SIZE, missing.size()));
+            long loadedAt = generation.get();
+            Map<Long, List<Busy>> busy = new HashMap<>();
+            for (Object[] row : registrationRepository.findOccupiedSlotsByStudentIds(batch)) {
+                LocalDate date = (LocalDate) row[4];
+                busy.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+                        .add(new Busy((Long) row[1], (Long) row[2], (String) row[3],
+                                date.atTime((LocalTime) row[5]), date.atTime((LocalTime) row[6])));
+            }
+            for (Long studentId : batch) {
+                Timetable timetable = Timetable.of(busy.getOrDefault(studentId, List.of()));
+                if (generation.get() == loadedAt) {
+                    entries.put(studentId, new Entry(timetable, now + ttlMillis));
+                }
+                result.put(studentId, timetable);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add a registration's slot to the student's cached timetable once the transaction commits.
+     */
+    public void add(Registration registration) {
+        if (registration.getTimeSlot() == null) return;
+        Long studentId = registration.getStudent().getId();
+        Busy busy = Busy.of(registration);
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            entries.computeIfPresent(studentId, (id, e) -> new Entry(e.timetable.with(busy), e.expiresAt));
+        });
+    }
+
+    /**
+     * Forget a student's timetable once the transaction commits, so it is reloaded on next use.
+     */
+    public void evict(Long studentId) {
+        if (studentId == null) return;
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            entries.remove(studentId);
+        });
+    }
+
+    /**
+     * Same as {@link #evict(Long)} for many students, with a single commit hook.
+     */
+    public void evictAll(Collection<Long> studentIds) {
+        if (studentIds.isEmpty()) return;
+        List<Long> ids = List.copyOf(studentIds);
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            ids.forEach(entries::remove);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.registration.timetable-cache-cleanup-ms:300000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.expiresAt <= now);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public record Busy(Long registrationId, Long sessionId, String sessionName,
+                       LocalDateTime start, LocalDateTime end) {
+
+        static Busy of(Registration registration) {
+            var slot = registration.getTimeSlot();
+            return new Busy(registration.getId(), registration.getLabSession().getId(),
+                    registration.getLabSession().getName(),
+                    slot.getSessionDate().atTime(slot.getStartTime()),
+                    slot.getSessionDate().atTime(slot.getEndTime()));
+        }
+    }
+
+    /**
+     * Immutable set of busy intervals ordered by start time.
+     */
+    public static final class Timetable {
+
+        private final NavigableMap<LocalDateTime, List<Busy>> byStart;
+        private final Duration longest;
+
+        private Timetable(NavigableMap<LocalDateTime, List<Busy>> byStart, Duration longest) {
+            this.byStart = byStart;
+            this.longest = longest;
+        }
+
+        static Timetable of(Collection<Busy> busy) {
+            NavigableMap<LocalDateTime, List<Busy>> byStart = new TreeMap<>();
+            Duration longest = Duration.ZERO;
+            for (Busy b : busy) {
+                byStart.computeIfAbsent(b.start(), k -> new ArrayList<>()).add(b);
+                Duration length = Duration.between(b.start(), b.end());
+                if (length.compareTo(longest) > 0) longest = length;
+            }
+            return new Timetable(byStart, longest);
+        }
+
+        Timetable with(Busy busy) {
+            List<Busy> all = new ArrayList<>();
+            byStart.values().forEach(all::addAll);
+            all.removeIf(b -> b.registrationId() != null && b.registrationId().equals(busy.registrationId()));
+            all.add(busy);
+            return of(all);
+        }
+
+        /**
+         * First busy interval overlapping the window on {@code date}, ignoring the registration
+         * {@code excludeRegistrationId} (the one being moved, if any).
+         */
+        public Optional<Busy> clash(LocalDate date, LocalTime startTime, LocalTime endTime, Long excludeRegistrationId) {
+            LocalDateTime start = date.atTime(startTime);
+            LocalDateTime end = date.atTime(endTime);
+            // Nothing that starts earlier than start - longest can still be running at start
+            for (List<Busy> sameStart : byStart.subMap(start.minus(longest), false, end, false).values()) {
+                for (Busy b : sameStart) {
+                    if (b.end().isAfter(start) && !b.registrationId().equals(excludeRegistrationId)) {
+                        return Optional.of(b);
+                    }
+                }
+            }
+            return Optional.empty();
+        }
+
+        public Optional<Busy> clash(LocalDate date, LocalTime startTime, LocalTime endTime) {
+            return clash(date, startTime, endTime, null);
+        }
+    }
+
+    private record Entry(Timetable timetable, long expiresAt) {}
+}
@@ -25,6 +25,7 @@ public class TimeSlotService {
     private final TimeSlotRepository timeSlotRepository;
     private final LabSessionService labSessionService;
     private final TimeSlotMapper timeSlotMapper;
+    private final SeatAllocator seatAllocator;
 
     // Get all slots for a session
     public List<TimeSlotDTO> getSlotsBySession(Long sessionId) {
@@ -80,6 +81,7 @@ public class TimeSlotService {
                 .build();
 
         slot = timeSlotRepository.save(slot);
+        seatAllocator.invalidate(sessionId);
         log.info("Created time slot {} for session {}", slot.getId(), sessionId);
         return timeSlotMapper.toDTO(slot);
     }
@@ -101,6 +103,7 @@ public class TimeSlotService {
         if (request.getMaxStudents() != null) slot.setMaxStudents(request.getMaxStudents());
 
         slot = timeSlotRepository.save(slot);
+        seatAllocator.invalidate(slot.getLabSession().getId());
         log.info("Updated time slot {}", slotId);
         return timeSlotMapper.toDTO(slot);
     }
@@ -112,6 +115,7 @@ public class TimeSlotService {
                 .orElseThrow(() -> new ResourceNotFoundException("TimeSlot", "id", slotId));
         slot.setActive(false);
         timeSlotRepository.save(slot);
+        seatAllocator.invalidate(slot.getLabSession().getId());
         log.info("Deactivated time slot {}", slotId);
     }
 
@@ -121,6 +125,7 @@ public class TimeSlotService {
                 .orElseThrow(() -> new ResourceNotFoundException("TimeSlot", "id", slotId));
         slot.setActive(true);
         timeSlotRepository.save(slot);
+        seatAllocator.invalidate(slot.getLabSession().getId());
         log.info("Activated time slot {}", slotId);
     }
 
@@ -135,6 +140,7 @@ public class TimeSlotService {
         }
 
         timeSlotRepository.delete(slot);
+        seatAllocator.invalidate(slot.getLabSession().getId());
         log.info("Deleted time slot {}", slotId);
     }
 
@@ -178,6 +184,7 @@ public class TimeSlotService {
                 .orElseThrow(() -> new ResourceNotFoundException("TimeSlot", "id", slotId));
         slot.setActive(!slot.getActive());
         slot = timeSlotRepository.save(slot);
+        seatAllocator.invalidate(slot.getLabSession().getId());
         log.info("Toggled time slot {} active={}", slotId, slot.getActive());
         return timeSlotMapper.toDTO(slot);
     }
@@ -0,0 +1,205 @@
+package com.labregistration.service;
+
+import com.labregistration.exception.BadRequestException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Streams the rows of a timetable upload (CSV or XLSX) to a consumer, keyed by the
+ * normalised header names of the first row. XLSX files are read with POI's SAX event API,
+ * so the sheet is never built as a DOM; date and time cells come out as ISO strings.
+ */
+final class TimetableFileReader {
+
+    record Row(int number, Map<String, String> values) {
+
+        String get(String column) {
+            String value = values.get(column);
+            return value == null || value.isBlank() ? null : value.trim();
+        }
+    }
+
+    private TimetableFileReader() {
+    }
+
+    static void read(InputStream in, String filename, Consumer<Row> sink) throws IOException {
+        String name = filename != null ? filename.toLowerCase(Locale.ROOT) : "";
+        if (name.endsWith(".csv")) {
+            readCsv(in, sink);
+        } else if (name.endsWith(".xlsx")) {
+            readXlsx(in, sink);
+        } else {
+            throw new BadRequestException("Timetable must be a .csv or .xlsx file");
+        }
+    }
+
+    // Header names are matched loosely: "Start Date", "start_date" and "startDate" are the same column
+    static String normalise(String header) {
+        return header == null ? "" : header.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    // -------------------------------------------------------------------------
+    // CSV
+    // -------------------------------------------------------------------------
+
+    private static void readCsv(InputStream in, Consumer<Row> sink) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        if (line == null) {
+            return;
+        }
+        if (line.startsWith("\uFEFF")) {
+            line = line.substring(1);
+        }
+        List<String> headers = splitCsv(line).stream().map(TimetableFileReader::normalise).toList();
+
+        int number = 1;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> cells = splitCsv(line);
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < headers.size() && i < cells.size(); i++) {
+                values.put(headers.get(i), cells.get(i));
+            }
+            sink.accept(new Row(number, values));
+        }
+    }
+
+    // RFC 4180 fields on a single line: quoted fields may contain commas and doubled quotes
+    private static List<String> splitCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    // -------------------------------------------------------------------------
+    // XLSX
+    // -------------------------------------------------------------------------
+
+    private static void readXlsx(InputStream in, Consumer<Row> sink) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(in)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), null,
+                    new ReadOnlySharedStringsTable(pkg), new SheetRows(sink), new IsoDateFormatter(), false));
+            try (InputStream sheet = sheets.next()) {
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (BadRequestException | IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new BadRequestException("Could not read the timetable spreadsheet: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Collects the cells of each row of the first sheet; the first non-empty row is the header.
+     */
+    private static final class SheetRows implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final Consumer<Row> sink;
+        private Map<Integer, String> headers;
+        private Map<String, String> values;
+
+        SheetRows(Consumer<Row> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            values = new HashMap<>();
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int col = new CellReference(cellReference).getCol();
+            if (headers == null) {
+                values.put(String.valueOf(col), normalise(formattedValue));
+            } else if (headers.containsKey(col)) {
+                values.put(headers.get(col), formattedValue);
+            }
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (values.isEmpty()) {
+                return;
+            }
+            if (headers == null) {
+                headers = new HashMap<>();
+                values.forEach((col, name) -> headers.put(Integer.parseInt(col), name));
+                return;
+            }
+            sink.accept(new Row(rowNum + 1, values));
+        }
+    }
+
+    /**
+     * Formats date and time cells as ISO-8601 so they parse the same way as CSV input,
+     * whatever display format the spreadsheet used.
+     */
+    private static final class IsoDateFormatter extends DataFormatter {
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            if (!DateUtil.isADateFormat(formatIndex, formatString) || !DateUtil.isValidExcelDate(value)) {
+                return super.formatRawCellContents(value, formatIndex, formatString);
+            }
+            LocalDateTime dateTime = DateUtil.getLocalDateTime(value);
+            if (value < 1) {
+                return dateTime.toLocalTime().toString();
+            }
+            if (value == Math.floor(value)) {
+                return dateTime.toLocalDate().toString();
+            }
+            return dateTime.toString();
+        }
+    }
+}
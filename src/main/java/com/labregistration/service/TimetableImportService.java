@@ -0,0 +1,309 @@
+package com.labregistration.service;
+
+import com.labregistration.dto.TimetableImportResultDTO;
+import com.labregistration.dto.TimetableImportResultDTO.RowError;
+import com.labregistration.dto.request.CreateLabSessionRequest;
+import com.labregistration.exception.BadRequestException;
+import com.labregistration.model.Course;
+import com.labregistration.model.Program;
+import com.labregistration.model.SessionStatus;
+import com.labregistration.model.User;
+import com.labregistration.repository.CourseRepository;
+import com.labregistration.repository.ProgramRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import of a semester timetable (CSV or XLSX, one lab session per row).
+ *
+ * Rows are streamed from the file, then validated in parallel against a snapshot of all
+ * courses and programs loaded once up front, the room occupancy index, and each other.
+ * Nothing is written unless every row is valid; the import then persists the sessions and
+ * their slots in batched transactions through LabSessionService. If a batch fails to save,
+ * the batches before it stay saved and the result is marked partial, listing the saved
+ * session ids and the rows that were not imported.
+ *
+ * Columns (header names are matched loosely): name, courseCode, labRoom, startDate, endDate,
+ * startTime, endTime, sessionDays (separated by ';'), slotsPerDay, maxStudentsPerSlot,
+ * maxGroupSize, maxGroups, and optionally programCodes (';'), openToAllPrograms,
+ * registrationDeadline, status, description, instructions.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TimetableImportService {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("H:mm[:ss]");
+
+    private final CourseRepository courseRepository;
+    private final ProgramRepository programRepository;
+    private final UserService userService;
+    private final LabSessionService labSessionService;
+    private final RoomOccupancyIndex roomOccupancyIndex;
+    private final Validator validator;
+
+    @Value("${app.timetable-import.batch-size:50}")
+    private int batchSize;
+
+    public TimetableImportResultDTO importTimetable(MultipartFile file, String creatorEmail, boolean dryRun) {
+        if (file == null || file.isEmpty()) {
+            throw new BadRequestException("Timetable file is empty");
+        }
+        User creator = userService.getUserEntityByEmail(creatorEmail);
+
+        List<TimetableFileReader.Row> rows = new ArrayList<>();
+        try (InputStream in = file.getInputStream()) {
+            TimetableFileReader.read(in, file.getOriginalFilename(), rows::add);
+        } catch (IOException e) {
+            throw new BadRequestException("Could not read timetable file: " + e.getMessage());
+        }
+
+        Snapshot snapshot = new Snapshot(
+                courseRepository.findAll().stream()
+                        .collect(Collectors.toMap(c -> key(c.getCourseCode()), Function.identity(), (a, b) -> a)),
+                programRepository.findAll().stream()
+                        .collect(Collectors.toMap(p -> key(p.getCode()), Function.identity(), (a, b) -> a)));
+
+        // Validation touches no database state, so rows are checked in parallel
+        List<CheckedRow> checked = rows.parallelStream()
+                .map(row -> check(row, snapshot))
+                .collect(Collectors.toList());
+        checkClashesWithinFile(checked);
+
+        List<RowError> errors = new ArrayList<>();
+        List<CheckedRow> valid = new ArrayList<>();
+        for (CheckedRow row : checked) {
+            if (row.errors.isEmpty()) {
+                valid.add(row);
+            } else {
+                row.errors.forEach(message -> errors.add(new RowError(row.number, message)));
+            }
+        }
+
+        TimetableImportResultDTO result = TimetableImportResultDTO.builder()
+                .totalRows(rows.size())
+                .validRows(valid.size())
+                .dryRun(dryRun)
+                .sessionIds(new ArrayList<>())
+                .errors(errors)
+                .build();
+        if (dryRun || !errors.isEmpty() || valid.isEmpty()) {
+            return result;
+        }
+
+        Map<Long, Course> courses = new HashMap<>();
+        snapshot.courses.values().forEach(c -> courses.put(c.getId(), c));
+        Map<Long, Program> programs = new HashMap<>();
+        snapshot.programs.values().forEach(p -> programs.put(p.getId(), p));
+
+        // One transaction per batch keeps each commit short on large timetables
+        for (int from = 0; from < valid.size(); from += batchSize) {
+            List<CheckedRow> batch = valid.subList(from, Math.min(from + batchSize, valid.size()));
+            try {
+                LabSessionService.BatchResult created = labSessionService.createLabSessionsBatch(
+                        batch.stream().map(r -> r.request).collect(Collectors.toList()), courses, programs, creator);
+                result.getSessionIds().addAll(created.sessionIds());
+                result.setCreatedSessions(result.getCreatedSessions() + created.sessionIds().size());
+                result.setCreatedSlots(result.getCreatedSlots() + created.slotCount());
+            } catch (RuntimeException e) {
+                log.error("Timetable import stopped at row {}: {}", batch.get(0).number, e.getMessage());
+                errors.add(new RowError(batch.get(0).number, String.format(
+                        "Rows %d-%d could not be saved (%s); earlier rows were imported, later rows were not",
+                        batch.get(0).number, batch.get(batch.size() - 1).number, e.getMessage())));
+                result.setPartial(result.getCreatedSessions() > 0);
+                break;
+            }
+        }
+
+        log.info("Timetable import by {}: {} rows, {} sessions and {} slots created",
+                creatorEmail, rows.size(), result.getCreatedSessions(), result.getCreatedSlots());
+        return result;
+    }
+
+    // -------------------------------------------------------------------------
+    // ROW VALIDATION
+    // -------------------------------------------------------------------------
+
+    private CheckedRow check(TimetableFileReader.Row row, Snapshot snapshot) {
+        List<String> errors = new ArrayList<>();
+        CreateLabSessionRequest request = new CreateLabSessionRequest();
+
+        request.setName(row.get("name"));
+        request.setDescription(row.get("description"));
+        request.setLabRoom(row.get("labroom"));
+        request.setInstructions(row.get("instructions"));
+        request.setStartDate(parse(row, "startdate", LocalDate::parse, errors));
+        request.setEndDate(parse(row, "enddate", LocalDate::parse, errors));
+        request.setStartTime(parse(row, "starttime", v -> LocalTime.parse(v, TIME), errors));
+        request.setEndTime(parse(row, "endtime", v -> LocalTime.parse(v, TIME), errors));
+        request.setRegistrationDeadline(parse(row, "registrationdeadline", LocalDateTime::parse, errors));
+        request.setSlotsPerDay(parse(row, "slotsperday", Integer::valueOf, errors));
+        request.setMaxStudentsPerSlot(parse(row, "maxstudentsperslot", Integer::valueOf, errors));
+        request.setMaxGroupSize(parse(row, "maxgroupsize", Integer::valueOf, errors));
+        request.setMaxGroups(parse(row, "maxgroups", Integer::valueOf, errors));
+        request.setStatus(parse(row, "status", v -> SessionStatus.valueOf(v.toUpperCase(Locale.ROOT)), errors));
+
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        if (row.get("sessiondays") != null) {
+            for (String token : row.get("sessiondays").split("[;|/]")) {
+                DayOfWeek day = parseDay(token);
+                if (day == null) {
+                    errors.add("Unknown session day '" + token.trim() + "'");
+                } else {
+                    days.add(day);
+                }
+            }
+        }
+        request.setSessionDays(days.stream().map(DayOfWeek::name).collect(Collectors.toCollection(LinkedHashSet::new)));
+
+        String courseCode = row.get("coursecode");
+        Course course = courseCode != null ? snapshot.courses.get(key(courseCode)) : null;
+        if (courseCode == null) {
+            errors.add("Course code is required");
+        } else if (course == null) {
+            errors.add("Unknown course code '" + courseCode + "'");
+        } else {
+            request.setCourseId(course.getId());
+        }
+
+        Set<Long> programIds = new HashSet<>();
+        if (row.get("programcodes") != null) {
+            for (String code : row.get("programcodes").split("[;|/]")) {
+                if (code.isBlank()) continue;
+                Program program = snapshot.programs.get(key(code));
+                if (program == null) {
+                    errors.add("Unknown program code '" + code.trim() + "'");
+                } else {
+                    programIds.add(program.getId());
+                }
+            }
+        }
+        request.setAllowedProgramIds(programIds);
+        String openToAll = row.get("opentoallprograms");
+        request.setOpenToAllPrograms(openToAll != null ? Boolean.parseBoolean(openToAll) : programIds.isEmpty());
+
+        for (ConstraintViolation<CreateLabSessionRequest> violation : validator.validate(request)) {
+            errors.add(violation.getMessage());
+        }
+        if (request.getSlotsPerDay() == null || request.getSlotsPerDay() < 1) {
+            errors.add("Slots per day must be at least 1");
+        }
+        if (request.getMaxStudentsPerSlot() == null || request.getMaxStudentsPerSlot() < 1) {
+            errors.add("Max students per slot must be at least 1");
+        }
+        if (request.getStartTime() != null && request.getEndTime() != null
+                && !request.getEndTime().isAfter(request.getStartTime())) {
+            errors.add("End time must be after start time");
+        }
+        if (request.getStartDate() != null && request.getEndDate() != null
+                && request.getEndDate().isBefore(request.getStartDate())) {
+            errors.add("End date must be after start date");
+        }
+
+        if (errors.isEmpty()) {
+            roomOccupancyIndex.findConflict(request.getLabRoom(), days, request.getStartDate(), request.getEndDate(),
+                            request.getStartTime(), request.getEndTime(), null)
+                    .ifPresent(conflict -> errors.add(String.format(
+                            "Room conflict with existing session '%s' on %s (%s - %s)",
+                            conflict.sessionName(), conflict.date(), conflict.startTime(), conflict.endTime())));
+        }
+        return new CheckedRow(row.number(), request, days, errors);
+    }
+
+    /**
+     * Rows in the same file can clash with each other too; compare valid rows per room.
+     */
+    private void checkClashesWithinFile(List<CheckedRow> rows) {
+        Map<String, List<CheckedRow>> byRoom = new HashMap<>();
+        for (CheckedRow row : rows) {
+            if (row.errors.isEmpty()) {
+                byRoom.computeIfAbsent(key(row.request.getLabRoom()), k -> new ArrayList<>()).add(row);
+            }
+        }
+        for (List<CheckedRow> inRoom : byRoom.values()) {
+            for (int i = 0; i < inRoom.size(); i++) {
+                for (int j = 0; j < i; j++) {
+                    CheckedRow earlier = inRoom.get(j);
+                    LocalDate date = firstSharedDate(inRoom.get(i), earlier);
+                    if (date != null) {
+                        inRoom.get(i).errors.add(String.format(
+                                "Room conflict with row %d ('%s') on %s", earlier.number, earlier.request.getName(), date));
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private static LocalDate firstSharedDate(CheckedRow a, CheckedRow b) {
+        CreateLabSessionRequest x = a.request;
+        CreateLabSessionRequest y = b.request;
+        if (!x.getStartTime().isBefore(y.getEndTime()) || !x.getEndTime().isAfter(y.getStartTime())) {
+            return null;
+        }
+        LocalDate from = x.getStartDate().isAfter(y.getStartDate()) ? x.getStartDate() : y.getStartDate();
+        LocalDate to = x.getEndDate().isBefore(y.getEndDate()) ? x.getEndDate() : y.getEndDate();
+        LocalDate first = null;
+        for (DayOfWeek day : a.days) {
+            if (!b.days.contains(day)) continue;
+            LocalDate date = from.with(TemporalAdjusters.nextOrSame(day));
+            if (!date.isAfter(to) && (first == null || date.isBefore(first))) {
+                first = date;
+            }
+        }
+        return first;
+    }
+
+    private static <T> T parse(TimetableFileReader.Row row, String column, Function<String, T> parser, List<String> errors) {
+        String value = row.get(column);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return parser.apply(value);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            errors.add("Invalid value '" + value + "' for " + column);
+            return null;
+        }
+    }
+
+    // Accepts full names and abbreviations: "Monday", "MON", "mon"
+    private static DayOfWeek parseDay(String token) {
+        String value = token.trim().toUpperCase(Locale.ROOT);
+        if (value.length() < 3) {
+            return null;
+        }
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (day.name().startsWith(value)) {
+                return day;
+            }
+        }
+        return null;
+    }
+
+    private static String key(String code) {
+        return code == null ? "" : code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private record Snapshot(Map<String, Course> courses, Map<String, Program> programs) {}
+
+    private record CheckedRow(int number, CreateLabSessionRequest request, Set<DayOfWeek> days, List<String> errors) {}
+}
@@ -3,6 +3,8 @@ package com.labregistration.service;
 import com.labregistration.dto.UpdateLabManagerRequest;
 import com.labregistration.dto.UserDTO;
 import com.labregistration.dto.request.CreateLabManagerRequest;
+import com.labregistration.dto.response.CursorPage;
+import com.labregistration.dto.response.CursorPage.Cursor;
 import com.labregistration.exception.BadRequestException;
 import com.labregistration.exception.ResourceNotFoundException;
 import com.labregistration.mapper.UserMapper;
@@ -12,8 +14,10 @@ import com.labregistration.model.Role;
 import com.labregistration.model.User;
 import com.labregistration.repository.DepartmentRepository;
 import com.labregistration.repository.UserRepository;
+import com.labregistration.security.PrincipalCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -33,6 +37,7 @@ public class UserService implements UserDetailsService {
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
     private final DepartmentRepository departmentRepository;
+    private final PrincipalCache principalCache;
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
@@ -62,6 +67,14 @@ public class UserService implements UserDetailsService {
                 .collect(Collectors.toList());
     }
 
+    public CursorPage<UserDTO> getStudentsPage(String cursor, Integer limit) {
+        Cursor after = Cursor.decode(cursor);
+        int size = CursorPage.clampLimit(limit);
+        List<User> rows = userRepository.findPageByRole(Role.STUDENT, after.createdAt(), after.id(),
+                PageRequest.of(0, size + 1));
+        return CursorPage.of(rows, size, User::getCreatedAt, User::getId, userMapper::toDTO);
+    }
+
     public List<UserDTO> getAllLabManagers() {
         return userRepository.findByRole(Role.LAB_MANAGER).stream()
                 .map(userMapper::toDTO)
@@ -151,6 +164,7 @@ public class UserService implements UserDetailsService {
         if (updateDTO.getLevel() != null) user.setLevel(updateDTO.getLevel());
 
         user = userRepository.save(user);
+        principalCache.evict(user.getEmail());
         return userMapper.toDTO(user);
     }
 
@@ -160,6 +174,7 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
         user.setEnabled(false);
         userRepository.save(user);
+        principalCache.evict(user.getEmail());
         log.info("Deactivated user: {}", user.getEmail());
     }
 
@@ -169,6 +184,7 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
         user.setEnabled(true);
         userRepository.save(user);
+        principalCache.evict(user.getEmail());
         log.info("Activated user: {}", user.getEmail());
     }
 
@@ -188,6 +204,7 @@ public class UserService implements UserDetailsService {
 public UserDTO updateLabManager(Long id, UpdateLabManagerRequest request) {
     User user = userRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Lab Manager not found with id: " + id));
+    principalCache.evict(user.getEmail());
 
     user.setFirstName(request.getFirstName());
     user.setLastName(request.getLastName());
@@ -203,6 +220,7 @@ public UserDTO updateLabManager(Long id, UpdateLabManagerRequest request) {
         user.setDepartment(department);
     }
     User updated = userRepository.save(user);
+    principalCache.evict(updated.getEmail());
     return userMapper.toDTO(updated);
 }
 }
@@ -0,0 +1,124 @@
+package com.labregistration.service;
+
+import com.labregistration.model.Registration;
+import com.labregistration.model.RegistrationStatus;
+import com.labregistration.model.TimeSlot;
+import com.labregistration.repository.RegistrationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Per-session waitlist.
+ *
+ * Positions are tickets taken from the end of the queue and are never rewritten: promotion
+ * removes rows from the head, and a student's place is worked out from the number of
+ * tickets ahead of theirs. Promotion locks only as many head rows as there are seats to
+ * fill, skipping rows a concurrent cancellation has already locked, and confirms them with
+ * one UPDATE per assigned slot.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WaitlistService {
+
+    private final RegistrationRepository registrationRepository;
+    private final SeatAllocator seatAllocator;
+    private final NotificationService notificationService;
+    private final StudentTimetableIndex studentTimetableIndex;
+
+    /**
+     * Ticket for a new waitlist entry. Concurrent joins can draw the same ticket; ties are
+     * ordered by registration id, so order is still stable.
+     */
+    public int nextPosition(Long sessionId) {
+        return registrationRepository.findMaxWaitlistPosition(sessionId) + 1;
+    }
+
+    /**
+     * 1-based place in the queue, or null if the registration is not waitlisted.
+     */
+    public Integer placeInQueue(Registration registration) {
+        if (registration.getStatus() != RegistrationStatus.WAITLISTED || registration.getWaitlistPosition() == null) {
+            return null;
+        }
+        if (registration.getId() == null) {
+            // Not saved yet, so it is at the back of the queue
+            return registrationRepository.countByLabSessionIdAndStatus(
+                    registration.getLabSession().getId(), RegistrationStatus.WAITLISTED) + 1;
+        }
+        return registrationRepository.countWaitlistedAhead(registration.getLabSession().getId(),
+                registration.getWaitlistPosition(), registration.getId()) + 1;
+    }
+
+    /**
+     * {@link #placeInQueue} for several saved registrations with one query, keyed by
+     * registration id. Registrations that are not waitlisted are left out.
+     */
+    public Map<Long, Integer> placesInQueue(Collection<Registration> registrations) {
+        List<Long> waitlisted = registrations.stream()
+                .filter(r -> r.getStatus() == RegistrationStatus.WAITLISTED && r.getWaitlistPosition() != null)
+                .map(Registration::getId)
+                .toList();
+        if (waitlisted.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Integer> places = new HashMap<>();
+        for (Object[] row : registrationRepository.countWaitlistedAheadByIds(waitlisted)) {
+            places.put((Long) row[0], ((Long) row[1]).intValue() + 1);
+        }
+        return places;
+    }
+
+    /**
+     * Move up to {@code seats} students from the head of the waitlist into free slots.
+     * Returns the number promoted, which is lower when the waitlist or the free seats run out.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int promote(Long sessionId, int seats) {
+        if (seats <= 0) {
+            return 0;
+        }
+
+        List<Registration> head = registrationRepository.lockWaitlistHead(sessionId, PageRequest.of(0, seats));
+        if (head.isEmpty()) {
+            return 0;
+        }
+
+        List<TimeSlot> slots = seatAllocator.reserveAvailable(sessionId, head.size());
+        if (slots.isEmpty()) {
+            return 0;
+        }
+
+        // Pair the head of the queue with the reserved seats, grouped per slot for the bulk update
+        Map<TimeSlot, List<Long>> idsBySlot = new LinkedHashMap<>();
+        List<Registration> promoted = head.subList(0, slots.size());
+        for (int i = 0; i < promoted.size(); i++) {
+            idsBySlot.computeIfAbsent(slots.get(i), s -> new ArrayList<>()).add(promoted.get(i).getId());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        idsBySlot.forEach((slot, ids) ->
+                registrationRepository.promoteToSlot(ids, slot, RegistrationStatus.CONFIRMED, now));
+
+        for (Registration registration : promoted) {
+            studentTimetableIndex.evict(registration.getStudent().getId());
+            notificationService.createNotification(
+                    registration.getStudent(),
+                    "Promoted from Waitlist",
+                    "You have been promoted from the waitlist for " + registration.getLabSession().getName() +
+                            ". Check your registrations for session details.",
+                    "SUCCESS"
+            );
+        }
+
+        log.info("Promoted {} student(s) from waitlist for session {}", promoted.size(), sessionId);
+        return promoted.size();
+    }
+}
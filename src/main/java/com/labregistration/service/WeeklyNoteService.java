@@ -17,7 +17,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
@@ -32,6 +31,7 @@ public class WeeklyNoteService {
     private final WeeklyNoteRepository weeklyNoteRepository;
     private final LabSessionRepository labSessionRepository;
     private final UserRepository userRepository;
+    private final WeeklyTimelineCache weeklyTimelineCache;
 
     /**
      * Get all weekly notes for a lab session (for admin/lab manager)
@@ -157,6 +157,7 @@ public class WeeklyNoteService {
         note.setWeekEndDate(weekEnd);
 
         note = weeklyNoteRepository.save(note);
+        weeklyTimelineCache.invalidate(session.getId());
         log.info("Updated weekly note for session {} week {} by {}", session.getName(), request.getWeekNumber(), userEmail);
 
         return toDTO(note, session, request.getWeekNumber(), weekStart, weekEnd);
@@ -176,6 +177,7 @@ public class WeeklyNoteService {
         note.setIsPublished(true);
         note.setUpdatedBy(user);
         note = weeklyNoteRepository.save(note);
+        weeklyTimelineCache.invalidate(labSessionId);
 
         log.info("Published weekly note for session {} week {}", labSessionId, weekNumber);
 
@@ -197,6 +199,7 @@ public class WeeklyNoteService {
         note.setIsPublished(false);
         note.setUpdatedBy(user);
         note = weeklyNoteRepository.save(note);
+        weeklyTimelineCache.invalidate(labSessionId);
 
         log.info("Unpublished weekly note for session {} week {}", labSessionId, weekNumber);
 
@@ -237,8 +240,8 @@ public class WeeklyNoteService {
         boolean isPastWeek = today.isAfter(weekEnd);
         boolean isFutureWeek = today.isBefore(weekStart);
 
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM d");
-        String dateRange = weekStart.format(formatter) + " - " + weekEnd.format(formatter);
+        String dateRange = weekStart.format(WeeklyTimelineCache.WEEK_DATE) + " - "
+                + weekEnd.format(WeeklyTimelineCache.WEEK_DATE);
 
         if (note == null) {
             return WeeklyNoteDTO.builder()
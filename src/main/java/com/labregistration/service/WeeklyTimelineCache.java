@@ -0,0 +1,205 @@
+package com.labregistration.service;
+
+import com.labregistration.dto.WeeklyNoteDTO;
+import com.labregistration.model.LabSession;
+import com.labregistration.model.WeeklyNote;
+import com.labregistration.repository.WeeklyNoteRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of each session's week-by-week timeline as students see it: the date range of every
+ * week plus the published weekly note for it, if any.
+ *
+ * Timelines are immutable and built for all missing sessions with one query, so a student's
+ * registrations can be decorated without a query per registration. Only the current/past/
+ * future flags depend on the day and are filled in on read. WeeklyNoteService calls
+ * {@link #invalidate(Long)} when a note is saved, published or unpublished; an entry built
+ * for an older session name, start date, length or set of session days is rebuilt on sight, and entries
+ * expire after {@code app.weekly-notes.timeline-cache-ttl-seconds}.
+ */
+@Component
+@Slf4j
+public class WeeklyTimelineCache {
+
+    static final DateTimeFormatter WEEK_DATE = DateTimeFormatter.ofPattern("MMM d");
+
+    private final WeeklyNoteRepository weeklyNoteRepository;
+    private final long ttlMillis;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation so a rebuild that raced with a write is not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    public WeeklyTimelineCache(WeeklyNoteRepository weeklyNoteRepository,
+                               @Value("${app.weekly-notes.timeline-cache-ttl-seconds:3600}") long ttlSeconds) {
+        this.weeklyNoteRepository = weeklyNoteRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    /**
+     * Student view of the weeks of each session, keyed by session id.
+     */
+    public Map<Long, List<WeeklyNoteDTO>> forSessions(Collection<LabSession> sessions) {
+        long now = System.currentTimeMillis();
+        Map<Long, Timeline> timelines = new HashMap<>();
+        Map<Long, LabSession> missing = new LinkedHashMap<>();
+        for (LabSession session : sessions) {
+            if (timelines.containsKey(session.getId()) || missing.containsKey(session.getId())) continue;
+            Entry entry = entries.get(session.getId());
+            if (entry != null && entry.expiresAt > now && entry.timeline.builtFor(session)) {
+                timelines.put(session.getId(), entry.timeline);
+            } else {
+                missing.put(session.getId(), session);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long loadedAt = generation.get();
+            Map<Long, List<WeeklyNote>> notes = weeklyNoteRepository.findPublishedByLabSessionIds(missing.keySet())
+                    .stream()
+                    .collect(Collectors.groupingBy(n -> n.getLabSession().getId()));
+            for (LabSession session : missing.values()) {
+                Timeline timeline = Timeline.build(session, notes.getOrDefault(session.getId(), List.of()));
+                timelines.put(session.getId(), timeline);
+                if (generation.get() == loadedAt) {
+                    entries.put(session.getId(), new Entry(timeline, now + ttlMillis));
+                }
+            }
+            log.debug("Built week timelines for {} session(s)", missing.size());
+        }
+
+        LocalDate today = LocalDate.now();
+        Map<Long, List<WeeklyNoteDTO>> result = new HashMap<>();
+        timelines.forEach((id, timeline) -> result.put(id, timeline.toDTOs(today)));
+        return result;
+    }
+
+    /**
+     * Drop a session's timeline once the current transaction commits.
+     */
+    public void invalidate(Long sessionId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(sessionId);
+                }
+            });
+        } else {
+            evict(sessionId);
+        }
+    }
+
+    private void evict(Long sessionId) {
+        generation.incrementAndGet();
+        entries.remove(sessionId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.weekly-notes.timeline-cache-cleanup-ms:600000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.expiresAt <= now);
+    }
+
+    /**
+     * First day of the session that falls on one of its session days.
+     */
+    static LocalDate firstSessionDay(LabSession session) {
+        LocalDate date = session.getStartDate();
+        Set<String> sessionDays = session.getSessionDaysSet();
+        if (sessionDays.isEmpty()) {
+            return date;
+        }
+        for (int i = 0; i < 7; i++) {
+            LocalDate checkDate = date.plusDays(i);
+            if (sessionDays.contains(checkDate.getDayOfWeek().toString())) {
+                return checkDate;
+            }
+        }
+        return date;
+    }
+
+    private record Note(Long id, String title, String content, String learningObjectives, String materialsNeeded) {
+
+        static Note of(WeeklyNote note) {
+            return new Note(note.getId(), note.getTitle(), note.getContent(),
+                    note.getLearningObjectives(), note.getMaterialsNeeded());
+        }
+    }
+
+    private record Week(int number, LocalDate start, LocalDate end, String dateRange, Note note) {}
+
+    private record Timeline(Long sessionId, String sessionName, LocalDate startDate, Integer durationWeeks,
+                            String sessionDays, List<Week> weeks) {
+
+        static Timeline build(LabSession session, List<WeeklyNote> published) {
+            Map<Integer, Note> byWeek = new HashMap<>();
+            published.forEach(n -> byWeek.put(n.getWeekNumber(), Note.of(n)));
+
+            List<Week> weeks = new ArrayList<>(session.getDurationWeeks());
+            LocalDate weekStart = firstSessionDay(session);
+            for (int week = 1; week <= session.getDurationWeeks(); week++) {
+                LocalDate weekEnd = weekStart.plusDays(6);
+                weeks.add(new Week(week, weekStart, weekEnd,
+                        weekStart.format(WEEK_DATE) + " - " + weekEnd.format(WEEK_DATE), byWeek.get(week)));
+                weekStart = weekStart.plusWeeks(1);
+            }
+            return new Timeline(session.getId(), session.getName(), session.getStartDate(),
+                    session.getDurationWeeks(), session.getSessionDays(), List.copyOf(weeks));
+        }
+
+        boolean builtFor(LabSession session) {
+            return Objects.equals(sessionName, session.getName())
+                    && Objects.equals(startDate, session.getStartDate())
+                    && Objects.equals(durationWeeks, session.getDurationWeeks())
+                    && Objects.equals(sessionDays, session.getSessionDays());
+        }
+
+        // DTOs are mutable, so each caller gets its own
+        List<WeeklyNoteDTO> toDTOs(LocalDate today) {
+            List<WeeklyNoteDTO> result = new ArrayList<>(weeks.size());
+            for (Week week : weeks) {
+                WeeklyNoteDTO.WeeklyNoteDTOBuilder builder = WeeklyNoteDTO.builder()
+                        .labSessionId(sessionId)
+                        .labSessionName(sessionName)
+                        .weekNumber(week.number())
+                        .weekStartDate(week.start())
+                        .weekEndDate(week.end())
+                        .displayName("Week " + week.number())
+                        .dateRange(week.dateRange())
+                        .isCurrentWeek(!today.isBefore(week.start()) && !today.isAfter(week.end()))
+                        .isPastWeek(today.isAfter(week.end()))
+                        .isFutureWeek(today.isBefore(week.start()))
+                        .isPublished(week.note() != null);
+
+                Note note = week.note();
+                if (note != null) {
+                    builder.id(note.id())
+                            .title(note.title())
+                            .content(note.content())
+                            .learningObjectives(note.learningObjectives())
+                            .materialsNeeded(note.materialsNeeded());
+                    if (note.title() != null) {
+                        builder.displayName("Week " + week.number() + ": " + note.title());
+                    }
+                }
+                result.add(builder.build());
+            }
+            return result;
+        }
+    }
+
+    private record Entry(Timeline timeline, long expiresAt) {}
+}
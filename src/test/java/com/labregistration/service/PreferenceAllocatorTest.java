@@ -0,0 +1,227 @@
+package com.labregistration.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.labregistration.service.PreferenceAllocator.UNALLOCATED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks {@link PreferenceAllocator} against a brute force over every assignment.
+ *
+ * Students are added in order, so the allocator should seat the same students greedy
+ * admission in that order would (the earliest students who can all be seated together),
+ * and among the assignments that seat exactly them, one of least cost: rank r costs
+ * (r + 1)^2 and a seat outside a student's choices costs more than any ranked choice.
+ */
+class PreferenceAllocatorTest {
+
+    private static final int[] ANY_SLOT = null;
+
+    @Test
+    void givesEveryoneTheirFirstChoiceWhenThereIsRoom() {
+        int[] result = PreferenceAllocator.allocate(new int[]{2, 2},
+                new int[][]{{0, 1}, {1, 0}, {0}}, new int[3][]);
+
+        assertThat(result).containsExactly(0, 1, 0);
+    }
+
+    @Test
+    void movesStudentsOffAFullSlotAtLeastTotalCost() {
+        // Slot 0 has one seat; giving it to student 1 costs 4 + 1 rather than 1 + 9 (overflow)
+        int[] result = PreferenceAllocator.allocate(new int[]{1, 1, 1},
+                new int[][]{{0, 1}, {0}}, new int[2][]);
+
+        assertThat(result).containsExactly(1, 0);
+    }
+
+    @Test
+    void seatsStudentsWithoutChoicesOrWithFullChoicesInAnyFreeSlot() {
+        int[] result = PreferenceAllocator.allocate(new int[]{1, 1},
+                new int[][]{{0}, {0}, {}}, new int[3][]);
+
+        assertThat(result[0]).isEqualTo(0);
+        assertThat(result[1]).isEqualTo(1);
+        assertThat(result[2]).isEqualTo(UNALLOCATED);
+    }
+
+    @Test
+    void leavesTheLatestStudentsOverWhenSeatsRunOut() {
+        int[] result = PreferenceAllocator.allocate(new int[]{1, 1},
+                new int[][]{{1}, {1}, {0}}, new int[3][]);
+
+        assertThat(result).containsExactly(1, 0, UNALLOCATED);
+    }
+
+    @Test
+    void keepsRestrictedStudentsToTheirAllowedSlots() {
+        // Student 0 may only overflow into slot 2, which is full by the time it is needed
+        int[] result = PreferenceAllocator.allocate(new int[]{1, 1, 0},
+                new int[][]{{0}, {0}}, new int[][]{{2}, null});
+
+        assertThat(result).containsExactly(0, 1);
+
+        // Student 1 can only take its choice, so student 0 gives it up to seat both
+        int[] restricted = PreferenceAllocator.allocate(new int[]{1, 1},
+                new int[][]{{0}, {0}}, new int[][]{null, {}});
+        assertThat(restricted).containsExactly(1, 0);
+
+        int[] full = PreferenceAllocator.allocate(new int[]{1, 1},
+                new int[][]{{0}, {0}}, new int[][]{{}, {}});
+        assertThat(full).containsExactly(0, UNALLOCATED);
+    }
+
+    @Test
+    void allocatesNothingWithoutSeats() {
+        int[] result = PreferenceAllocator.allocate(new int[]{0, 0, -1},
+                new int[][]{{0, 1}, {2}, {}}, new int[3][]);
+
+        assertThat(result).containsOnly(UNALLOCATED);
+    }
+
+    @Test
+    void handlesNoStudentsAndNoSlots() {
+        assertThat(PreferenceAllocator.allocate(new int[]{1}, new int[0][], new int[0][])).isEmpty();
+        assertThat(PreferenceAllocator.allocate(new int[0], new int[][]{{}}, new int[1][]))
+                .containsExactly(UNALLOCATED);
+    }
+
+    @Test
+    void matchesBruteForceOnRandomSmallCases() {
+        Random random = new Random(20240601L);
+        for (int round = 0; round < 2000; round++) {
+            int slots = 1 + random.nextInt(4);
+            int students = random.nextInt(7);
+            int[] capacity = new int[slots];
+            for (int j = 0; j < slots; j++) {
+                capacity[j] = random.nextInt(4) - 1; // includes zero and negative (treated as zero)
+            }
+            int[][] preferences = new int[students][];
+            int[][] allowed = new int[students][];
+            for (int i = 0; i < students; i++) {
+                preferences[i] = randomSubset(random, slots, random.nextInt(slots + 1));
+                allowed[i] = random.nextInt(3) == 0 ? randomSubset(random, slots, random.nextInt(slots + 1)) : ANY_SLOT;
+            }
+
+            int[] result = PreferenceAllocator.allocate(capacity, preferences, allowed);
+            Best best = bruteForce(capacity, preferences, allowed);
+            String input = "capacity=" + Arrays.toString(capacity)
+                    + " preferences=" + Arrays.deepToString(preferences)
+                    + " allowed=" + Arrays.deepToString(allowed)
+                    + " result=" + Arrays.toString(result);
+
+            assertThat(result).as(input).hasSize(students);
+            int[] used = new int[slots];
+            for (int i = 0; i < students; i++) {
+                if (result[i] == UNALLOCATED) continue;
+                assertThat(cost(i, result[i], preferences, allowed, longest(preferences)))
+                        .as("student %d given a slot it may not take: %s", i, input)
+                        .isGreaterThanOrEqualTo(0);
+                used[result[i]]++;
+            }
+            for (int j = 0; j < slots; j++) {
+                assertThat(used[j]).as("slot %d overbooked: %s", j, input).isLessThanOrEqualTo(Math.max(0, capacity[j]));
+            }
+            assertThat(seated(result)).as("students seated: %s", input).containsExactly(best.seated);
+            assertThat(totalCost(result, preferences, allowed)).as("total cost: %s", input).isEqualTo(best.cost);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // BRUTE FORCE
+    // -------------------------------------------------------------------------
+
+    private record Best(boolean[] seated, long cost) {}
+
+    private static Best bruteForce(int[] capacity, int[][] preferences, int[][] allowed) {
+        int students = preferences.length;
+        int slots = capacity.length;
+        int[] current = new int[students];
+        Best[] best = {null};
+        search(0, current, new int[slots], capacity, preferences, allowed, best);
+        return best[0];
+    }
+
+    private static void search(int i, int[] current, int[] used, int[] capacity,
+                               int[][] preferences, int[][] allowed, Best[] best) {
+        if (i == current.length) {
+            boolean[] seated = seated(current);
+            long cost = totalCost(current, preferences, allowed);
+            if (best[0] == null || better(seated, cost, best[0])) {
+                best[0] = new Best(seated, cost);
+            }
+            return;
+        }
+        current[i] = UNALLOCATED;
+        search(i + 1, current, used, capacity, preferences, allowed, best);
+        for (int j = 0; j < capacity.length; j++) {
+            if (used[j] >= Math.max(0, capacity[j])
+                    || cost(i, j, preferences, allowed, longest(preferences)) < 0) {
+                continue;
+            }
+            current[i] = j;
+            used[j]++;
+            search(i + 1, current, used, capacity, preferences, allowed, best);
+            used[j]--;
+        }
+        current[i] = UNALLOCATED;
+    }
+
+    // Seating an earlier student beats seating any later ones; then the cheaper assignment
+    private static boolean better(boolean[] seated, long cost, Best than) {
+        for (int i = 0; i < seated.length; i++) {
+            if (seated[i] != than.seated[i]) {
+                return seated[i];
+            }
+        }
+        return cost < than.cost;
+    }
+
+    private static boolean[] seated(int[] assignment) {
+        boolean[] seated = new boolean[assignment.length];
+        for (int i = 0; i < assignment.length; i++) {
+            seated[i] = assignment[i] != UNALLOCATED;
+        }
+        return seated;
+    }
+
+    private static long totalCost(int[] assignment, int[][] preferences, int[][] allowed) {
+        int longest = longest(preferences);
+        long total = 0;
+        for (int i = 0; i < assignment.length; i++) {
+            if (assignment[i] != UNALLOCATED) {
+                total += cost(i, assignment[i], preferences, allowed, longest);
+            }
+        }
+        return total;
+    }
+
+    // Cost of giving student i slot j, or -1 when the student may not take it
+    private static long cost(int i, int j, int[][] preferences, int[][] allowed, int longest) {
+        for (int r = 0; r < preferences[i].length; r++) {
+            if (preferences[i][r] == j) {
+                return (long) (r + 1) * (r + 1);
+            }
+        }
+        boolean mayOverflow = allowed[i] == null || Arrays.stream(allowed[i]).anyMatch(s -> s == j);
+        return mayOverflow ? (long) (longest + 1) * (longest + 1) : -1;
+    }
+
+    private static int longest(int[][] preferences) {
+        return Arrays.stream(preferences).mapToInt(p -> p.length).max().orElse(0);
+    }
+
+    private static int[] randomSubset(Random random, int slots, int size) {
+        int[] order = new int[slots];
+        for (int j = 0; j < slots; j++) order[j] = j;
+        for (int j = slots - 1; j > 0; j--) {
+            int k = random.nextInt(j + 1);
+            int t = order[j];
+            order[j] = order[k];
+            order[k] = t;
+        }
+        return Arrays.copyOf(order, size);
+    }
+}